@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.benchmark;
+
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.client.impl.queue.SendMessageAction;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.common.http.ServiceClientFactory;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.QueueMeta;
+import com.aliyun.mns.model.request.queue.SendMessageRequest;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 完整的 AbstractAction.executeWithCustomHeaders 请求链路：序列化、签名、HTTP 往返和结果解析。
+ * 服务端是本机的 LocalMNSServer，结果不含公网抖动。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ActionPipelineBenchmark {
+    private static final String QUEUE_NAME = "benchmark-queue";
+
+    @Param({"V2", "V4"})
+    public SignVersion signVersion;
+
+    @Param({"256"})
+    public int bodySize;
+
+    private LocalMNSServer server;
+    private MNSClient client;
+    private ServiceClient serviceClient;
+    private ServiceCredentials credentials;
+    private URI endpoint;
+    private String queueURL;
+    private String body;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new LocalMNSServer();
+        server.start();
+
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(signVersion);
+        configuration.setMaxConnections(64);
+        configuration.setMaxConnectionsPerRoute(64);
+        client = server.newClient(configuration);
+        serviceClient = ServiceClientFactory.createServiceClient(configuration);
+        serviceClient.setRegion(server.getRegion());
+        credentials = new ServiceCredentials(LocalMNSServer.DEFAULT_ACCESS_KEY_ID,
+            LocalMNSServer.DEFAULT_ACCESS_KEY_SECRET);
+        endpoint = URI.create(server.getEndpoint());
+        queueURL = server.getEndpoint() + "/queues/" + QUEUE_NAME;
+
+        char[] chars = new char[bodySize];
+        Arrays.fill(chars, 'x');
+        body = new String(chars);
+    }
+
+    /**
+     * 每轮重建队列，避免本地服务内存随发送量增长
+     */
+    @Setup(Level.Iteration)
+    public void recreateQueue() {
+        client.getQueueRef(QUEUE_NAME).delete();
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(QUEUE_NAME);
+        client.createQueue(meta);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ServiceClientFactory.closeServiceClient(serviceClient);
+        client.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public Message sendMessage() {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        SendMessageRequest request = new SendMessageRequest();
+        request.setMessage(message);
+        request.setRequestPath(queueURL);
+        return new SendMessageAction(serviceClient, credentials, endpoint).executeWithCustomHeaders(request, null);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.benchmark;
+
+import com.aliyun.mns.common.utils.DateUtil;
+import com.aliyun.mns.common.utils.HttpUtil;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_CHARSET;
+
+/**
+ * 每个请求都会经过的 URL 编码、查询串拼接、header 编码转换和 Date 格式化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpUtilBenchmark {
+    private static final String RECEIPT_HANDLE = "1-ODU4OTkzNDU5My0xNDMyNzI3ODI3LTItOA==";
+
+    private Map<String, String> parameters;
+    private Map<String, String> headers;
+    private Date date;
+
+    @Setup
+    public void setUp() {
+        parameters = new LinkedHashMap<String, String>();
+        parameters.put("ReceiptHandle", RECEIPT_HANDLE);
+        parameters.put("VisibilityTimeout", "30");
+        headers = new HashMap<String, String>();
+        headers.put("Content-Type", "text/xml;charset=UTF-8");
+        headers.put("x-mns-version", "2015-06-06");
+        headers.put("x-mns-user-request-id", "0123456789ABCDEF0123456789ABCDEF");
+        headers.put("Date", DateUtil.formatRfc822Date(new Date()));
+        date = new Date();
+    }
+
+    @Benchmark
+    public String urlEncodeCharset() throws Exception {
+        return HttpUtil.urlEncode(RECEIPT_HANDLE, DEFAULT_CHARSET);
+    }
+
+    @Benchmark
+    public String urlEncodePath() {
+        return HttpUtil.urlEncode("/queues/benchmark-queue/messages", true);
+    }
+
+    @Benchmark
+    public String paramToQueryString() throws Exception {
+        return HttpUtil.paramToQueryString(parameters, DEFAULT_CHARSET);
+    }
+
+    @Benchmark
+    public Map<String, String> convertHeaderCharset() {
+        HttpUtil.convertHeaderCharsetToIso88591(headers);
+        HttpUtil.convertHeaderCharsetFromIso88591(headers);
+        return headers;
+    }
+
+    @Benchmark
+    public String formatRfc822Date() {
+        return DateUtil.formatRfc822Date(date);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.benchmark;
+
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessagePropertyValue;
+import com.aliyun.mns.model.serialize.XmlWriter;
+import com.aliyun.mns.model.serialize.queue.MessageListDeserializer;
+import com.aliyun.mns.model.serialize.queue.MessageListSerializer;
+import com.aliyun.mns.model.serialize.queue.MessageSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_CHARSET;
+
+/**
+ * 消息序列化与批量消息反序列化，按消息体大小和用户属性个数组合
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"64", "4096", "65536"})
+    public int bodySize;
+
+    @Param({"0", "8"})
+    public int propertyCount;
+
+    private final MessageSerializer messageSerializer = new MessageSerializer();
+    private final MessageListSerializer messageListSerializer = new MessageListSerializer();
+    private Message message;
+    private List<Message> messages;
+    private byte[] batchReceiveResponse;
+
+    @Setup
+    public void setUp() {
+        message = newMessage();
+        messages = new ArrayList<Message>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            messages.add(newMessage());
+        }
+        batchReceiveResponse = buildBatchReceiveResponse();
+    }
+
+    @Benchmark
+    public InputStream serializeMessage() throws Exception {
+        return messageSerializer.serialize(message, DEFAULT_CHARSET);
+    }
+
+    @Benchmark
+    public InputStream serializeMessageList() throws Exception {
+        return messageListSerializer.serialize(messages, DEFAULT_CHARSET);
+    }
+
+    @Benchmark
+    public List<Message> deserializeMessageList() throws Exception {
+        return new MessageListDeserializer().deserialize(new ByteArrayInputStream(batchReceiveResponse));
+    }
+
+    private Message newMessage() {
+        Message result = new Message();
+        result.setMessageBodyAsRawString(body());
+        for (int i = 0; i < propertyCount; i++) {
+            result.getUserProperties().put("key" + i, new MessagePropertyValue("value" + i));
+        }
+        return result;
+    }
+
+    private String body() {
+        char[] chars = new char[bodySize];
+        Arrays.fill(chars, 'x');
+        return new String(chars);
+    }
+
+    /**
+     * 构造与服务端 BatchReceiveMessage 返回格式一致的响应
+     */
+    private byte[] buildBatchReceiveResponse() {
+        XmlWriter writer = new XmlWriter(bodySize * BATCH_SIZE + 4096)
+            .writeDeclaration(DEFAULT_CHARSET).startRootElement("Messages");
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            writer.startElement("Message")
+                .textElement("MessageId", String.format("%016X", i))
+                .textElement("ReceiptHandle", String.format("%016X-1-%d", i, now))
+                .textElement("MessageBodyMD5", "D41D8CD98F00B204E9800998ECF8427E")
+                .textElement("MessageBody", body())
+                .textElement("EnqueueTime", String.valueOf(now))
+                .textElement("NextVisibleTime", String.valueOf(now + 30000))
+                .textElement("FirstDequeueTime", String.valueOf(now))
+                .textElement("DequeueCount", "1")
+                .textElement("Priority", "8")
+                .endElement("Message");
+        }
+        return writer.endElement("Messages").toByteArray();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.benchmark;
+
+import com.aliyun.mns.common.HttpMethod;
+import com.aliyun.mns.common.auth.MNSV2Signer;
+import com.aliyun.mns.common.auth.MNSV4Signer;
+import com.aliyun.mns.common.http.RequestMessage;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.aliyun.mns.common.MNSConstants.X_HEADER_MNS_API_VERSION;
+import static com.aliyun.mns.common.MNSConstants.X_HEADER_MNS_API_VERSION_VALUE;
+
+/**
+ * V2 / V4 签名计算，请求形态与 BatchReceiveMessage 一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignerBenchmark {
+    private static final String ACCESS_KEY_ID = "LocalAccessKeyId";
+    private static final String ACCESS_KEY_SECRET = "LocalAccessKeySecret";
+    private static final String REGION = "cn-hangzhou";
+
+    private final MNSV2Signer v2Signer = new MNSV2Signer();
+    private final MNSV4Signer v4Signer = new MNSV4Signer();
+    private RequestMessage request;
+
+    @Setup
+    public void setUp() {
+        request = new RequestMessage();
+        request.setEndpoint(URI.create("http://1234567890.mns.cn-hangzhou.aliyuncs.com"));
+        request.setMethod(HttpMethod.GET);
+        request.setResourcePath("queues/benchmark-queue/messages");
+        request.addParameter("numOfMessages", "16");
+        request.addParameter("waitseconds", "10");
+        request.addHeader("Content-Type", "text/xml;charset=UTF-8");
+        request.addHeader(X_HEADER_MNS_API_VERSION, X_HEADER_MNS_API_VERSION_VALUE);
+        request.addHeader("x-mns-user-request-id", "0123456789ABCDEF0123456789ABCDEF");
+    }
+
+    @Benchmark
+    public String v2Authorization() {
+        return v2Signer.getAuthorization(ACCESS_KEY_ID, ACCESS_KEY_SECRET, request, REGION);
+    }
+
+    @Benchmark
+    public String v4Authorization() {
+        return v4Signer.getAuthorization(ACCESS_KEY_ID, ACCESS_KEY_SECRET, request, REGION);
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.client;
+
+import com.aliyun.mns.common.BatchDeleteException;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.ServiceHandlingRequiredException;
+import com.aliyun.mns.common.utils.ServiceConstants;
+import com.aliyun.mns.common.utils.ThreadUtil;
+import com.aliyun.mns.model.ErrorMessageResult;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 异步合批的消息确认器：收集 receipt handle，通过 BatchDeleteMessage 批量删除消息。
+ * <p>
+ * 满足以下任一条件时发送当前批次：
+ * <ul>
+ *     <li>攒够 maxBatchSize 个 handle（最多 16 个）；</li>
+ *     <li>批次中最早的一个 handle 等待超过 flushIntervalMillis；</li>
+ *     <li>某条消息即将重新可见（距 nextVisibleTime 不足 expiryMarginMillis）。</li>
+ * </ul>
+ * {@link BatchDeleteException} 中报告失败的 handle 会按退避重试，MessageNotExist 和 ReceiptHandleError
+ * 属于不可重试的错误。ack 方法返回的 future 可以忽略（fire-and-forget），也可以用于确认删除结果。
+ */
+public final class BatchMessageAcknowledger {
+    private static final Logger logger = LoggerFactory.getLogger(BatchMessageAcknowledger.class);
+
+    public static final int MAX_BATCH_SIZE = 16;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_EXPIRY_MARGIN_MILLIS = 1000;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 200;
+
+    private final CloudQueue queue;
+    private final int maxBatchSize;
+    private final long flushIntervalMillis;
+    private final long expiryMarginMillis;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+
+    private final Object lock = new Object();
+    private List<PendingAck> pending = new ArrayList<PendingAck>();
+    // 已取出、待发送的批次，按取出顺序发送，保证同一线程先确认的消息先发出删除请求
+    private final ArrayDeque<List<PendingAck>> ready = new ArrayDeque<List<PendingAck>>();
+    private final Object sendLock = new Object();
+    private ScheduledFuture<?> flushTask = null;
+    private long flushDeadline = Long.MAX_VALUE;
+    private final Set<CompletableFuture<Void>> outstanding =
+        Collections.newSetFromMap(new ConcurrentHashMap<CompletableFuture<Void>, Boolean>());
+    private volatile boolean closed = false;
+
+    private BatchMessageAcknowledger(Builder builder) {
+        this.queue = builder.queue;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.flushIntervalMillis = builder.flushIntervalMillis;
+        this.expiryMarginMillis = builder.expiryMarginMillis;
+        this.maxRetries = builder.maxRetries;
+        this.retryBackoffMillis = builder.retryBackoffMillis;
+        if (builder.scheduler != null) {
+            this.scheduler = builder.scheduler;
+            this.ownScheduler = false;
+        } else {
+            this.scheduler = ThreadUtil.initScheduledExecutorService("mns-batch-acknowledger", true, 1);
+            this.ownScheduler = true;
+        }
+    }
+
+    public static Builder newBuilder(CloudQueue queue) {
+        return new Builder(queue);
+    }
+
+    /**
+     * 确认（删除）消息，在消息重新可见之前一定会发出删除请求
+     *
+     * @param message 通过 popMessage/batchPopMessage 收到的消息
+     * @return future，删除成功时完成
+     */
+    public CompletableFuture<Void> ack(Message message) {
+        long deadline = System.currentTimeMillis() + flushIntervalMillis;
+        if (message.getNextVisibleTime() != null) {
+            deadline = Math.min(deadline, message.getNextVisibleTime().getTime() - expiryMarginMillis);
+        }
+        return ack(message.getReceiptHandle(), deadline);
+    }
+
+    /**
+     * 确认（删除）消息
+     *
+     * @param receiptHandle 消息句柄
+     * @return future，删除成功时完成
+     */
+    public CompletableFuture<Void> ack(String receiptHandle) {
+        return ack(receiptHandle, System.currentTimeMillis() + flushIntervalMillis);
+    }
+
+    private CompletableFuture<Void> ack(String receiptHandle, long deadline) {
+        if (receiptHandle == null || receiptHandle.isEmpty()) {
+            throw new NullPointerException("receiptHandle can not be empty.");
+        }
+        PendingAck entry = new PendingAck(receiptHandle, deadline);
+        if (closed) {
+            entry.future.completeExceptionally(
+                new ClientException("BatchMessageAcknowledger is already closed.", null));
+            return entry.future;
+        }
+        outstanding.add(entry.future);
+        entry.future.whenComplete((v, e) -> outstanding.remove(entry.future));
+        enqueue(entry);
+        return entry.future;
+    }
+
+    /**
+     * 立即发送当前缓存的 handle
+     */
+    public void flush() {
+        synchronized (lock) {
+            drainLocked();
+        }
+        sendReady();
+    }
+
+    /**
+     * 关闭确认器：发送缓存中的 handle，之后的 ack 调用直接失败。
+     *
+     * @return future，所有已接受的 ack（包括重试）结束时完成
+     */
+    public CompletableFuture<Void> close() {
+        closed = true;
+        flush();
+        CompletableFuture<Void> all = CompletableFuture.allOf(
+            outstanding.toArray(new CompletableFuture<?>[0]));
+        return all.handle((v, e) -> {
+            if (ownScheduler) {
+                scheduler.shutdown();
+            }
+            return null;
+        });
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private void enqueue(PendingAck entry) {
+        boolean full = false;
+        synchronized (lock) {
+            pending.add(entry);
+            if (pending.size() >= maxBatchSize) {
+                drainLocked();
+                full = true;
+            } else if (entry.deadline < flushDeadline) {
+                scheduleFlushLocked(entry.deadline);
+            }
+        }
+        if (full) {
+            sendReady();
+        }
+    }
+
+    private void scheduleFlushLocked(long deadline) {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flushDeadline = deadline;
+        long delay = Math.max(0, deadline - System.currentTimeMillis());
+        try {
+            flushTask = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 外部线程池已关闭，留到下一次 ack 或 flush 时发送
+            flushTask = null;
+            flushDeadline = Long.MAX_VALUE;
+            logger.warn("flush scheduler rejected task, handles will be sent on next ack or flush.");
+        }
+    }
+
+    private void drainLocked() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        flushDeadline = Long.MAX_VALUE;
+        if (pending.isEmpty()) {
+            return;
+        }
+        ready.add(pending);
+        pending = new ArrayList<PendingAck>(maxBatchSize);
+    }
+
+    /**
+     * 按取出顺序发送待发送的批次；多个线程同时 flush 时由持有 sendLock 的线程依次发出
+     */
+    private void sendReady() {
+        synchronized (sendLock) {
+            while (true) {
+                List<PendingAck> batch;
+                synchronized (lock) {
+                    batch = ready.poll();
+                }
+                if (batch == null) {
+                    return;
+                }
+                dispatch(batch);
+            }
+        }
+    }
+
+    private void dispatch(final List<PendingAck> batch) {
+        List<String> handles = new ArrayList<String>(batch.size());
+        for (PendingAck entry : batch) {
+            handles.add(entry.receiptHandle);
+        }
+
+        CompletableFuture<Void> response;
+        try {
+            response = queue.batchDeleteMessageAsync(handles);
+        } catch (Exception e) {
+            response = new CompletableFuture<Void>();
+            response.completeExceptionally(e);
+        }
+        response.whenComplete((v, error) -> complete(batch, error));
+    }
+
+    private void complete(List<PendingAck> batch, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof ServiceHandlingRequiredException && error.getCause() instanceof ServiceException) {
+            error = error.getCause();
+        }
+        if (error == null) {
+            for (PendingAck entry : batch) {
+                entry.future.complete(null);
+            }
+            return;
+        }
+
+        if (error instanceof BatchDeleteException) {
+            // 部分失败：未出现在错误列表中的 handle 已删除成功
+            Map<String, ErrorMessageResult> errors = ((BatchDeleteException) error).getErrorMessages();
+            for (PendingAck entry : batch) {
+                ErrorMessageResult result = errors == null ? null : errors.get(entry.receiptHandle);
+                if (result == null) {
+                    entry.future.complete(null);
+                } else if (isPermanentError(result.getErrorCode()) || !retry(entry)) {
+                    entry.future.completeExceptionally(new ServiceException(result.getErrorMessage(), null,
+                        result.getErrorCode(), null, null));
+                }
+            }
+            return;
+        }
+
+        for (PendingAck entry : batch) {
+            if (!retry(entry)) {
+                entry.future.completeExceptionally(error);
+            }
+        }
+    }
+
+    private boolean isPermanentError(String errorCode) {
+        return ServiceConstants.ERROR_CODE_MSG_NOT_EXIST.equals(errorCode)
+            || ServiceConstants.ERROR_CODE_RECEIPT_HANDLE_ERROR.equals(errorCode);
+    }
+
+    private boolean retry(final PendingAck entry) {
+        if (entry.attempts >= maxRetries) {
+            return false;
+        }
+        entry.attempts++;
+        entry.deadline = System.currentTimeMillis();
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    enqueue(entry);
+                }
+            }, retryBackoffMillis * entry.attempts, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static final class PendingAck {
+        private final String receiptHandle;
+        private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        private long deadline;
+        private int attempts = 0;
+
+        private PendingAck(String receiptHandle, long deadline) {
+            this.receiptHandle = receiptHandle;
+            this.deadline = deadline;
+        }
+    }
+
+    public static final class Builder {
+        private final CloudQueue queue;
+        private int maxBatchSize = MAX_BATCH_SIZE;
+        private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+        private long expiryMarginMillis = DEFAULT_EXPIRY_MARGIN_MILLIS;
+        private int maxRetries = DEFAULT_MAX_RETRIES;
+        private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+        private ScheduledExecutorService scheduler;
+
+        private Builder(CloudQueue queue) {
+            if (queue == null) {
+                throw new NullPointerException("queue can not be null.");
+            }
+            this.queue = queue;
+        }
+
+        /**
+         * 每批最多的 handle 个数，取值 1 ~ 16
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1 || maxBatchSize > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("maxBatchSize should be between 1 and " + MAX_BATCH_SIZE);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * handle 在缓存中最多等待的时间，单位毫秒
+         */
+        public Builder flushIntervalMillis(long flushIntervalMillis) {
+            if (flushIntervalMillis < 0) {
+                throw new IllegalArgumentException("flushIntervalMillis should not be negative");
+            }
+            this.flushIntervalMillis = flushIntervalMillis;
+            return this;
+        }
+
+        /**
+         * 距消息重新可见（nextVisibleTime）至少提前多久发出删除请求，单位毫秒
+         */
+        public Builder expiryMarginMillis(long expiryMarginMillis) {
+            if (expiryMarginMillis < 0) {
+                throw new IllegalArgumentException("expiryMarginMillis should not be negative");
+            }
+            this.expiryMarginMillis = expiryMarginMillis;
+            return this;
+        }
+
+        /**
+         * 单个 handle 可重试的最大次数
+         */
+        public Builder maxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries should not be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * 重试的基础退避时间，第 n 次重试等待 n 倍，单位毫秒
+         */
+        public Builder retryBackoffMillis(long retryBackoffMillis) {
+            if (retryBackoffMillis < 0) {
+                throw new IllegalArgumentException("retryBackoffMillis should not be negative");
+            }
+            this.retryBackoffMillis = retryBackoffMillis;
+            return this;
+        }
+
+        /**
+         * 用于定时发送和重试的线程池，不设置时使用内部的单线程池，并在 close 完成后关闭
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public BatchMessageAcknowledger build() {
+            return new BatchMessageAcknowledger(this);
+        }
+    }
+}
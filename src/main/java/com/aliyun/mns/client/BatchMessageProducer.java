@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.client;
+
+import com.aliyun.mns.common.BatchSendException;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.MNSConstants;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.utils.ThreadUtil;
+import com.aliyun.mns.model.ErrorMessageResult;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 自动合批的消息生产者：把逐条发送的消息合并为 BatchSendMessage 请求。
+ * <p>
+ * 满足以下任一条件时发送当前批次：
+ * <ul>
+ *     <li>攒够 maxBatchSize 条消息（最多 16 条）；</li>
+ *     <li>再加入一条消息会使消息体总大小超过 maxBatchBytes（默认 {@link MNSConstants#MAX_MESSAGE_SIZE}，
+ *     可设置为队列的 MaximumMessageSize）。客户端配置了 {@link MessageBodyCodec} 时按压缩后的大小计算；</li>
+ *     <li>批次中第一条消息等待超过 lingerMillis。</li>
+ * </ul>
+ * 每次 {@link #send(Message)} 都返回各自的 future；批量发送部分失败（{@link BatchSendException}）时，
+ * 失败条目以对应的 {@link ServiceException} 结束，其余条目正常完成。
+ */
+public final class BatchMessageProducer {
+    private static final Logger logger = LoggerFactory.getLogger(BatchMessageProducer.class);
+
+    public static final int MAX_BATCH_SIZE = 16;
+    public static final long DEFAULT_LINGER_MILLIS = 10;
+
+    private final CloudQueue queue;
+    private final int maxBatchSize;
+    private final long maxBatchBytes;
+    private final long lingerMillis;
+    private final MessageBodyCodec bodyCodec;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+
+    private final Object lock = new Object();
+    private List<PendingMessage> pending = new ArrayList<PendingMessage>();
+    private long pendingBytes = 0;
+    private ScheduledFuture<?> lingerTask = null;
+    private volatile boolean closed = false;
+
+    private BatchMessageProducer(Builder builder) {
+        this.queue = builder.queue;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.lingerMillis = builder.lingerMillis;
+        this.bodyCodec = builder.queue.getMessageBodyCodec();
+        if (builder.scheduler != null) {
+            this.scheduler = builder.scheduler;
+            this.ownScheduler = false;
+        } else {
+            this.scheduler = ThreadUtil.initScheduledExecutorService("mns-batch-producer", true, 1);
+            this.ownScheduler = true;
+        }
+    }
+
+    public static Builder newBuilder(CloudQueue queue) {
+        return new Builder(queue);
+    }
+
+    /**
+     * 发送消息，消息会与其他消息合批发送
+     *
+     * @param message 待发送的消息
+     * @return future，完成时得到发送成功的消息（包含 MessageId 等），失败时以 ClientException 或 ServiceException 结束
+     */
+    public CompletableFuture<Message> send(Message message) {
+        if (message == null) {
+            throw new NullPointerException("message can not be null.");
+        }
+        PendingMessage entry = new PendingMessage(bodyCodec == null ? message : bodyCodec.encodeMessage(message));
+
+        List<PendingMessage> full = null;
+        List<PendingMessage> overflow = null;
+        List<PendingMessage> rejected = null;
+        RejectedExecutionException rejection = null;
+        synchronized (lock) {
+            // 在锁内检查，保证 close 取走缓存后不会再有消息加入
+            if (closed) {
+                entry.future.completeExceptionally(
+                    new ClientException("BatchMessageProducer is already closed.", null));
+                return entry.future;
+            }
+            if (!pending.isEmpty() && pendingBytes + entry.size > maxBatchBytes) {
+                overflow = drainLocked();
+            }
+            pending.add(entry);
+            pendingBytes += entry.size;
+            if (pending.size() >= maxBatchSize || pendingBytes >= maxBatchBytes) {
+                full = drainLocked();
+            } else if (lingerTask == null) {
+                try {
+                    lingerTask = scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            flush();
+                        }
+                    }, lingerMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 外部传入的线程池已关闭，缓存的消息无法再定时发送
+                    rejected = drainLocked();
+                    rejection = e;
+                }
+            }
+        }
+        dispatch(overflow);
+        dispatch(full);
+        if (rejected != null) {
+            ClientException error = new ClientException(
+                "BatchMessageProducer scheduler rejected the linger task.", null, rejection);
+            for (PendingMessage pendingEntry : rejected) {
+                pendingEntry.future.completeExceptionally(error);
+            }
+        }
+        return entry.future;
+    }
+
+    /**
+     * 立即发送当前缓存的消息
+     *
+     * @return future，当前批次发送完成（无论成功与否）时完成
+     */
+    public CompletableFuture<Void> flush() {
+        List<PendingMessage> batch;
+        synchronized (lock) {
+            batch = drainLocked();
+        }
+        return dispatch(batch);
+    }
+
+    /**
+     * 关闭生产者：发送缓存中的消息，之后的 send 调用直接失败。
+     * 不等待在途请求完成，如需等待可使用返回的 future。
+     *
+     * @return future，最后一个批次发送完成时完成
+     */
+    public CompletableFuture<Void> close() {
+        List<PendingMessage> batch;
+        synchronized (lock) {
+            closed = true;
+            batch = drainLocked();
+        }
+        CompletableFuture<Void> last = dispatch(batch);
+        if (ownScheduler) {
+            scheduler.shutdown();
+        }
+        return last;
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private List<PendingMessage> drainLocked() {
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<PendingMessage> batch = pending;
+        pending = new ArrayList<PendingMessage>(maxBatchSize);
+        pendingBytes = 0;
+        return batch;
+    }
+
+    private CompletableFuture<Void> dispatch(final List<PendingMessage> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Message> messages = new ArrayList<Message>(batch.size());
+        for (PendingMessage entry : batch) {
+            messages.add(entry.message);
+        }
+
+        CompletableFuture<List<Message>> response;
+        try {
+            response = queue.batchPutMessageAsync(messages);
+        } catch (Exception e) {
+            response = new CompletableFuture<List<Message>>();
+            response.completeExceptionally(e);
+        }
+        return response.handle((results, error) -> {
+            complete(batch, results, error);
+            return null;
+        });
+    }
+
+    private void complete(List<PendingMessage> batch, List<Message> results, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof BatchSendException) {
+            // 部分失败：服务端按请求顺序返回每条消息的结果
+            results = ((BatchSendException) error).getMessages();
+            error = null;
+        }
+        if (error != null) {
+            for (PendingMessage entry : batch) {
+                entry.future.completeExceptionally(error);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingMessage entry = batch.get(i);
+            Message result = results != null && i < results.size() ? results.get(i) : null;
+            if (result == null) {
+                entry.future.completeExceptionally(new ClientException(
+                    "No result returned for message at index " + i + " of batch.", null));
+            } else if (result.isErrorMessage()) {
+                ErrorMessageResult detail = result.getErrorMessageDetail();
+                entry.future.completeExceptionally(new ServiceException(detail.getErrorMessage(), null,
+                    detail.getErrorCode(), result.getRequestId(), null));
+            } else {
+                entry.future.complete(result);
+            }
+        }
+        if (results != null && results.size() != batch.size()) {
+            logger.warn("BatchSendMessage returned " + results.size() + " results for " + batch.size() + " messages.");
+        }
+    }
+
+    private static final class PendingMessage {
+        private final Message message;
+        private final long size;
+        private final CompletableFuture<Message> future = new CompletableFuture<Message>();
+
+        /**
+         * @param message 实际发送的消息，需要压缩时已经是压缩后的副本
+         */
+        private PendingMessage(Message message) {
+            this.message = message;
+            // 消息体以编码后的字节发送，按其长度计算批次大小
+            byte[] body = message.getMessageBodyAsRawBytes();
+            this.size = body == null ? 0 : body.length;
+        }
+    }
+
+    public static final class Builder {
+        private final CloudQueue queue;
+        private int maxBatchSize = MAX_BATCH_SIZE;
+        private long maxBatchBytes = MNSConstants.MAX_MESSAGE_SIZE;
+        private long lingerMillis = DEFAULT_LINGER_MILLIS;
+        private ScheduledExecutorService scheduler;
+
+        private Builder(CloudQueue queue) {
+            if (queue == null) {
+                throw new NullPointerException("queue can not be null.");
+            }
+            this.queue = queue;
+        }
+
+        /**
+         * 每批最多的消息条数，取值 1 ~ 16
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1 || maxBatchSize > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("maxBatchSize should be between 1 and " + MAX_BATCH_SIZE);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * 每批消息体的总字节数上限，一般设置为队列的 MaximumMessageSize
+         */
+        public Builder maxBatchBytes(long maxBatchBytes) {
+            if (maxBatchBytes <= 0) {
+                throw new IllegalArgumentException("maxBatchBytes should be bigger than 0");
+            }
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * 批次中第一条消息最多等待的时间，单位毫秒
+         */
+        public Builder lingerMillis(long lingerMillis) {
+            if (lingerMillis < 0) {
+                throw new IllegalArgumentException("lingerMillis should not be negative");
+            }
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        /**
+         * 用于 linger 定时发送的线程池，不设置时使用内部的单线程池，并在 close 时关闭
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public BatchMessageProducer build() {
+            return new BatchMessageProducer(this);
+        }
+    }
+}
@@ -58,6 +58,8 @@ public final class CloudAccount {
     /**
      * 设置异步callback需要的ExecutorService
      *
+     * 对所有客户端生效；单个客户端可通过 {@link ClientConfiguration#setCallbackExecutionMode} 单独配置
+     *
      * @param executor 调用异步接口时, 执行用户callback的ExecutorService
      */
     public static void setCallbackExecutor(ExecutorService executor) {
@@ -19,6 +19,7 @@
 
 package com.aliyun.mns.client;
 
+import com.aliyun.mns.client.impl.ActionCache;
 import com.aliyun.mns.client.impl.queue.BatchDeleteMessageAction;
 import com.aliyun.mns.client.impl.queue.BatchPeekMessageAction;
 import com.aliyun.mns.client.impl.queue.BatchReceiveMessageAction;
@@ -38,9 +39,11 @@ import com.aliyun.mns.common.MNSConstants;
 import com.aliyun.mns.common.ServiceException;
 import com.aliyun.mns.common.ServiceHandlingRequiredException;
 import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.CancellableFuture;
 import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.common.utils.ServiceConstants;
 import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyun.mns.model.QueueMeta;
 import com.aliyun.mns.model.request.queue.BatchDeleteMessageRequest;
 import com.aliyun.mns.model.request.queue.BatchPeekMessageRequest;
@@ -58,17 +61,31 @@ import com.aliyun.mns.model.request.queue.SetQueueAttrRequest;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public final class CloudQueue {
     private ServiceClient serviceClient;
     private String queueURL;
     private ServiceCredentials credentials;
     private URI endpoint;
+    /**
+     * 去掉 endpoint 后的资源路径，如 queues/queueName，每次请求直接使用
+     */
+    private String queuePath;
+    private ActionCache actions;
 
     private Map<String, String> customHeaders = null;
 
     protected CloudQueue(String queueURL, ServiceClient client,
         ServiceCredentials credentials, URI endpoint) {
+        this(queueURL, new ActionCache(client, credentials, endpoint));
+    }
+
+    CloudQueue(String queueURL, ActionCache actions) {
+        ServiceClient client = actions.getClient();
+        ServiceCredentials credentials = actions.getCredentials();
+        URI endpoint = actions.getEndpoint();
+        this.actions = actions;
         this.serviceClient = client;
         this.credentials = credentials;
         this.endpoint = endpoint;
@@ -90,13 +107,21 @@ public final class CloudQueue {
             }
             this.queueURL = uri;
         }
-
+        String path = this.queueURL.substring(endpoint.toString().length());
+        this.queuePath = path.startsWith("/") ? path.substring(1) : path;
     }
 
     void setCustomHeaders(Map<String, String> customHeaders) {
         this.customHeaders = customHeaders;
     }
 
+    /**
+     * @return 客户端配置的消息体压缩，未配置时为 null
+     */
+    MessageBodyCodec getMessageBodyCodec() {
+        return serviceClient.getClientConfiguration().getMessageBodyCodec();
+    }
+
     /**
      * 创建队列，使用默认属性
      *
@@ -119,8 +144,7 @@ public final class CloudQueue {
     public String create(QueueMeta queueMeta) throws ServiceException,
         ClientException {
 
-        CreateQueueAction action = new CreateQueueAction(serviceClient,
-            credentials, endpoint);
+        CreateQueueAction action = actions.get(CreateQueueAction.class, CreateQueueAction::new);
         String queueName = drillQueueName();
         CreateQueueRequest request = new CreateQueueRequest();
         if (queueMeta == null || queueMeta.getQueueName() == null) {
@@ -134,7 +158,7 @@ public final class CloudQueue {
                 if (!queueName.equals(queueMeta.getQueueName())) {
                     throw new ClientException(
                         "QueueName conflict between meta queue name and  queue url offered.",
-                        action.getUserRequestId());
+                        null);
                 }
             }
         }
@@ -155,8 +179,7 @@ public final class CloudQueue {
     public AsyncResult<String> asyncCreate(QueueMeta queueMeta, AsyncCallback<String> callback) throws
         ClientException, ServiceException {
 
-        CreateQueueAction action = new CreateQueueAction(serviceClient,
-            credentials, endpoint);
+        CreateQueueAction action = actions.get(CreateQueueAction.class, CreateQueueAction::new);
         String queueName = drillQueueName();
         CreateQueueRequest request = new CreateQueueRequest();
         if (queueMeta == null || queueMeta.getQueueName() == null) {
@@ -170,7 +193,7 @@ public final class CloudQueue {
                 if (!queueName.equals(queueMeta.getQueueName())) {
                     throw new ClientException(
                         "QueueName conflict between meta queue name and  queue url offered.",
-                        action.getUserRequestId());
+                        null);
                 }
             }
         }
@@ -207,10 +230,9 @@ public final class CloudQueue {
      * @throws ClientException  exception
      */
     public void delete() throws ServiceException, ClientException {
-        DeleteQueueAction action = new DeleteQueueAction(serviceClient,
-            credentials, endpoint);
+        DeleteQueueAction action = actions.get(DeleteQueueAction.class, DeleteQueueAction::new);
         DeleteQueueRequest request = new DeleteQueueRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -223,10 +245,9 @@ public final class CloudQueue {
      * @throws ClientException  exception
      */
     public AsyncResult<Void> asyncDelete(AsyncCallback<Void> callback) throws ServiceException, ClientException {
-        DeleteQueueAction action = new DeleteQueueAction(serviceClient,
-            credentials, endpoint);
+        DeleteQueueAction action = actions.get(DeleteQueueAction.class, DeleteQueueAction::new);
         DeleteQueueRequest request = new DeleteQueueRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -238,10 +259,9 @@ public final class CloudQueue {
      * @throws ClientException  exception
      */
     public QueueMeta getAttributes() throws ServiceException, ClientException {
-        GetQueueAttrAction action = new GetQueueAttrAction(serviceClient,
-            credentials, endpoint);
+        GetQueueAttrAction action = actions.get(GetQueueAttrAction.class, GetQueueAttrAction::new);
         GetQueueAttrRequest request = new GetQueueAttrRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         QueueMeta meta = action.executeWithCustomHeaders(request, customHeaders);
         meta.setQueueURL(queueURL);
         return meta;
@@ -256,10 +276,9 @@ public final class CloudQueue {
      */
     public AsyncResult<QueueMeta> asyncGetAttributes(AsyncCallback<QueueMeta> callback)
         throws ClientException, ServiceException {
-        GetQueueAttrAction action = new GetQueueAttrAction(serviceClient,
-            credentials, endpoint);
+        GetQueueAttrAction action = actions.get(GetQueueAttrAction.class, GetQueueAttrAction::new);
         GetQueueAttrRequest request = new GetQueueAttrRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -272,8 +291,7 @@ public final class CloudQueue {
      */
     public void setAttributes(QueueMeta queueMeta) throws ClientException,
         ServiceException {
-        SetQueueAttrAction action = new SetQueueAttrAction(serviceClient,
-            credentials, endpoint);
+        SetQueueAttrAction action = actions.get(SetQueueAttrAction.class, SetQueueAttrAction::new);
         SetQueueAttrRequest request = new SetQueueAttrRequest();
         request.setQueueMeta(queueMeta);
         request.setRequestPath(MNSConstants.QUEUE_PREFIX + queueMeta.getQueueName());
@@ -290,8 +308,7 @@ public final class CloudQueue {
      */
     public AsyncResult<Void> asyncSetAttributes(QueueMeta queueMeta,
         AsyncCallback<Void> callback) throws ClientException, ServiceException {
-        SetQueueAttrAction action = new SetQueueAttrAction(serviceClient,
-            credentials, endpoint);
+        SetQueueAttrAction action = actions.get(SetQueueAttrAction.class, SetQueueAttrAction::new);
         SetQueueAttrRequest request = new SetQueueAttrRequest();
         request.setQueueMeta(queueMeta);
         request.setRequestPath(MNSConstants.QUEUE_PREFIX + queueMeta.getQueueName());
@@ -306,10 +323,9 @@ public final class CloudQueue {
      * @throws ClientException  exception
      */
     public Message peekMessage() throws ServiceException, ClientException, ServiceHandlingRequiredException {
-        PeekMessageAction action = new PeekMessageAction(serviceClient,
-            credentials, endpoint);
+        PeekMessageAction action = actions.get(PeekMessageAction.class, PeekMessageAction::new);
         PeekMessageRequest request = new PeekMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         try {
             return action.executeWithCustomHeaders(request, customHeaders);
         } catch (ServiceException e) {
@@ -335,10 +351,9 @@ public final class CloudQueue {
      */
     public AsyncResult<Message> asyncPeekMessage(AsyncCallback<Message> callback)
         throws ClientException, ServiceException {
-        PeekMessageAction action = new PeekMessageAction(serviceClient,
-            credentials, endpoint);
+        PeekMessageAction action = actions.get(PeekMessageAction.class, PeekMessageAction::new);
         PeekMessageRequest request = new PeekMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -352,11 +367,10 @@ public final class CloudQueue {
      */
     public List<Message> batchPeekMessage(int batchSize) throws ServiceException,
         ClientException, ServiceHandlingRequiredException {
-        BatchPeekMessageAction action = new BatchPeekMessageAction(
-            serviceClient, credentials, endpoint);
+        BatchPeekMessageAction action = actions.get(BatchPeekMessageAction.class, BatchPeekMessageAction::new);
         BatchPeekMessageRequest request = new BatchPeekMessageRequest();
         request.setBatchSize(batchSize);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         try {
             return action.executeWithCustomHeaders(request, customHeaders);
         } catch (ServiceException e) {
@@ -383,11 +397,10 @@ public final class CloudQueue {
      */
     public AsyncResult<List<Message>> asyncBatchPeekMessage(int batchSize,
         AsyncCallback<List<Message>> callback) throws ClientException, ServiceException {
-        BatchPeekMessageAction action = new BatchPeekMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchPeekMessageAction action = actions.get(BatchPeekMessageAction.class, BatchPeekMessageAction::new);
         BatchPeekMessageRequest request = new BatchPeekMessageRequest();
         request.setBatchSize(batchSize);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -402,10 +415,10 @@ public final class CloudQueue {
      */
     public String changeMessageVisibilityTimeout(String receiptHandle,
         int visibilityTimeout) throws ServiceException, ClientException {
-        ChangeVisibilityTimeoutAction action = new ChangeVisibilityTimeoutAction(
-            serviceClient, credentials, endpoint);
+        ChangeVisibilityTimeoutAction action = actions.get(ChangeVisibilityTimeoutAction.class,
+            ChangeVisibilityTimeoutAction::new);
         ChangeVisibilityTimeoutRequest request = new ChangeVisibilityTimeoutRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandle(receiptHandle);
         request.setVisibilityTimeout(visibilityTimeout);
         return action.executeWithCustomHeaders(request, customHeaders);
@@ -423,10 +436,10 @@ public final class CloudQueue {
     public AsyncResult<String> asyncChangeMessageVisibilityTimeout(
         String receiptHandle, int visibilityTimeout,
         AsyncCallback<String> callback) throws ClientException, ServiceException {
-        ChangeVisibilityTimeoutAction action = new ChangeVisibilityTimeoutAction(
-            serviceClient, credentials, endpoint);
+        ChangeVisibilityTimeoutAction action = actions.get(ChangeVisibilityTimeoutAction.class,
+            ChangeVisibilityTimeoutAction::new);
         ChangeVisibilityTimeoutRequest request = new ChangeVisibilityTimeoutRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandle(receiptHandle);
         request.setVisibilityTimeout(visibilityTimeout);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
@@ -443,10 +456,9 @@ public final class CloudQueue {
      */
     public Message changeMessageVisibility(String receiptHandle,
         int visibilityTimeout) throws ServiceException, ClientException {
-        ChangeVisibilityAction action = new ChangeVisibilityAction(
-            serviceClient, credentials, endpoint);
+        ChangeVisibilityAction action = actions.get(ChangeVisibilityAction.class, ChangeVisibilityAction::new);
         ChangeVisibilityTimeoutRequest request = new ChangeVisibilityTimeoutRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandle(receiptHandle);
         request.setVisibilityTimeout(visibilityTimeout);
         return action.executeWithCustomHeaders(request, customHeaders);
@@ -464,10 +476,9 @@ public final class CloudQueue {
     public AsyncResult<Message> asyncChangeMessageVisibility(
         String receiptHandle, int visibilityTimeout,
         AsyncCallback<Message> callback) throws ClientException, ServiceException {
-        ChangeVisibilityAction action = new ChangeVisibilityAction(
-            serviceClient, credentials, endpoint);
+        ChangeVisibilityAction action = actions.get(ChangeVisibilityAction.class, ChangeVisibilityAction::new);
         ChangeVisibilityTimeoutRequest request = new ChangeVisibilityTimeoutRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandle(receiptHandle);
         request.setVisibilityTimeout(visibilityTimeout);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
@@ -481,10 +492,9 @@ public final class CloudQueue {
      * @throws ClientException  exception
      */
     public Message popMessage() throws ServiceException, ClientException, ServiceHandlingRequiredException {
-        ReceiveMessageAction action = new ReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        ReceiveMessageAction action = actions.get(ReceiveMessageAction.class, ReceiveMessageAction::new);
         ReceiveMessageRequest request = new ReceiveMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         try {
             return action.executeWithCustomHeaders(request, customHeaders);
         } catch (ServiceException e) {
@@ -524,10 +534,9 @@ public final class CloudQueue {
      */
     public Message popMessage(int waitSeconds)
         throws ServiceException, ClientException, ServiceHandlingRequiredException {
-        ReceiveMessageAction action = new ReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        ReceiveMessageAction action = actions.get(ReceiveMessageAction.class, ReceiveMessageAction::new);
         ReceiveMessageRequest request = new ReceiveMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setWaitSeconds(waitSeconds);
         try {
             return action.executeWithCustomHeaders(request, customHeaders);
@@ -554,10 +563,9 @@ public final class CloudQueue {
      */
     public AsyncResult<Message> asyncPopMessage(AsyncCallback<Message> callback)
         throws ClientException, ServiceException {
-        ReceiveMessageAction action = new ReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        ReceiveMessageAction action = actions.get(ReceiveMessageAction.class, ReceiveMessageAction::new);
         ReceiveMessageRequest request = new ReceiveMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -571,10 +579,9 @@ public final class CloudQueue {
      */
     public AsyncResult<Message> asyncPopMessage(int waitSeconds, AsyncCallback<Message> callback)
         throws ClientException, ServiceException {
-        ReceiveMessageAction action = new ReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        ReceiveMessageAction action = actions.get(ReceiveMessageAction.class, ReceiveMessageAction::new);
         ReceiveMessageRequest request = new ReceiveMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setWaitSeconds(waitSeconds);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
@@ -589,11 +596,10 @@ public final class CloudQueue {
      */
     public List<Message> batchPopMessage(int batchSize)
         throws ServiceException, ClientException, ServiceHandlingRequiredException {
-        BatchReceiveMessageAction action = new BatchReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchReceiveMessageAction action = actions.get(BatchReceiveMessageAction.class, BatchReceiveMessageAction::new);
         BatchReceiveMessageRequest request = new BatchReceiveMessageRequest();
         request.setBatchSize(batchSize);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         try {
             return action.executeWithCustomHeaders(request, customHeaders);
         } catch (ServiceException e) {
@@ -620,12 +626,11 @@ public final class CloudQueue {
      */
     public List<Message> batchPopMessage(int batchSize, int waitSeconds)
         throws ServiceException, ClientException, ServiceHandlingRequiredException {
-        BatchReceiveMessageAction action = new BatchReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchReceiveMessageAction action = actions.get(BatchReceiveMessageAction.class, BatchReceiveMessageAction::new);
         BatchReceiveMessageRequest request = new BatchReceiveMessageRequest();
         request.setBatchSize(batchSize);
         request.setWaitSeconds(waitSeconds);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         try {
             return action.executeWithCustomHeaders(request, customHeaders);
         } catch (ServiceException e) {
@@ -651,11 +656,10 @@ public final class CloudQueue {
      */
     public AsyncResult<List<Message>> asyncBatchPopMessage(int batchSize,
         AsyncCallback<List<Message>> callback) throws ClientException, ServiceException {
-        BatchReceiveMessageAction action = new BatchReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchReceiveMessageAction action = actions.get(BatchReceiveMessageAction.class, BatchReceiveMessageAction::new);
         BatchReceiveMessageRequest request = new BatchReceiveMessageRequest();
         request.setBatchSize(batchSize);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -670,12 +674,11 @@ public final class CloudQueue {
      */
     public AsyncResult<List<Message>> asyncBatchPopMessage(int batchSize, int waitSeconds,
         AsyncCallback<List<Message>> callback) throws ClientException, ServiceException {
-        BatchReceiveMessageAction action = new BatchReceiveMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchReceiveMessageAction action = actions.get(BatchReceiveMessageAction.class, BatchReceiveMessageAction::new);
         BatchReceiveMessageRequest request = new BatchReceiveMessageRequest();
         request.setBatchSize(batchSize);
         request.setWaitSeconds(waitSeconds);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -688,10 +691,9 @@ public final class CloudQueue {
      */
     public void deleteMessage(String receiptHandle) throws ServiceException,
         ClientException, ServiceHandlingRequiredException {
-        DeleteMessageAction action = new DeleteMessageAction(serviceClient,
-            credentials, endpoint);
+        DeleteMessageAction action = actions.get(DeleteMessageAction.class, DeleteMessageAction::new);
         DeleteMessageRequest request = new DeleteMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandle(receiptHandle);
         try {
             action.executeWithCustomHeaders(request, customHeaders);
@@ -711,10 +713,9 @@ public final class CloudQueue {
      */
     public AsyncResult<Void> asyncDeleteMessage(String receiptHandle,
         AsyncCallback<Void> callback) throws ClientException, ServiceException {
-        DeleteMessageAction action = new DeleteMessageAction(serviceClient,
-            credentials, endpoint);
+        DeleteMessageAction action = actions.get(DeleteMessageAction.class, DeleteMessageAction::new);
         DeleteMessageRequest request = new DeleteMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandle(receiptHandle);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
@@ -728,10 +729,9 @@ public final class CloudQueue {
      */
     public void batchDeleteMessage(List<String> receiptHandles)
         throws ServiceException, ClientException, ServiceHandlingRequiredException {
-        BatchDeleteMessageAction action = new BatchDeleteMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchDeleteMessageAction action = actions.get(BatchDeleteMessageAction.class, BatchDeleteMessageAction::new);
         BatchDeleteMessageRequest request = new BatchDeleteMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandles(receiptHandles);
         try {
             action.executeWithCustomHeaders(request, customHeaders);
@@ -749,10 +749,9 @@ public final class CloudQueue {
      */
     public AsyncResult<Void> asyncBatchDeleteMessage(List<String> receiptHandles,
         AsyncCallback<Void> callback) throws ClientException, ServiceException {
-        BatchDeleteMessageAction action = new BatchDeleteMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchDeleteMessageAction action = actions.get(BatchDeleteMessageAction.class, BatchDeleteMessageAction::new);
         BatchDeleteMessageRequest request = new BatchDeleteMessageRequest();
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         request.setReceiptHandles(receiptHandles);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
@@ -768,11 +767,10 @@ public final class CloudQueue {
      */
     public Message putMessage(Message message) throws ServiceException,
         ClientException {
-        SendMessageAction action = new SendMessageAction(serviceClient,
-            credentials, endpoint);
+        SendMessageAction action = actions.get(SendMessageAction.class, SendMessageAction::new);
         SendMessageRequest request = new SendMessageRequest();
         request.setMessage(message);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -787,11 +785,10 @@ public final class CloudQueue {
      */
     public AsyncResult<Message> asyncPutMessage(Message message,
         AsyncCallback<Message> callback) throws ClientException, ServiceException {
-        SendMessageAction action = new SendMessageAction(serviceClient,
-            credentials, endpoint);
+        SendMessageAction action = actions.get(SendMessageAction.class, SendMessageAction::new);
         SendMessageRequest request = new SendMessageRequest();
         request.setMessage(message);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -806,11 +803,10 @@ public final class CloudQueue {
      */
     public List<Message> batchPutMessage(List<Message> messages) throws ServiceException,
         ClientException {
-        BatchSendMessageAction action = new BatchSendMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchSendMessageAction action = actions.get(BatchSendMessageAction.class, BatchSendMessageAction::new);
         BatchSendMessageRequest request = new BatchSendMessageRequest();
         request.setMessages(messages);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -825,14 +821,287 @@ public final class CloudQueue {
      */
     public AsyncResult<List<Message>> asyncBatchPutMessage(List<Message> messages,
         AsyncCallback<List<Message>> callback) throws ClientException, ServiceException {
-        BatchSendMessageAction action = new BatchSendMessageAction(serviceClient,
-            credentials, endpoint);
+        BatchSendMessageAction action = actions.get(BatchSendMessageAction.class, BatchSendMessageAction::new);
         BatchSendMessageRequest request = new BatchSendMessageRequest();
         request.setMessages(messages);
-        request.setRequestPath(queueURL);
+        request.setRequestPath(queuePath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
+    /**
+     * 异步创建队列，返回的 future 完成时得到队列的URL
+     *
+     * @param queueMeta queue meta data，为 null 时使用默认属性
+     * @return future，取消时会取消底层 HTTP 请求
+     */
+    public CompletableFuture<String> createAsync(QueueMeta queueMeta) {
+        CreateQueueAction action = actions.get(CreateQueueAction.class, CreateQueueAction::new);
+        String queueName = drillQueueName();
+        if (queueMeta == null || queueMeta.getQueueName() == null || queueMeta.getQueueName().isEmpty()) {
+            QueueMeta meta = queueMeta == null ? new QueueMeta() : queueMeta;
+            meta.setQueueName(queueName);
+            queueMeta = meta;
+        } else if (!queueName.equals(queueMeta.getQueueName())) {
+            return CancellableFuture.failed(new ClientException(
+                "QueueName conflict between meta queue name and  queue url offered.",
+                null));
+        }
+        CreateQueueRequest request = new CreateQueueRequest();
+        request.setRequestPath(MNSConstants.QUEUE_PREFIX + queueMeta.getQueueName());
+        request.setQueueMeta(queueMeta);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步删除队列
+     *
+     * @return future
+     */
+    public CompletableFuture<Void> deleteAsync() {
+        DeleteQueueAction action = actions.get(DeleteQueueAction.class, DeleteQueueAction::new);
+        DeleteQueueRequest request = new DeleteQueueRequest();
+        request.setRequestPath(queuePath);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步获取队列的属性
+     *
+     * @return future，完成时得到队列属性
+     */
+    public CompletableFuture<QueueMeta> getAttributesAsync() {
+        GetQueueAttrAction action = actions.get(GetQueueAttrAction.class, GetQueueAttrAction::new);
+        GetQueueAttrRequest request = new GetQueueAttrRequest();
+        request.setRequestPath(queuePath);
+        return action.executeAsync(request, customHeaders).map(meta -> {
+            meta.setQueueURL(queueURL);
+            return meta;
+        });
+    }
+
+    /**
+     * 异步设置队列属性
+     *
+     * @param queueMeta queue meta data
+     * @return future
+     */
+    public CompletableFuture<Void> setAttributesAsync(QueueMeta queueMeta) {
+        SetQueueAttrAction action = actions.get(SetQueueAttrAction.class, SetQueueAttrAction::new);
+        SetQueueAttrRequest request = new SetQueueAttrRequest();
+        request.setQueueMeta(queueMeta);
+        request.setRequestPath(MNSConstants.QUEUE_PREFIX + queueMeta.getQueueName());
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步查看队列消息，语义与 {@link #peekMessage()} 一致：消息不存在时结果为 null，
+     * 需要上游处理的服务端错误以 {@link ServiceHandlingRequiredException} 结束
+     *
+     * @return future
+     */
+    public CompletableFuture<Message> peekMessageAsync() {
+        PeekMessageAction action = actions.get(PeekMessageAction.class, PeekMessageAction::new);
+        PeekMessageRequest request = new PeekMessageRequest();
+        request.setRequestPath(queuePath);
+        return translateReceiveError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步批量查看队列消息，语义与 {@link #batchPeekMessage(int)} 一致
+     *
+     * @param batchSize 本次最多查看消息的条数
+     * @return future
+     */
+    public CompletableFuture<List<Message>> batchPeekMessageAsync(int batchSize) {
+        BatchPeekMessageAction action = actions.get(BatchPeekMessageAction.class, BatchPeekMessageAction::new);
+        BatchPeekMessageRequest request = new BatchPeekMessageRequest();
+        request.setBatchSize(batchSize);
+        request.setRequestPath(queuePath);
+        return translateReceiveError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步改变消息的不可见时间
+     *
+     * @param receiptHandle     消息句柄
+     * @param visibilityTimeout 消息不可见时间，单位是秒
+     * @return future，完成时得到新的消息句柄
+     */
+    public CompletableFuture<String> changeMessageVisibilityTimeoutAsync(String receiptHandle,
+        int visibilityTimeout) {
+        ChangeVisibilityTimeoutAction action = actions.get(ChangeVisibilityTimeoutAction.class,
+            ChangeVisibilityTimeoutAction::new);
+        ChangeVisibilityTimeoutRequest request = new ChangeVisibilityTimeoutRequest();
+        request.setRequestPath(queuePath);
+        request.setReceiptHandle(receiptHandle);
+        request.setVisibilityTimeout(visibilityTimeout);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步改变消息的不可见时间
+     *
+     * @param receiptHandle     消息句柄
+     * @param visibilityTimeout 消息不可见时间，单位是秒
+     * @return future，完成时得到包含新消息句柄和下次可见时间的消息
+     */
+    public CompletableFuture<Message> changeMessageVisibilityAsync(String receiptHandle,
+        int visibilityTimeout) {
+        ChangeVisibilityAction action = actions.get(ChangeVisibilityAction.class, ChangeVisibilityAction::new);
+        ChangeVisibilityTimeoutRequest request = new ChangeVisibilityTimeoutRequest();
+        request.setRequestPath(queuePath);
+        request.setReceiptHandle(receiptHandle);
+        request.setVisibilityTimeout(visibilityTimeout);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步获取队列中的消息，语义与 {@link #popMessage()} 一致
+     *
+     * @return future，没有消息时结果为 null
+     */
+    public CompletableFuture<Message> popMessageAsync() {
+        ReceiveMessageAction action = actions.get(ReceiveMessageAction.class, ReceiveMessageAction::new);
+        ReceiveMessageRequest request = new ReceiveMessageRequest();
+        request.setRequestPath(queuePath);
+        return translateReceiveError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步获取队列中的消息，语义与 {@link #popMessage(int)} 一致
+     *
+     * @param waitSeconds 长轮询等待时间，单位是秒
+     * @return future，没有消息时结果为 null
+     */
+    public CompletableFuture<Message> popMessageAsync(int waitSeconds) {
+        ReceiveMessageAction action = actions.get(ReceiveMessageAction.class, ReceiveMessageAction::new);
+        ReceiveMessageRequest request = new ReceiveMessageRequest();
+        request.setRequestPath(queuePath);
+        request.setWaitSeconds(waitSeconds);
+        return translateReceiveError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步批量获取队列中的消息，语义与 {@link #batchPopMessage(int)} 一致
+     *
+     * @param batchSize 本次最多获取消息的条数
+     * @return future，没有消息时结果为 null
+     */
+    public CompletableFuture<List<Message>> batchPopMessageAsync(int batchSize) {
+        BatchReceiveMessageAction action = actions.get(BatchReceiveMessageAction.class, BatchReceiveMessageAction::new);
+        BatchReceiveMessageRequest request = new BatchReceiveMessageRequest();
+        request.setBatchSize(batchSize);
+        request.setRequestPath(queuePath);
+        return translateReceiveError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步批量获取队列中的消息，语义与 {@link #batchPopMessage(int, int)} 一致
+     *
+     * @param batchSize   本次最多获取消息的条数
+     * @param waitSeconds 长轮询等待时间，单位是秒
+     * @return future，没有消息时结果为 null
+     */
+    public CompletableFuture<List<Message>> batchPopMessageAsync(int batchSize, int waitSeconds) {
+        BatchReceiveMessageAction action = actions.get(BatchReceiveMessageAction.class, BatchReceiveMessageAction::new);
+        BatchReceiveMessageRequest request = new BatchReceiveMessageRequest();
+        request.setBatchSize(batchSize);
+        request.setWaitSeconds(waitSeconds);
+        request.setRequestPath(queuePath);
+        return translateReceiveError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步删除消息，服务端错误以 {@link ServiceHandlingRequiredException} 结束，与 {@link #deleteMessage(String)} 一致
+     *
+     * @param receiptHandle 消息句柄
+     * @return future
+     */
+    public CompletableFuture<Void> deleteMessageAsync(String receiptHandle) {
+        DeleteMessageAction action = actions.get(DeleteMessageAction.class, DeleteMessageAction::new);
+        DeleteMessageRequest request = new DeleteMessageRequest();
+        request.setRequestPath(queuePath);
+        request.setReceiptHandle(receiptHandle);
+        return translateDeleteError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步批量删除消息，服务端错误以 {@link ServiceHandlingRequiredException} 结束，
+     * 与 {@link #batchDeleteMessage(List)} 一致
+     *
+     * @param receiptHandles 消息句柄列表
+     * @return future
+     */
+    public CompletableFuture<Void> batchDeleteMessageAsync(List<String> receiptHandles) {
+        BatchDeleteMessageAction action = actions.get(BatchDeleteMessageAction.class, BatchDeleteMessageAction::new);
+        BatchDeleteMessageRequest request = new BatchDeleteMessageRequest();
+        request.setRequestPath(queuePath);
+        request.setReceiptHandles(receiptHandles);
+        return translateDeleteError(action.executeAsync(request, customHeaders));
+    }
+
+    /**
+     * 异步发送消息，消息体的编码方式与 {@link #putMessage(Message)} 一致
+     *
+     * @param message 待发送的消息
+     * @return future，完成时得到发送成功的消息
+     */
+    public CompletableFuture<Message> putMessageAsync(Message message) {
+        SendMessageAction action = actions.get(SendMessageAction.class, SendMessageAction::new);
+        SendMessageRequest request = new SendMessageRequest();
+        request.setMessage(message);
+        request.setRequestPath(queuePath);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步批量发送消息，消息体的编码方式与 {@link #batchPutMessage(List)} 一致
+     *
+     * @param messages 待发送的消息
+     * @return future，完成时得到发送成功的消息
+     */
+    public CompletableFuture<List<Message>> batchPutMessageAsync(List<Message> messages) {
+        BatchSendMessageAction action = actions.get(BatchSendMessageAction.class, BatchSendMessageAction::new);
+        BatchSendMessageRequest request = new BatchSendMessageRequest();
+        request.setMessages(messages);
+        request.setRequestPath(queuePath);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    private <V> CompletableFuture<V> translateReceiveError(CancellableFuture<V> future) {
+        return future.transform((V value, Throwable error) -> {
+            if (error instanceof ServiceException) {
+                ServiceException e = (ServiceException) error;
+                if (isMessageNotExist(e)) {
+                    // 没拉到消息，合理
+                    return null;
+                }
+                if (isServiceHandlingRequired(e)) {
+                    throw new ServiceHandlingRequiredException(e.getMessage(), e, e.getErrorCode(),
+                        e.getRequestId(), e.getHostId());
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        });
+    }
+
+    private CompletableFuture<Void> translateDeleteError(CancellableFuture<Void> future) {
+        return future.transform((Void value, Throwable error) -> {
+            if (error instanceof ServiceException) {
+                ServiceException e = (ServiceException) error;
+                throw new ServiceHandlingRequiredException(e.getMessage(), e, e.getErrorCode(),
+                    e.getRequestId(), e.getHostId());
+            }
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        });
+    }
+
     public String getQueueURL() {
         return queueURL;
     }
@@ -19,6 +19,7 @@
 
 package com.aliyun.mns.client;
 
+import com.aliyun.mns.client.impl.ActionCache;
 import com.aliyun.mns.client.impl.topic.CreateTopicAction;
 import com.aliyun.mns.client.impl.topic.DeleteTopicAction;
 import com.aliyun.mns.client.impl.topic.GetSubscriptionAttrAction;
@@ -33,6 +34,7 @@ import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.MNSConstants;
 import com.aliyun.mns.common.ServiceException;
 import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.CancellableFuture;
 import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.model.AttributesValidationResult;
 import com.aliyun.mns.model.MessageAttributes;
@@ -59,6 +61,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class CloudTopic {
     /**
@@ -81,6 +84,13 @@ public class CloudTopic {
      * user mns endpoint, ie: http://uid.mns.region.aliyuncs.com/
      */
     private URI endpoint;
+    /**
+     * 去掉 endpoint 后的资源路径，ie: topics/topicName，以及其下的订阅和消息路径
+     */
+    private String topicPath;
+    private String subscriptionsPath;
+    private String messagesPath;
+    private ActionCache actions;
 
     private String accountId;
     private String region;
@@ -95,6 +105,14 @@ public class CloudTopic {
      */
     protected CloudTopic(String topicName, ServiceClient client,
         ServiceCredentials credentials, URI endpoint) {
+        this(topicName, new ActionCache(client, credentials, endpoint));
+    }
+
+    CloudTopic(String topicName, ActionCache actions) {
+        ServiceClient client = actions.getClient();
+        ServiceCredentials credentials = actions.getCredentials();
+        URI endpoint = actions.getEndpoint();
+        this.actions = actions;
         this.serviceClient = client;
         this.credentials = credentials;
         this.endpoint = endpoint;
@@ -114,6 +132,9 @@ public class CloudTopic {
         }
         uri += MNSConstants.TOPIC_PREFIX + topicName;
         this.topicURL = uri;
+        this.topicPath = MNSConstants.TOPIC_PREFIX + topicName;
+        this.subscriptionsPath = topicPath + "/" + MNSConstants.SUBSCRIPTION;
+        this.messagesPath = topicPath + "/" + MNSConstants.LOCATION_MESSAGES;
     }
 
     void setCustomHeaders(Map<String, String> customHeaders) {
@@ -175,9 +196,9 @@ public class CloudTopic {
      * @return topic url
      */
     public String create(TopicMeta meta) throws ServiceException {
-        CreateTopicAction action = new CreateTopicAction(serviceClient, credentials, endpoint);
+        CreateTopicAction action = actions.get(CreateTopicAction.class, CreateTopicAction::new);
         CreateTopicRequest request = new CreateTopicRequest();
-        request.setRequestPath(this.topicURL);
+        request.setRequestPath(topicPath);
         String topicName = getTopicName();
         if (meta == null) {
             meta = new TopicMeta();
@@ -195,7 +216,7 @@ public class CloudTopic {
         if (!meta.getTopicName().equals(topicName)) {
             logger.warn("TopicName conflict between meta topic name and  topic url offered");
             throw new ClientException("TopicName conflict between meta topic name and  topic url offered",
-                action.getUserRequestId());
+                null);
         }
 
         request.setTopicMeta(meta);
@@ -212,7 +233,7 @@ public class CloudTopic {
      * @return AsyncResult, you can wait result by AsyncResult if you want to do this
      */
     public AsyncResult<Void> asyncSetAttribute(TopicMeta meta, AsyncCallback<Void> callback) throws ServiceException {
-        SetTopicAttrAction action = new SetTopicAttrAction(serviceClient, credentials, endpoint);
+        SetTopicAttrAction action = actions.get(SetTopicAttrAction.class, SetTopicAttrAction::new);
         SetTopicAttrRequest request = new SetTopicAttrRequest();
         request.setTopicMeta(meta);
         request.setRequestPath(MNSConstants.TOPIC_PREFIX + meta.getTopicName());
@@ -225,9 +246,9 @@ public class CloudTopic {
      * @return topic meta data
      */
     public TopicMeta getAttribute() throws ServiceException {
-        GetTopicAttrAction action = new GetTopicAttrAction(serviceClient, credentials, endpoint);
+        GetTopicAttrAction action = actions.get(GetTopicAttrAction.class, GetTopicAttrAction::new);
         GetTopicAttrRequest request = new GetTopicAttrRequest();
-        request.setRequestPath(topicURL);
+        request.setRequestPath(topicPath);
         TopicMeta meta = action.executeWithCustomHeaders(request, customHeaders);
         meta.setTopicURL(topicURL);
         return meta;
@@ -239,7 +260,7 @@ public class CloudTopic {
      * @param meta, topic meta data
      */
     public void setAttribute(TopicMeta meta) throws ServiceException {
-        SetTopicAttrAction action = new SetTopicAttrAction(serviceClient, credentials, endpoint);
+        SetTopicAttrAction action = actions.get(SetTopicAttrAction.class, SetTopicAttrAction::new);
         SetTopicAttrRequest request = new SetTopicAttrRequest();
         request.setTopicMeta(meta);
         request.setRequestPath(MNSConstants.TOPIC_PREFIX + meta.getTopicName());
@@ -253,9 +274,9 @@ public class CloudTopic {
      * @return AsyncResult, you can wait result by AsyncResult if you want to do this
      */
     public AsyncResult<TopicMeta> asyncGetAttribute(AsyncCallback<TopicMeta> callback) throws ServiceException {
-        GetTopicAttrAction action = new GetTopicAttrAction(serviceClient, credentials, endpoint);
+        GetTopicAttrAction action = actions.get(GetTopicAttrAction.class, GetTopicAttrAction::new);
         GetTopicAttrRequest request = new GetTopicAttrRequest();
-        request.setRequestPath(topicURL);
+        request.setRequestPath(topicPath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -263,9 +284,9 @@ public class CloudTopic {
      * delete topic
      */
     public void delete() throws ServiceException {
-        DeleteTopicAction action = new DeleteTopicAction(serviceClient, credentials, endpoint);
+        DeleteTopicAction action = actions.get(DeleteTopicAction.class, DeleteTopicAction::new);
         DeleteTopicRequest request = new DeleteTopicRequest();
-        request.setRequestPath(topicURL);
+        request.setRequestPath(topicPath);
         action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -276,9 +297,9 @@ public class CloudTopic {
      * @return AsyncResult, you can wait result by AsyncResult if you want to do this
      */
     public AsyncResult<Void> asyncDelete(AsyncCallback<Void> callback) throws ServiceException {
-        DeleteTopicAction action = new DeleteTopicAction(serviceClient, credentials, endpoint);
+        DeleteTopicAction action = actions.get(DeleteTopicAction.class, DeleteTopicAction::new);
         DeleteTopicRequest request = new DeleteTopicRequest();
-        request.setRequestPath(topicURL);
+        request.setRequestPath(topicPath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -293,9 +314,9 @@ public class CloudTopic {
             throw new NullPointerException("subscriptionName can not be empty.");
         }
         SubscribeRequest request = new SubscribeRequest();
-        SubscribeAction action = new SubscribeAction(serviceClient, credentials, endpoint);
+        SubscribeAction action = actions.get(SubscribeAction.class, SubscribeAction::new);
         request.setMeta(meta);
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + meta.getSubscriptionName());
+        request.setRequestPath(subscriptionsPath + "/" + meta.getSubscriptionName());
         String url = action.executeWithCustomHeaders(request, customHeaders);
         return url;
     }
@@ -313,9 +334,9 @@ public class CloudTopic {
             throw new NullPointerException("subscriptionName can not be empty.");
         }
         SubscribeRequest request = new SubscribeRequest();
-        SubscribeAction action = new SubscribeAction(serviceClient, credentials, endpoint);
+        SubscribeAction action = actions.get(SubscribeAction.class, SubscribeAction::new);
         request.setMeta(meta);
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + meta.getSubscriptionName());
+        request.setRequestPath(subscriptionsPath + "/" + meta.getSubscriptionName());
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -329,9 +350,9 @@ public class CloudTopic {
             throw new NullPointerException("subscriptionName can not be empty.");
         }
         SetSubscriptionAttrRequest request = new SetSubscriptionAttrRequest();
-        SetSubscriptionAttrAction action = new SetSubscriptionAttrAction(serviceClient, credentials, endpoint);
+        SetSubscriptionAttrAction action = actions.get(SetSubscriptionAttrAction.class, SetSubscriptionAttrAction::new);
         request.setMeta(meta);
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + meta.getSubscriptionName());
+        request.setRequestPath(subscriptionsPath + "/" + meta.getSubscriptionName());
         action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -348,9 +369,9 @@ public class CloudTopic {
             throw new NullPointerException("subscriptionName can not be empty.");
         }
         SetSubscriptionAttrRequest request = new SetSubscriptionAttrRequest();
-        SetSubscriptionAttrAction action = new SetSubscriptionAttrAction(serviceClient, credentials, endpoint);
+        SetSubscriptionAttrAction action = actions.get(SetSubscriptionAttrAction.class, SetSubscriptionAttrAction::new);
         request.setMeta(meta);
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + meta.getSubscriptionName());
+        request.setRequestPath(subscriptionsPath + "/" + meta.getSubscriptionName());
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -362,8 +383,8 @@ public class CloudTopic {
      */
     public SubscriptionMeta getSubscriptionAttr(String subscriptionName) throws ServiceException {
         GetSubscriptionAttrRequest request = new GetSubscriptionAttrRequest();
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + subscriptionName);
-        GetSubscriptionAttrAction action = new GetSubscriptionAttrAction(serviceClient, credentials, endpoint);
+        request.setRequestPath(subscriptionsPath + "/" + subscriptionName);
+        GetSubscriptionAttrAction action = actions.get(GetSubscriptionAttrAction.class, GetSubscriptionAttrAction::new);
         return action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -377,8 +398,8 @@ public class CloudTopic {
     public AsyncResult<SubscriptionMeta> asyncGetSubscriptionAttr(String subscriptionName,
         AsyncCallback<SubscriptionMeta> callback) throws ServiceException {
         GetSubscriptionAttrRequest request = new GetSubscriptionAttrRequest();
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + subscriptionName);
-        GetSubscriptionAttrAction action = new GetSubscriptionAttrAction(serviceClient, credentials, endpoint);
+        request.setRequestPath(subscriptionsPath + "/" + subscriptionName);
+        GetSubscriptionAttrAction action = actions.get(GetSubscriptionAttrAction.class, GetSubscriptionAttrAction::new);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -389,9 +410,9 @@ public class CloudTopic {
      */
     public void unsubscribe(String subscriptionName) throws ServiceException {
         UnsubscribeRequest request = new UnsubscribeRequest();
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + subscriptionName);
+        request.setRequestPath(subscriptionsPath + "/" + subscriptionName);
 
-        UnsubscribeAction action = new UnsubscribeAction(serviceClient, credentials, endpoint);
+        UnsubscribeAction action = actions.get(UnsubscribeAction.class, UnsubscribeAction::new);
         action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -405,9 +426,9 @@ public class CloudTopic {
     public AsyncResult<Void> asyncUnsubscribe(String subscriptionName, AsyncCallback<Void> callback)
         throws ServiceException {
         UnsubscribeRequest request = new UnsubscribeRequest();
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION + "/" + subscriptionName);
+        request.setRequestPath(subscriptionsPath + "/" + subscriptionName);
 
-        UnsubscribeAction action = new UnsubscribeAction(serviceClient, credentials, endpoint);
+        UnsubscribeAction action = actions.get(UnsubscribeAction.class, UnsubscribeAction::new);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
 
@@ -423,8 +444,8 @@ public class CloudTopic {
     private PagingListResult<SubscriptionMeta> listSubscriptions(String prefix, String marker,
         Integer retNumber, boolean withMeta) throws ServiceException {
         ListSubscriptionRequest request = new ListSubscriptionRequest();
-        ListSubscriptionAction action = new ListSubscriptionAction(serviceClient, credentials, endpoint);
-        request.setRequestPath(topicURL + "/" + MNSConstants.SUBSCRIPTION);
+        ListSubscriptionAction action = actions.get(ListSubscriptionAction.class, ListSubscriptionAction::new);
+        request.setRequestPath(subscriptionsPath);
         request.setMarker(marker);
         request.setPrefix(prefix);
         request.setMaxRet(retNumber);
@@ -551,8 +572,8 @@ public class CloudTopic {
     public TopicMessage publishMessage(TopicMessage msg) throws ServiceException {
         PublishMessageRequest request = new PublishMessageRequest();
         request.setMessage(msg);
-        PublishMessageAction action = new PublishMessageAction(serviceClient, credentials, endpoint);
-        request.setRequestPath(topicURL + "/" + MNSConstants.LOCATION_MESSAGES);
+        PublishMessageAction action = actions.get(PublishMessageAction.class, PublishMessageAction::new);
+        request.setRequestPath(messagesPath);
         return action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -567,17 +588,17 @@ public class CloudTopic {
      */
     public TopicMessage publishMessage(RawTopicMessage msg, MessageAttributes messageAttributes)
         throws ServiceException {
-        PublishMessageAction action = new PublishMessageAction(serviceClient, credentials, endpoint);
+        PublishMessageAction action = actions.get(PublishMessageAction.class, PublishMessageAction::new);
 
         AttributesValidationResult result = messageAttributes.validate();
         if (!result.isSuccess()) {
-            throw new ClientException(result.getMessage(), action.getUserRequestId());
+            throw new ClientException(result.getMessage(), null);
         }
 
         PublishMessageRequest request = new PublishMessageRequest();
         request.setMessage(msg);
         request.setMessageAttributes(messageAttributes);
-        request.setRequestPath(topicURL + "/" + MNSConstants.LOCATION_MESSAGES);
+        request.setRequestPath(messagesPath);
         return action.executeWithCustomHeaders(request, customHeaders);
     }
 
@@ -597,8 +618,223 @@ public class CloudTopic {
         throws ServiceException {
         PublishMessageRequest request = new PublishMessageRequest();
         request.setMessage(msg);
-        PublishMessageAction action = new PublishMessageAction(serviceClient, credentials, endpoint);
-        request.setRequestPath(topicURL + "/" + MNSConstants.LOCATION_MESSAGES);
+        PublishMessageAction action = actions.get(PublishMessageAction.class, PublishMessageAction::new);
+        request.setRequestPath(messagesPath);
         return action.executeWithCustomHeaders(request, callback, customHeaders);
     }
+
+    /**
+     * 异步创建主题，返回的 future 完成时得到主题的URL
+     *
+     * @param meta topic meta data，为 null 时使用默认属性
+     * @return future，取消时会取消底层 HTTP 请求
+     */
+    public CompletableFuture<String> createAsync(TopicMeta meta) {
+        CreateTopicAction action = actions.get(CreateTopicAction.class, CreateTopicAction::new);
+        String topicName = getTopicName();
+        if (meta == null) {
+            meta = new TopicMeta();
+        }
+        if (meta.getTopicName() == null || meta.getTopicName().trim().isEmpty()) {
+            meta.setTopicName(topicName);
+            meta.setTopicURL(this.topicURL);
+        }
+        if (!meta.getTopicName().equals(topicName)) {
+            return CancellableFuture.failed(new ClientException(
+                "TopicName conflict between meta topic name and  topic url offered", null));
+        }
+
+        CreateTopicRequest request = new CreateTopicRequest();
+        request.setTopicMeta(meta);
+        request.setRequestPath(MNSConstants.TOPIC_PREFIX + topicName);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步设置主题属性
+     *
+     * @param meta topic meta data
+     * @return future
+     */
+    public CompletableFuture<Void> setAttributeAsync(TopicMeta meta) {
+        SetTopicAttrAction action = actions.get(SetTopicAttrAction.class, SetTopicAttrAction::new);
+        SetTopicAttrRequest request = new SetTopicAttrRequest();
+        request.setTopicMeta(meta);
+        request.setRequestPath(MNSConstants.TOPIC_PREFIX + meta.getTopicName());
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步获取主题属性
+     *
+     * @return future，完成时得到主题属性
+     */
+    public CompletableFuture<TopicMeta> getAttributeAsync() {
+        GetTopicAttrAction action = actions.get(GetTopicAttrAction.class, GetTopicAttrAction::new);
+        GetTopicAttrRequest request = new GetTopicAttrRequest();
+        request.setRequestPath(topicPath);
+        return action.executeAsync(request, customHeaders).map(meta -> {
+            meta.setTopicURL(topicURL);
+            return meta;
+        });
+    }
+
+    /**
+     * 异步删除主题
+     *
+     * @return future
+     */
+    public CompletableFuture<Void> deleteAsync() {
+        DeleteTopicAction action = actions.get(DeleteTopicAction.class, DeleteTopicAction::new);
+        DeleteTopicRequest request = new DeleteTopicRequest();
+        request.setRequestPath(topicPath);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步订阅主题
+     *
+     * @param meta SubscriptionMeta data
+     * @return future，完成时得到订阅的URL
+     */
+    public CompletableFuture<String> subscribeAsync(SubscriptionMeta meta) {
+        if (StringUtils.isEmpty(meta.getSubscriptionName())) {
+            throw new NullPointerException("subscriptionName can not be empty.");
+        }
+        SubscribeRequest request = new SubscribeRequest();
+        SubscribeAction action = actions.get(SubscribeAction.class, SubscribeAction::new);
+        request.setMeta(meta);
+        request.setRequestPath(subscriptionsPath + "/" + meta.getSubscriptionName());
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步设置订阅属性
+     *
+     * @param meta SubscriptionMeta data
+     * @return future
+     */
+    public CompletableFuture<Void> setSubscriptionAttrAsync(SubscriptionMeta meta) {
+        if (StringUtils.isEmpty(meta.getSubscriptionName())) {
+            throw new NullPointerException("subscriptionName can not be empty.");
+        }
+        SetSubscriptionAttrRequest request = new SetSubscriptionAttrRequest();
+        SetSubscriptionAttrAction action = actions.get(SetSubscriptionAttrAction.class, SetSubscriptionAttrAction::new);
+        request.setMeta(meta);
+        request.setRequestPath(subscriptionsPath + "/" + meta.getSubscriptionName());
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步获取订阅属性
+     *
+     * @param subscriptionName subscription name
+     * @return future，完成时得到订阅属性
+     */
+    public CompletableFuture<SubscriptionMeta> getSubscriptionAttrAsync(String subscriptionName) {
+        GetSubscriptionAttrRequest request = new GetSubscriptionAttrRequest();
+        request.setRequestPath(subscriptionsPath + "/" + subscriptionName);
+        GetSubscriptionAttrAction action = actions.get(GetSubscriptionAttrAction.class, GetSubscriptionAttrAction::new);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步取消订阅
+     *
+     * @param subscriptionName subscription name
+     * @return future
+     */
+    public CompletableFuture<Void> unsubscribeAsync(String subscriptionName) {
+        UnsubscribeRequest request = new UnsubscribeRequest();
+        request.setRequestPath(subscriptionsPath + "/" + subscriptionName);
+        UnsubscribeAction action = actions.get(UnsubscribeAction.class, UnsubscribeAction::new);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步列举主题的订阅
+     *
+     * @param prefix    subscription name prefix
+     * @param marker    subscription start marker
+     * @param retNumber return number
+     * @return future，完成时得到 SubscriptionMeta 列表
+     */
+    public CompletableFuture<PagingListResult<SubscriptionMeta>> listSubscriptionsAsync(String prefix,
+        String marker, Integer retNumber) {
+        return listSubscriptionsAsync(prefix, marker, retNumber, true);
+    }
+
+    /**
+     * 异步列举主题的订阅
+     *
+     * @param prefix    subscription name prefix
+     * @param marker    subscription start marker
+     * @param retNumber return number
+     * @return future，完成时得到订阅URL列表
+     */
+    public CompletableFuture<PagingListResult<String>> listSubscriptionUrlsAsync(String prefix, String marker,
+        Integer retNumber) {
+        return listSubscriptionsAsync(prefix, marker, retNumber, false).map(list -> {
+            PagingListResult<String> result = null;
+            if (list != null && list.getResult() != null) {
+                List<String> tmp = new ArrayList<String>();
+                for (SubscriptionMeta meta : list.getResult()) {
+                    tmp.add(meta.getSubscriptionURL());
+                }
+                result = new PagingListResult<String>();
+                result.setResult(tmp);
+                result.setMarker(list.getMarker());
+            }
+            return result;
+        });
+    }
+
+    private CancellableFuture<PagingListResult<SubscriptionMeta>> listSubscriptionsAsync(String prefix,
+        String marker, Integer retNumber, boolean withMeta) {
+        ListSubscriptionRequest request = new ListSubscriptionRequest();
+        ListSubscriptionAction action = actions.get(ListSubscriptionAction.class, ListSubscriptionAction::new);
+        request.setRequestPath(subscriptionsPath);
+        request.setMarker(marker);
+        request.setPrefix(prefix);
+        request.setMaxRet(retNumber);
+        request.setWithMeta(withMeta);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步发布消息，消息体的编码方式与 {@link #publishMessage(TopicMessage)} 一致
+     *
+     * @param msg message
+     * @return future，完成时得到发布成功的消息
+     */
+    public CompletableFuture<TopicMessage> publishMessageAsync(TopicMessage msg) {
+        PublishMessageRequest request = new PublishMessageRequest();
+        request.setMessage(msg);
+        PublishMessageAction action = actions.get(PublishMessageAction.class, PublishMessageAction::new);
+        request.setRequestPath(messagesPath);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    /**
+     * 异步发布带消息属性的原始消息，参数含义与 {@link #publishMessage(RawTopicMessage, MessageAttributes)} 一致
+     *
+     * @param msg               RawTopicMessage
+     * @param messageAttributes 消息属性
+     * @return future，完成时得到发布成功的消息
+     */
+    public CompletableFuture<TopicMessage> publishMessageAsync(RawTopicMessage msg,
+        MessageAttributes messageAttributes) {
+        PublishMessageAction action = actions.get(PublishMessageAction.class, PublishMessageAction::new);
+
+        AttributesValidationResult result = messageAttributes.validate();
+        if (!result.isSuccess()) {
+            return CancellableFuture.failed(new ClientException(result.getMessage(), null));
+        }
+
+        PublishMessageRequest request = new PublishMessageRequest();
+        request.setMessage(msg);
+        request.setMessageAttributes(messageAttributes);
+        request.setRequestPath(messagesPath);
+        return action.executeAsync(request, customHeaders);
+    }
 }
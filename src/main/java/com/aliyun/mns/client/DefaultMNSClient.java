@@ -19,17 +19,21 @@
 
 package com.aliyun.mns.client;
 
+import com.aliyun.mns.client.impl.ActionCache;
 import com.aliyun.mns.client.impl.account.GetAccountAttributesAction;
 import com.aliyun.mns.client.impl.account.SetAccountAttributesAction;
 import com.aliyun.mns.client.impl.commonbuy.OpenServiceAction;
 import com.aliyun.mns.client.impl.queue.CreateQueueAction;
 import com.aliyun.mns.client.impl.queue.ListQueueAction;
+import com.aliyun.mns.client.impl.topic.CreateTopicAction;
 import com.aliyun.mns.client.impl.topic.ListTopicAction;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.MNSConstants;
 import com.aliyun.mns.common.ServiceException;
 import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.CancellableFuture;
 import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ConnectionPoolStats;
 import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.common.http.ServiceClientFactory;
 import com.aliyun.mns.model.AccountAttributes;
@@ -41,6 +45,7 @@ import com.aliyun.mns.model.request.account.SetAccountAttributesRequest;
 import com.aliyun.mns.model.request.commonbuy.OpenServiceRequest;
 import com.aliyun.mns.model.request.queue.CreateQueueRequest;
 import com.aliyun.mns.model.request.queue.ListQueueRequest;
+import com.aliyun.mns.model.request.topic.CreateTopicRequest;
 import com.aliyun.mns.model.request.topic.ListTopicRequest;
 import com.aliyun.mns.model.response.commonbuy.OpenServiceResponse;
 import org.slf4j.Logger;
@@ -52,6 +57,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 import static com.aliyun.mns.common.MNSConstants.URI_OPEN_SERVICE;
 
@@ -70,6 +76,11 @@ public class DefaultMNSClient implements MNSClient {
     // 用户身份信息。
     private ServiceCredentials credentials = new ServiceCredentials();
 
+    /**
+     * 本客户端及其创建的队列、主题共享的动作对象
+     */
+    private ActionCache actions;
+
     private final Map<String, String> customHeaders = new HashMap<>();
 
     /**
@@ -94,6 +105,7 @@ public class DefaultMNSClient implements MNSClient {
         this.serviceClient = serviceClient
             .setRegion(region);
         this.credentials = credentials;
+        this.actions = new ActionCache(this.serviceClient, credentials, this.endpoint);
     }
 
     @Override
@@ -113,8 +125,8 @@ public class DefaultMNSClient implements MNSClient {
 
     @Override
     public void setAccountAttributes(AccountAttributes accountAttributes) throws ServiceException, ClientException {
-        SetAccountAttributesAction action = new SetAccountAttributesAction(serviceClient,
-            credentials, endpoint);
+        SetAccountAttributesAction action = actions.get(SetAccountAttributesAction.class,
+            SetAccountAttributesAction::new);
         SetAccountAttributesRequest request = new SetAccountAttributesRequest();
         request.setAccountAttributes(accountAttributes);
         action.executeWithCustomHeaders(request, customHeaders);
@@ -122,16 +134,15 @@ public class DefaultMNSClient implements MNSClient {
 
     @Override
     public AccountAttributes getAccountAttributes() throws ServiceException, ClientException {
-        GetAccountAttributesAction action = new GetAccountAttributesAction(serviceClient,
-            credentials, endpoint);
+        GetAccountAttributesAction action = actions.get(GetAccountAttributesAction.class,
+            GetAccountAttributesAction::new);
         GetAccountAttributesRequest request = new GetAccountAttributesRequest();
         return action.executeWithCustomHeaders(request, customHeaders);
     }
 
     @Override
     public CloudQueue getQueueRef(String queueName) {
-        CloudQueue cloudQueue = new CloudQueue(queueName, this.serviceClient, this.credentials,
-            this.endpoint);
+        CloudQueue cloudQueue = new CloudQueue(queueName, actions);
         if (customHeaders.size() > 0) {
             cloudQueue.setCustomHeaders(customHeaders);
         }
@@ -148,8 +159,7 @@ public class DefaultMNSClient implements MNSClient {
 
     public AsyncResult<String> createQueueAsync(QueueMeta queueMeta,
         AsyncCallback<String> callback) throws ServiceException {
-        CreateQueueAction action = new CreateQueueAction(serviceClient,
-            credentials, endpoint);
+        CreateQueueAction action = actions.get(CreateQueueAction.class, CreateQueueAction::new);
         CreateQueueRequest request = new CreateQueueRequest();
         request.setRequestPath(MNSConstants.QUEUE_PREFIX + queueMeta.getQueueName());
         request.setQueueMeta(queueMeta);
@@ -173,10 +183,8 @@ public class DefaultMNSClient implements MNSClient {
 
     @Override
     public TransactionQueue getTransQueueRef(String queueName, TransactionChecker checker) {
-        CloudQueue queue = new CloudQueue(queueName, this.serviceClient, this.credentials,
-            this.endpoint);
-        CloudQueue opLogQueue = new CloudQueue(queueName + OPERATION_LOG_QUEUE_POSTFIX, this.serviceClient, this.credentials,
-            this.endpoint);
+        CloudQueue queue = new CloudQueue(queueName, actions);
+        CloudQueue opLogQueue = new CloudQueue(queueName + OPERATION_LOG_QUEUE_POSTFIX, actions);
         return new TransactionQueue(queue, opLogQueue, checker, TransactionQueue.DEFAULT_LIFE_TIME_IN_SECONDS,
             TransactionQueue.DEFAULT_DELAY＿TIME_IN_SECONDS);
     }
@@ -190,7 +198,7 @@ public class DefaultMNSClient implements MNSClient {
                 + ") or lifetime(" + lifeTime + ") should be bigger than 0");
         }
 
-        CloudQueue queue = new CloudQueue(queueMeta.getQueueName(), this.serviceClient, this.credentials, this.endpoint);
+        CloudQueue queue = new CloudQueue(queueMeta.getQueueName(), actions);
         queueMeta.setMessageRetentionPeriod(lifeTime);
         queueMeta.setDelaySeconds(delayTime);
         queue.create(queueMeta);
@@ -200,8 +208,7 @@ public class DefaultMNSClient implements MNSClient {
         opLogQueueMeta.setQueueName(queueMeta.getQueueName() + OPERATION_LOG_QUEUE_POSTFIX);
         opLogQueueMeta.setPollingWaitSeconds(queueMeta.getPollingWaitSeconds());
 
-        CloudQueue opLogQueue = new CloudQueue(opLogQueueMeta.getQueueName(),
-            this.serviceClient, this.credentials, this.endpoint);
+        CloudQueue opLogQueue = new CloudQueue(opLogQueueMeta.getQueueName(), actions);
         opLogQueue.create(opLogQueueMeta);
 
         TransactionQueue transQueue = new TransactionQueue(queue, opLogQueue, checker, lifeTime, delayTime);
@@ -240,14 +247,13 @@ public class DefaultMNSClient implements MNSClient {
             }
             for (String queueName : queueNameList) {
                 queueMeta.setQueueName(queueName);
-                CloudQueue queue = new CloudQueue(queueName, this.serviceClient, this.credentials, this.endpoint);
+                CloudQueue queue = new CloudQueue(queueName, actions);
                 queue.create(queueMeta);
                 queueList.add(queue);
             }
         } else {
             for (String queueName : queueNameList) {
-                CloudQueue queue = new CloudQueue(queueName, this.serviceClient, this.credentials,
-                        this.endpoint);
+                CloudQueue queue = new CloudQueue(queueName, actions);
                 queueList.add(queue);
             }
         }
@@ -277,14 +283,13 @@ public class DefaultMNSClient implements MNSClient {
             }
             for (String queueName : queueNameList) {
                 queueMeta.setQueueName(queueName);
-                CloudQueue queue = new CloudQueue(queueName, this.serviceClient, this.credentials, this.endpoint);
+                CloudQueue queue = new CloudQueue(queueName, actions);
                 queue.create(queueMeta);
                 queueList.add(queue);
             }
         } else {
             for (String queueName : queueNameList) {
-                CloudQueue queue = new CloudQueue(queueName, this.serviceClient, this.credentials,
-                        this.endpoint);
+                CloudQueue queue = new CloudQueue(queueName, actions);
                 queueList.add(queue);
             }
         }
@@ -327,8 +332,7 @@ public class DefaultMNSClient implements MNSClient {
     private PagingListResult<QueueMeta> listQueue(String prefix, String marker,
         Integer retNumber, boolean withMeta) throws ClientException,
         ServiceException {
-        ListQueueAction action = new ListQueueAction(serviceClient,
-            credentials, endpoint);
+        ListQueueAction action = actions.get(ListQueueAction.class, ListQueueAction::new);
         ListQueueRequest request = new ListQueueRequest();
         request.setRequestPath("/queues");
         request.setMarker(marker);
@@ -342,8 +346,7 @@ public class DefaultMNSClient implements MNSClient {
         Integer retNumber, boolean withMeta,
         AsyncCallback<PagingListResult<QueueMeta>> callback) throws ClientException,
         ServiceException {
-        ListQueueAction action = new ListQueueAction(serviceClient,
-            credentials, endpoint);
+        ListQueueAction action = actions.get(ListQueueAction.class, ListQueueAction::new);
         ListQueueRequest request = new ListQueueRequest();
         request.setRequestPath("/queues");
         request.setMarker(marker);
@@ -355,7 +358,7 @@ public class DefaultMNSClient implements MNSClient {
 
     @Override
     public CloudTopic getTopicRef(String topicName) {
-        CloudTopic cloudTopic = new CloudTopic(topicName, this.serviceClient, this.credentials, this.endpoint);
+        CloudTopic cloudTopic = new CloudTopic(topicName, actions);
         if (customHeaders.size() > 0) {
             cloudTopic.setCustomHeaders(customHeaders);
         }
@@ -369,6 +372,16 @@ public class DefaultMNSClient implements MNSClient {
         return topic;
     }
 
+    @Override
+    public ConnectionPoolStats getConnectionPoolStats() {
+        return serviceClient.getConnectionPoolStats();
+    }
+
+    @Override
+    public ConnectionPoolStats getLongPollConnectionPoolStats() {
+        return serviceClient.getLongPollConnectionPoolStats();
+    }
+
     @Override
     public PagingListResult<TopicMeta> listTopic(String prefix, String marker,
         Integer retNumber) throws ClientException, ServiceException {
@@ -378,7 +391,7 @@ public class DefaultMNSClient implements MNSClient {
     private PagingListResult<TopicMeta> listTopic(String prefix, String marker,
         Integer retNumber, boolean withMeta) throws ClientException,
         ServiceException {
-        ListTopicAction action = new ListTopicAction(this.serviceClient, this.credentials, this.endpoint);
+        ListTopicAction action = actions.get(ListTopicAction.class, ListTopicAction::new);
         ListTopicRequest request = new ListTopicRequest();
         request.setRequestPath(MNSConstants.TOPIC_PREFIX.split("/")[0]);
         request.setMarker(marker);
@@ -410,10 +423,128 @@ public class DefaultMNSClient implements MNSClient {
 
     @Override
     public OpenServiceResponse openService() throws ServiceException {
-        OpenServiceAction action = new OpenServiceAction(this.serviceClient, this.credentials, this.endpoint);
+        OpenServiceAction action = actions.get(OpenServiceAction.class, OpenServiceAction::new);
         OpenServiceRequest request = new OpenServiceRequest();
         request.setRequestPath(URI_OPEN_SERVICE);
         return action.executeWithCustomHeaders(request, customHeaders);
     }
 
+    @Override
+    public CompletableFuture<Void> setAccountAttributesAsync(AccountAttributes accountAttributes) {
+        SetAccountAttributesAction action = actions.get(SetAccountAttributesAction.class,
+            SetAccountAttributesAction::new);
+        SetAccountAttributesRequest request = new SetAccountAttributesRequest();
+        request.setAccountAttributes(accountAttributes);
+        return action.executeAsync(request, customHeaders).map(response -> null);
+    }
+
+    @Override
+    public CompletableFuture<AccountAttributes> getAccountAttributesAsync() {
+        GetAccountAttributesAction action = actions.get(GetAccountAttributesAction.class,
+            GetAccountAttributesAction::new);
+        GetAccountAttributesRequest request = new GetAccountAttributesRequest();
+        return action.executeAsync(request, customHeaders);
+    }
+
+    @Override
+    public CompletableFuture<CloudQueue> createQueueAsync(QueueMeta queueMeta) {
+        final CloudQueue queue = getQueueRef(queueMeta.getQueueName());
+        CreateQueueAction action = actions.get(CreateQueueAction.class, CreateQueueAction::new);
+        CreateQueueRequest request = new CreateQueueRequest();
+        request.setRequestPath(MNSConstants.QUEUE_PREFIX + queueMeta.getQueueName());
+        request.setQueueMeta(queueMeta);
+        return action.executeAsync(request, customHeaders).map(url -> queue);
+    }
+
+    @Override
+    public CompletableFuture<PagingListResult<QueueMeta>> listQueueAsync(String prefix, String marker,
+        Integer retNumber) {
+        return listQueueAsync(prefix, marker, retNumber, true);
+    }
+
+    @Override
+    public CompletableFuture<PagingListResult<String>> listQueueURLAsync(String prefix, String marker,
+        Integer retNumber) {
+        return listQueueAsync(prefix, marker, retNumber, false).map(list -> {
+            PagingListResult<String> results = new PagingListResult<>();
+            if (list != null && list.getResult() != null) {
+                List<String> queues = new ArrayList<>();
+                for (QueueMeta meta : list.getResult()) {
+                    queues.add(meta.getQueueURL());
+                }
+                if (list.getMarker() != null) {
+                    results.setMarker(list.getMarker());
+                }
+                results.setResult(queues);
+            }
+            return results;
+        });
+    }
+
+    private CancellableFuture<PagingListResult<QueueMeta>> listQueueAsync(String prefix, String marker,
+        Integer retNumber, boolean withMeta) {
+        ListQueueAction action = actions.get(ListQueueAction.class, ListQueueAction::new);
+        ListQueueRequest request = new ListQueueRequest();
+        request.setRequestPath("/queues");
+        request.setMarker(marker);
+        request.setPrefix(prefix);
+        request.setMaxRet(retNumber);
+        request.setWithMeta(withMeta);
+        return action.executeAsync(request, customHeaders);
+    }
+
+    @Override
+    public CompletableFuture<CloudTopic> createTopicAsync(TopicMeta meta) {
+        final CloudTopic topic = getTopicRef(meta.getTopicName());
+        CreateTopicAction action = actions.get(CreateTopicAction.class, CreateTopicAction::new);
+        CreateTopicRequest request = new CreateTopicRequest();
+        request.setTopicMeta(meta);
+        request.setRequestPath(MNSConstants.TOPIC_PREFIX + meta.getTopicName());
+        return action.executeAsync(request, customHeaders).map(url -> topic);
+    }
+
+    @Override
+    public CompletableFuture<PagingListResult<TopicMeta>> listTopicAsync(String prefix, String marker,
+        Integer retNumber) {
+        return listTopicAsync(prefix, marker, retNumber, true);
+    }
+
+    @Override
+    public CompletableFuture<PagingListResult<String>> listTopicURLAsync(String prefix, String marker,
+        Integer retNumber) {
+        return listTopicAsync(prefix, marker, retNumber, false).map(results -> {
+            PagingListResult<String> ret = new PagingListResult<>();
+            if (results != null) {
+                List<String> topics = new ArrayList<>();
+                for (TopicMeta meta : results.getResult()) {
+                    topics.add(meta.getTopicURL());
+                }
+                ret.setResult(topics);
+                ret.setMarker(results.getMarker());
+            }
+            return ret;
+        });
+    }
+
+    private CancellableFuture<PagingListResult<TopicMeta>> listTopicAsync(String prefix, String marker,
+        Integer retNumber, boolean withMeta) {
+        ListTopicAction action = actions.get(ListTopicAction.class, ListTopicAction::new);
+        ListTopicRequest request = new ListTopicRequest();
+        request.setRequestPath(MNSConstants.TOPIC_PREFIX.split("/")[0]);
+        request.setMarker(marker);
+        request.setPrefix(prefix);
+        request.setMaxRet(retNumber);
+        if (withMeta) {
+            request.setWithMeta(withMeta);
+        }
+        return action.executeAsync(request, customHeaders);
+    }
+
+    @Override
+    public CompletableFuture<OpenServiceResponse> openServiceAsync() {
+        OpenServiceAction action = actions.get(OpenServiceAction.class, OpenServiceAction::new);
+        OpenServiceRequest request = new OpenServiceRequest();
+        request.setRequestPath(URI_OPEN_SERVICE);
+        return action.executeAsync(request, customHeaders);
+    }
 }
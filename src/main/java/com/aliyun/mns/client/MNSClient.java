@@ -21,12 +21,14 @@ package com.aliyun.mns.client;
 
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.http.ConnectionPoolStats;
 import com.aliyun.mns.model.AccountAttributes;
 import com.aliyun.mns.model.PagingListResult;
 import com.aliyun.mns.model.QueueMeta;
 import com.aliyun.mns.model.TopicMeta;
 import com.aliyun.mns.model.response.commonbuy.OpenServiceResponse;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 public interface MNSClient {
     /**
@@ -223,6 +225,21 @@ public interface MNSClient {
      */
     CloudTopic createTopic(TopicMeta meta) throws ServiceException;
 
+    /**
+     * 获取底层连接池和 I/O reactor 的统计，用于观察连接池是否即将耗尽。
+     * 使用相同 {@link com.aliyun.mns.common.http.ClientConfiguration} 创建的客户端共享连接池，统计也相同。
+     *
+     * @return 统计快照
+     */
+    ConnectionPoolStats getConnectionPoolStats();
+
+    /**
+     * 获取长轮询连接池的统计，见 {@link com.aliyun.mns.common.http.ClientConfiguration#setLongPollPoolEnabled(boolean)}
+     *
+     * @return 统计快照，未开启长轮询连接池时返回 null
+     */
+    ConnectionPoolStats getLongPollConnectionPoolStats();
+
     /**
      * @param prefix    topic name前缀
      * @param marker    topic的起始位置，""表示从第一个开始，也可以是前一次列举返回的marker
@@ -251,4 +268,83 @@ public interface MNSClient {
      * @return response
      */
     OpenServiceResponse openService() throws ServiceException;
+
+    /**
+     * 异步设置当前用户的账号级别属性。以下 *Async 方法返回的 future 在 HTTP 回调中直接完成，
+     * 失败时以 {@link ClientException} 或 {@link ServiceException} 结束，取消 future 会取消底层 HTTP 请求。
+     *
+     * @param accountAttributes object
+     * @return future
+     */
+    CompletableFuture<Void> setAccountAttributesAsync(AccountAttributes accountAttributes);
+
+    /**
+     * 异步获取当前用户的账号级别属性
+     *
+     * @return future，完成时得到 AccountAttributes
+     */
+    CompletableFuture<AccountAttributes> getAccountAttributesAsync();
+
+    /**
+     * 异步创建队列
+     *
+     * @param queueMeta 队列属性
+     * @return future，完成时得到 CloudQueue 对象
+     */
+    CompletableFuture<CloudQueue> createQueueAsync(QueueMeta queueMeta);
+
+    /**
+     * 异步列举队列
+     *
+     * @param prefix    队列名前缀
+     * @param marker    列举的起始位置，""表示从第一个开始，也可以是前一次列举返回的marker
+     * @param retNumber 最多返回的个数
+     * @return future，完成时得到队列属性列表及marker
+     */
+    CompletableFuture<PagingListResult<QueueMeta>> listQueueAsync(String prefix, String marker, Integer retNumber);
+
+    /**
+     * 异步列举队列
+     *
+     * @param prefix    队列名前缀
+     * @param marker    列举的起始位置，""表示从第一个开始，也可以是前一次列举返回的marker
+     * @param retNumber 最多返回的个数
+     * @return future，完成时得到队列URL列表及marker
+     */
+    CompletableFuture<PagingListResult<String>> listQueueURLAsync(String prefix, String marker, Integer retNumber);
+
+    /**
+     * 异步创建主题
+     *
+     * @param meta CloudTopic的meta数据
+     * @return future，完成时得到 CloudTopic 对象
+     */
+    CompletableFuture<CloudTopic> createTopicAsync(TopicMeta meta);
+
+    /**
+     * 异步列举主题
+     *
+     * @param prefix    topic name前缀
+     * @param marker    topic的起始位置，""表示从第一个开始，也可以是前一次列举返回的marker
+     * @param retNumber 最多返回的个数
+     * @return future，完成时得到topic meta列表及marker数据
+     */
+    CompletableFuture<PagingListResult<TopicMeta>> listTopicAsync(String prefix, String marker, Integer retNumber);
+
+    /**
+     * 异步列举主题
+     *
+     * @param prefix    topic name前缀
+     * @param marker    topic的起始位置，""表示从第一个开始，也可以是前一次列举返回的marker
+     * @param retNumber 最多返回的个数
+     * @return future，完成时得到topic url列表及marker数据
+     */
+    CompletableFuture<PagingListResult<String>> listTopicURLAsync(String prefix, String marker, Integer retNumber);
+
+    /**
+     * 异步开通 mns
+     *
+     * @return future，完成时得到 response
+     */
+    CompletableFuture<OpenServiceResponse> openServiceAsync();
 }
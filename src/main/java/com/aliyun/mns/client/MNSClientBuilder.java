@@ -1,7 +1,9 @@
 package com.aliyun.mns.client;
 
+import com.aliyun.mns.common.http.CallbackExecutionMode;
 import com.aliyun.mns.common.http.ClientConfiguration;
 import com.aliyuncs.auth.AlibabaCloudCredentialsProvider;
+import java.util.concurrent.Executor;
 
 public class MNSClientBuilder {
 
@@ -12,6 +14,8 @@ public class MNSClientBuilder {
     private String accountEndpoint;
     private ClientConfiguration clientConfiguration;
     private String region;
+    private CallbackExecutionMode callbackExecutionMode;
+    private Executor callbackExecutor;
 
     public static MNSClientBuilder create() {
         return new MNSClientBuilder();
@@ -52,7 +56,38 @@ public class MNSClientBuilder {
         return this;
     }
 
+    /**
+     * 异步接口中用户回调的执行方式，会设置到 clientConfiguration 中
+     *
+     * @see ClientConfiguration#setCallbackExecutionMode(CallbackExecutionMode)
+     */
+    public MNSClientBuilder callbackExecutionMode(CallbackExecutionMode callbackExecutionMode) {
+        this.callbackExecutionMode = callbackExecutionMode;
+        return this;
+    }
+
+    /**
+     * 本客户端的回调线程池，会设置到 clientConfiguration 中
+     *
+     * @see ClientConfiguration#setCallbackExecutor(Executor)
+     */
+    public MNSClientBuilder callbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
     public MNSClient build() {
+        if (callbackExecutionMode != null || callbackExecutor != null) {
+            if (clientConfiguration == null) {
+                clientConfiguration = new ClientConfiguration();
+            }
+            if (callbackExecutionMode != null) {
+                clientConfiguration.setCallbackExecutionMode(callbackExecutionMode);
+            }
+            if (callbackExecutor != null) {
+                clientConfiguration.setCallbackExecutor(callbackExecutor);
+            }
+        }
         CloudAccount cloudAccount = new CloudAccount(accessKeyId, accessKeySecret, accountEndpoint, securityToken,
             credentialsProvider, clientConfiguration, region);
         return cloudAccount.getMNSClient();
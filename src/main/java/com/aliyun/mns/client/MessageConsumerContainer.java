@@ -0,0 +1,501 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.client;
+
+import com.aliyun.mns.common.ServiceHandlingRequiredException;
+import com.aliyun.mns.common.utils.ThreadUtil;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 多线程长轮询消费容器。
+ * <p>
+ * 少量拉取线程通过 batchPopMessage 长轮询把消息放入有界的预取缓冲区（同时按条数和消息体字节数限制），
+ * 独立的处理线程池从缓冲区取出消息交给 {@link MessageListener}，处理成功的消息通过
+ * {@link BatchMessageAcknowledger} 合批确认。拉取并发与处理并发互不影响。
+ * 设置 {@link MessageLeaseManager} 后，消息在处理期间会自动延长不可见时间。
+ * <p>
+ * {@link #shutdown()} 会先停止拉取，再处理完缓冲区中已有的消息并等待确认发送完毕。
+ */
+public final class MessageConsumerContainer {
+    private static final Logger logger = LoggerFactory.getLogger(MessageConsumerContainer.class);
+
+    public static final int DEFAULT_FETCHER_COUNT = 1;
+    public static final int DEFAULT_BATCH_SIZE = 16;
+    public static final int DEFAULT_WAIT_SECONDS = 10;
+    public static final int DEFAULT_PREFETCH_MESSAGES = 64;
+    public static final long DEFAULT_PREFETCH_BYTES = 4L * 1024 * 1024;
+    public static final long DEFAULT_ERROR_BACKOFF_MILLIS = 1000;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final CloudQueue queue;
+    private final MessageListener listener;
+    private final int fetcherCount;
+    private final int workerCount;
+    private final int batchSize;
+    private final int waitSeconds;
+    private final int prefetchMessages;
+    private final long prefetchBytes;
+    private final long errorBackoffMillis;
+    private final BatchMessageAcknowledger acknowledger;
+    private final boolean ownAcknowledger;
+    private final MessageLeaseManager leaseManager;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<Message> buffer = new ArrayDeque<Message>();
+    private long bufferedBytes = 0;
+    private int reservedSlots = 0;
+    private int activeFetchers = 0;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private ExecutorService fetchers;
+    private ExecutorService workers;
+    private volatile boolean running = false;
+    private volatile boolean started = false;
+
+    private MessageConsumerContainer(Builder builder) {
+        this.queue = builder.queue;
+        this.listener = builder.listener;
+        this.fetcherCount = builder.fetcherCount;
+        this.workerCount = builder.workerCount;
+        this.batchSize = builder.batchSize;
+        this.waitSeconds = builder.waitSeconds;
+        this.prefetchMessages = builder.prefetchMessages;
+        this.prefetchBytes = builder.prefetchBytes;
+        this.errorBackoffMillis = builder.errorBackoffMillis;
+        this.leaseManager = builder.leaseManager;
+        if (builder.acknowledger != null) {
+            this.acknowledger = builder.acknowledger;
+            this.ownAcknowledger = false;
+        } else {
+            this.acknowledger = BatchMessageAcknowledger.newBuilder(queue).build();
+            this.ownAcknowledger = true;
+        }
+    }
+
+    public static Builder newBuilder(CloudQueue queue, MessageListener listener) {
+        return new Builder(queue, listener);
+    }
+
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("MessageConsumerContainer can only be started once.");
+        }
+        started = true;
+        running = true;
+        activeFetchers = fetcherCount;
+        fetchers = Executors.newFixedThreadPool(fetcherCount, ThreadUtil.newNamedThreadFactory("mns-consumer-fetcher-", true));
+        workers = Executors.newFixedThreadPool(workerCount, ThreadUtil.newNamedThreadFactory("mns-consumer-worker-", true));
+        for (int i = 0; i < fetcherCount; i++) {
+            fetchers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fetchLoop();
+                }
+            });
+        }
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    workLoop();
+                }
+            });
+        }
+    }
+
+    /**
+     * 优雅停止：停止拉取，处理完缓冲区中的消息，等待确认请求完成。
+     * 拉取线程会在当前长轮询返回后退出，因此最长可能等待 waitSeconds。
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 是否在超时前全部完成
+     * @throws InterruptedException interrupted
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (this) {
+            if (!started) {
+                return true;
+            }
+            running = false;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        lock.lock();
+        try {
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        fetchers.shutdown();
+        workers.shutdown();
+        boolean terminated = fetchers.awaitTermination(remaining(deadline), TimeUnit.NANOSECONDS)
+            && workers.awaitTermination(remaining(deadline), TimeUnit.NANOSECONDS);
+        if (!terminated) {
+            fetchers.shutdownNow();
+            workers.shutdownNow();
+            logger.warn("MessageConsumerContainer did not drain before timeout, " + getBufferedCount()
+                + " buffered messages will become visible again.");
+        }
+        if (ownAcknowledger) {
+            try {
+                acknowledger.close().get(remaining(deadline), TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                terminated = false;
+                logger.warn("acknowledger did not finish before timeout: " + e.getMessage());
+            }
+        } else {
+            acknowledger.flush();
+        }
+        return terminated;
+    }
+
+    public boolean shutdown() throws InterruptedException {
+        return shutdown(waitSeconds + 30, TimeUnit.SECONDS);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 预取缓冲区中的消息条数
+     */
+    public int getBufferedCount() {
+        lock.lock();
+        try {
+            return buffer.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 预取缓冲区中的消息体字节数
+     */
+    public long getBufferedBytes() {
+        lock.lock();
+        try {
+            return bufferedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 正在由 listener 处理的消息条数
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void fetchLoop() {
+        try {
+            while (running) {
+                int slots = reserveSlots();
+                if (slots <= 0) {
+                    continue;
+                }
+                List<Message> messages = null;
+                try {
+                    messages = queue.batchPopMessage(slots, waitSeconds);
+                } catch (ServiceHandlingRequiredException e) {
+                    logger.warn("batchPopMessage failed, errorCode:" + e.getErrorCode() + ", " + e.getMessage());
+                    backoff();
+                } catch (Exception e) {
+                    logger.warn("batchPopMessage failed: " + e.getMessage(), e);
+                    backoff();
+                } finally {
+                    offer(messages, slots);
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                activeFetchers--;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int reserveSlots() {
+        lock.lock();
+        try {
+            while (running && (buffer.size() + reservedSlots >= prefetchMessages || bufferedBytes >= prefetchBytes)) {
+                notFull.await();
+            }
+            if (!running) {
+                return 0;
+            }
+            int slots = Math.min(batchSize, prefetchMessages - buffer.size() - reservedSlots);
+            reservedSlots += slots;
+            return slots;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void offer(List<Message> messages, int slots) {
+        lock.lock();
+        try {
+            reservedSlots -= slots;
+            if (messages != null) {
+                for (Message message : messages) {
+                    buffer.addLast(message);
+                    bufferedBytes += sizeOf(message);
+                }
+                receivedCount.addAndGet(messages.size());
+                notEmpty.signalAll();
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backoff() {
+        try {
+            Thread.sleep(errorBackoffMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void workLoop() {
+        while (true) {
+            Message message;
+            lock.lock();
+            try {
+                while (buffer.isEmpty()) {
+                    if (!running && activeFetchers == 0) {
+                        return;
+                    }
+                    notEmpty.await(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                message = buffer.pollFirst();
+                bufferedBytes -= sizeOf(message);
+                inFlight.incrementAndGet();
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            boolean consumed = false;
+            try {
+                if (leaseManager != null) {
+                    leaseManager.track(message);
+                }
+                consumed = listener.consume(message);
+            } catch (Throwable t) {
+                logger.warn("listener failed to consume message " + message.getMessageId() + ": " + t.getMessage(), t);
+            } finally {
+                complete(message, consumed);
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void complete(Message message, boolean consumed) {
+        if (consumed) {
+            processedCount.incrementAndGet();
+        } else {
+            failedCount.incrementAndGet();
+        }
+        if (leaseManager == null) {
+            if (consumed) {
+                acknowledger.ack(message);
+            }
+            return;
+        }
+        // 续约会更换 receipt handle，需要等正在进行的续约结束后再用最新的 handle 确认
+        CompletableFuture<Message> released = leaseManager.release(message);
+        if (consumed) {
+            released.thenAccept(acknowledger::ack).join();
+        }
+    }
+
+    private static long sizeOf(Message message) {
+        byte[] body = message.getMessageBodyAsRawBytes();
+        return body == null ? 0 : body.length;
+    }
+
+    private static long remaining(long deadlineNanos) {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public static final class Builder {
+        private final CloudQueue queue;
+        private final MessageListener listener;
+        private int fetcherCount = DEFAULT_FETCHER_COUNT;
+        private int workerCount = Runtime.getRuntime().availableProcessors();
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int waitSeconds = DEFAULT_WAIT_SECONDS;
+        private int prefetchMessages = DEFAULT_PREFETCH_MESSAGES;
+        private long prefetchBytes = DEFAULT_PREFETCH_BYTES;
+        private long errorBackoffMillis = DEFAULT_ERROR_BACKOFF_MILLIS;
+        private BatchMessageAcknowledger acknowledger;
+        private MessageLeaseManager leaseManager;
+
+        private Builder(CloudQueue queue, MessageListener listener) {
+            if (queue == null || listener == null) {
+                throw new NullPointerException("queue and listener can not be null.");
+            }
+            this.queue = queue;
+            this.listener = listener;
+        }
+
+        /**
+         * 长轮询拉取线程数
+         */
+        public Builder fetcherCount(int fetcherCount) {
+            checkPositive(fetcherCount, "fetcherCount");
+            this.fetcherCount = fetcherCount;
+            return this;
+        }
+
+        /**
+         * 处理线程数
+         */
+        public Builder workerCount(int workerCount) {
+            checkPositive(workerCount, "workerCount");
+            this.workerCount = workerCount;
+            return this;
+        }
+
+        /**
+         * 每次拉取的最大条数，取值 1 ~ 16
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1 || batchSize > DEFAULT_BATCH_SIZE) {
+                throw new IllegalArgumentException("batchSize should be between 1 and " + DEFAULT_BATCH_SIZE);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * 长轮询等待时间，单位秒
+         */
+        public Builder waitSeconds(int waitSeconds) {
+            if (waitSeconds < 0) {
+                throw new IllegalArgumentException("waitSeconds should not be negative");
+            }
+            this.waitSeconds = waitSeconds;
+            return this;
+        }
+
+        /**
+         * 预取缓冲区最多缓存的消息条数
+         */
+        public Builder prefetchMessages(int prefetchMessages) {
+            checkPositive(prefetchMessages, "prefetchMessages");
+            this.prefetchMessages = prefetchMessages;
+            return this;
+        }
+
+        /**
+         * 预取缓冲区的消息体字节数上限，达到上限后暂停拉取
+         */
+        public Builder prefetchBytes(long prefetchBytes) {
+            checkPositive(prefetchBytes, "prefetchBytes");
+            this.prefetchBytes = prefetchBytes;
+            return this;
+        }
+
+        /**
+         * 拉取失败后的等待时间，单位毫秒
+         */
+        public Builder errorBackoffMillis(long errorBackoffMillis) {
+            if (errorBackoffMillis < 0) {
+                throw new IllegalArgumentException("errorBackoffMillis should not be negative");
+            }
+            this.errorBackoffMillis = errorBackoffMillis;
+            return this;
+        }
+
+        /**
+         * 用于确认消息的 acknowledger，不设置时使用默认配置创建，并在 shutdown 时关闭
+         */
+        public Builder acknowledger(BatchMessageAcknowledger acknowledger) {
+            this.acknowledger = acknowledger;
+            return this;
+        }
+
+        /**
+         * 处理期间自动续约的租约管理器，不设置时不续约
+         */
+        public Builder leaseManager(MessageLeaseManager leaseManager) {
+            this.leaseManager = leaseManager;
+            return this;
+        }
+
+        public MessageConsumerContainer build() {
+            return new MessageConsumerContainer(this);
+        }
+
+        private static void checkPositive(long value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " should be bigger than 0");
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.client;
+
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.utils.HashedWheelTimer;
+import com.aliyun.mns.common.utils.ServiceConstants;
+import com.aliyun.mns.model.Message;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 消息租约管理：在消息重新可见之前自动调用 ChangeMessageVisibility 延长不可见时间，
+ * 避免处理时间较长的消息被重复消费。
+ * <p>
+ * 所有租约挂在一个 {@link HashedWheelTimer} 上，续约请求通过异步接口发出，不为每条消息占用线程。
+ * 续约成功后会更新消息的 receipt handle 和 nextVisibleTime，因此确认消息时必须使用
+ * {@link #release(Message)} 返回的消息（或其最新的 receipt handle）。
+ * 以下情况停止续约：调用 release、租约总时长达到 maxLeaseMillis、或服务端返回 handle 已失效。
+ */
+public final class MessageLeaseManager {
+    private static final Logger logger = LoggerFactory.getLogger(MessageLeaseManager.class);
+
+    public static final int DEFAULT_VISIBILITY_TIMEOUT_SECONDS = 30;
+    public static final long DEFAULT_RENEW_MARGIN_MILLIS = 5000;
+    public static final long DEFAULT_MAX_LEASE_MILLIS = 30 * 60 * 1000L;
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 500;
+    public static final long DEFAULT_TICK_MILLIS = 100;
+
+    private final CloudQueue queue;
+    private final int visibilityTimeoutSeconds;
+    private final long renewMarginMillis;
+    private final long maxLeaseMillis;
+    private final long retryBackoffMillis;
+    private final HashedWheelTimer timer;
+    private final boolean ownTimer;
+
+    private final Map<Message, Lease> leases = new ConcurrentHashMap<Message, Lease>();
+    private final AtomicLong renewedCount = new AtomicLong();
+    private final AtomicLong lostCount = new AtomicLong();
+    private volatile boolean closed = false;
+
+    private MessageLeaseManager(Builder builder) {
+        this.queue = builder.queue;
+        this.visibilityTimeoutSeconds = builder.visibilityTimeoutSeconds;
+        this.renewMarginMillis = builder.renewMarginMillis;
+        this.maxLeaseMillis = builder.maxLeaseMillis;
+        this.retryBackoffMillis = builder.retryBackoffMillis;
+        if (builder.timer != null) {
+            this.timer = builder.timer;
+            this.ownTimer = false;
+        } else {
+            this.timer = new HashedWheelTimer("mns-lease-timer", builder.tickMillis, TimeUnit.MILLISECONDS, 512);
+            this.ownTimer = true;
+        }
+    }
+
+    public static Builder newBuilder(CloudQueue queue) {
+        return new Builder(queue);
+    }
+
+    /**
+     * 开始为消息续约。消息需要带有 receipt handle；没有 nextVisibleTime 时立即续约一次。
+     *
+     * @param message 收到的消息
+     */
+    public void track(Message message) {
+        if (closed) {
+            throw new IllegalStateException("MessageLeaseManager has been closed.");
+        }
+        if (message.getReceiptHandle() == null) {
+            throw new IllegalArgumentException("message has no receipt handle.");
+        }
+        Lease lease = new Lease(message);
+        if (leases.putIfAbsent(message, lease) == null) {
+            lease.schedule(renewDelay(message));
+        }
+    }
+
+    /**
+     * 停止为消息续约。如果有续约请求正在进行，返回的 future 会在请求结束后完成，
+     * 此时消息中是最新的 receipt handle，可以直接用于删除。
+     *
+     * @param message 之前 track 过的消息
+     * @return future，完成时得到同一个消息对象
+     */
+    public CompletableFuture<Message> release(Message message) {
+        Lease lease = leases.remove(message);
+        if (lease == null) {
+            return CompletableFuture.completedFuture(message);
+        }
+        return lease.release();
+    }
+
+    public int getActiveLeaseCount() {
+        return leases.size();
+    }
+
+    /**
+     * 成功续约的次数
+     */
+    public long getRenewedCount() {
+        return renewedCount.get();
+    }
+
+    /**
+     * 因 handle 失效或续约失败而丢失的租约数
+     */
+    public long getLostCount() {
+        return lostCount.get();
+    }
+
+    /**
+     * 停止所有续约。未 release 的消息会在当前不可见时间结束后重新可见。
+     */
+    public void close() {
+        closed = true;
+        for (Message message : leases.keySet()) {
+            release(message);
+        }
+        if (ownTimer) {
+            timer.stop();
+        }
+    }
+
+    private long renewDelay(Message message) {
+        Date nextVisibleTime = message.getNextVisibleTime();
+        if (nextVisibleTime == null) {
+            return 0;
+        }
+        return Math.max(0, nextVisibleTime.getTime() - renewMarginMillis - System.currentTimeMillis());
+    }
+
+    private static boolean isPermanentError(Throwable error) {
+        if (!(error instanceof ServiceException)) {
+            return false;
+        }
+        String errorCode = ((ServiceException) error).getErrorCode();
+        return ServiceConstants.ERROR_CODE_MSG_NOT_EXIST.equals(errorCode)
+            || ServiceConstants.ERROR_CODE_RECEIPT_HANDLE_ERROR.equals(errorCode);
+    }
+
+    private final class Lease implements Runnable {
+        private final Message message;
+        private final long startTime = System.currentTimeMillis();
+        private HashedWheelTimer.Timeout timeout;
+        private CompletableFuture<Message> inFlight;
+        private CompletableFuture<Message> released;
+
+        private Lease(Message message) {
+            this.message = message;
+        }
+
+        private synchronized void schedule(long delayMillis) {
+            if (released != null || timer.isStopped()) {
+                return;
+            }
+            timeout = timer.newTimeout(this, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized CompletableFuture<Message> release() {
+            if (released == null) {
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+                released = new CompletableFuture<Message>();
+                if (inFlight == null) {
+                    released.complete(message);
+                }
+            }
+            return released;
+        }
+
+        @Override
+        public void run() {
+            long remaining = startTime + maxLeaseMillis - System.currentTimeMillis();
+            if (remaining <= 0) {
+                logger.info("message " + message.getMessageId() + " reached max lease, stop renewing.");
+                leases.remove(message, this);
+                return;
+            }
+            int seconds = (int) Math.min(visibilityTimeoutSeconds, (remaining + 999) / 1000);
+            String receiptHandle;
+            synchronized (this) {
+                if (released != null) {
+                    return;
+                }
+                receiptHandle = message.getReceiptHandle();
+                inFlight = new CompletableFuture<Message>();
+            }
+            queue.changeMessageVisibilityAsync(receiptHandle, seconds)
+                .whenComplete((result, error) -> onRenewed(result, error));
+        }
+
+        private void onRenewed(Message result, Throwable error) {
+            if (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+            long delay = -1;
+            synchronized (this) {
+                if (error == null) {
+                    message.setReceiptHandle(result.getReceiptHandle());
+                    message.setNextVisibleTime(result.getNextVisibleTime());
+                    renewedCount.incrementAndGet();
+                    delay = renewDelay(message);
+                } else if (isPermanentError(error)) {
+                    logger.warn("lease of message " + message.getMessageId() + " lost: " + error.getMessage());
+                    lostCount.incrementAndGet();
+                    leases.remove(message, this);
+                } else {
+                    Date nextVisibleTime = message.getNextVisibleTime();
+                    if (nextVisibleTime != null && nextVisibleTime.getTime() <= System.currentTimeMillis()) {
+                        logger.warn("lease of message " + message.getMessageId() + " expired: " + error.getMessage());
+                        lostCount.incrementAndGet();
+                        leases.remove(message, this);
+                    } else {
+                        delay = retryBackoffMillis;
+                    }
+                }
+                inFlight = null;
+                if (released != null) {
+                    released.complete(message);
+                    return;
+                }
+            }
+            if (delay >= 0) {
+                schedule(delay);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final CloudQueue queue;
+        private int visibilityTimeoutSeconds = DEFAULT_VISIBILITY_TIMEOUT_SECONDS;
+        private long renewMarginMillis = DEFAULT_RENEW_MARGIN_MILLIS;
+        private long maxLeaseMillis = DEFAULT_MAX_LEASE_MILLIS;
+        private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+        private long tickMillis = DEFAULT_TICK_MILLIS;
+        private HashedWheelTimer timer;
+
+        private Builder(CloudQueue queue) {
+            if (queue == null) {
+                throw new NullPointerException("queue can not be null.");
+            }
+            this.queue = queue;
+        }
+
+        /**
+         * 每次续约设置的不可见时间，单位秒
+         */
+        public Builder visibilityTimeoutSeconds(int visibilityTimeoutSeconds) {
+            if (visibilityTimeoutSeconds <= 0) {
+                throw new IllegalArgumentException("visibilityTimeoutSeconds should be bigger than 0");
+            }
+            this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+            return this;
+        }
+
+        /**
+         * 在 nextVisibleTime 之前多久发起续约
+         */
+        public Builder renewMarginMillis(long renewMarginMillis) {
+            if (renewMarginMillis < 0) {
+                throw new IllegalArgumentException("renewMarginMillis should not be negative");
+            }
+            this.renewMarginMillis = renewMarginMillis;
+            return this;
+        }
+
+        /**
+         * 单条消息最长的租约时间，超过后不再续约
+         */
+        public Builder maxLeaseMillis(long maxLeaseMillis) {
+            if (maxLeaseMillis <= 0) {
+                throw new IllegalArgumentException("maxLeaseMillis should be bigger than 0");
+            }
+            this.maxLeaseMillis = maxLeaseMillis;
+            return this;
+        }
+
+        /**
+         * 续约请求失败后的重试间隔
+         */
+        public Builder retryBackoffMillis(long retryBackoffMillis) {
+            if (retryBackoffMillis < 0) {
+                throw new IllegalArgumentException("retryBackoffMillis should not be negative");
+            }
+            this.retryBackoffMillis = retryBackoffMillis;
+            return this;
+        }
+
+        /**
+         * 默认时间轮的 tick 间隔，设置了 timer 时无效
+         */
+        public Builder tickMillis(long tickMillis) {
+            if (tickMillis <= 0) {
+                throw new IllegalArgumentException("tickMillis should be bigger than 0");
+            }
+            this.tickMillis = tickMillis;
+            return this;
+        }
+
+        /**
+         * 共享的时间轮，不设置时创建一个并在 close 时停止
+         */
+        public Builder timer(HashedWheelTimer timer) {
+            this.timer = timer;
+            return this;
+        }
+
+        public MessageLeaseManager build() {
+            return new MessageLeaseManager(this);
+        }
+    }
+}
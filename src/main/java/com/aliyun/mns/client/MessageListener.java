@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.client;
+
+import com.aliyun.mns.model.Message;
+
+public interface MessageListener {
+    /**
+     * 处理一条消息。
+     * 返回 true 时消息会被确认（删除）；返回 false 或抛出异常时不确认，消息在不可见时间结束后重新投递。
+     *
+     * @param message message
+     * @return 是否确认消息
+     * @throws Exception exception
+     */
+    boolean consume(Message message) throws Exception;
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.client;
+
+import com.aliyun.mns.common.utils.ThreadUtil;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按 MessageGroupId 分区的保序并行分发器。
+ * <p>
+ * 消息按 MessageGroupId 的哈希分配到固定数量的单线程 lane 上：同一分组的消息按接收顺序串行处理并按顺序确认，
+ * 不同分组在不同 lane 上并行，一个 lane 上的慢消息不会阻塞其他 lane。没有 MessageGroupId 的消息按 MessageId 分配。
+ * <p>
+ * 同一次 {@link #dispatch(List)} 中，某个分组的消息处理失败后，该分组剩余的消息会被跳过且不确认，
+ * 等待重新投递，以免乱序。未处理完的消息总数受 maxPendingMessages 限制，超过时 dispatch 阻塞。
+ */
+public final class OrderedMessageDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OrderedMessageDispatcher.class);
+
+    public static final int DEFAULT_MAX_PENDING_MESSAGES = 256;
+
+    private final MessageListener listener;
+    private final BatchMessageAcknowledger acknowledger;
+    private final MessageLeaseManager leaseManager;
+    private final ExecutorService[] lanes;
+    private final int maxPendingMessages;
+    private final Semaphore pendingPermits;
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private volatile boolean closed = false;
+
+    private OrderedMessageDispatcher(Builder builder) {
+        this.listener = builder.listener;
+        this.acknowledger = builder.acknowledger;
+        this.leaseManager = builder.leaseManager;
+        this.maxPendingMessages = builder.maxPendingMessages;
+        this.pendingPermits = new Semaphore(maxPendingMessages);
+        this.lanes = new ExecutorService[builder.laneCount];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(
+                ThreadUtil.newNamedThreadFactory("mns-ordered-lane-" + i + "-", true));
+        }
+    }
+
+    public static Builder newBuilder(MessageListener listener, BatchMessageAcknowledger acknowledger) {
+        return new Builder(listener, acknowledger);
+    }
+
+    /**
+     * 分发一批消息，通常是一次 batchPopMessage 的结果。
+     *
+     * @param messages 按接收顺序排列的消息
+     * @return future，批次中所有消息处理完成（或被跳过）时完成
+     * @throws InterruptedException 等待 pending 配额时被中断
+     */
+    public CompletableFuture<Void> dispatch(List<Message> messages) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("OrderedMessageDispatcher has been closed.");
+        }
+        if (messages == null || messages.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // 本批次中处理失败的分组
+        final Set<String> failedGroups = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(messages.size());
+        for (final Message message : messages) {
+            pendingPermits.acquire();
+            if (leaseManager != null) {
+                leaseManager.track(message);
+            }
+            final CompletableFuture<Void> future = new CompletableFuture<Void>();
+            futures.add(future);
+            try {
+                lanes[laneOf(message)].execute(() -> {
+                    try {
+                        process(message, failedGroups);
+                    } finally {
+                        pendingPermits.release();
+                        future.complete(null);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pendingPermits.release();
+                release(message);
+                future.completeExceptionally(e);
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 停止接收新的消息，等待已分发的消息处理完成。
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 是否在超时前全部完成
+     * @throws InterruptedException interrupted
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        closed = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        boolean terminated = true;
+        for (ExecutorService lane : lanes) {
+            terminated &= lane.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        if (!terminated) {
+            for (ExecutorService lane : lanes) {
+                lane.shutdownNow();
+            }
+        }
+        return terminated;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * 已分发但尚未处理完成的消息数
+     */
+    public int getPendingCount() {
+        return maxPendingMessages - pendingPermits.availablePermits();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * 因同组前序消息失败而跳过的消息数
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    private int laneOf(Message message) {
+        String key = message.getMessageGroupId();
+        if (key == null) {
+            key = message.getMessageId();
+        }
+        int hash = key == null ? 0 : key.hashCode();
+        // 打散低位，避免分组名相近时集中到少数 lane
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    private void process(Message message, Set<String> failedGroups) {
+        String groupId = message.getMessageGroupId();
+        if (groupId != null && failedGroups.contains(groupId)) {
+            skippedCount.incrementAndGet();
+            release(message);
+            return;
+        }
+        boolean consumed = false;
+        try {
+            consumed = listener.consume(message);
+        } catch (Throwable t) {
+            logger.warn("listener failed to consume message " + message.getMessageId() + ": " + t.getMessage(), t);
+        }
+        if (consumed) {
+            processedCount.incrementAndGet();
+            // 在 lane 线程内按顺序提交确认
+            release(message).thenAccept(acknowledger::ack).join();
+        } else {
+            failedCount.incrementAndGet();
+            if (groupId != null) {
+                failedGroups.add(groupId);
+            }
+            release(message);
+        }
+    }
+
+    private CompletableFuture<Message> release(Message message) {
+        if (leaseManager == null) {
+            return CompletableFuture.completedFuture(message);
+        }
+        return leaseManager.release(message);
+    }
+
+    public static final class Builder {
+        private final MessageListener listener;
+        private final BatchMessageAcknowledger acknowledger;
+        private int laneCount = Runtime.getRuntime().availableProcessors();
+        private int maxPendingMessages = DEFAULT_MAX_PENDING_MESSAGES;
+        private MessageLeaseManager leaseManager;
+
+        private Builder(MessageListener listener, BatchMessageAcknowledger acknowledger) {
+            if (listener == null || acknowledger == null) {
+                throw new NullPointerException("listener and acknowledger can not be null.");
+            }
+            this.listener = listener;
+            this.acknowledger = acknowledger;
+        }
+
+        /**
+         * lane 数量，即最大处理并发
+         */
+        public Builder laneCount(int laneCount) {
+            if (laneCount <= 0) {
+                throw new IllegalArgumentException("laneCount should be bigger than 0");
+            }
+            this.laneCount = laneCount;
+            return this;
+        }
+
+        /**
+         * 已分发未处理完成的消息数上限
+         */
+        public Builder maxPendingMessages(int maxPendingMessages) {
+            if (maxPendingMessages <= 0) {
+                throw new IllegalArgumentException("maxPendingMessages should be bigger than 0");
+            }
+            this.maxPendingMessages = maxPendingMessages;
+            return this;
+        }
+
+        /**
+         * 排队和处理期间自动续约的租约管理器，不设置时不续约
+         */
+        public Builder leaseManager(MessageLeaseManager leaseManager) {
+            this.leaseManager = leaseManager;
+            return this;
+        }
+
+        public OrderedMessageDispatcher build() {
+            return new OrderedMessageDispatcher(this);
+        }
+    }
+}
@@ -30,16 +30,23 @@ import com.aliyun.mns.common.auth.MNSV4Signer;
 import com.aliyun.mns.common.auth.RequestSigner;
 import com.aliyun.mns.common.auth.ServiceCredentials;
 import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.comm.ByteBufferContent;
 import com.aliyun.mns.common.comm.ExecutionContext;
+import com.aliyun.mns.common.http.CancellableFuture;
+import com.aliyun.mns.common.http.ClientConfiguration;
 import com.aliyun.mns.common.http.ExceptionResultParser;
 import com.aliyun.mns.common.http.HttpCallback;
+import com.aliyun.mns.common.http.HedgingPolicy;
 import com.aliyun.mns.common.http.RequestMessage;
 import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.common.metrics.RequestMetrics;
+import com.aliyun.mns.common.metrics.RequestMetricsListener;
 import com.aliyun.mns.common.parser.ResultParser;
 import com.aliyun.mns.common.utils.AlibabaCloudCredentialsUtil;
 import com.aliyun.mns.common.utils.DateUtil;
 import com.aliyun.mns.common.utils.IdptEnvUtil;
 import com.aliyun.mns.model.AbstractRequest;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyuncs.auth.AlibabaCloudCredentials;
 import com.aliyuncs.auth.AlibabaCloudCredentialsProvider;
 import org.apache.commons.lang3.StringUtils;
@@ -49,7 +56,13 @@ import org.slf4j.LoggerFactory;
 import java.net.URI;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * 动作对象不保存单次调用的状态，同一个实例可以被多个线程并发复用（见 {@link ActionCache}）。
+ * 单次调用的 userRequestId 在每次执行时生成，通过 {@link ActionContext} 传给请求和解析器的构建方法，
+ * 并随 {@link HttpCallback}、请求头传递。
+ */
 public abstract class AbstractAction<T extends AbstractRequest, V> implements
     Action<T, V> {
 
@@ -60,7 +73,8 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
     private RequestSigner requestSigner;
     private HttpMethod method;
     private URI endpoint;
-    private String userRequestId = null;
+    private String endpointPrefix;
+    private ClientConfiguration config;
 
     public AbstractAction(HttpMethod method, String actionName,
                           ServiceClient client, ServiceCredentials credentials, URI endpoint) {
@@ -69,17 +83,15 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
         this.client = client;
         this.endpoint = endpoint;
         this.credentials = credentials;
+        this.endpointPrefix = endpoint == null ? null : endpoint.toString();
+        this.config = client.getClientConfiguration();
         this.requestSigner = createRequestSigner();
-
-        if (this.client.getClientConfiguration().isGenerateRequestId()) {
-            userRequestId = UUID.randomUUID().toString();
-        }
     }
 
     private RequestSigner createRequestSigner() {
-        SignVersion signVersion = this.client.getClientConfiguration().getSignatureVersion();
+        SignVersion signVersion = this.config.getSignatureVersion();
         if (signVersion == SignVersion.V2 && IdptEnvUtil.isIdptEnv()) {
-            throw new ClientException(userRequestId, "Unsupported Signature Version: " + signVersion);
+            throw new ClientException(null, "Unsupported Signature Version: " + signVersion);
         }
         if (signVersion == null) {
             signVersion = IdptEnvUtil.isIdptEnv() ? SignVersion.V4 : SignVersion.V2;
@@ -89,7 +101,7 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
         } else if (signVersion == SignVersion.V4) {
             return new MNSV4Signer();
         } else {
-            throw new ClientException(userRequestId, "Unsupported Signature Version: " + signVersion);
+            throw new ClientException(null, "Unsupported Signature Version: " + signVersion);
         }
     }
 
@@ -126,15 +138,80 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
     public AsyncResult<V> executeWithCustomHeaders(T reqObject, AsyncCallback<V> asyncHandler,
                                                    Map<String, String> customHeaders)
         throws ClientException, ServiceException {
-        RequestMessage request = buildRequestMessage(reqObject);
-        this.addRequiredHeader(request);
-        this.addCustomHeader(request, customHeaders);
-        this.addSignatureHeader(request);
-
-        HttpCallback<V> callback = new HttpCallback<V>(
-            this.buildResultParser(), this.buildExceptionParser(), asyncHandler, userRequestId);
-        long timewaitMillis = this.client.getClientConfiguration().getSocketTimeout();
-        return client.asyncSendRequest(request, new ExecutionContext(), callback, timewaitMillis);
+        ActionContext context = newContext();
+        return send(reqObject, newCallback(reqObject, asyncHandler, context), customHeaders, context);
+    }
+
+    /**
+     * 异步执行请求，返回的 future 在 HTTP 回调中直接完成，不占用等待线程。
+     * 失败时以 {@link ClientException} 或 {@link ServiceException} 结束；取消 future 会取消底层 HTTP 请求。
+     *
+     * @param reqObject     request
+     * @param customHeaders 自定义 header，可为 null
+     * @return future
+     */
+    public CancellableFuture<V> executeAsync(T reqObject, Map<String, String> customHeaders) {
+        ActionContext context = newContext();
+        try {
+            HttpCallback<V> callback = newCallback(reqObject, null, context);
+            send(reqObject, callback, customHeaders, context);
+            return callback.getCompletableFuture();
+        } catch (ClientException ex) {
+            return CancellableFuture.failed(ex);
+        } catch (ServiceException ex) {
+            return CancellableFuture.failed(ex);
+        } catch (Exception ex) {
+            return CancellableFuture.failed(new ClientException(ex.toString(), context.getUserRequestId(), ex));
+        }
+    }
+
+    private HttpCallback<V> newCallback(T reqObject, AsyncCallback<V> asyncHandler, ActionContext context) {
+        return new HttpCallback<V>(this.buildResultParser(reqObject, context), this.buildExceptionParser(context),
+            asyncHandler, context.getUserRequestId());
+    }
+
+    private AsyncResult<V> send(T reqObject, HttpCallback<V> callback, Map<String, String> customHeaders,
+        ActionContext context) throws ClientException, ServiceException {
+        RequestMetricsListener listener = config.getMetricsListener();
+        long startNanos = System.nanoTime();
+        String userRequestId = context.getUserRequestId();
+        RequestMessage request = buildRequestMessage(reqObject, context);
+        try {
+            this.addRequiredHeader(request, userRequestId);
+            this.addCustomHeader(request, customHeaders);
+            this.addSignatureHeader(request);
+        } catch (RuntimeException ex) {
+            // 请求体还没有交给 ServiceClient，由这里归还缓冲区
+            if (request.getContent() instanceof ByteBufferContent) {
+                ((ByteBufferContent) request.getContent()).release();
+            }
+            throw ex;
+        }
+
+        RequestMetrics metrics = null;
+        if (listener != null) {
+            metrics = new RequestMetrics(listener, actionName,
+                RequestMetrics.resourceNameOf(request.getResourcePath()), userRequestId, startNanos);
+            metrics.markBuilt(request.getContentLength());
+            callback.setRequestMetrics(metrics);
+        }
+        try {
+            long timewaitMillis = config.getSocketTimeout();
+            if (config.isLongPollPoolEnabled() && request.getWaitSeconds() != null) {
+                timewaitMillis = config.getLongPollSocketTimeout(request.getWaitSeconds());
+            }
+            HedgingPolicy hedgingPolicy = isHedgeable() ? config.getHedgingPolicy() : null;
+            if (hedgingPolicy != null) {
+                return client.asyncSendRequest(request, new ExecutionContext(), callback, timewaitMillis,
+                    hedgingPolicy, actionName);
+            }
+            return client.asyncSendRequest(request, new ExecutionContext(), callback, timewaitMillis);
+        } catch (RuntimeException ex) {
+            if (metrics != null) {
+                metrics.markCompleted(ex);
+            }
+            throw ex;
+        }
     }
 
     @Override
@@ -144,7 +221,8 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
 
     public V executeWithCustomHeaders(T reqObject, Map<String, String> customHeaders)
         throws ClientException, ServiceException {
-        AsyncResult<V> result = executeWithCustomHeaders(reqObject, null, customHeaders);
+        ActionContext context = newContext();
+        AsyncResult<V> result = send(reqObject, newCallback(reqObject, null, context), customHeaders, context);
         V value = result.getResult();
         if (result.isSuccess()) {
             return value;
@@ -156,7 +234,7 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
             throw (ServiceException)result.getException();
         } else {
             ClientException ce = new ClientException(result.getException().toString(),
-                userRequestId, result.getException());
+                context.getUserRequestId(), result.getException());
             ce.setStackTrace(result.getException().getStackTrace());
             throw ce;
         }
@@ -171,7 +249,7 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
         }
     }
 
-    private void addRequiredHeader(RequestMessage request) {
+    private void addRequiredHeader(RequestMessage request, String userRequestId) {
         request.getHeaders().put(MNSConstants.X_HEADER_MNS_API_VERSION,
             MNSConstants.X_HEADER_MNS_API_VERSION_VALUE);
 
@@ -196,7 +274,7 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
         if (credentials == null) {
             return;
         }
-        AlibabaCloudCredentialsProvider provider = credentials.getCredentialsProvider();
+        AlibabaCloudCredentialsProvider provider = credentials.getCachingCredentialsProvider();
 
         if ((credentials.getAccessKeyId() == null || credentials.getAccessKeySecret() == null) && provider == null) {
             return;
@@ -246,16 +324,16 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
         }
     }
 
-    private RequestMessage buildRequestMessage(T reqObject)
+    private RequestMessage buildRequestMessage(T reqObject, ActionContext context)
         throws ClientException {
-        RequestMessage request = buildRequest(reqObject);
+        RequestMessage request = buildRequest(reqObject, context);
         String requestPath = request.getResourcePath();
         if (requestPath != null && (requestPath.startsWith("http://") || requestPath.startsWith("https://"))) {
-            if (!requestPath.startsWith(endpoint.toString())) {
+            if (!requestPath.startsWith(endpointPrefix)) {
                 throw new IllegalArgumentException("The endpoint ["
                     + endpoint + "] does not match the request path [" + requestPath + "].");
             } else {
-                requestPath = requestPath.substring(endpoint.toString().length());
+                requestPath = requestPath.substring(endpointPrefix.length());
                 if (requestPath.startsWith("/")) {
                     requestPath = requestPath.substring(1);
                 }
@@ -264,22 +342,62 @@ public abstract class AbstractAction<T extends AbstractRequest, V> implements
         }
         request.setEndpoint(endpoint);
         request.setMethod(method);
+        request.setIdempotent(isIdempotent());
 
         return request;
     }
 
-    public String getUserRequestId() {
-        return userRequestId;
+    private ActionContext newContext() {
+        return new ActionContext(newUserRequestId());
+    }
+
+    private String newUserRequestId() {
+        if (!config.isGenerateRequestId()) {
+            return null;
+        }
+        // 与 UUID.randomUUID() 格式相同（版本 4），但不经过全局的 SecureRandom
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        long leastSigBits = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
     }
 
     protected ResultParser<V> buildResultParser() {
         return null;
     }
 
-    protected ResultParser<Exception> buildExceptionParser() {
-        return new ExceptionResultParser(userRequestId);
+    /**
+     * 按本次请求构建结果解析器，解析结果依赖请求内容的动作覆盖此方法，不要把请求相关的状态保存在字段中
+     */
+    protected ResultParser<V> buildResultParser(T reqObject, ActionContext context) {
+        return buildResultParser();
+    }
+
+    /**
+     * 是否可以按 {@link HedgingPolicy} 发送对冲请求，只有幂等且没有请求体的只读接口才能返回 true
+     */
+    protected boolean isHedgeable() {
+        return false;
+    }
+
+    /**
+     * 服务端重复处理该请求是否没有副作用，不幂等的请求在读超时和 500 后不会重试；默认只有可对冲的只读接口是幂等的
+     */
+    protected boolean isIdempotent() {
+        return isHedgeable();
+    }
+
+    /**
+     * @return 发送消息时使用的消息体压缩，未开启时为 null
+     */
+    protected MessageBodyCodec getMessageBodyCodec() {
+        return config.getMessageBodyCodec();
+    }
+
+    protected ResultParser<Exception> buildExceptionParser(ActionContext context) {
+        return new ExceptionResultParser(context.getUserRequestId());
     }
 
-    protected abstract RequestMessage buildRequest(T reqObject)
+    protected abstract RequestMessage buildRequest(T reqObject, ActionContext context)
         throws ClientException;
 }
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.client.impl;
+
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.ServiceClient;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按动作类型缓存已绑定 client、credentials 和 endpoint 的动作对象。
+ * 动作对象不保存单次调用的状态，同一个 MNSClient 及其创建的队列、主题共享一份缓存，
+ * 避免每次调用都重新克隆配置、创建签名器。
+ */
+public final class ActionCache {
+
+    /**
+     * 动作的构造函数，一般直接传入构造函数引用，如 {@code SendMessageAction::new}
+     */
+    public interface ActionFactory<A extends AbstractAction<?, ?>> {
+        A create(ServiceClient client, ServiceCredentials credentials, URI endpoint);
+    }
+
+    private final ServiceClient client;
+    private final ServiceCredentials credentials;
+    private final URI endpoint;
+    private final ConcurrentMap<Class<?>, AbstractAction<?, ?>> actions
+        = new ConcurrentHashMap<Class<?>, AbstractAction<?, ?>>();
+
+    public ActionCache(ServiceClient client, ServiceCredentials credentials, URI endpoint) {
+        this.client = client;
+        this.credentials = credentials;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * 取得指定类型的动作对象，不存在时用 factory 创建；并发创建时只保留先放入缓存的那个
+     *
+     * @param type    动作类型
+     * @param factory 动作的构造函数
+     * @return 可复用的动作对象
+     */
+    public <A extends AbstractAction<?, ?>> A get(Class<A> type, ActionFactory<A> factory) {
+        AbstractAction<?, ?> action = actions.get(type);
+        if (action == null) {
+            action = factory.create(client, credentials, endpoint);
+            AbstractAction<?, ?> existing = actions.putIfAbsent(type, action);
+            if (existing != null) {
+                action = existing;
+            }
+        }
+        return type.cast(action);
+    }
+
+    public ServiceClient getClient() {
+        return client;
+    }
+
+    public ServiceCredentials getCredentials() {
+        return credentials;
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return 已缓存的动作对象个数
+     */
+    public int size() {
+        return actions.size();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.client.impl;
+
+/**
+ * 单次调用的上下文，每次执行动作时创建，传给 buildRequest、buildResultParser 和 buildExceptionParser。
+ * 动作对象会被多个调用复用，单次调用的状态只能通过该对象传递，不要保存在动作的字段中。
+ */
+public final class ActionContext {
+    private final String userRequestId;
+
+    public ActionContext(String userRequestId) {
+        this.userRequestId = userRequestId;
+    }
+
+    /**
+     * @return 本次调用的 userRequestId，未开启 generateRequestId 时为 null
+     */
+    public String getUserRequestId() {
+        return userRequestId;
+    }
+}
@@ -39,7 +39,7 @@ public class GetAccountAction extends AbstractAction<GetAccountRequest, String>
     }
 
     @Override
-    protected RequestMessage buildRequest(GetAccountRequest reqObject)
+    protected RequestMessage buildRequest(GetAccountRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage request = new RequestMessage();
         request.setResourcePath(reqObject.getRequestPath() + "?account");
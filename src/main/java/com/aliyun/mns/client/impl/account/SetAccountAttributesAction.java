@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.account;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.MNSConstants;
@@ -41,7 +42,7 @@ public class SetAccountAttributesAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(SetAccountAttributesRequest reqObject)
+    protected RequestMessage buildRequest(SetAccountAttributesRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage message = new RequestMessage();
         message.setResourcePath("?accountmeta=true");
@@ -52,7 +53,12 @@ public class SetAccountAttributesAction extends
             message.setContentLength(is.available());
             return message;
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
     }
+
+    @Override
+    protected boolean isIdempotent() {
+        return true;
+    }
 }
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.commonbuy;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -42,7 +43,7 @@ public class OpenServiceAction extends AbstractAction<OpenServiceRequest, OpenSe
     }
 
     @Override
-    protected RequestMessage buildRequest(OpenServiceRequest reqObject) throws ClientException {
+    protected RequestMessage buildRequest(OpenServiceRequest reqObject, ActionContext context) throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
         return requestMessage;
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -47,7 +48,7 @@ public class BatchDeleteMessageAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(BatchDeleteMessageRequest reqObject)
+    protected RequestMessage buildRequest(BatchDeleteMessageRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath() + "/"
@@ -60,7 +61,7 @@ public class BatchDeleteMessageAction extends
             requestMessage.setContent(is);
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
         return requestMessage;
     }
@@ -71,7 +72,7 @@ public class BatchDeleteMessageAction extends
     }
 
     @Override
-    protected ResultParser<Exception> buildExceptionParser() {
+    protected ResultParser<Exception> buildExceptionParser(ActionContext context) {
         return new ResultParser<Exception>() {
             @Override
             public Exception parse(ResponseMessage response)
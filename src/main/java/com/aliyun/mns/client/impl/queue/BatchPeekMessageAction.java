@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -29,8 +30,9 @@ import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.common.parser.ResultParseException;
 import com.aliyun.mns.common.parser.ResultParser;
 import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyun.mns.model.request.queue.BatchPeekMessageRequest;
-import com.aliyun.mns.model.serialize.queue.MessageListDeserializer;
+import com.aliyun.mns.model.serialize.queue.MessageListStreamDeserializer;
 import java.net.URI;
 import java.util.List;
 
@@ -47,7 +49,12 @@ public class BatchPeekMessageAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(BatchPeekMessageRequest reqObject)
+    protected boolean isHedgeable() {
+        return true;
+    }
+
+    @Override
+    protected RequestMessage buildRequest(BatchPeekMessageRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         String uri = reqObject.getRequestPath() + "/" + LOCATION_MESSAGES
@@ -62,10 +69,11 @@ public class BatchPeekMessageAction extends
         return new ResultParser<List<Message>>() {
             @Override
             public List<Message> parse(ResponseMessage response) throws ResultParseException {
-                MessageListDeserializer deserializer = new MessageListDeserializer();
+                MessageListStreamDeserializer deserializer = new MessageListStreamDeserializer();
                 try {
                     List<Message> msgs = deserializer.deserialize(response.getContent());
                     for (Message msg : msgs) {
+                        MessageBodyCodec.decode(msg);
                         msg.setRequestId(response.getHeader(X_HEADER_MNS_REQUEST_ID));
                     }
                     return msgs;
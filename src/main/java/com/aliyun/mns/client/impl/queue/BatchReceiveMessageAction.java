@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -28,8 +29,9 @@ import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.common.parser.ResultParseException;
 import com.aliyun.mns.common.parser.ResultParser;
 import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyun.mns.model.request.queue.BatchReceiveMessageRequest;
-import com.aliyun.mns.model.serialize.queue.MessageListDeserializer;
+import com.aliyun.mns.model.serialize.queue.MessageListStreamDeserializer;
 import java.net.URI;
 import java.util.List;
 
@@ -46,7 +48,7 @@ public class BatchReceiveMessageAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(BatchReceiveMessageRequest reqObject)
+    protected RequestMessage buildRequest(BatchReceiveMessageRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
 
@@ -54,6 +56,7 @@ public class BatchReceiveMessageAction extends
             + "?numOfMessages=" + reqObject.getBatchSize();
         if (reqObject.getWaitSeconds() != null && reqObject.getWaitSeconds() >= 0) {
             uri += "&" + PARAM_WAIT_SECONDS + "=" + reqObject.getWaitSeconds();
+            requestMessage.setWaitSeconds(reqObject.getWaitSeconds());
         }
 
         requestMessage.setResourcePath(uri);
@@ -63,10 +66,11 @@ public class BatchReceiveMessageAction extends
     @Override
     protected ResultParser<List<Message>> buildResultParser() {
         return response -> {
-            MessageListDeserializer deserializer = new MessageListDeserializer();
+            MessageListStreamDeserializer deserializer = new MessageListStreamDeserializer();
             try {
                 List<Message> msgs = deserializer.deserialize(response.getContent());
                 for (Message msg : msgs) {
+                    MessageBodyCodec.decode(msg);
                     msg.setRequestId(response.getHeader(X_HEADER_MNS_REQUEST_ID));
                 }
                 return msgs;
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -56,19 +57,20 @@ public class BatchSendMessageAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(BatchSendMessageRequest reqObject)
+    protected RequestMessage buildRequest(BatchSendMessageRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath() + "/"
             + LOCATION_MESSAGES);
         MessageListSerializer serializer = new MessageListSerializer();
+        serializer.setBodyCodec(getMessageBodyCodec());
         try {
             InputStream is = serializer.serialize(reqObject.getMessages(),
                 DEFAULT_CHARSET);
             requestMessage.setContent(is);
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
         return requestMessage;
     }
@@ -96,7 +98,8 @@ public class BatchSendMessageAction extends
     }
 
     @Override
-    protected ResultParser<Exception> buildExceptionParser() {
+    protected ResultParser<Exception> buildExceptionParser(ActionContext context) {
+        final String userRequestId = context.getUserRequestId();
         return response -> {
             ErrorMessageListDeserializer deserializer = new ErrorMessageListDeserializer();
 
@@ -113,7 +116,7 @@ public class BatchSendMessageAction extends
             } catch (Exception e) {
                 // 上述解析失败，二次使用原文件内容
                 response.setContent(new ByteArrayInputStream(contentBytes));
-                return new ExceptionResultParser(getUserRequestId()).parse(response);
+                return new ExceptionResultParser(userRequestId).parse(response);
             }
         };
     }
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -46,7 +47,7 @@ public class ChangeVisibilityAction extends
 
     @Override
     protected RequestMessage buildRequest(
-        ChangeVisibilityTimeoutRequest reqObject) throws ClientException {
+        ChangeVisibilityTimeoutRequest reqObject, ActionContext context) throws ClientException {
 
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath() + "/"
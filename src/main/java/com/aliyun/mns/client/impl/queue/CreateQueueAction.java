@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.MNSConstants;
@@ -44,7 +45,7 @@ public class CreateQueueAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(CreateQueueRequest reqObject)
+    protected RequestMessage buildRequest(CreateQueueRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
@@ -57,7 +58,7 @@ public class CreateQueueAction extends
             requestMessage.setContent(is);
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
 
         return requestMessage;
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -36,7 +37,7 @@ public class DeleteQueueAction extends AbstractAction<DeleteQueueRequest, Void>
     }
 
     @Override
-    protected RequestMessage buildRequest(DeleteQueueRequest reqObject)
+    protected RequestMessage buildRequest(DeleteQueueRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -43,7 +44,12 @@ public class GetQueueAttrAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(GetQueueAttrRequest reqObject)
+    protected boolean isHedgeable() {
+        return true;
+    }
+
+    @Override
+    protected RequestMessage buildRequest(GetQueueAttrRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
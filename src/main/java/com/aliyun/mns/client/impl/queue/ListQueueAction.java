@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -46,7 +47,12 @@ public class ListQueueAction extends AbstractAction<ListQueueRequest, PagingList
     }
 
     @Override
-    protected RequestMessage buildRequest(ListQueueRequest reqObject)
+    protected boolean isHedgeable() {
+        return true;
+    }
+
+    @Override
+    protected RequestMessage buildRequest(ListQueueRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
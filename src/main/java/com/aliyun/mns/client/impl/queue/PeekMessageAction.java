@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -29,6 +30,7 @@ import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.common.parser.ResultParseException;
 import com.aliyun.mns.common.parser.ResultParser;
 import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyun.mns.model.request.queue.PeekMessageRequest;
 import com.aliyun.mns.model.serialize.queue.MessageDeserializer;
 import java.net.URI;
@@ -46,7 +48,12 @@ public class PeekMessageAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(PeekMessageRequest reqObject)
+    protected boolean isHedgeable() {
+        return true;
+    }
+
+    @Override
+    protected RequestMessage buildRequest(PeekMessageRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         String uri = reqObject.getRequestPath() + "/" + LOCATION_MESSAGES + "?peekonly=true";
@@ -63,6 +70,7 @@ public class PeekMessageAction extends
                 MessageDeserializer deserializer = new MessageDeserializer();
                 try {
                     Message msg = deserializer.deserialize(response.getContent());
+                    MessageBodyCodec.decode(msg);
                     msg.setRequestId(response.getHeader(X_HEADER_MNS_REQUEST_ID));
                     return msg;
                 } catch (Exception e) {
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -28,6 +29,7 @@ import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.common.parser.ResultParseException;
 import com.aliyun.mns.common.parser.ResultParser;
 import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyun.mns.model.request.queue.ReceiveMessageRequest;
 import com.aliyun.mns.model.serialize.queue.MessageDeserializer;
 import java.net.URI;
@@ -46,13 +48,14 @@ public class ReceiveMessageAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(ReceiveMessageRequest reqObject)
+    protected RequestMessage buildRequest(ReceiveMessageRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
 
         String uri = reqObject.getRequestPath() + "/" + LOCATION_MESSAGES;
         if (reqObject.getWaitSeconds() != null && reqObject.getWaitSeconds() >= 0) {
             uri += "?" + PARAM_WAIT_SECONDS + "=" + reqObject.getWaitSeconds();
+            requestMessage.setWaitSeconds(reqObject.getWaitSeconds());
         }
 
         requestMessage.setResourcePath(uri);
@@ -65,6 +68,7 @@ public class ReceiveMessageAction extends
             MessageDeserializer deserializer = new MessageDeserializer();
             try {
                 Message msg = deserializer.deserialize(response.getContent());
+                MessageBodyCodec.decode(msg);
                 msg.setRequestId(response.getHeader(X_HEADER_MNS_REQUEST_ID));
                 return msg;
             } catch (Exception e) {
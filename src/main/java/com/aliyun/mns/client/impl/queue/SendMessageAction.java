@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -48,19 +49,20 @@ public class SendMessageAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(SendMessageRequest reqObject)
+    protected RequestMessage buildRequest(SendMessageRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath() + "/"
             + LOCATION_MESSAGES);
         MessageSerializer serializer = new MessageSerializer();
+        serializer.setBodyCodec(getMessageBodyCodec());
         try {
             InputStream is = serializer.serialize(reqObject.getMessage(),
                 DEFAULT_CHARSET);
             requestMessage.setContent(is);
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
         return requestMessage;
     }
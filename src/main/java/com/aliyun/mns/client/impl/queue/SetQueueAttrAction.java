@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.queue;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.MNSConstants;
@@ -41,7 +42,7 @@ public class SetQueueAttrAction extends
     }
 
     @Override
-    protected RequestMessage buildRequest(SetQueueAttrRequest reqObject)
+    protected RequestMessage buildRequest(SetQueueAttrRequest reqObject, ActionContext context)
         throws ClientException {
         RequestMessage message = new RequestMessage();
         message.setResourcePath(reqObject.getRequestPath() + "?metaoverride=true");
@@ -52,8 +53,12 @@ public class SetQueueAttrAction extends
             message.setContentLength(is.available());
             return message;
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
     }
 
+    @Override
+    protected boolean isIdempotent() {
+        return true;
+    }
 }
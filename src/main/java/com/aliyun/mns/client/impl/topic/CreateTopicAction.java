@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.MNSConstants;
@@ -41,7 +42,7 @@ public class CreateTopicAction extends AbstractAction<CreateTopicRequest, String
     }
 
     @Override
-    protected RequestMessage buildRequest(CreateTopicRequest reqObject) {
+    protected RequestMessage buildRequest(CreateTopicRequest reqObject, ActionContext context) {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
         TopicMetaSerializer serializer = new TopicMetaSerializer();
@@ -51,7 +52,7 @@ public class CreateTopicAction extends AbstractAction<CreateTopicRequest, String
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
             e.printStackTrace();
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
 
         return requestMessage;
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -34,7 +35,7 @@ public class DeleteTopicAction extends AbstractAction<DeleteTopicRequest, Void>
     }
 
     @Override
-    protected RequestMessage buildRequest(DeleteTopicRequest request) throws ClientException {
+    protected RequestMessage buildRequest(DeleteTopicRequest request, ActionContext context) throws ClientException {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(request.getRequestPath());
         return requestMessage;
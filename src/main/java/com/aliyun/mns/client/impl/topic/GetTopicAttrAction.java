@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
 import com.aliyun.mns.common.http.RequestMessage;
@@ -38,7 +39,12 @@ public class GetTopicAttrAction extends AbstractAction<GetTopicAttrRequest, Topi
     }
 
     @Override
-    protected RequestMessage buildRequest(GetTopicAttrRequest request) {
+    protected boolean isHedgeable() {
+        return true;
+    }
+
+    @Override
+    protected RequestMessage buildRequest(GetTopicAttrRequest request, ActionContext context) {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(request.getRequestPath());
         return requestMessage;
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
 import com.aliyun.mns.common.http.RequestMessage;
@@ -44,7 +45,12 @@ public class ListTopicAction extends AbstractAction<ListTopicRequest, PagingList
     }
 
     @Override
-    protected RequestMessage buildRequest(ListTopicRequest reqObject) {
+    protected boolean isHedgeable() {
+        return true;
+    }
+
+    @Override
+    protected RequestMessage buildRequest(ListTopicRequest reqObject, ActionContext context) {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
         if (reqObject.getPrefix() != null && !"".equals(reqObject.getPrefix())) {
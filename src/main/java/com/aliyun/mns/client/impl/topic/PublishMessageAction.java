@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.auth.ServiceCredentials;
@@ -29,7 +30,6 @@ import com.aliyun.mns.common.http.ServiceClient;
 import com.aliyun.mns.common.parser.ResultParseException;
 import com.aliyun.mns.common.parser.ResultParser;
 import com.aliyun.mns.model.Base64TopicMessage;
-import com.aliyun.mns.model.RawTopicMessage;
 import com.aliyun.mns.model.TopicMessage;
 import com.aliyun.mns.model.request.topic.PublishMessageRequest;
 import com.aliyun.mns.model.serialize.topic.TopicMessageDeserializer;
@@ -41,28 +41,18 @@ import static com.aliyun.mns.common.MNSConstants.DEFAULT_CHARSET;
 import static com.aliyun.mns.common.MNSConstants.X_HEADER_MNS_REQUEST_ID;
 
 public class PublishMessageAction extends AbstractAction<PublishMessageRequest, TopicMessage> {
-    private TopicMessage.BodyType messageType;
-
     public PublishMessageAction(ServiceClient client,
         ServiceCredentials credentials, URI endpoint) {
         super(HttpMethod.POST, "PublishMessage", client, credentials, endpoint);
-        messageType = TopicMessage.BodyType.STRING;
-
     }
 
     @Override
-    protected RequestMessage buildRequest(PublishMessageRequest reqObject)
+    protected RequestMessage buildRequest(PublishMessageRequest reqObject, ActionContext context)
         throws ClientException {
-        TopicMessage message = reqObject.getMessage();
-        if (message instanceof RawTopicMessage) {
-            messageType = TopicMessage.BodyType.STRING;
-        } else if (message instanceof Base64TopicMessage) {
-            messageType = TopicMessage.BodyType.BASE64;
-        }
-
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
         TopicMessageSerializer serializer = new TopicMessageSerializer();
+        serializer.setBodyCodec(getMessageBodyCodec());
 
         try {
             InputStream is = serializer.serialize(reqObject,
@@ -70,13 +60,16 @@ public class PublishMessageAction extends AbstractAction<PublishMessageRequest,
             requestMessage.setContent(is);
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
         return requestMessage;
     }
 
     @Override
-    protected ResultParser<TopicMessage> buildResultParser() {
+    protected ResultParser<TopicMessage> buildResultParser(PublishMessageRequest reqObject, ActionContext context) {
+        TopicMessage message = reqObject.getMessage();
+        final TopicMessage.BodyType messageType = message instanceof Base64TopicMessage
+            ? TopicMessage.BodyType.BASE64 : TopicMessage.BodyType.STRING;
         return new ResultParser<TopicMessage>() {
             @Override
             public TopicMessage parse(ResponseMessage response) throws ResultParseException {
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.MNSConstants;
@@ -37,7 +38,7 @@ public class SetSubscriptionAttrAction extends AbstractAction<SetSubscriptionAtt
     }
 
     @Override
-    protected RequestMessage buildRequest(SetSubscriptionAttrRequest reqObject) {
+    protected RequestMessage buildRequest(SetSubscriptionAttrRequest reqObject, ActionContext context) {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath() + "?metaoverride=true");
         UpdateSubscriptionSerializer serializer = new UpdateSubscriptionSerializer();
@@ -47,8 +48,13 @@ public class SetSubscriptionAttrAction extends AbstractAction<SetSubscriptionAtt
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
             e.printStackTrace();
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
         return requestMessage;
     }
+
+    @Override
+    protected boolean isIdempotent() {
+        return true;
+    }
 }
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.MNSConstants;
@@ -38,7 +39,8 @@ public class SetTopicAttrAction extends AbstractAction<SetTopicAttrRequest, Void
     }
 
     @Override
-    protected RequestMessage buildRequest(SetTopicAttrRequest reqObject) throws ClientException {
+    protected RequestMessage buildRequest(SetTopicAttrRequest reqObject, ActionContext context)
+        throws ClientException {
         RequestMessage message = new RequestMessage();
         message.setResourcePath(reqObject.getRequestPath() + "?metaoverride=true");
         TopicMetaSerializer serializer = new TopicMetaSerializer();
@@ -49,8 +51,12 @@ public class SetTopicAttrAction extends AbstractAction<SetTopicAttrRequest, Void
             message.setContentLength(is.available());
             return message;
         } catch (Exception e) {
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
     }
 
+    @Override
+    protected boolean isIdempotent() {
+        return true;
+    }
 }
@@ -20,6 +20,7 @@
 package com.aliyun.mns.client.impl.topic;
 
 import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.MNSConstants;
@@ -40,7 +41,7 @@ public class SubscribeAction extends AbstractAction<SubscribeRequest, String> {
     }
 
     @Override
-    protected RequestMessage buildRequest(SubscribeRequest reqObject) {
+    protected RequestMessage buildRequest(SubscribeRequest reqObject, ActionContext context) {
         RequestMessage requestMessage = new RequestMessage();
         requestMessage.setResourcePath(reqObject.getRequestPath());
         SubscriptionSerializer serializer = new SubscriptionSerializer();
@@ -50,7 +51,7 @@ public class SubscribeAction extends AbstractAction<SubscribeRequest, String> {
             requestMessage.setContentLength(is.available());
         } catch (Exception e) {
             e.printStackTrace();
-            throw new ClientException(e.getMessage(), this.getUserRequestId(), e);
+            throw new ClientException(e.getMessage(), context.getUserRequestId(), e);
         }
         return requestMessage;
     }
@@ -40,4 +40,9 @@ public interface ClientErrorCode {
      * 返回结果无法解析
      */
     String INVALID_RESPONSE = "InvalidResponse";
+
+    /**
+     * 进行中的请求数超过并发限制
+     */
+    String CONCURRENCY_LIMIT_EXCEEDED = "ConcurrencyLimitExceeded";
 }
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.auth;
+
+import com.aliyuncs.auth.AlibabaCloudCredentials;
+import com.aliyuncs.auth.AlibabaCloudCredentialsProvider;
+import com.aliyuncs.auth.BasicSessionCredentials;
+import com.aliyuncs.auth.InstanceProfileCredentials;
+import com.aliyuncs.exceptions.ClientException;
+import com.aliyuncs.exceptions.ServerException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存凭证的 provider：请求线程直接读取最近一次取得的凭证，凭证快到期或超过 refreshInterval 时在后台刷新，
+ * 刷新期间和刷新失败时继续使用现有凭证；只有还没有凭证或凭证已过期时，请求线程才会同步等待获取。
+ * 会话凭证（STS）按凭证自身的会话时钟判断过期：willSoonExpire() 为 true（会话开始后已过 roleSessionDurationSeconds
+ * 的 95%）即视为过期，被包装的 provider 重复返回同一个缓存凭证时也不会延长其有效期。
+ * <p>
+ * 所有实例默认共用一个空闲时自动回收的守护线程执行后台刷新。
+ * <p>
+ * {@link ServiceCredentials} 会自动用默认参数包装传入的 provider；需要调整参数时传入自己构建的实例即可，不会再被包装。
+ * <pre>
+ * new ServiceCredentials(CachingCredentialsProvider.newBuilder(stsProvider).refreshIntervalMillis(300000).build());
+ * </pre>
+ */
+public final class CachingCredentialsProvider implements AlibabaCloudCredentialsProvider {
+    private static final Logger logger = LoggerFactory.getLogger(CachingCredentialsProvider.class);
+    private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 60 * 1000;
+    private static final long DEFAULT_MAX_AGE_MILLIS = 0;
+    private static final long DEFAULT_REFRESH_BACKOFF_MILLIS = 1000;
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    private final AlibabaCloudCredentialsProvider delegate;
+    private final long refreshIntervalNanos;
+    private final long maxAgeNanos;
+    private final long refreshBackoffNanos;
+    private final Executor executor;
+    private final Object loadLock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder refreshFailureCount = new LongAdder();
+    private volatile Snapshot snapshot;
+    private volatile long nextRefreshNanos;
+
+    private CachingCredentialsProvider(Builder builder) {
+        this.delegate = builder.delegate;
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.refreshIntervalMillis);
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxAgeMillis);
+        this.refreshBackoffNanos = TimeUnit.MILLISECONDS.toNanos(builder.refreshBackoffMillis);
+        this.executor = builder.executor != null ? builder.executor : RefreshExecutorHolder.INSTANCE;
+        this.nextRefreshNanos = System.nanoTime();
+    }
+
+    public static Builder newBuilder(AlibabaCloudCredentialsProvider delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * 所有实例共用的后台刷新线程，第一次使用时创建
+     */
+    private static final class RefreshExecutorHolder {
+        private static final Executor INSTANCE = createRefreshExecutor();
+    }
+
+    private static Executor createRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread thread = new Thread(r, "mns-credentials-refresher-" + THREAD_INDEX.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public AlibabaCloudCredentials getCredentials() throws ClientException, ServerException {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current == null || isExpired(current, now)) {
+            return loadBlocking();
+        }
+        if (shouldRefresh(current, now)) {
+            refreshAsync(now);
+        }
+        return current.credentials;
+    }
+
+    private AlibabaCloudCredentials loadBlocking() throws ClientException, ServerException {
+        synchronized (loadLock) {
+            // 等锁期间可能已经被其他线程或后台刷新取到
+            Snapshot current = snapshot;
+            if (current != null && !isExpired(current, System.nanoTime())) {
+                return current.credentials;
+            }
+            return load();
+        }
+    }
+
+    private AlibabaCloudCredentials load() throws ClientException, ServerException {
+        AlibabaCloudCredentials credentials = delegate.getCredentials();
+        loadCount.increment();
+        long now = System.nanoTime();
+        nextRefreshNanos = now + refreshBackoffNanos;
+        if (credentials != null) {
+            snapshot = new Snapshot(credentials, now);
+        }
+        return credentials;
+    }
+
+    private void refreshAsync(long now) {
+        // 刷新后（无论成败）至少间隔 refreshBackoff 才会再次刷新，避免 provider 持续返回将要过期的凭证时反复调用
+        if (now - nextRefreshNanos < 0 || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    synchronized (loadLock) {
+                        load();
+                    }
+                } catch (Exception e) {
+                    refreshFailureCount.increment();
+                    nextRefreshNanos = System.nanoTime() + refreshBackoffNanos;
+                    logger.warn("refresh credentials failed, keep using current credentials, errorMsg:"
+                        + e.getMessage(), e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+        }
+    }
+
+    private boolean isExpired(Snapshot current, long now) {
+        if (maxAgeNanos > 0 && now - current.loadedNanos >= maxAgeNanos) {
+            return true;
+        }
+        if (current.credentials instanceof InstanceProfileCredentials) {
+            return ((InstanceProfileCredentials) current.credentials).isExpired();
+        }
+        // 以凭证自身的会话开始时间计算，不受重新取得同一个凭证的影响
+        return current.credentials instanceof BasicSessionCredentials
+            && ((BasicSessionCredentials) current.credentials).willSoonExpire();
+    }
+
+    private boolean shouldRefresh(Snapshot current, long now) {
+        if (now - current.loadedNanos >= refreshIntervalNanos) {
+            return true;
+        }
+        return current.credentials instanceof InstanceProfileCredentials
+            && ((InstanceProfileCredentials) current.credentials).willSoonExpire();
+    }
+
+    public AlibabaCloudCredentialsProvider getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 调用被包装的 provider 取得凭证的次数，包括同步获取和后台刷新
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * 后台刷新失败的次数
+     */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.sum();
+    }
+
+    private static final class Snapshot {
+        private final AlibabaCloudCredentials credentials;
+        private final long loadedNanos;
+
+        private Snapshot(AlibabaCloudCredentials credentials, long loadedNanos) {
+            this.credentials = credentials;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+
+    public static final class Builder {
+        private final AlibabaCloudCredentialsProvider delegate;
+        private long refreshIntervalMillis = DEFAULT_REFRESH_INTERVAL_MILLIS;
+        private long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+        private long refreshBackoffMillis = DEFAULT_REFRESH_BACKOFF_MILLIS;
+        private Executor executor;
+
+        private Builder(AlibabaCloudCredentialsProvider delegate) {
+            if (delegate == null) {
+                throw new IllegalArgumentException("credentialsProvider should not be null");
+            }
+            this.delegate = delegate;
+        }
+
+        /**
+         * 凭证取得后超过该时间即在后台刷新，默认 60 秒
+         */
+        public Builder refreshIntervalMillis(long refreshIntervalMillis) {
+            if (refreshIntervalMillis <= 0) {
+                throw new IllegalArgumentException("refreshIntervalMillis should be positive");
+            }
+            this.refreshIntervalMillis = refreshIntervalMillis;
+            return this;
+        }
+
+        /**
+         * 凭证取得后超过该时间视为过期，请求线程会同步等待重新获取，默认 0 表示只按凭证自身的过期状态判断
+         */
+        public Builder maxAgeMillis(long maxAgeMillis) {
+            if (maxAgeMillis < 0) {
+                throw new IllegalArgumentException("maxAgeMillis should not be negative");
+            }
+            this.maxAgeMillis = maxAgeMillis;
+            return this;
+        }
+
+        /**
+         * 两次后台刷新之间的最小间隔，默认 1 秒
+         */
+        public Builder refreshBackoffMillis(long refreshBackoffMillis) {
+            if (refreshBackoffMillis < 0) {
+                throw new IllegalArgumentException("refreshBackoffMillis should not be negative");
+            }
+            this.refreshBackoffMillis = refreshBackoffMillis;
+            return this;
+        }
+
+        /**
+         * 执行后台刷新的线程池，默认使用所有实例共用的一个空闲时自动回收的守护线程
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public CachingCredentialsProvider build() {
+            if (maxAgeMillis > 0 && maxAgeMillis <= refreshIntervalMillis) {
+                throw new IllegalArgumentException("maxAgeMillis should be greater than refreshIntervalMillis");
+            }
+            return new CachingCredentialsProvider(this);
+        }
+    }
+}
@@ -9,8 +9,9 @@ import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.StringUtils;
 
 import java.nio.charset.StandardCharsets;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -18,8 +19,10 @@ import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.SimpleTimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.crypto.spec.SecretKeySpec;
 
 import static com.aliyun.mns.common.MNSConstants.X_HEADER_MNS_PREFIX;
 
@@ -61,17 +64,21 @@ public class MNSV4Signer implements RequestSigner {
         this.signSuffix = IdptEnvUtil.isIdptEnv() ? IDPT_SIGN_SUFFIX : SIGN_SUFFIX;
     }
 
-    private static DateFormat getIso8601DateTimeFormat() {
-        SimpleDateFormat df = new SimpleDateFormat(ISO8601_DATETIME_FORMAT, Locale.US);
-        df.setTimeZone(new SimpleTimeZone(0, "GMT"));
-        return df;
-    }
+    /**
+     * 派生密钥只与 (ak, sk, 日期, region) 相关，同一天内可以复用，不必每次请求都做四轮 HMAC
+     */
+    private static final int SIGNING_KEY_CACHE_MAX_SIZE = 1024;
+    private static final ConcurrentMap<String, SigningKey> SIGNING_KEY_CACHE = new ConcurrentHashMap<>();
 
-    private static DateFormat getIso8601DateFormat() {
-        SimpleDateFormat df = new SimpleDateFormat(ISO8601_DATE_FORMAT, Locale.US);
-        df.setTimeZone(new SimpleTimeZone(0, "GMT"));
-        return df;
-    }
+    private static final DateTimeFormatter ISO8601_DATETIME_FORMATTER = DateTimeFormatter
+        .ofPattern(ISO8601_DATETIME_FORMAT, Locale.US).withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter ISO8601_DATE_FORMATTER = DateTimeFormatter
+        .ofPattern(ISO8601_DATE_FORMAT, Locale.US).withZone(ZoneOffset.UTC);
+
+    /**
+     * 最近一次格式化的时间（精确到秒），同一秒内的请求直接复用格式化结果
+     */
+    private static volatile FormattedDateTime lastFormattedDateTime = new FormattedDateTime(Long.MIN_VALUE, null, null);
 
     @Override
     public String getAuthorization(String accessKeyId, String accessKeySecret,
@@ -84,18 +91,19 @@ public class MNSV4Signer implements RequestSigner {
         CodingUtils.assertParameterNotNull(request.getRequestDateTime(), "requestDateTime");
         CodingUtils.assertStringNotEmpty(region, "region");
 
-        Date requestDateTime = request.getRequestDateTime();
+        FormattedDateTime requestDateTime = formatDateTime(request.getRequestDateTime());
         String product = SIGN_SOURCE_PRODUCT;
         //需要转换为UTC日期时间，格式为"20240805"
-        String utcDate = getIso8601DateFormat().format(requestDateTime);
+        String utcDate = requestDateTime.date;
         //生成规范化的请求字符串（包括 HTTP method、URI、QueryString、Header）
         String canonicalString = buildCanonicalRequest(request);
         // 生成待签名字符串
         String contentToSign = buildStringToSign(requestDateTime, region, product, canonicalString);
-        // 生成派生密钥
-        byte[] signingKey = this.buildSigningKey(utcDate, region, product, signPrefix, accessKeySecret, signSuffix);
+        // 生成派生密钥（按 ak、日期、region 缓存）
+        SecretKeySpec signingKey = getSigningKey(accessKeyId, accessKeySecret, utcDate, region, product);
         // 签名
-        String signature = this.buildSignature(signingKey, contentToSign);
+        byte[] result = serviceSignature.computeHash(signingKey, contentToSign.getBytes(StandardCharsets.UTF_8));
+        String signature = Hex.encodeHexString(result);
         // 构建认证请求头
         return this.buildAuthorization(accessKeyId, utcDate, region, product, signSuffix, signature);
     }
@@ -185,26 +193,50 @@ public class MNSV4Signer implements RequestSigner {
         return header.startsWith(X_HEADER_MNS_PREFIX);
     }
 
-    private String buildStringToSign(Date requestDateTime, String region, String product, String canonicalString) {
+    private String buildStringToSign(FormattedDateTime requestDateTime, String region, String product,
+        String canonicalString) {
         return authorizationPrefix + NEW_LINE +
-            getDateTime(requestDateTime) + NEW_LINE +
-            buildScope(region, product, requestDateTime) + NEW_LINE +
+            requestDateTime.dateTime + NEW_LINE +
+            buildScope(region, product, requestDateTime.date) + NEW_LINE +
             canonicalString;
     }
 
-    private String buildScope(String region, String product, Date requestDateTime) {
-        return getDate(requestDateTime) + SEPARATOR_BACKSLASH +
+    private String buildScope(String region, String product, String utcDate) {
+        return utcDate + SEPARATOR_BACKSLASH +
             region + SEPARATOR_BACKSLASH +
             product + SEPARATOR_BACKSLASH +
             signSuffix;
     }
 
-    private String getDateTime(Date requestDateTime) {
-        return getIso8601DateTimeFormat().format(requestDateTime);
+    private static FormattedDateTime formatDateTime(Date requestDateTime) {
+        long epochSecond = Math.floorDiv(requestDateTime.getTime(), 1000L);
+        FormattedDateTime cached = lastFormattedDateTime;
+        if (cached.epochSecond == epochSecond) {
+            return cached;
+        }
+        Instant instant = Instant.ofEpochSecond(epochSecond);
+        cached = new FormattedDateTime(epochSecond, ISO8601_DATE_FORMATTER.format(instant),
+            ISO8601_DATETIME_FORMATTER.format(instant));
+        lastFormattedDateTime = cached;
+        return cached;
     }
 
-    private String getDate(Date requestDateTime) {
-        return getIso8601DateFormat().format(requestDateTime);
+    /**
+     * 获取派生密钥，缓存命中要求 sk 与日期都一致，sk 轮换或跨天后自动重新计算
+     */
+    private SecretKeySpec getSigningKey(String ak, String sk, String utcDate, String region, String product) {
+        String cacheKey = signPrefix + SEPARATOR_BACKSLASH + ak + SEPARATOR_BACKSLASH + region;
+        SigningKey cached = SIGNING_KEY_CACHE.get(cacheKey);
+        if (cached != null && cached.date.equals(utcDate) && cached.secret.equals(sk)) {
+            return cached.key;
+        }
+        byte[] signingKey = buildSigningKey(utcDate, region, product, signPrefix, sk, signSuffix);
+        SecretKeySpec keySpec = new SecretKeySpec(signingKey, serviceSignature.getAlgorithm());
+        if (SIGNING_KEY_CACHE.size() >= SIGNING_KEY_CACHE_MAX_SIZE) {
+            SIGNING_KEY_CACHE.clear();
+        }
+        SIGNING_KEY_CACHE.put(cacheKey, new SigningKey(utcDate, sk, keySpec));
+        return keySpec;
     }
 
     /**
@@ -291,4 +323,28 @@ public class MNSV4Signer implements RequestSigner {
         }
         return url;
     }
-}
\ No newline at end of file
+
+    private static final class FormattedDateTime {
+        private final long epochSecond;
+        private final String date;
+        private final String dateTime;
+
+        private FormattedDateTime(long epochSecond, String date, String dateTime) {
+            this.epochSecond = epochSecond;
+            this.date = date;
+            this.dateTime = dateTime;
+        }
+    }
+
+    private static final class SigningKey {
+        private final String date;
+        private final String secret;
+        private final SecretKeySpec key;
+
+        private SigningKey(String date, String secret, SecretKeySpec key) {
+            this.date = date;
+            this.secret = secret;
+            this.key = key;
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class ServiceCredentials {
     private String accessKeySecret;
     private String securityToken;
     private AlibabaCloudCredentialsProvider credentialsProvider;
+    private CachingCredentialsProvider cachingCredentialsProvider;
 
     /**
      * 构造函数。
@@ -150,5 +151,19 @@ public class ServiceCredentials {
     public void setCredentialsProvider(AlibabaCloudCredentialsProvider credentialsProvider) {
         assertParameterNotNull(credentialsProvider, "credentialsProvider");
         this.credentialsProvider = credentialsProvider;
+        if (credentialsProvider instanceof CachingCredentialsProvider) {
+            this.cachingCredentialsProvider = (CachingCredentialsProvider) credentialsProvider;
+        } else {
+            this.cachingCredentialsProvider = CachingCredentialsProvider.newBuilder(credentialsProvider).build();
+        }
+    }
+
+    /**
+     * 获取包装了 credential provider 的缓存 provider，签名时使用，避免请求线程同步等待凭证刷新
+     *
+     * @return caching provider，未设置 credential provider 时为 null
+     */
+    public CachingCredentialsProvider getCachingCredentialsProvider() {
+        return cachingCredentialsProvider;
     }
 }
@@ -26,32 +26,26 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 采用哈希算法进行签名的处理类
+ * <p>
+ * Mac 实例按线程、按算法缓存复用，避免每次签名都 clone 或 getInstance。
  */
 public abstract class ServiceSignature {
 
-    private static final Object LOCK = new Object();
-
-    protected volatile Mac macInstance;
+    private static final ThreadLocal<Map<String, Mac>> THREAD_MACS = new ThreadLocal<Map<String, Mac>>() {
+        @Override
+        protected Map<String, Mac> initialValue() {
+            return new HashMap<String, Mac>(4);
+        }
+    };
 
     protected ServiceSignature() {
-        lazyInitMacInstance();
-    }
-
-    private void lazyInitMacInstance() {
-        if (macInstance == null) {
-            synchronized (LOCK) {
-                if (macInstance == null) {
-                    try {
-                        macInstance = Mac.getInstance(getAlgorithm());
-                    } catch (NoSuchAlgorithmException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            }
-        }
+        // 提前校验算法可用
+        getThreadLocalMac(getAlgorithm());
     }
 
     /**
@@ -71,30 +65,43 @@ public abstract class ServiceSignature {
     public String computeHashAndBase64Encode(String key, String data) {
         byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
         byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
-        byte[] signData = sign(keyBytes, dataBytes, macInstance, getAlgorithm());
+        byte[] signData = computeHash(keyBytes, dataBytes);
         return BinaryUtil.toBase64String(signData);
     }
 
     public byte[] computeHash(byte[] key, byte[] data) {
-        return this.sign(key, data, macInstance, getAlgorithm());
+        return computeHash(new SecretKeySpec(key, getAlgorithm()), data);
     }
 
-    private byte[] sign(byte[] key, byte[] data, Mac macInstance, String algorithm) {
+    /**
+     * 使用已构造好的密钥计算签名，密钥可以在多次签名间复用。
+     *
+     * @param key  签名密钥，算法需与 {@link #getAlgorithm()} 一致。
+     * @param data 待签名数据。
+     * @return 签名结果。
+     */
+    public byte[] computeHash(SecretKeySpec key, byte[] data) {
+        Mac mac = getThreadLocalMac(getAlgorithm());
         try {
-            Mac mac;
+            mac.init(key);
+        } catch (InvalidKeyException ex) {
+            throw new RuntimeException("Invalid key", ex);
+        }
+        return mac.doFinal(data);
+    }
+
+    private static Mac getThreadLocalMac(String algorithm) {
+        Map<String, Mac> macs = THREAD_MACS.get();
+        Mac mac = macs.get(algorithm);
+        if (mac == null) {
             try {
-                mac = (Mac)macInstance.clone();
-            } catch (CloneNotSupportedException e) {
-                // If it is not clonable, create a new one.
                 mac = Mac.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new RuntimeException("Unsupported algorithm: " + algorithm, ex);
             }
-            mac.init(new SecretKeySpec(key, algorithm));
-            return mac.doFinal(data);
-        } catch (NoSuchAlgorithmException ex) {
-            throw new RuntimeException("Unsupported algorithm: " + algorithm, ex);
-        } catch (InvalidKeyException ex) {
-            throw new RuntimeException("Invalid key", ex);
+            macs.put(algorithm, mac);
         }
+        return mac;
     }
 
 }
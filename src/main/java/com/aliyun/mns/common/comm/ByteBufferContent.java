@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 以 ByteBuffer 保存的请求体。作为 InputStream 读取时总是支持 mark/reset，不受读取长度限制，
+ * 发送时由 {@link ByteBufferEntity} 直接把缓冲区交给 HTTP 连接写出，每次重试都从头发送，不复制数据。
+ * <p>
+ * 来自 {@link ByteBufferPool} 的缓冲区按引用计数归还：创建者持有一个引用，在请求结束后调用 {@link #release()}；
+ * 每个正在写出的实体各持有一个引用，确保写出过程中缓冲区不会被复用。
+ */
+public final class ByteBufferContent extends InputStream {
+
+    private final ByteBuffer buffer;
+    /**
+     * 从 pool 取得的原缓冲区，buffer 是它的 slice，归还时要用原缓冲区
+     */
+    private final ByteBuffer pooledBuffer;
+    private final ByteBufferPool pool;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private final int length;
+    private int position;
+    private int mark;
+
+    private ByteBufferContent(ByteBuffer buffer, ByteBuffer pooledBuffer, ByteBufferPool pool) {
+        this.buffer = buffer;
+        this.pooledBuffer = pooledBuffer;
+        this.pool = pool;
+        this.length = buffer.remaining();
+    }
+
+    /**
+     * 直接包装数组，不复制
+     */
+    public static ByteBufferContent wrap(byte[] bytes) {
+        return wrap(bytes, 0, bytes.length);
+    }
+
+    public static ByteBufferContent wrap(byte[] bytes, int offset, int length) {
+        return new ByteBufferContent(ByteBuffer.wrap(bytes, offset, length).slice(), null, null);
+    }
+
+    /**
+     * 包装从 pool 取得的缓冲区，内容为 position 到 limit 之间的数据，最后一个引用释放时归还 pool
+     */
+    public static ByteBufferContent pooled(ByteBuffer buffer, ByteBufferPool pool) {
+        return new ByteBufferContent(buffer.slice(), buffer, pool);
+    }
+
+    /**
+     * 把输入流中的 length 个字节复制到 pool 的缓冲区中，in 为 ByteBufferContent 时从内容开头复制
+     */
+    public static ByteBufferContent copyOf(InputStream in, int length, ByteBufferPool pool) throws IOException {
+        ByteBuffer buffer = pool.acquire(length);
+        try {
+            if (in instanceof ByteBufferContent) {
+                ByteBuffer source = ((ByteBufferContent) in).getByteBuffer();
+                source.limit(Math.min(source.limit(), length));
+                buffer.put(source);
+            } else if (buffer.hasArray()) {
+                int offset = 0;
+                int n;
+                while (offset < length
+                    && (n = in.read(buffer.array(), buffer.arrayOffset() + offset, length - offset)) >= 0) {
+                    offset += n;
+                }
+                buffer.position(offset);
+            } else {
+                byte[] chunk = new byte[Math.min(length, 8192)];
+                int n;
+                while (buffer.position() < length
+                    && (n = in.read(chunk, 0, Math.min(chunk.length, length - buffer.position()))) >= 0) {
+                    buffer.put(chunk, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            pool.release(buffer);
+            throw e;
+        }
+        buffer.flip();
+        return pooled(buffer, pool);
+    }
+
+    /**
+     * @return 共享内容的新视图，position 为 0，limit 为内容长度；调用方不应修改其中的数据
+     */
+    public ByteBuffer getByteBuffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * @return 共享同一缓冲区、从头读取的新流，不持有引用
+     */
+    public ByteBufferContent view() {
+        return new ByteBufferContent(buffer.duplicate(), null, null);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isDirect() {
+        return buffer.isDirect();
+    }
+
+    /**
+     * 增加一个引用，写出完成后必须调用 {@link #release()}
+     */
+    public void retain() {
+        refCount.incrementAndGet();
+    }
+
+    /**
+     * 释放一个引用，最后一个引用释放时归还缓冲区
+     */
+    public void release() {
+        if (refCount.decrementAndGet() == 0 && pool != null) {
+            pool.release(pooledBuffer);
+        }
+    }
+
+    @Override
+    public int read() {
+        if (position >= length) {
+            return -1;
+        }
+        return buffer.get(position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int n = Math.min(len, length - position);
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + position, b, off, n);
+        } else {
+            ByteBuffer view = buffer.duplicate();
+            view.position(position);
+            view.get(b, off, n);
+        }
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, length - position));
+        position += (int) skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return length - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * 整个内容都保存在内存中，readLimit 不起作用
+     */
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        position = mark;
+    }
+
+    /**
+     * 关闭流不会归还缓冲区，缓冲区由 {@link #release()} 管理
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+/**
+ * 以 {@link ByteBufferContent} 为内容的请求实体，异步客户端直接把缓冲区写入连接，不经过中间复制，总是可重复发送。
+ * 实体在创建时持有内容的一个引用，在 HTTP 交换结束关闭时释放。
+ */
+public class ByteBufferEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private final ByteBufferContent content;
+    private final ByteBuffer buffer;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    public ByteBufferEntity(ByteBufferContent content, String contentType) {
+        content.retain();
+        this.content = content;
+        this.buffer = content.getByteBuffer();
+        setChunked(false);
+        setContentType(contentType);
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        encoder.write(buffer);
+        if (!buffer.hasRemaining()) {
+            encoder.complete();
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return content.length();
+    }
+
+    @Override
+    public InputStream getContent() {
+        return content.view();
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        ByteBuffer view = content.getByteBuffer();
+        if (view.hasArray()) {
+            output.write(view.array(), view.arrayOffset(), view.remaining());
+        } else {
+            byte[] bytes = new byte[view.remaining()];
+            view.get(bytes);
+            output.write(bytes);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * 一次交换结束（或需要重发）时由请求生产者调用；重置写出位置，第一次调用时释放对内容的引用
+     */
+    @Override
+    public void close() {
+        buffer.rewind();
+        if (released.compareAndSet(false, true)) {
+            content.release();
+        }
+    }
+}
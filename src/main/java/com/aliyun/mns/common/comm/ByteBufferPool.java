@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.comm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 2 的幂分级缓存 ByteBuffer，用于请求体等生命周期明确的大块内存。
+ * 容量在 4KB 到 1MB 之间的缓冲区会被复用，更大的直接分配、归还时丢弃；缓存的总字节数不超过 maxPooledBytes。
+ */
+public final class ByteBufferPool {
+    private static final int MIN_CLASS_SHIFT = 12;
+    private static final int MAX_CLASS_SHIFT = 20;
+    private static final long DEFAULT_MAX_POOLED_BYTES = 32L * 1024 * 1024;
+
+    private static final ByteBufferPool HEAP = new ByteBufferPool(false, DEFAULT_MAX_POOLED_BYTES);
+    private static final ByteBufferPool DIRECT = new ByteBufferPool(true, DEFAULT_MAX_POOLED_BYTES);
+
+    private final boolean direct;
+    private final long maxPooledBytes;
+    private final List<Queue<ByteBuffer>> classes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public ByteBufferPool(boolean direct, long maxPooledBytes) {
+        if (maxPooledBytes < 0) {
+            throw new IllegalArgumentException("maxPooledBytes should not be negative");
+        }
+        this.direct = direct;
+        this.maxPooledBytes = maxPooledBytes;
+        int classCount = MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1;
+        this.classes = new ArrayList<Queue<ByteBuffer>>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            classes.add(new ConcurrentLinkedQueue<ByteBuffer>());
+        }
+    }
+
+    /**
+     * @return 进程内共享的堆内存缓冲池
+     */
+    public static ByteBufferPool heap() {
+        return HEAP;
+    }
+
+    /**
+     * @return 进程内共享的直接内存缓冲池
+     */
+    public static ByteBufferPool direct() {
+        return DIRECT;
+    }
+
+    /**
+     * 取得容量不小于 minCapacity 的缓冲区，position 为 0，limit 为容量
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int index = classIndex(minCapacity);
+        if (index < 0) {
+            missCount.increment();
+            return allocate(minCapacity);
+        }
+        ByteBuffer buffer = classes.get(index).poll();
+        if (buffer == null) {
+            missCount.increment();
+            return allocate(1 << (index + MIN_CLASS_SHIFT));
+        }
+        pooledBytes.addAndGet(-buffer.capacity());
+        hitCount.increment();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不能再使用；不是由本池分配的规格或池已满时直接丢弃
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() != direct) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        int index = classIndex(capacity);
+        if (index < 0 || capacity != 1 << (index + MIN_CLASS_SHIFT)) {
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        buffer.clear();
+        classes.get(index).offer(buffer);
+    }
+
+    private static int classIndex(int capacity) {
+        if (capacity <= 1 << MIN_CLASS_SHIFT) {
+            return 0;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        return shift > MAX_CLASS_SHIFT ? -1 : shift - MIN_CLASS_SHIFT;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 当前缓存的字节数
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * 从缓存中取得缓冲区的次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 缓存中没有合适的缓冲区而新分配的次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.common.comm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户端级别的重试预算（令牌桶），防止服务端故障时重试放大流量。
+ * <p>
+ * 每个新请求存入 tokenRatio 个令牌，每次重试取出 1 个令牌，令牌不足时放弃重试；
+ * 桶初始为满，最多存 maxTokens 个令牌。持续故障时重试流量约为正常请求量的 tokenRatio 倍。
+ */
+public final class RetryBudget {
+    // 令牌按千分之一计数，避免浮点运算
+    private static final long SCALE = 1000;
+
+    private final long capacity;
+    private final long depositAmount;
+    private final AtomicLong balance;
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * @param maxTokens  桶容量，即连续故障开始时最多允许的重试次数
+     * @param tokenRatio 每个请求存入的令牌数，如 0.1 表示重试量不超过请求量的 10%
+     */
+    public RetryBudget(int maxTokens, double tokenRatio) {
+        if (maxTokens < 0 || tokenRatio < 0) {
+            throw new IllegalArgumentException("maxTokens and tokenRatio should not be negative");
+        }
+        this.capacity = maxTokens * SCALE;
+        this.depositAmount = (long) (tokenRatio * SCALE);
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * 记录一个新请求
+     */
+    public void deposit() {
+        if (depositAmount == 0) {
+            return;
+        }
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + depositAmount)));
+    }
+
+    /**
+     * 尝试为一次重试取出令牌
+     *
+     * @return 预算不足时返回 false，此时不应重试
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                rejectedCount.increment();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    public double getAvailableTokens() {
+        return (double) balance.get() / SCALE;
+    }
+
+    /**
+     * @return 因预算不足被放弃的重试次数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
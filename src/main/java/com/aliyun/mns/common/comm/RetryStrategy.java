@@ -21,10 +21,12 @@ package com.aliyun.mns.common.comm;
 
 import com.aliyun.mns.common.http.RequestMessage;
 import com.aliyun.mns.common.http.ResponseMessage;
+import java.util.concurrent.ThreadLocalRandom;
 
 public abstract class RetryStrategy {
 
     private static final int DEFAULT_RETRY_PAUSE_SCALE = 300; // milliseconds. 
+    private static final long MAX_RETRY_PAUSE = 20 * 1000; // milliseconds.
 
     public abstract boolean shouldRetry(Exception ex, RequestMessage request, ResponseMessage response, int retries);
 
@@ -37,4 +39,16 @@ public abstract class RetryStrategy {
 
         return delay;
     }
+
+    /**
+     * 全抖动（full jitter）退避：在 0 到 {@link #getPauseDelay(int)}（不超过 20 秒）之间随机取值，
+     * 避免大量客户端在同一时刻集中重试。
+     *
+     * @param retries 第几次重试，从 1 开始
+     * @return 毫秒
+     */
+    public long getJitteredPauseDelay(int retries) {
+        long delay = Math.min(getPauseDelay(retries), MAX_RETRY_PAUSE);
+        return delay <= 0 ? 0 : ThreadLocalRandom.current().nextLong(delay + 1);
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.common.http;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按 {@link CallbackExecutionMode} 执行一个客户端的用户回调
+ */
+final class CallbackDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(CallbackDispatcher.class);
+
+    private final CallbackExecutionMode mode;
+    private final Executor executor;
+    private final ExecutorService[] stripes;
+    private final boolean ownsExecutor;
+
+    private CallbackDispatcher(CallbackExecutionMode mode, Executor executor, ExecutorService[] stripes,
+        boolean ownsExecutor) {
+        this.mode = mode;
+        this.executor = executor;
+        this.stripes = stripes;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * @return 客户端的回调执行器，使用共用线程池时返回 null
+     */
+    static CallbackDispatcher create(ClientConfiguration config) {
+        switch (config.getCallbackExecutionMode()) {
+            case DIRECT:
+                return new CallbackDispatcher(CallbackExecutionMode.DIRECT, null, null, false);
+            case STRIPED:
+                ExecutorService[] stripes = new ExecutorService[config.getCallbackStripes()];
+                for (int i = 0; i < stripes.length; i++) {
+                    stripes[i] = newStripe(i);
+                }
+                return new CallbackDispatcher(CallbackExecutionMode.STRIPED, null, stripes, true);
+            case VIRTUAL_THREAD:
+                ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+                if (virtualThreadExecutor == null) {
+                    throw new IllegalStateException("virtual thread requires JDK 21 or later");
+                }
+                return new CallbackDispatcher(CallbackExecutionMode.VIRTUAL_THREAD, virtualThreadExecutor, null,
+                    true);
+            default:
+                if (config.getCallbackExecutor() == null) {
+                    return null;
+                }
+                return new CallbackDispatcher(CallbackExecutionMode.SHARED, config.getCallbackExecutor(), null,
+                    false);
+        }
+    }
+
+    private static ExecutorService newStripe(final int index) {
+        ThreadPoolExecutor stripe = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread thread = new Thread(r, "mns-callback-stripe-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        stripe.allowCoreThreadTimeOut(true);
+        return stripe;
+    }
+
+    /**
+     * 源码需兼容 JDK 8，通过反射调用 Executors.newVirtualThreadPerTaskExecutor
+     *
+     * @return 虚拟线程执行器，JDK 不支持时返回 null
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    CallbackExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @param key  分片依据，通常是队列/主题名，可为 null
+     * @param task 用户回调
+     */
+    void dispatch(String key, Runnable task) {
+        switch (mode) {
+            case DIRECT:
+                runQuietly(task);
+                break;
+            case STRIPED:
+                int index = key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE) % stripes.length;
+                stripes[index].execute(() -> runQuietly(task));
+                break;
+            default:
+                executor.execute(task);
+        }
+    }
+
+    private static void runQuietly(Runnable task) {
+        // 回调运行在 I/O 线程或分片线程中，异常不能影响后续请求和回调
+        try {
+            task.run();
+        } catch (Throwable t) {
+            log.warn("async callback threw an exception", t);
+        }
+    }
+
+    void shutdown() {
+        if (!ownsExecutor) {
+            return;
+        }
+        if (stripes != null) {
+            for (ExecutorService stripe : stripes) {
+                stripe.shutdown();
+            }
+        }
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.common.http;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 异步接口中用户 {@link com.aliyun.mns.client.AsyncCallback} 的执行方式
+ */
+public enum CallbackExecutionMode {
+    /**
+     * 在所有客户端共用的线程池中执行，线程池可通过 {@link HttpCallback#setCallbackExecutor} 替换；
+     * 为客户端设置了 callbackExecutor 时改用该线程池
+     */
+    SHARED,
+
+    /**
+     * 在请求结束的线程（解析线程，未开启解析线程时为 I/O 线程）中直接执行，没有线程切换，回调中不能有阻塞操作
+     */
+    DIRECT,
+
+    /**
+     * 按队列/主题分片到单线程中执行，同一队列的回调按完成顺序串行执行，不同队列互不阻塞
+     */
+    STRIPED,
+
+    /**
+     * 每个回调一个虚拟线程，需要 JDK 21 及以上
+     */
+    VIRTUAL_THREAD;
+
+    /**
+     * @return 当前 JDK 是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreadSupport.SUPPORTED;
+    }
+
+    /**
+     * 首次使用时探测一次并缓存结果；JDK 19/20 未开启预览时方法存在但调用失败，因此实际创建一个执行器再关闭
+     */
+    private static final class VirtualThreadSupport {
+        private static final boolean SUPPORTED = probe();
+
+        private static boolean probe() {
+            ExecutorService executor = CallbackDispatcher.newVirtualThreadExecutor();
+            if (executor == null) {
+                return false;
+            }
+            executor.shutdown();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.http;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 可取消底层 HTTP 请求的 {@link CompletableFuture}。
+ * <p>
+ * 由 {@link HttpCallback} 在 completed/failed/cancelled 中直接完成，不占用等待线程；
+ * 调用 {@link #cancel(boolean)} 时会同时取消关联的 HTTP 请求，连接随即被释放。
+ * 通过 {@link #map(Function)} 和 {@link #transform(Transformer)} 派生的结果同样可以取消上游请求。
+ * 注意：后续阶段默认在 IO 回调线程上执行，耗时处理请使用 *Async 方法指定线程池。
+ */
+public class CancellableFuture<T> extends CompletableFuture<T> {
+
+    /**
+     * 结果转换：error 为 null 时 value 为成功结果；否则可返回替代结果，或抛出异常使派生结果失败
+     */
+    public interface Transformer<T, U> {
+        U apply(T value, Throwable error) throws Throwable;
+    }
+
+    private volatile Future<?> upstream;
+
+    /**
+     * 关联底层 HTTP 请求（或上游结果）。若本结果已被取消，则立即取消上游。
+     */
+    public void setUpstream(Future<?> upstream) {
+        this.upstream = upstream;
+        if (upstream != null && isCancelled()) {
+            upstream.cancel(true);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        Future<?> current = upstream;
+        if (cancelled && current != null) {
+            current.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+    }
+
+    /**
+     * 成功结果经 fn 转换，失败原样传递
+     */
+    public <U> CancellableFuture<U> map(final Function<? super T, ? extends U> fn) {
+        return transform((T value, Throwable error) -> {
+            if (error != null) {
+                throw error;
+            }
+            return fn.apply(value);
+        });
+    }
+
+    public <U> CancellableFuture<U> transform(final Transformer<? super T, ? extends U> fn) {
+        final CancellableFuture<U> dependent = new CancellableFuture<U>();
+        dependent.setUpstream(this);
+        whenComplete((value, error) -> {
+            try {
+                dependent.complete(fn.apply(value, error));
+            } catch (Throwable t) {
+                dependent.completeExceptionally(t);
+            }
+        });
+        return dependent;
+    }
+
+    public static <T> CancellableFuture<T> failed(Throwable error) {
+        CancellableFuture<T> future = new CancellableFuture<T>();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
@@ -20,10 +20,13 @@
 package com.aliyun.mns.common.http;
 
 import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.metrics.RequestMetricsListener;
 import com.aliyun.mns.common.utils.VersionInfoUtils;
+import com.aliyun.mns.model.MessageBodyCodec;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 /**
  * 访问阿里云服务的客户端配置。
@@ -50,6 +53,24 @@ public class ClientConfiguration implements Cloneable {
 
     private boolean exceptContinue = true;
     protected SignVersion signatureVersion;
+    private RequestMetricsListener metricsListener;
+    private boolean jmxEnabled = false;
+    private boolean longPollPoolEnabled = false;
+    private int longPollMaxConnections = 1000;
+    private int longPollMaxConnectionsPerRoute = 1000;
+    private int longPollTimeoutMarginMillis = 5 * 1000;
+    private int retryBudgetMaxTokens = 100;
+    private double retryBudgetTokenRatio = 0.1;
+    private HedgingPolicy hedgingPolicy;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private CallbackExecutionMode callbackExecutionMode = CallbackExecutionMode.SHARED;
+    private int callbackStripes = Runtime.getRuntime().availableProcessors();
+    private Executor callbackExecutor;
+    private int responseParserThreads = Runtime.getRuntime().availableProcessors();
+    private int responseParserQueueSize = 1000;
+    private long streamingResponseThreshold = 64 * 1024;
+    private boolean directRequestBuffers = false;
+    private MessageBodyCodec messageBodyCodec;
 
     @Override
     protected Object clone() throws CloneNotSupportedException {
@@ -73,6 +94,25 @@ public class ClientConfiguration implements Cloneable {
         hcb.append(proxyDomain);
         hcb.append(proxyWorkstation);
         hcb.append(signatureVersion);
+        hcb.append(metricsListener);
+        hcb.append(jmxEnabled);
+        hcb.append(longPollPoolEnabled);
+        hcb.append(longPollMaxConnections);
+        hcb.append(longPollMaxConnectionsPerRoute);
+        hcb.append(longPollTimeoutMarginMillis);
+        hcb.append(maxErrorRetry);
+        hcb.append(retryBudgetMaxTokens);
+        hcb.append(retryBudgetTokenRatio);
+        hcb.append(hedgingPolicy);
+        hcb.append(concurrencyLimiter);
+        hcb.append(callbackExecutionMode);
+        hcb.append(callbackStripes);
+        hcb.append(callbackExecutor);
+        hcb.append(responseParserThreads);
+        hcb.append(responseParserQueueSize);
+        hcb.append(streamingResponseThreshold);
+        hcb.append(directRequestBuffers);
+        hcb.append(messageBodyCodec);
         return hcb.build();
     }
 
@@ -93,7 +133,26 @@ public class ClientConfiguration implements Cloneable {
                 && soKeepAlive == conf.soKeepAlive
                 && exceptContinue == conf.exceptContinue
                 && generateRequestId == conf.generateRequestId
-                && (Objects.equals(signatureVersion, conf.signatureVersion));
+                && (Objects.equals(signatureVersion, conf.signatureVersion))
+                && metricsListener == conf.metricsListener
+                && jmxEnabled == conf.jmxEnabled
+                && longPollPoolEnabled == conf.longPollPoolEnabled
+                && longPollMaxConnections == conf.longPollMaxConnections
+                && longPollMaxConnectionsPerRoute == conf.longPollMaxConnectionsPerRoute
+                && longPollTimeoutMarginMillis == conf.longPollTimeoutMarginMillis
+                && maxErrorRetry == conf.maxErrorRetry
+                && retryBudgetMaxTokens == conf.retryBudgetMaxTokens
+                && Double.compare(retryBudgetTokenRatio, conf.retryBudgetTokenRatio) == 0
+                && hedgingPolicy == conf.hedgingPolicy
+                && concurrencyLimiter == conf.concurrencyLimiter
+                && callbackExecutionMode == conf.callbackExecutionMode
+                && callbackStripes == conf.callbackStripes
+                && callbackExecutor == conf.callbackExecutor
+                && responseParserThreads == conf.responseParserThreads
+                && responseParserQueueSize == conf.responseParserQueueSize
+                && streamingResponseThreshold == conf.streamingResponseThreshold
+                && directRequestBuffers == conf.directRequestBuffers
+                && messageBodyCodec == conf.messageBodyCodec;
         }
         return super.equals(obj);
     }
@@ -362,4 +421,266 @@ public class ClientConfiguration implements Cloneable {
     public void setSignatureVersion(SignVersion signatureVersion) {
         this.signatureVersion = signatureVersion;
     }
+
+    public RequestMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * 设置请求度量监听器，默认为 null 即不采集。
+     * 不同监听器的配置不会共用同一个底层 HTTP 客户端。
+     *
+     * @param metricsListener 监听器，如 {@link com.aliyun.mns.common.metrics.DefaultMetricsRecorder}
+     */
+    public void setMetricsListener(RequestMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * 是否将连接池统计注册为 JMX MBean，默认关闭。
+     *
+     * @param jmxEnabled true 时注册 {@link ConnectionPoolMXBean}
+     */
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    public boolean isLongPollPoolEnabled() {
+        return longPollPoolEnabled;
+    }
+
+    /**
+     * 是否为带 waitSeconds 的长轮询收消息请求使用独立的连接池，默认关闭。
+     * <p>
+     * 开启后长轮询请求不再占用普通连接池，发送、删除等短请求不会排在长轮询之后；
+     * 长轮询请求的 socket 超时按 waitSeconds 加上 {@link #getLongPollTimeoutMarginMillis()} 计算，
+     * 因此 {@link #setSocketTimeout(int)} 可以按短请求设置得更小。
+     *
+     * @param longPollPoolEnabled true 时开启
+     */
+    public void setLongPollPoolEnabled(boolean longPollPoolEnabled) {
+        this.longPollPoolEnabled = longPollPoolEnabled;
+    }
+
+    public int getLongPollMaxConnections() {
+        return longPollMaxConnections;
+    }
+
+    /**
+     * 长轮询连接池的最大连接数，仅在开启 {@link #setLongPollPoolEnabled(boolean)} 时生效
+     *
+     * @param longPollMaxConnections 最大连接数
+     */
+    public void setLongPollMaxConnections(int longPollMaxConnections) {
+        this.longPollMaxConnections = longPollMaxConnections;
+    }
+
+    public int getLongPollMaxConnectionsPerRoute() {
+        return longPollMaxConnectionsPerRoute;
+    }
+
+    public void setLongPollMaxConnectionsPerRoute(int longPollMaxConnectionsPerRoute) {
+        this.longPollMaxConnectionsPerRoute = longPollMaxConnectionsPerRoute;
+    }
+
+    public int getLongPollTimeoutMarginMillis() {
+        return longPollTimeoutMarginMillis;
+    }
+
+    /**
+     * 长轮询请求在 waitSeconds 之外额外允许的网络耗时，默认 5 秒
+     *
+     * @param longPollTimeoutMarginMillis 毫秒
+     */
+    public void setLongPollTimeoutMarginMillis(int longPollTimeoutMarginMillis) {
+        this.longPollTimeoutMarginMillis = longPollTimeoutMarginMillis;
+    }
+
+    /**
+     * @param waitSeconds 长轮询等待秒数
+     * @return 长轮询请求使用的 socket 超时，毫秒
+     */
+    public int getLongPollSocketTimeout(int waitSeconds) {
+        return waitSeconds * 1000 + longPollTimeoutMarginMillis;
+    }
+
+    public int getRetryBudgetMaxTokens() {
+        return retryBudgetMaxTokens;
+    }
+
+    /**
+     * 重试预算的令牌桶容量，默认 100，见 {@link com.aliyun.mns.common.comm.RetryBudget}。
+     * 重试预算在使用同一配置的客户端之间共享。
+     *
+     * @param retryBudgetMaxTokens 最多可连续重试的次数
+     */
+    public void setRetryBudgetMaxTokens(int retryBudgetMaxTokens) {
+        this.retryBudgetMaxTokens = retryBudgetMaxTokens;
+    }
+
+    public double getRetryBudgetTokenRatio() {
+        return retryBudgetTokenRatio;
+    }
+
+    /**
+     * 每个请求为重试预算存入的令牌数，默认 0.1，即持续故障时重试量不超过请求量的 10%
+     *
+     * @param retryBudgetTokenRatio 令牌数
+     */
+    public void setRetryBudgetTokenRatio(double retryBudgetTokenRatio) {
+        this.retryBudgetTokenRatio = retryBudgetTokenRatio;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * 为幂等的只读请求开启对冲，默认 null 即不对冲
+     *
+     * @param hedgingPolicy 对冲策略
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * 限制进行中的请求数，默认 null 即不限制
+     *
+     * @param concurrencyLimiter 并发限制器
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public CallbackExecutionMode getCallbackExecutionMode() {
+        return callbackExecutionMode;
+    }
+
+    /**
+     * 异步接口中用户回调的执行方式，默认 {@link CallbackExecutionMode#SHARED}
+     *
+     * @param callbackExecutionMode 执行方式
+     */
+    public void setCallbackExecutionMode(CallbackExecutionMode callbackExecutionMode) {
+        if (callbackExecutionMode == null) {
+            throw new NullPointerException("callbackExecutionMode can not be null.");
+        }
+        if (callbackExecutionMode == CallbackExecutionMode.VIRTUAL_THREAD
+            && !CallbackExecutionMode.isVirtualThreadSupported()) {
+            throw new IllegalArgumentException("virtual thread requires JDK 21 or later");
+        }
+        this.callbackExecutionMode = callbackExecutionMode;
+    }
+
+    public int getCallbackStripes() {
+        return callbackStripes;
+    }
+
+    /**
+     * {@link CallbackExecutionMode#STRIPED} 模式下的分片数，默认为 CPU 核数
+     *
+     * @param callbackStripes 分片数
+     */
+    public void setCallbackStripes(int callbackStripes) {
+        if (callbackStripes <= 0) {
+            throw new IllegalArgumentException("callbackStripes should be bigger than 0");
+        }
+        this.callbackStripes = callbackStripes;
+    }
+
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * {@link CallbackExecutionMode#SHARED} 模式下本客户端使用的回调线程池，默认 null 即所有客户端共用；
+     * 线程池由调用方管理，客户端关闭时不会关闭它
+     *
+     * @param callbackExecutor 回调线程池
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public int getResponseParserThreads() {
+        return responseParserThreads;
+    }
+
+    /**
+     * 解析响应的线程数，默认为 CPU 核数；为 0 时在 I/O 线程中解析，解析大的响应会阻塞其他连接的读写
+     *
+     * @param responseParserThreads 线程数
+     */
+    public void setResponseParserThreads(int responseParserThreads) {
+        if (responseParserThreads < 0) {
+            throw new IllegalArgumentException("responseParserThreads should not be negative");
+        }
+        this.responseParserThreads = responseParserThreads;
+    }
+
+    public int getResponseParserQueueSize() {
+        return responseParserQueueSize;
+    }
+
+    /**
+     * 等待解析的响应数上限，默认 1000；队列已满时在 I/O 线程中解析，以此限制读取速度
+     *
+     * @param responseParserQueueSize 队列长度
+     */
+    public void setResponseParserQueueSize(int responseParserQueueSize) {
+        if (responseParserQueueSize <= 0) {
+            throw new IllegalArgumentException("responseParserQueueSize should be bigger than 0");
+        }
+        this.responseParserQueueSize = responseParserQueueSize;
+    }
+
+    public long getStreamingResponseThreshold() {
+        return streamingResponseThreshold;
+    }
+
+    /**
+     * 成功响应的响应体不小于该字节数（或长度未知）时，在解析线程中边接收边解析，默认 64KB；
+     * 为负数时总是完整读入内存后再解析。需要开启解析线程，见 {@link #setResponseParserThreads(int)}
+     *
+     * @param streamingResponseThreshold 字节数
+     */
+    public void setStreamingResponseThreshold(long streamingResponseThreshold) {
+        this.streamingResponseThreshold = streamingResponseThreshold;
+    }
+
+    public boolean isDirectRequestBuffers() {
+        return directRequestBuffers;
+    }
+
+    /**
+     * 是否把请求体放到池化的直接内存中发送，默认 false。开启后写入连接时不再需要 NIO 内部的临时直接内存复制，
+     * 适合大量发送大消息（如 64KB 的批量发送）的场景
+     *
+     * @param directRequestBuffers 是否使用直接内存
+     */
+    public void setDirectRequestBuffers(boolean directRequestBuffers) {
+        this.directRequestBuffers = directRequestBuffers;
+    }
+
+    public MessageBodyCodec getMessageBodyCodec() {
+        return messageBodyCodec;
+    }
+
+    /**
+     * 发送消息时压缩较大的消息体，默认 null 即不压缩；收到的压缩消息总是会自动解压
+     *
+     * @param messageBodyCodec 消息体压缩
+     */
+    public void setMessageBodyCodec(MessageBodyCodec messageBodyCodec) {
+        this.messageBodyCodec = messageBodyCodec;
+    }
 }
@@ -0,0 +1,638 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.common.http;
+
+import com.aliyun.mns.common.ClientErrorCode;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * 自适应的并发请求限制器，限制同时进行中的请求数，避免服务端变慢时请求在客户端无限堆积。
+ * <p>
+ * 并发上限根据请求延迟和限流错误自动调整：
+ * <ul>
+ * <li>{@link Algorithm#AIMD}：请求成功时缓慢增加上限，遇到限流、超时或延迟超过 timeoutMillis 时按比例减小；</li>
+ * <li>{@link Algorithm#VEGAS}：根据当前延迟相对最小延迟估算排队的请求数，排队少时增加上限，排队多时减小。</li>
+ * </ul>
+ * 达到上限时新请求进入等待队列，由完成的请求释放名额后发出；队列已满（maxQueueSize 为 0 即不排队）或等待超时时
+ * 以错误码 {@link ClientErrorCode#CONCURRENCY_LIMIT_EXCEEDED} 的 {@link ClientException} 失败。
+ * 开启 perResource 后每个队列/主题有独立的上限。长轮询收消息不受限制。
+ * 开启对冲（{@link HedgingPolicy}）时，原请求和对冲请求共用一个名额，对冲额外发出的请求不计入并发数。
+ * <pre>
+ * clientConfiguration.setConcurrencyLimiter(ConcurrencyLimiter.newBuilder().algorithm(Algorithm.VEGAS).build());
+ * </pre>
+ */
+public final class ConcurrencyLimiter {
+
+    public enum Algorithm {
+        AIMD, VEGAS
+    }
+
+    /**
+     * MNS 文档中表示请求被限流的错误码
+     */
+    private static final Set<String> THROTTLING_ERROR_CODES = new HashSet<String>(Arrays.asList(
+        "QpsLimitExceeded"));
+
+    private final Builder config;
+    private final Partition sharedPartition;
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<String, Partition>();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private ConcurrencyLimiter(Builder builder) {
+        this.config = builder.copy();
+        this.sharedPartition = new Partition();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 获得名额后执行 send；没有名额时排队，队列已满时抛出异常
+     *
+     * @param resourceName 队列或主题名，可为 null
+     * @param callback     请求回调，请求结束时释放名额
+     * @param send         发送请求
+     * @return 请求的 future
+     */
+    <T> Future<HttpResponse> execute(String resourceName, HttpCallback<T> callback,
+        Callable<Future<HttpResponse>> send) throws ClientException, ServiceException {
+        Partition partition = partitionFor(resourceName);
+        LimitedRequest<T> request = new LimitedRequest<T>(partition, callback, send);
+        switch (partition.acquireOrEnqueue(request)) {
+            case ACQUIRED:
+                return request.dispatchNow();
+            case QUEUED:
+                request.scheduleExpiry();
+                return request;
+            default:
+                rejectedCount.increment();
+                throw new ClientException(ClientErrorCode.CONCURRENCY_LIMIT_EXCEEDED,
+                    "too many in-flight requests, limit: " + partition.algorithm.getLimit(),
+                    callback.getUserRequestId(), null);
+        }
+    }
+
+    private Partition partitionFor(String resourceName) {
+        if (!config.perResource || resourceName == null) {
+            return sharedPartition;
+        }
+        Partition partition = partitions.get(resourceName);
+        if (partition == null) {
+            partition = partitions.computeIfAbsent(resourceName, k -> new Partition());
+        }
+        return partition;
+    }
+
+    private Partition existingPartition(String resourceName) {
+        if (!config.perResource || resourceName == null) {
+            return sharedPartition;
+        }
+        return partitions.get(resourceName);
+    }
+
+    /**
+     * @return 当前并发上限；开启 perResource 时为账号级请求的上限
+     */
+    public int getLimit() {
+        return sharedPartition.algorithm.getLimit();
+    }
+
+    /**
+     * @return 指定队列或主题的并发上限，未开启 perResource 时与 {@link #getLimit()} 相同，没有请求过时返回 -1
+     */
+    public int getLimit(String resourceName) {
+        Partition partition = existingPartition(resourceName);
+        return partition == null ? -1 : partition.algorithm.getLimit();
+    }
+
+    public int getInFlight() {
+        return sharedPartition.getInFlight();
+    }
+
+    public int getInFlight(String resourceName) {
+        Partition partition = existingPartition(resourceName);
+        return partition == null ? 0 : partition.getInFlight();
+    }
+
+    public int getQueueSize() {
+        return sharedPartition.getQueueSize();
+    }
+
+    public int getQueueSize(String resourceName) {
+        Partition partition = existingPartition(resourceName);
+        return partition == null ? 0 : partition.getQueueSize();
+    }
+
+    /**
+     * @return 因队列已满或等待超时而失败的请求数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter{algorithm=" + config.algorithm + ", limit=" + getLimit() + ", inFlight="
+            + getInFlight() + ", queued=" + getQueueSize() + ", rejected=" + getRejectedCount() + "}";
+    }
+
+    /**
+     * 限流错误码、503 和超时视为过载信号
+     *
+     * @param statusCode 响应状态码，没有收到响应时为 0
+     */
+    static boolean isDropped(Throwable error, int statusCode) {
+        if (error == null) {
+            return false;
+        }
+        if (statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+            return true;
+        }
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof ServiceException) {
+            return THROTTLING_ERROR_CODES.contains(((ServiceException) error).getErrorCode());
+        }
+        if (error instanceof ClientException) {
+            String errorCode = ((ClientException) error).getErrorCode();
+            if (ClientErrorCode.SOCKET_TIMEOUT.equals(errorCode)
+                || ClientErrorCode.CONNECTION_TIMEOUT.equals(errorCode)) {
+                return true;
+            }
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private LimitAlgorithm newAlgorithm() {
+        return config.algorithm == Algorithm.VEGAS ? new VegasLimit(config) : new AimdLimit(config);
+    }
+
+    private enum AcquireResult {
+        ACQUIRED, QUEUED, REJECTED
+    }
+
+    private final class Partition {
+        private final LimitAlgorithm algorithm = newAlgorithm();
+        private final ArrayDeque<LimitedRequest<?>> queue = new ArrayDeque<LimitedRequest<?>>();
+        private int inFlight = 0;
+
+        synchronized AcquireResult acquireOrEnqueue(LimitedRequest<?> request) {
+            if (queue.isEmpty() && inFlight < algorithm.getLimit()) {
+                inFlight++;
+                return AcquireResult.ACQUIRED;
+            }
+            if (queue.size() >= config.maxQueueSize) {
+                return AcquireResult.REJECTED;
+            }
+            queue.add(request);
+            return AcquireResult.QUEUED;
+        }
+
+        synchronized boolean remove(LimitedRequest<?> request) {
+            return queue.remove(request);
+        }
+
+        /**
+         * 释放名额并记录样本，然后发出排队中可以发出的请求
+         *
+         * @param rttNanos 请求耗时，小于 0 表示没有发出请求，不作为样本
+         */
+        void release(long rttNanos, Throwable error, int statusCode) {
+            List<LimitedRequest<?>> ready = new ArrayList<LimitedRequest<?>>();
+            synchronized (this) {
+                if (rttNanos >= 0) {
+                    algorithm.onSample(rttNanos, isDropped(error, statusCode), inFlight);
+                }
+                inFlight--;
+                while (!queue.isEmpty() && inFlight < algorithm.getLimit()) {
+                    ready.add(queue.poll());
+                    inFlight++;
+                }
+            }
+            for (LimitedRequest<?> request : ready) {
+                request.dispatchQueued();
+            }
+        }
+
+        synchronized int getInFlight() {
+            return inFlight;
+        }
+
+        synchronized int getQueueSize() {
+            return queue.size();
+        }
+    }
+
+    /**
+     * 一个受限的请求，排队期间作为返回给调用方的 Future，取消时从队列中移除
+     */
+    private final class LimitedRequest<T> implements Future<HttpResponse>, HttpCallback.CompletionListener {
+        private final Partition partition;
+        private final HttpCallback<T> callback;
+        private final Callable<Future<HttpResponse>> send;
+        private volatile Future<HttpResponse> current;
+        private volatile ScheduledFuture<?> expiry;
+        private volatile boolean cancelled = false;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile long startNanos;
+
+        LimitedRequest(Partition partition, HttpCallback<T> callback, Callable<Future<HttpResponse>> send) {
+            this.partition = partition;
+            this.callback = callback;
+            this.send = send;
+        }
+
+        Future<HttpResponse> dispatchNow() throws ClientException, ServiceException {
+            startNanos = System.nanoTime();
+            callback.setCompletionListener(this);
+            try {
+                current = send.call();
+            } catch (ClientException ex) {
+                releaseUnsent();
+                throw ex;
+            } catch (ServiceException ex) {
+                releaseUnsent();
+                throw ex;
+            } catch (Exception ex) {
+                releaseUnsent();
+                throw new ClientException(ex.getMessage(), callback.getUserRequestId(), ex);
+            }
+            return current;
+        }
+
+        void dispatchQueued() {
+            ScheduledFuture<?> pendingExpiry = expiry;
+            if (pendingExpiry != null) {
+                pendingExpiry.cancel(false);
+            }
+            startNanos = System.nanoTime();
+            callback.setCompletionListener(this);
+            try {
+                current = send.call();
+            } catch (Exception ex) {
+                // 请求没有发出，先释放名额，结束回调时不再记录延迟样本
+                releaseUnsent();
+                callback.complete(null, ex);
+            }
+        }
+
+        /**
+         * 请求结束，在结果交给调用方之前释放名额，调用方随后发出的请求不会因本请求而排队
+         */
+        @Override
+        public void onComplete(Exception error) {
+            if (released.compareAndSet(false, true)) {
+                partition.release(System.nanoTime() - startNanos, error, callback.getResponseStatusCode());
+            }
+        }
+
+        private void releaseUnsent() {
+            if (released.compareAndSet(false, true)) {
+                partition.release(-1, null, 0);
+            }
+        }
+
+        void scheduleExpiry() {
+            if (config.maxQueueWaitMillis <= 0) {
+                return;
+            }
+            expiry = ServiceClient.RequestScheduler.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (partition.remove(LimitedRequest.this)) {
+                        rejectedCount.increment();
+                        callback.complete(null, new ClientException(ClientErrorCode.CONCURRENCY_LIMIT_EXCEEDED,
+                            "wait for concurrency limit timeout", callback.getUserRequestId(), null));
+                    }
+                }
+            }, config.maxQueueWaitMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (isDone()) {
+                return false;
+            }
+            cancelled = true;
+            if (partition.remove(this)) {
+                ScheduledFuture<?> pendingExpiry = expiry;
+                if (pendingExpiry != null) {
+                    pendingExpiry.cancel(false);
+                }
+                callback.cancelled();
+                return true;
+            }
+            Future<HttpResponse> inFlight = current;
+            return inFlight != null && inFlight.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return callback.getCompletableFuture().isDone();
+        }
+
+        @Override
+        public HttpResponse get() throws InterruptedException, ExecutionException {
+            try {
+                callback.getCompletableFuture().get();
+            } catch (ExecutionException ex) {
+                if (current == null) {
+                    throw ex;
+                }
+            }
+            return current == null ? null : current.get();
+        }
+
+        @Override
+        public HttpResponse get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                callback.getCompletableFuture().get(timeout, unit);
+            } catch (ExecutionException ex) {
+                if (current == null) {
+                    throw ex;
+                }
+            }
+            return current == null ? null : current.get(timeout, unit);
+        }
+    }
+
+    /**
+     * 并发上限的调整算法，调用方负责同步
+     */
+    interface LimitAlgorithm {
+        int getLimit();
+
+        /**
+         * @param rttNanos 请求耗时
+         * @param dropped  是否遇到限流或超时
+         * @param inFlight 请求结束前进行中的请求数
+         */
+        void onSample(long rttNanos, boolean dropped, int inFlight);
+    }
+
+    /**
+     * 加性增、乘性减：进行中的请求达到上限一半以上时，每个成功请求使上限增加 1/limit，即每轮约加 1
+     */
+    static final class AimdLimit implements LimitAlgorithm {
+        private final int minLimit;
+        private final int maxLimit;
+        private final double backoffRatio;
+        private final long timeoutNanos;
+        private double limit;
+
+        AimdLimit(Builder config) {
+            this.minLimit = config.minLimit;
+            this.maxLimit = config.maxLimit;
+            this.backoffRatio = config.backoffRatio;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.timeoutMillis);
+            this.limit = config.initialLimit;
+        }
+
+        @Override
+        public int getLimit() {
+            return (int) limit;
+        }
+
+        @Override
+        public void onSample(long rttNanos, boolean dropped, int inFlight) {
+            if (dropped || rttNanos > timeoutNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight * 2 >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    /**
+     * TCP Vegas：queue = limit * (1 - minRtt / rtt) 估算排队数，小于 alpha 时增加上限，大于 beta 时减小；
+     * 每 probeInterval 个样本重置一次最小延迟，以适应网络变化
+     */
+    static final class VegasLimit implements LimitAlgorithm {
+        private static final int PROBE_INTERVAL = 1000;
+        private final int minLimit;
+        private final int maxLimit;
+        private double limit;
+        private long minRttNanos = Long.MAX_VALUE;
+        private int samples = 0;
+
+        VegasLimit(Builder config) {
+            this.minLimit = config.minLimit;
+            this.maxLimit = config.maxLimit;
+            this.limit = config.initialLimit;
+        }
+
+        @Override
+        public int getLimit() {
+            return (int) limit;
+        }
+
+        @Override
+        public void onSample(long rttNanos, boolean dropped, int inFlight) {
+            if (++samples >= PROBE_INTERVAL) {
+                samples = 0;
+                minRttNanos = Long.MAX_VALUE;
+            }
+            if (rttNanos > 0 && rttNanos < minRttNanos) {
+                minRttNanos = rttNanos;
+            }
+            double log = Math.max(1, Math.log10(limit));
+            if (dropped) {
+                limit = Math.max(minLimit, limit - log);
+                return;
+            }
+            if (rttNanos <= 0 || inFlight * 2 < (int) limit) {
+                return;
+            }
+            double queue = limit * (1 - (double) minRttNanos / rttNanos);
+            if (queue < 3 * log) {
+                limit = Math.min(maxLimit, limit + log);
+            } else if (queue > 6 * log) {
+                limit = Math.max(minLimit, limit - log);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private Algorithm algorithm = Algorithm.AIMD;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private double backoffRatio = 0.9;
+        private long timeoutMillis = 5 * 1000;
+        private int maxQueueSize = 1000;
+        private long maxQueueWaitMillis = 0;
+        private boolean perResource = false;
+
+        private Builder() {
+        }
+
+        /**
+         * 上限调整算法，默认 AIMD
+         */
+        public Builder algorithm(Algorithm algorithm) {
+            if (algorithm == null) {
+                throw new NullPointerException("algorithm can not be null.");
+            }
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * 初始并发上限，默认 20
+         */
+        public Builder initialLimit(int initialLimit) {
+            if (initialLimit <= 0) {
+                throw new IllegalArgumentException("initialLimit should be bigger than 0");
+            }
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * 并发上限的下限，默认 1
+         */
+        public Builder minLimit(int minLimit) {
+            if (minLimit <= 0) {
+                throw new IllegalArgumentException("minLimit should be bigger than 0");
+            }
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * 并发上限的上限，默认 1000
+         */
+        public Builder maxLimit(int maxLimit) {
+            if (maxLimit <= 0) {
+                throw new IllegalArgumentException("maxLimit should be bigger than 0");
+            }
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * AIMD 遇到过载信号时上限乘以的比例，默认 0.9
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio should be in (0, 1)");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * AIMD 中延迟超过该值的请求视为过载信号，默认 5 秒
+         */
+        public Builder timeoutMillis(long timeoutMillis) {
+            if (timeoutMillis <= 0) {
+                throw new IllegalArgumentException("timeoutMillis should be bigger than 0");
+            }
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * 达到上限时最多排队的请求数，默认 1000；为 0 时不排队，直接失败
+         */
+        public Builder maxQueueSize(int maxQueueSize) {
+            if (maxQueueSize < 0) {
+                throw new IllegalArgumentException("maxQueueSize should not be negative");
+            }
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * 排队的最长时间，超时后请求失败，默认 0 即一直等待
+         */
+        public Builder maxQueueWaitMillis(long maxQueueWaitMillis) {
+            if (maxQueueWaitMillis < 0) {
+                throw new IllegalArgumentException("maxQueueWaitMillis should not be negative");
+            }
+            this.maxQueueWaitMillis = maxQueueWaitMillis;
+            return this;
+        }
+
+        /**
+         * 是否为每个队列/主题单独限制并发，默认 false 即整个客户端共用
+         */
+        public Builder perResource(boolean perResource) {
+            this.perResource = perResource;
+            return this;
+        }
+
+        public ConcurrencyLimiter build() {
+            if (minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("should be minLimit <= initialLimit <= maxLimit");
+            }
+            return new ConcurrencyLimiter(this);
+        }
+
+        private Builder copy() {
+            Builder copy = new Builder();
+            copy.algorithm = algorithm;
+            copy.initialLimit = initialLimit;
+            copy.minLimit = minLimit;
+            copy.maxLimit = maxLimit;
+            copy.backoffRatio = backoffRatio;
+            copy.timeoutMillis = timeoutMillis;
+            copy.maxQueueSize = maxQueueSize;
+            copy.maxQueueWaitMillis = maxQueueWaitMillis;
+            copy.perResource = perResource;
+            return copy;
+        }
+    }
+}
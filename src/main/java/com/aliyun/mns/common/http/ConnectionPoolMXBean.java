@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.http;
+
+/**
+ * 连接池统计的 JMX 接口，开启 {@link ClientConfiguration#setJmxEnabled(boolean)} 后注册为
+ * {@code com.aliyun.mns:type=ConnectionPool,name=...}。各属性含义见 {@link ConnectionPoolStats}。
+ */
+public interface ConnectionPoolMXBean {
+
+    int getMaxTotal();
+
+    int getLeased();
+
+    int getPending();
+
+    int getAvailable();
+
+    int getLeaseRequestsWaiting();
+
+    long getLeaseCount();
+
+    long getLeaseFailureCount();
+
+    double getLeaseWaitMeanMicros();
+
+    long getLeaseWaitP99Micros();
+
+    long getLeaseWaitMaxMicros();
+
+    long getConnectionsCreated();
+
+    long getIdleConnectionsClosed();
+
+    int getIoThreadCount();
+
+    long getIoThreadCpuTimeNanos();
+
+    /**
+     * 每个路由一行，格式同 {@link ConnectionPoolStats.RouteStats#toString()}
+     */
+    String[] getRouteStats();
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.http;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 连接池和 I/O reactor 的统计快照，通过 {@link ServiceClient#getConnectionPoolStats()} 获取。
+ * <p>
+ * leased/pending/available 为瞬时值；租用次数、等待时间、新建和空闲关闭的连接数为客户端创建以来的累计值。
+ * leaseRequestsWaiting 持续大于 0 或租用等待 p99 上升，说明连接池已经耗尽。
+ */
+public final class ConnectionPoolStats {
+    private final int maxTotal;
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int leaseRequestsWaiting;
+    private final List<RouteStats> routes;
+    private final long leaseCount;
+    private final long leaseFailureCount;
+    private final double leaseWaitMeanMicros;
+    private final long leaseWaitP99Micros;
+    private final long leaseWaitMaxMicros;
+    private final long connectionsCreated;
+    private final long idleConnectionsClosed;
+    private final String ioReactorStatus;
+    private final int ioThreadCount;
+    private final long ioThreadCpuTimeNanos;
+
+    ConnectionPoolStats(int maxTotal, int leased, int pending, int available, int leaseRequestsWaiting,
+        List<RouteStats> routes, long leaseCount, long leaseFailureCount, double leaseWaitMeanMicros, long leaseWaitP99Micros,
+        long leaseWaitMaxMicros, long connectionsCreated, long idleConnectionsClosed, String ioReactorStatus,
+        int ioThreadCount, long ioThreadCpuTimeNanos) {
+        this.maxTotal = maxTotal;
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.leaseRequestsWaiting = leaseRequestsWaiting;
+        this.routes = Collections.unmodifiableList(routes);
+        this.leaseCount = leaseCount;
+        this.leaseFailureCount = leaseFailureCount;
+        this.leaseWaitMeanMicros = leaseWaitMeanMicros;
+        this.leaseWaitP99Micros = leaseWaitP99Micros;
+        this.leaseWaitMaxMicros = leaseWaitMaxMicros;
+        this.connectionsCreated = connectionsCreated;
+        this.idleConnectionsClosed = idleConnectionsClosed;
+        this.ioReactorStatus = ioReactorStatus;
+        this.ioThreadCount = ioThreadCount;
+        this.ioThreadCpuTimeNanos = ioThreadCpuTimeNanos;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 正在使用的连接数
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * 正在建立的连接数
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * 空闲可复用的连接数
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * 已发起但还没拿到连接的租用请求数，包括等待空闲连接和等待新连接建立的请求
+     */
+    public int getLeaseRequestsWaiting() {
+        return leaseRequestsWaiting;
+    }
+
+    public List<RouteStats> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * 成功租用连接的次数
+     */
+    public long getLeaseCount() {
+        return leaseCount;
+    }
+
+    /**
+     * 租用连接失败或取消的次数，包括连接超时
+     */
+    public long getLeaseFailureCount() {
+        return leaseFailureCount;
+    }
+
+    public double getLeaseWaitMeanMicros() {
+        return leaseWaitMeanMicros;
+    }
+
+    public long getLeaseWaitP99Micros() {
+        return leaseWaitP99Micros;
+    }
+
+    public long getLeaseWaitMaxMicros() {
+        return leaseWaitMaxMicros;
+    }
+
+    /**
+     * 新建的连接数，与租用次数对比可以看出连接复用率
+     */
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    /**
+     * 被空闲/过期清理关闭的连接数
+     */
+    public long getIdleConnectionsClosed() {
+        return idleConnectionsClosed;
+    }
+
+    public String getIoReactorStatus() {
+        return ioReactorStatus;
+    }
+
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    /**
+     * I/O reactor 线程累计 CPU 时间，两次采样的差值除以间隔和线程数即为线程利用率；JVM 不支持时为 -1
+     */
+    public long getIoThreadCpuTimeNanos() {
+        return ioThreadCpuTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats{max=" + maxTotal + ", leased=" + leased + ", pending=" + pending
+            + ", available=" + available + ", waiting=" + leaseRequestsWaiting + ", leases=" + leaseCount
+            + ", leaseFailures=" + leaseFailureCount + ", leaseWaitP99Micros=" + leaseWaitP99Micros
+            + ", created=" + connectionsCreated + ", idleClosed=" + idleConnectionsClosed + ", routes=" + routes + "}";
+    }
+
+    public static final class RouteStats {
+        private final String route;
+        private final int leased;
+        private final int pending;
+        private final int available;
+        private final int max;
+
+        RouteStats(String route, int leased, int pending, int available, int max) {
+            this.route = route;
+            this.leased = leased;
+            this.pending = pending;
+            this.available = available;
+            this.max = max;
+        }
+
+        /**
+         * 目标地址，如 http://123.mns.cn-hangzhou.aliyuncs.com
+         */
+        public String getRoute() {
+            return route;
+        }
+
+        public int getLeased() {
+            return leased;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public int getAvailable() {
+            return available;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return route + "{leased=" + leased + ", pending=" + pending + ", available=" + available
+                + ", max=" + max + "}";
+        }
+    }
+}
@@ -26,31 +26,72 @@ import com.aliyun.mns.common.comm.RetryStrategy;
 import com.aliyun.mns.common.http.HttpFactory.IdleConnectionMonitor;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
-import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * The default implementation of <code>ServiceClient</code>.
  */
 public class DefaultServiceClient extends ServiceClient {
 
+    private static final AtomicInteger CLIENT_SEQUENCE = new AtomicInteger();
+    // MNS 长轮询最长等待 30 秒
+    private static final int MAX_LONG_POLL_WAIT_SECONDS = 30;
+
     boolean clientIsOpen = false;
     private HttpAsyncClient httpClient;
-    private PoolingNHttpClientConnectionManager connManager;
+    private InstrumentedConnectionManager connManager;
+    // 仅在开启长轮询连接池时非空
+    private HttpAsyncClient longPollHttpClient;
+    private InstrumentedConnectionManager longPollConnManager;
+    private RequestConfig longPollRequestConfig;
+    private final String jmxName = "com.aliyun.mns:type=ConnectionPool,name=client-" + CLIENT_SEQUENCE.incrementAndGet();
+    private ObjectName registeredJmxName;
+    private ObjectName registeredLongPollJmxName;
 
     private Integer refCount = 0;
 
     // this constructor in package visible
     DefaultServiceClient(ClientConfiguration config) {
         super(config);
+        createHttpClients();
+        this.ref();
+    }
+
+    private void createHttpClients() {
         connManager = HttpFactory.createConnectionManager(config);
         httpClient = HttpFactory.createHttpAsyncClient(connManager, config);
-        this.ref();
+        if (config.isLongPollPoolEnabled()) {
+            ClientConfiguration longPollConfig = createLongPollConfiguration(config);
+            longPollConnManager = HttpFactory.createConnectionManager(longPollConfig);
+            longPollHttpClient = HttpFactory.createHttpAsyncClient(longPollConnManager, longPollConfig);
+            longPollRequestConfig = HttpFactory.createRequestConfig(longPollConfig);
+        }
+    }
+
+    private static ClientConfiguration createLongPollConfiguration(ClientConfiguration config) {
+        ClientConfiguration longPollConfig;
+        try {
+            longPollConfig = (ClientConfiguration) config.clone();
+        } catch (CloneNotSupportedException ex) {
+            // this should not happen
+            throw new ClientException(ex);
+        }
+        longPollConfig.setMaxConnections(config.getLongPollMaxConnections());
+        longPollConfig.setMaxConnectionsPerRoute(config.getLongPollMaxConnectionsPerRoute());
+        longPollConfig.setSocketTimeout(config.getLongPollSocketTimeout(MAX_LONG_POLL_WAIT_SECONDS));
+        return longPollConfig;
     }
 
     @Override
@@ -65,6 +106,8 @@ public class DefaultServiceClient extends ServiceClient {
         refCount -= 1;
         if (refCount == 0) {
             this.close();
+            closeCallbackDispatcher();
+            closeResponseParser();
         }
         return refCount;
     }
@@ -77,44 +120,123 @@ public class DefaultServiceClient extends ServiceClient {
 
         HttpRequestBase httpRequest = HttpFactory.createHttpRequest(
             request, context);
+        boolean longPoll = longPollHttpClient != null && request.getWaitSeconds() != null;
+        if (longPoll) {
+            httpRequest.setConfig(RequestConfig.copy(longPollRequestConfig)
+                .setSocketTimeout(config.getLongPollSocketTimeout(request.getWaitSeconds())).build());
+        }
 
         //Execute request, make the exception to the standard WebException
         Future<HttpResponse> future = null;
         try {
-            future = httpClient.execute(httpRequest, callback);
+            future = execute(longPoll, httpRequest, callback);
         } catch (IllegalStateException e) {
-            if (!((CloseableHttpAsyncClient) httpClient).isRunning()) {
+            if (!((CloseableHttpAsyncClient) selectHttpClient(longPoll)).isRunning()) {
                 synchronized (this) {
                     //double checked
-                    if (!((CloseableHttpAsyncClient) httpClient).isRunning()) {
+                    if (!((CloseableHttpAsyncClient) selectHttpClient(longPoll)).isRunning()) {
                         //cannot restart previous client by just doing this.open() here,
                         //so, close old client and create a new one,
                         //notice: old client is abandoned to GC.
                         this.close();
-                        connManager = HttpFactory.createConnectionManager(config);
-                        httpClient = HttpFactory.createHttpAsyncClient(connManager, config);
+                        createHttpClients();
                         this.open();
                     }
                 }
             }
 
             //redo the request
-            future = httpClient.execute(httpRequest, callback);
+            future = execute(longPoll, httpRequest, callback);
         }
         return future;
     }
 
+    private <T> Future<HttpResponse> execute(boolean longPoll, HttpRequestBase httpRequest,
+        HttpCallback<T> callback) {
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(callback, callback.getResponseParser(),
+            config.getStreamingResponseThreshold());
+        return selectHttpClient(longPoll).execute(HttpAsyncMethods.create(httpRequest), consumer, consumer.bridge());
+    }
+
+    private HttpAsyncClient selectHttpClient(boolean longPoll) {
+        return longPoll ? longPollHttpClient : httpClient;
+    }
+
     private void open() {
         if (this.httpClient != null
             && this.httpClient instanceof CloseableHttpAsyncClient
             && !clientIsOpen) {
             ((CloseableHttpAsyncClient) httpClient).start();
-            clientIsOpen = true;
             // start a thread to clean idle and expired connection
             IdleConnectionMonitor.getInstance().addConnMgr(connManager);
+            if (longPollHttpClient != null) {
+                ((CloseableHttpAsyncClient) longPollHttpClient).start();
+                IdleConnectionMonitor.getInstance().addConnMgr(longPollConnManager);
+            }
+            clientIsOpen = true;
+            registerMBeans();
+        }
+    }
+
+    private void registerMBeans() {
+        if (!config.isJmxEnabled() || registeredJmxName != null) {
+            return;
+        }
+        registeredJmxName = registerMBean(jmxName, new ConnectionPoolMonitor(false));
+        if (longPollConnManager != null) {
+            registeredLongPollJmxName = registerMBean(jmxName + "-longpoll", new ConnectionPoolMonitor(true));
+        }
+    }
+
+    private ObjectName registerMBean(String name, ConnectionPoolMXBean mBean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mBean, objectName);
+            return objectName;
+        } catch (Exception e) {
+            log.warn("register connection pool MBean failed: " + e.getMessage(), e);
+            return null;
         }
     }
 
+    private void unregisterMBeans() {
+        unregisterMBean(registeredJmxName);
+        unregisterMBean(registeredLongPollJmxName);
+        registeredJmxName = null;
+        registeredLongPollJmxName = null;
+    }
+
+    private void unregisterMBean(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            log.warn("unregister connection pool MBean failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ConnectionPoolStats getConnectionPoolStats() {
+        return connManager.getStats();
+    }
+
+    @Override
+    public ConnectionPoolStats getLongPollConnectionPoolStats() {
+        return longPollConnManager == null ? null : longPollConnManager.getStats();
+    }
+
+    /**
+     * @return 已注册的 JMX 名称，未注册时返回 null
+     */
+    public String getJmxName() {
+        return registeredJmxName == null ? null : registeredJmxName.toString();
+    }
+
     @Override
     public boolean isOpen() {
         return clientIsOpen;
@@ -123,6 +245,14 @@ public class DefaultServiceClient extends ServiceClient {
     @Override
     protected void close() {
         HttpFactory.IdleConnectionMonitor.getInstance().removeConnMgr(connManager);
+        unregisterMBeans();
+        if (longPollHttpClient != null) {
+            HttpFactory.IdleConnectionMonitor.getInstance().removeConnMgr(longPollConnManager);
+            try {
+                ((CloseableHttpAsyncClient) longPollHttpClient).close();
+            } catch (IOException e) { // quietly
+            }
+        }
         if (this.httpClient != null
             && this.httpClient instanceof CloseableHttpAsyncClient) {
             try {
@@ -133,6 +263,99 @@ public class DefaultServiceClient extends ServiceClient {
         }
     }
 
+    private class ConnectionPoolMonitor implements ConnectionPoolMXBean {
+        private final boolean longPoll;
+
+        ConnectionPoolMonitor(boolean longPoll) {
+            this.longPoll = longPoll;
+        }
+
+        // 客户端重建后连接池会被替换，因此每次都取当前的连接池
+        private InstrumentedConnectionManager manager() {
+            return longPoll ? longPollConnManager : connManager;
+        }
+
+        @Override
+        public int getMaxTotal() {
+            return manager().getTotalStats().getMax();
+        }
+
+        @Override
+        public int getLeased() {
+            return manager().getTotalStats().getLeased();
+        }
+
+        @Override
+        public int getPending() {
+            return manager().getTotalStats().getPending();
+        }
+
+        @Override
+        public int getAvailable() {
+            return manager().getTotalStats().getAvailable();
+        }
+
+        @Override
+        public int getLeaseRequestsWaiting() {
+            return manager().getStats().getLeaseRequestsWaiting();
+        }
+
+        @Override
+        public long getLeaseCount() {
+            return manager().getStats().getLeaseCount();
+        }
+
+        @Override
+        public long getLeaseFailureCount() {
+            return manager().getStats().getLeaseFailureCount();
+        }
+
+        @Override
+        public double getLeaseWaitMeanMicros() {
+            return manager().getStats().getLeaseWaitMeanMicros();
+        }
+
+        @Override
+        public long getLeaseWaitP99Micros() {
+            return manager().getStats().getLeaseWaitP99Micros();
+        }
+
+        @Override
+        public long getLeaseWaitMaxMicros() {
+            return manager().getStats().getLeaseWaitMaxMicros();
+        }
+
+        @Override
+        public long getConnectionsCreated() {
+            return manager().getStats().getConnectionsCreated();
+        }
+
+        @Override
+        public long getIdleConnectionsClosed() {
+            return manager().getStats().getIdleConnectionsClosed();
+        }
+
+        @Override
+        public int getIoThreadCount() {
+            return manager().getStats().getIoThreadCount();
+        }
+
+        @Override
+        public long getIoThreadCpuTimeNanos() {
+            return manager().getStats().getIoThreadCpuTimeNanos();
+        }
+
+        @Override
+        public String[] getRouteStats() {
+            List<ConnectionPoolStats.RouteStats> routes = manager().getStats().getRoutes();
+            String[] result = new String[routes.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = routes.get(i).toString();
+            }
+            return result;
+        }
+    }
+
     protected RetryStrategy getDefaultRetryStrategy() {
         return new DefaultRetryStrategy();
     }
@@ -142,20 +365,25 @@ public class DefaultServiceClient extends ServiceClient {
         @Override
         public boolean shouldRetry(Exception ex, RequestMessage request,
             ResponseMessage response, int retries) {
+            // 读超时和 500 时服务端可能已经处理了请求，只有幂等的请求才能重试；连接超时和 503 说明请求没有被处理
             if (ex instanceof ClientException) {
                 String errorCode = ((ClientException) ex).getErrorCode();
-                if (errorCode.equals(ClientErrorCode.CONNECTION_TIMEOUT)
-                    || errorCode.equals(ClientErrorCode.SOCKET_TIMEOUT)) {
+                if (ClientErrorCode.CONNECTION_TIMEOUT.equals(errorCode)) {
                     return true;
                 }
+                if (ClientErrorCode.SOCKET_TIMEOUT.equals(errorCode)) {
+                    return request.isIdempotent();
+                }
             }
 
             if (response != null) {
                 int statusCode = response.getStatusCode();
-                if (statusCode == HttpStatus.SC_INTERNAL_SERVER_ERROR
-                    || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+                if (statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
                     return true;
                 }
+                if (statusCode == HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                    return request.isIdempotent();
+                }
             }
 
             return false;
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.common.http;
+
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.comm.ExecutionContext;
+import com.aliyun.mns.common.metrics.RequestMetrics;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.http.HttpResponse;
+
+/**
+ * 一个对冲请求：先发送原请求，超过 {@link HedgingPolicy} 计算的等待时间仍未完成时再发送一次，
+ * 取先成功的结果并取消另一个；两次都失败时返回后失败的一次。每次尝试各自按重试策略重试。
+ */
+class HedgedRequest<T> implements Future<HttpResponse> {
+    private final ServiceClient client;
+    private final RequestMessage request;
+    private final ExecutionContext context;
+    private final HttpCallback<T> callback;
+    private final HedgingPolicy policy;
+    private final String actionName;
+    private final HttpCallback<T> primary;
+    private final HttpCallback<T> hedge;
+    private long startNanos;
+    private Future<HttpResponse> primaryFuture;
+    private Future<HttpResponse> hedgeFuture;
+    private ScheduledFuture<?> hedgeTimer;
+    private HttpCallback<T> winner;
+    private int pendingAttempts;
+    private boolean hedgeSent = false;
+    private boolean done = false;
+    private boolean cancelled = false;
+
+    HedgedRequest(ServiceClient client, RequestMessage request, ExecutionContext context, HttpCallback<T> callback,
+        HedgingPolicy policy, String actionName) {
+        this.client = client;
+        this.request = request;
+        this.context = context;
+        this.callback = callback;
+        this.policy = policy;
+        this.actionName = actionName;
+        this.primary = callback.newAttempt();
+        this.hedge = callback.newAttempt();
+    }
+
+    Future<HttpResponse> start() throws ClientException, ServiceException {
+        policy.onRequest();
+        startNanos = System.nanoTime();
+        RequestMetrics metrics = callback.getRequestMetrics();
+        if (metrics != null) {
+            metrics.markSent(0);
+        }
+        synchronized (this) {
+            pendingAttempts = 1;
+        }
+        primary.getCompletableFuture().whenComplete((value, error) -> onAttemptCompleted(primary, value, error));
+        // 同步失败直接抛给调用方，与普通请求一致
+        Future<HttpResponse> future = client.sendRequest(request, context, primary);
+        primary.getCompletableFuture().setUpstream(future);
+        synchronized (this) {
+            primaryFuture = future;
+            if (!done) {
+                hedgeTimer = ServiceClient.RequestScheduler.INSTANCE.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        sendHedge();
+                    }
+                }, policy.getHedgeDelayMillis(actionName), TimeUnit.MILLISECONDS);
+            }
+        }
+        return this;
+    }
+
+    private void sendHedge() {
+        synchronized (this) {
+            if (done || cancelled || !policy.tryHedge()) {
+                return;
+            }
+            hedgeSent = true;
+            pendingAttempts++;
+        }
+        RequestMetrics metrics = callback.getRequestMetrics();
+        if (metrics != null) {
+            metrics.markHedged();
+        }
+        hedge.getCompletableFuture().whenComplete((value, error) -> onAttemptCompleted(hedge, value, error));
+        try {
+            Future<HttpResponse> future = client.sendRequest(request, context, hedge);
+            hedge.getCompletableFuture().setUpstream(future);
+            synchronized (this) {
+                hedgeFuture = future;
+            }
+        } catch (Exception ex) {
+            hedge.complete(null, ex);
+        }
+    }
+
+    private void onAttemptCompleted(HttpCallback<T> attempt, T value, Throwable error) {
+        HttpCallback<T> loser;
+        boolean cancelLoser;
+        synchronized (this) {
+            pendingAttempts--;
+            if (done) {
+                return;
+            }
+            if (error != null && pendingAttempts > 0) {
+                // 等待另一次尝试
+                return;
+            }
+            done = true;
+            winner = attempt;
+            loser = attempt == primary ? hedge : primary;
+            cancelLoser = hedgeSent;
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+            }
+        }
+        if (cancelLoser) {
+            loser.getCompletableFuture().cancel(true);
+        }
+        boolean hedgeWon = attempt == hedge;
+        RequestMetrics metrics = callback.getRequestMetrics();
+        if (error == null) {
+            policy.onSuccess(actionName, System.nanoTime() - startNanos, hedgeWon);
+            if (hedgeWon && metrics != null) {
+                metrics.markHedgeWon();
+            }
+        }
+        if (metrics != null && attempt.getRequestMetrics() != null) {
+            metrics.markResponseFrom(attempt.getRequestMetrics());
+        }
+        callback.complete(value, error == null ? null : unwrap(error));
+    }
+
+    private Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CancellationException) {
+            return new ClientException("call is cancelled.", callback.getUserRequestId());
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return new ClientException(cause.toString(), callback.getUserRequestId(), cause);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            cancelled = true;
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+            }
+        }
+        // 两次尝试都结束后以取消结果完成本请求
+        primary.getCompletableFuture().cancel(mayInterruptIfRunning);
+        hedge.getCompletableFuture().cancel(mayInterruptIfRunning);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return callback.getCompletableFuture().isDone();
+    }
+
+    @Override
+    public HttpResponse get() throws InterruptedException, ExecutionException {
+        try {
+            callback.getCompletableFuture().get();
+        } catch (ExecutionException ex) {
+            // 失败时返回原请求的结果
+        }
+        return winnerFuture().get();
+    }
+
+    @Override
+    public HttpResponse get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            callback.getCompletableFuture().get(timeout, unit);
+        } catch (ExecutionException ex) {
+            // 失败时返回原请求的结果
+        }
+        return winnerFuture().get(timeout, unit);
+    }
+
+    private synchronized Future<HttpResponse> winnerFuture() {
+        return winner == hedge && hedgeFuture != null ? hedgeFuture : primaryFuture;
+    }
+}
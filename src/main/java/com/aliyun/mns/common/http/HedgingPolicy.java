@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.common.http;
+
+import com.aliyun.mns.common.comm.RetryBudget;
+import com.aliyun.mns.common.metrics.LatencyHistogram;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求策略：幂等的只读请求（PeekMessage、GetQueueAttributes、ListQueue 等）在等待超过该接口历史延迟的
+ * 指定分位值后，再发送一个相同的请求，取先成功的结果并取消另一个。
+ * <p>
+ * 对冲请求数受令牌桶限制，不超过请求总数的 maxHedgeRatio；每个接口的延迟样本不足 minSamples 时使用 initialDelayMillis。
+ * 收消息会改变消息状态，不会被对冲。通过 {@link ClientConfiguration#setHedgingPolicy(HedgingPolicy)} 开启，
+ * 同一策略可以在多个客户端之间共享。
+ * <pre>
+ * clientConfiguration.setHedgingPolicy(HedgingPolicy.newBuilder().percentile(95).maxHedgeRatio(0.05).build());
+ * </pre>
+ */
+public final class HedgingPolicy {
+    private static final double DEFAULT_PERCENTILE = 95;
+    private static final long DEFAULT_INITIAL_DELAY_MILLIS = 100;
+    private static final long DEFAULT_MIN_DELAY_MILLIS = 5;
+    private static final int DEFAULT_MIN_SAMPLES = 100;
+    private static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+    private static final int DEFAULT_MAX_BURST = 10;
+
+    private final double percentile;
+    private final long initialDelayMillis;
+    private final long minDelayMillis;
+    private final int minSamples;
+    private final double maxHedgeRatio;
+    private final RetryBudget budget;
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    private final LongAdder hedgeRejectedCount = new LongAdder();
+
+    private HedgingPolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.initialDelayMillis = builder.initialDelayMillis;
+        this.minDelayMillis = builder.minDelayMillis;
+        this.minSamples = builder.minSamples;
+        this.maxHedgeRatio = builder.maxHedgeRatio;
+        this.budget = new RetryBudget(builder.maxBurst, builder.maxHedgeRatio);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return 该接口发送对冲请求前等待的时间
+     */
+    long getHedgeDelayMillis(String actionName) {
+        LatencyHistogram histogram = latencies.get(actionName);
+        if (histogram == null || histogram.getCount() < minSamples) {
+            return initialDelayMillis;
+        }
+        long delay = TimeUnit.MICROSECONDS.toMillis(histogram.getValueAtPercentile(percentile));
+        return Math.max(minDelayMillis, delay);
+    }
+
+    void onRequest() {
+        requestCount.increment();
+        budget.deposit();
+    }
+
+    /**
+     * @return 对冲预算不足时返回 false
+     */
+    boolean tryHedge() {
+        if (!budget.tryWithdraw()) {
+            hedgeRejectedCount.increment();
+            return false;
+        }
+        hedgeCount.increment();
+        return true;
+    }
+
+    /**
+     * 记录成功请求的延迟，hedgeWon 表示结果来自对冲请求
+     */
+    void onSuccess(String actionName, long latencyNanos, boolean hedgeWon) {
+        LatencyHistogram histogram = latencies.get(actionName);
+        if (histogram == null) {
+            histogram = latencies.computeIfAbsent(actionName, k -> new LatencyHistogram());
+        }
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        if (hedgeWon) {
+            hedgeWinCount.increment();
+        }
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    /**
+     * 参与对冲的请求数
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * 发出的对冲请求数
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * 对冲请求先于原请求成功的次数
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /**
+     * 因超过对冲比例而没有发出的对冲请求数
+     */
+    public long getHedgeRejectedCount() {
+        return hedgeRejectedCount.sum();
+    }
+
+    /**
+     * @return 对冲请求的胜率，没有对冲请求时为 0
+     */
+    public double getHedgeWinRate() {
+        long hedges = hedgeCount.sum();
+        return hedges == 0 ? 0 : (double) hedgeWinCount.sum() / hedges;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy{requests=" + getRequestCount() + ", hedges=" + getHedgeCount() + ", hedgeWins="
+            + getHedgeWinCount() + ", hedgeRejected=" + getHedgeRejectedCount() + "}";
+    }
+
+    public static final class Builder {
+        private double percentile = DEFAULT_PERCENTILE;
+        private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+        private long minDelayMillis = DEFAULT_MIN_DELAY_MILLIS;
+        private int minSamples = DEFAULT_MIN_SAMPLES;
+        private double maxHedgeRatio = DEFAULT_MAX_HEDGE_RATIO;
+        private int maxBurst = DEFAULT_MAX_BURST;
+
+        private Builder() {
+        }
+
+        /**
+         * 按接口历史延迟的哪个分位值决定何时发送对冲请求，默认 95
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile should be in (0, 100]");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * 延迟样本不足时的对冲等待时间，默认 100ms
+         */
+        public Builder initialDelayMillis(long initialDelayMillis) {
+            if (initialDelayMillis < 0) {
+                throw new IllegalArgumentException("initialDelayMillis should not be negative");
+            }
+            this.initialDelayMillis = initialDelayMillis;
+            return this;
+        }
+
+        /**
+         * 对冲等待时间的下限，默认 5ms
+         */
+        public Builder minDelayMillis(long minDelayMillis) {
+            if (minDelayMillis < 0) {
+                throw new IllegalArgumentException("minDelayMillis should not be negative");
+            }
+            this.minDelayMillis = minDelayMillis;
+            return this;
+        }
+
+        /**
+         * 按分位值计算等待时间前至少需要的样本数，默认 100
+         */
+        public Builder minSamples(int minSamples) {
+            if (minSamples < 0) {
+                throw new IllegalArgumentException("minSamples should not be negative");
+            }
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * 对冲请求占请求总数的最大比例，默认 0.05
+         */
+        public Builder maxHedgeRatio(double maxHedgeRatio) {
+            if (maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+                throw new IllegalArgumentException("maxHedgeRatio should be in [0, 1]");
+            }
+            this.maxHedgeRatio = maxHedgeRatio;
+            return this;
+        }
+
+        /**
+         * 允许连续发送的对冲请求数，即令牌桶容量，默认 10
+         */
+        public Builder maxBurst(int maxBurst) {
+            if (maxBurst < 0) {
+                throw new IllegalArgumentException("maxBurst should not be negative");
+            }
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            return new HedgingPolicy(this);
+        }
+    }
+}
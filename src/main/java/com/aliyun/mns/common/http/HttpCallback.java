@@ -21,13 +21,19 @@ package com.aliyun.mns.common.http;
 
 import com.aliyun.mns.client.AsyncCallback;
 import com.aliyun.mns.client.AsyncResult;
+import com.aliyun.mns.common.ClientErrorCode;
 import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.metrics.RequestMetrics;
+import com.aliyun.mns.common.metrics.RequestMetricsListener;
 import com.aliyun.mns.common.parser.ResultParser;
 import com.aliyun.mns.common.utils.HttpUtil;
 import com.aliyun.mns.common.utils.IOUtils;
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -38,10 +44,34 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class HttpCallback<T> implements FutureCallback<HttpResponse> {
+
+    /**
+     * 请求失败时决定是否重试
+     */
+    public interface RetryHandler {
+        /**
+         * @param ex       失败原因，超时会转换为带错误码的 {@link ClientException}
+         * @param response 服务端返回的错误响应，传输层失败时为 null
+         * @return true 表示已安排重试，本次失败不再通知调用方
+         */
+        boolean retry(Exception ex, ResponseMessage response);
+    }
+
+    /**
+     * 请求结束时、结果交给调用方之前的通知
+     */
+    interface CompletionListener {
+        /**
+         * @param error 失败原因，成功时为 null
+         */
+        void onComplete(Exception error);
+    }
+
     private static Logger log = LoggerFactory.getLogger(HttpCallback.class);
     private boolean success = false;
     private Exception exception = null;
@@ -50,9 +80,22 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
     private ResultParser<T> resultParser;
     private AsyncCallback<T> callback;
     private DefaultAsyncResult<T> result;
+    private final CancellableFuture<T> future = new CancellableFuture<T>();
     private ResultParser<Exception> exceptionParser;
     private String userRequestId = null;
+    private volatile RequestMetrics metrics;
+    private volatile RetryHandler retryHandler;
+    private volatile CompletionListener completionListener;
+    private volatile CallbackDispatcher callbackDispatcher;
+    private volatile String callbackKey;
+    private volatile Executor responseParser;
+    private volatile StreamingResponseConsumer streamingConsumer;
     private static ExecutorService executor;
+    private static final RequestMetricsListener ATTEMPT_METRICS_LISTENER = new RequestMetricsListener() {
+        @Override
+        public void onRequestCompleted(RequestMetrics metrics) {
+        }
+    };
 
     static {
         executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
@@ -75,26 +118,130 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
         this.userRequestId = userRequestId;
     }
 
+    private void dispatch(Runnable task) {
+        CallbackDispatcher dispatcher = callbackDispatcher;
+        if (dispatcher != null) {
+            dispatcher.dispatch(callbackKey, task);
+        } else {
+            executor.submit(task);
+        }
+    }
+
     private void executeCallback(final AsyncCallback<T> callback, final T result) {
-        executor.submit(new Runnable() {
+        dispatch(new Runnable() {
             @Override
             public void run() {
-                callback.onSuccess(result);
+                try {
+                    callback.onSuccess(result);
+                } finally {
+                    // 回调返回后才算请求结束，度量包含调用方回调的耗时
+                    markCompleted(null);
+                }
             }
         });
     }
 
     private void executeCallback(final AsyncCallback<T> callback, final Exception ex) {
-        executor.submit(new Runnable() {
+        dispatch(new Runnable() {
             @Override
             public void run() {
-                callback.onFail(ex);
+                try {
+                    callback.onFail(ex);
+                } finally {
+                    markCompleted(ex);
+                }
             }
         });
     }
 
+    private void markCompleted(Exception ex) {
+        if (metrics != null) {
+            metrics.markCompleted(ex);
+        }
+    }
+
+    private void onSuccess(T obj) {
+        // 有 AsyncCallback 时在回调返回后记录；否则先记录度量，保证调用方拿到结果时本次请求已被统计
+        if (callback == null) {
+            markCompleted(null);
+        }
+        notifyCompletion(null);
+        result.onSuccess(obj);
+        future.complete(obj);
+    }
+
+    private void notifyCompletion(Exception ex) {
+        CompletionListener listener = completionListener;
+        if (listener != null) {
+            try {
+                listener.onComplete(ex);
+            } catch (Exception e) {
+                log.warn("completion listener failed, userRequestId: " + userRequestId, e);
+            }
+        }
+    }
+
+    private void onFail(Exception ex) {
+        if (callback == null) {
+            markCompleted(ex);
+        }
+        notifyCompletion(ex);
+        result.onFail(ex);
+        if (ex instanceof ClientException || ex instanceof ServiceException) {
+            future.completeExceptionally(ex);
+        } else {
+            // 与同步调用保持一致，其他异常统一包装为 ClientException
+            future.completeExceptionally(new ClientException(ex.toString(), userRequestId, ex));
+        }
+    }
+
     @Override
-    public void completed(HttpResponse response) {
+    public void completed(final HttpResponse response) {
+        Executor parser = responseParser;
+        if (parser == null) {
+            parseResponse(response);
+            return;
+        }
+        // 响应体已被完整读入内存，解析交给解析线程，I/O 线程只负责读写
+        parser.execute(new Runnable() {
+            @Override
+            public void run() {
+                parseResponse(response);
+            }
+        });
+    }
+
+    /**
+     * 在解析线程中解析边接收边读取的响应，见 {@link StreamingResponseConsumer}
+     */
+    void parseStreamingResponse(HttpResponse response, StreamingResponseConsumer consumer) {
+        this.streamingConsumer = consumer;
+        parseResponse(response);
+    }
+
+    /**
+     * 边接收边解析时传输失败或被取消，解析只会读到被截断的响应体，此时按传输层的原因结束请求，
+     * 以便超时仍能重试、取消仍按取消通知，而不是报告为解析错误
+     *
+     * @return true 表示已经按传输层的原因处理
+     */
+    private boolean finishAbortedStreaming() {
+        StreamingResponseConsumer consumer = streamingConsumer;
+        if (consumer == null || !consumer.isAborted()) {
+            return false;
+        }
+        streamingConsumer = null;
+        close();
+        Exception cause = consumer.getAbortCause();
+        if (cause != null) {
+            failed(cause);
+        } else {
+            cancelled();
+        }
+        return true;
+    }
+
+    private void parseResponse(HttpResponse response) {
         try {
             buildResponseMessage(response);
         } catch (Exception ex) {
@@ -102,7 +249,7 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
             if (callback != null) {
                 executeCallback(callback, ex);
             }
-            result.onFail(ex);
+            onFail(ex);
             log.error("onFail finish when exception in completed");
         }
     }
@@ -135,6 +282,10 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
         HttpUtil.convertHeaderCharsetFromIso88591(resultHeaders);
         responseMessage.setHeaders(resultHeaders);
 
+        if (metrics != null) {
+            metrics.markResponseReceived(responseMessage.getStatusCode(),
+                response.getEntity() != null ? response.getEntity().getContentLength() : 0);
+        }
         handleResult();
     }
 
@@ -155,50 +306,119 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
                 if (resultParser != null) {
                     obj = this.resultParser.parse(responseMessage);
                 }
+                if (metrics != null) {
+                    metrics.markParsed();
+                }
                 if (callback != null) {
                     executeCallback(callback, obj);
                 }
 
-                result.onSuccess(obj);
                 this.success = true;
+                onSuccess(obj);
             } else {
                 Exception obj = exceptionParser.parse(responseMessage);
+                if (retryHandler != null && retryHandler.retry(obj, responseMessage)) {
+                    close();
+                    return;
+                }
+                if (metrics != null) {
+                    metrics.markParsed();
+                }
                 if (callback != null) {
                     executeCallback(callback, obj);
                 }
 
-                result.onFail(obj);
+                onFail(obj);
 
             }
         } catch (Exception ex) {
-            try {
-                System.out.println(IOUtils.readStreamAsString(responseMessage.getContent(), "UTF-8"));
-            } catch (Exception e) {
+            if (finishAbortedStreaming()) {
+                return;
+            }
+            log.warn("failed to parse response, statusCode: " + responseMessage.getStatusCode()
+                + ", userRequestId: " + userRequestId + ", error: " + ex.getMessage());
+            if (log.isDebugEnabled()) {
+                try {
+                    log.debug("unparsable response content: "
+                        + IOUtils.readStreamAsString(responseMessage.getContent(), "UTF-8"));
+                } catch (Exception e) {
+                    // content may already be consumed by the parser
+                }
             }
             if (callback != null) {
                 executeCallback(callback, ex);
             }
-            result.onFail(ex);
+            onFail(ex);
         }
 
     }
 
     @Override
     public void failed(Exception ex) {
+        if (retryHandler != null && retryHandler.retry(toRetryException(ex), null)) {
+            return;
+        }
         this.exception = ex;
         try {
             if (callback != null) {
                 executeCallback(callback, ex);
             }
-            result.onFail(ex);
+            onFail(ex);
         } catch (Exception e) {
             if (callback != null) {
                 executeCallback(callback, ex);
             }
-            result.onFail(e);
+            onFail(e);
+        }
+    }
+
+    /**
+     * 创建一个解析方式相同、但不通知调用方的回调，用于对冲请求的每次尝试。
+     * 尝试的度量数据只记录各阶段时间，不通知监听器，胜出的一次由 {@link HedgedRequest} 转给本请求。
+     */
+    HttpCallback<T> newAttempt() {
+        HttpCallback<T> attempt = new HttpCallback<T>(resultParser, exceptionParser, null, userRequestId);
+        attempt.responseParser = responseParser;
+        RequestMetrics requestMetrics = metrics;
+        if (requestMetrics != null) {
+            attempt.metrics = new RequestMetrics(ATTEMPT_METRICS_LISTENER, requestMetrics.getActionName(),
+                requestMetrics.getResourceName(), userRequestId, requestMetrics.getStartNanos());
+        }
+        return attempt;
+    }
+
+    /**
+     * 以某次尝试的结果结束本请求
+     *
+     * @param value 成功结果
+     * @param error 失败原因，成功时为 null
+     */
+    void complete(T value, Exception error) {
+        if (error == null) {
+            if (callback != null) {
+                executeCallback(callback, value);
+            }
+            this.success = true;
+            onSuccess(value);
+        } else {
+            this.exception = error;
+            if (callback != null) {
+                executeCallback(callback, error);
+            }
+            onFail(error);
         }
     }
 
+    private Exception toRetryException(Exception ex) {
+        if (ex instanceof ConnectTimeoutException) {
+            return new ClientException(ClientErrorCode.CONNECTION_TIMEOUT, ex.getMessage(), userRequestId, ex);
+        }
+        if (ex instanceof SocketTimeoutException) {
+            return new ClientException(ClientErrorCode.SOCKET_TIMEOUT, ex.getMessage(), userRequestId, ex);
+        }
+        return ex;
+    }
+
     @Override
     public void cancelled() {
         this.cancalled = true;
@@ -207,12 +427,12 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
             if (callback != null) {
                 executeCallback(callback, exception);
             }
-            result.onFail(exception);
+            onFail(exception);
         } catch (Exception e) {
             if (callback != null) {
                 executeCallback(callback, e);
             }
-            result.onFail(e);
+            onFail(e);
         }
     }
 
@@ -220,6 +440,60 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
         return userRequestId;
     }
 
+    /**
+     * @return 最后一次收到的响应的状态码，没有收到响应时为 0
+     */
+    int getResponseStatusCode() {
+        ResponseMessage response = responseMessage;
+        return response == null ? 0 : response.getStatusCode();
+    }
+
+    public RequestMetrics getRequestMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置本次请求的度量数据，需在发送前调用
+     */
+    public void setRequestMetrics(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 设置重试处理，需在发送前调用
+     */
+    public void setRetryHandler(RetryHandler retryHandler) {
+        this.retryHandler = retryHandler;
+    }
+
+    /**
+     * 设置请求结束时的通知，需在发送前调用
+     */
+    void setCompletionListener(CompletionListener completionListener) {
+        this.completionListener = completionListener;
+    }
+
+    /**
+     * 设置本客户端的回调执行器，需在发送前调用
+     *
+     * @param key 分片依据，通常是队列/主题名
+     */
+    void setCallbackDispatcher(CallbackDispatcher callbackDispatcher, String key) {
+        this.callbackDispatcher = callbackDispatcher;
+        this.callbackKey = key;
+    }
+
+    /**
+     * 设置解析响应的线程池，为 null 时在 I/O 线程中解析，需在发送前调用
+     */
+    void setResponseParser(Executor responseParser) {
+        this.responseParser = responseParser;
+    }
+
+    Executor getResponseParser() {
+        return responseParser;
+    }
+
     public boolean isCancelled() {
         return cancalled;
     }
@@ -240,6 +514,13 @@ public class HttpCallback<T> implements FutureCallback<HttpResponse> {
         return this.result;
     }
 
+    /**
+     * 与 {@link #getAsyncResult()} 同时完成的 CompletableFuture，取消它会取消底层 HTTP 请求
+     */
+    public CancellableFuture<T> getCompletableFuture() {
+        return this.future;
+    }
+
     static class DefaultAsyncResult<T> implements AsyncResult<T> {
         private ReentrantLock rlock = new ReentrantLock();
         private Condition lock = rlock.newCondition();
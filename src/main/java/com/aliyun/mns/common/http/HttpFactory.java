@@ -21,6 +21,9 @@ package com.aliyun.mns.common.http;
 
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
+import com.aliyun.mns.common.MNSConstants;
+import com.aliyun.mns.common.comm.ByteBufferContent;
+import com.aliyun.mns.common.comm.ByteBufferEntity;
 import com.aliyun.mns.common.comm.ExecutionContext;
 import com.aliyun.mns.common.comm.RepeatableInputStreamEntity;
 import com.aliyun.mns.common.utils.HttpHeaders;
@@ -34,6 +37,8 @@ import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.NTCredentials;
@@ -55,6 +60,7 @@ import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.nio.conn.NHttpClientConnectionManager;
 import org.apache.http.nio.reactor.IOReactorException;
 import org.apache.http.conn.DnsResolver;
@@ -70,6 +76,12 @@ public class HttpFactory {
 
     public static Logger logger = LoggerFactory.getLogger(HttpFactory.class);
 
+    // 请求头的 key 在 RequestMessage 中统一为小写，这里保持一致
+    private static final Header API_VERSION_HEADER = new BasicHeader(
+        MNSConstants.X_HEADER_MNS_API_VERSION.toLowerCase(), MNSConstants.X_HEADER_MNS_API_VERSION_VALUE);
+    private static final Header CONTENT_TYPE_HEADER = new BasicHeader(
+        MNSConstants.CONTENT_TYPE.toLowerCase(), MNSConstants.DEFAULT_CONTENT_TYPE);
+
     private static SSLConnectionSocketFactory getSSLSocketFactory() {
         TrustManager[] trustAllCerts = new TrustManager[] {
             new X509TrustManager() {
@@ -100,12 +112,12 @@ public class HttpFactory {
     }
 
     /**
-     * Create a PoolingNHttpClientConnectionManager instance
+     * Create a PoolingNHttpClientConnectionManager instance with pool statistics
      *
      * @param config Client configuration
      * @return manager
      */
-    public static PoolingNHttpClientConnectionManager createConnectionManager(ClientConfiguration config) {
+    public static InstrumentedConnectionManager createConnectionManager(ClientConfiguration config) {
         // Set HTTP params.
         // Create I/O reactor configuration
         IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
@@ -116,8 +128,9 @@ public class HttpFactory {
 
         // Create a custom I/O reactort
         DefaultConnectingIOReactor ioReactor;
+        InstrumentedConnectionManager.IoThreadFactory ioThreadFactory = new InstrumentedConnectionManager.IoThreadFactory();
         try {
-            ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
+            ioReactor = new DefaultConnectingIOReactor(ioReactorConfig, ioThreadFactory);
             ioReactor.setExceptionHandler(new IOReactorExceptionHandler() {
                 @Override
                 public boolean handle(IOException ex) {
@@ -135,8 +148,7 @@ public class HttpFactory {
             throw new RuntimeException(e);
         }
 
-        PoolingNHttpClientConnectionManager connManager = new PoolingNHttpClientConnectionManager(
-            ioReactor);
+        InstrumentedConnectionManager connManager = new InstrumentedConnectionManager(ioReactor, ioThreadFactory);
         connManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
         connManager.setMaxTotal(config.getMaxConnections());
 
@@ -185,7 +197,26 @@ public class HttpFactory {
             }
         }
 
-        RequestConfig defaultRequestConfig = RequestConfig
+        RequestConfig defaultRequestConfig = createRequestConfig(config);
+
+        httpClientBuilder.setDefaultRequestConfig(defaultRequestConfig);
+        httpClientBuilder
+            .setMaxConnPerRoute(config.getMaxConnectionsPerRoute());
+        httpClientBuilder.setMaxConnTotal(config.getMaxConnections());
+        httpClientBuilder.setUserAgent(VersionInfoUtils.getDefaultUserAgent());
+        CloseableHttpAsyncClient httpclient = httpClientBuilder.build();
+
+        return httpclient;
+    }
+
+    /**
+     * Creates the default request config of a client.
+     *
+     * @param config Client configuration.
+     * @return request config
+     */
+    public static RequestConfig createRequestConfig(ClientConfiguration config) {
+        return RequestConfig
             .custom()
             .setCookieSpec(CookieSpecs.BEST_MATCH)
             .setExpectContinueEnabled(true)
@@ -196,15 +227,6 @@ public class HttpFactory {
             .setConnectTimeout(config.getConnectionTimeout())
             .setSocketTimeout(config.getSocketTimeout())
             .setExpectContinueEnabled(config.isExceptContinue()).build();
-
-        httpClientBuilder.setDefaultRequestConfig(defaultRequestConfig);
-        httpClientBuilder
-            .setMaxConnPerRoute(config.getMaxConnectionsPerRoute());
-        httpClientBuilder.setMaxConnTotal(config.getMaxConnections());
-        httpClientBuilder.setUserAgent(VersionInfoUtils.getDefaultUserAgent());
-        CloseableHttpAsyncClient httpclient = httpClientBuilder.build();
-
-        return httpclient;
     }
 
     /**
@@ -225,7 +247,7 @@ public class HttpFactory {
             HttpPost postMethod = new HttpPost(uri);
 
             if (request.getContent() != null) {
-                postMethod.setEntity(new RepeatableInputStreamEntity(request));
+                postMethod.setEntity(createEntity(request));
             }
 
             httpRequest = postMethod;
@@ -234,7 +256,7 @@ public class HttpFactory {
             HttpPut putMethod = new HttpPut(uri);
 
             if (request.getContent() != null) {
-                putMethod.setEntity(new RepeatableInputStreamEntity(request));
+                putMethod.setEntity(createEntity(request));
             }
 
             httpRequest = putMethod;
@@ -247,7 +269,7 @@ public class HttpFactory {
             // support body in Delete
             MNSHttpDelete deleteMethod = new MNSHttpDelete(uri);
             if (request.getContent() != null) {
-                deleteMethod.setEntity(new RepeatableInputStreamEntity(request));
+                deleteMethod.setEntity(createEntity(request));
             }
             httpRequest = deleteMethod;
         } else if (method == HttpMethod.HEAD) {
@@ -266,6 +288,14 @@ public class HttpFactory {
         return httpRequest;
     }
 
+    private static HttpEntity createEntity(ServiceClient.Request request) {
+        if (request.getContent() instanceof ByteBufferContent) {
+            return new ByteBufferEntity((ByteBufferContent) request.getContent(),
+                request.getHeaders().get(HttpHeaders.CONTENT_TYPE));
+        }
+        return new RepeatableInputStreamEntity(request);
+    }
+
     private static void configureRequestHeaders(ServiceClient.Request request,
         ExecutionContext context, HttpRequestBase httpRequest) {
         // Copy headers in the request message to the HTTP request
@@ -278,7 +308,12 @@ public class HttpFactory {
                 continue;
             }
 
-            httpRequest.addHeader(entry.getKey(), entry.getValue());
+            Header constant = constantHeader(entry.getKey(), entry.getValue());
+            if (constant != null) {
+                httpRequest.addHeader(constant);
+            } else {
+                httpRequest.addHeader(entry.getKey(), entry.getValue());
+            }
         }
 
         // Set content type and encoding
@@ -290,6 +325,19 @@ public class HttpFactory {
         // }
     }
 
+    /**
+     * 每个请求都带的固定请求头直接复用不可变的 Header 实例
+     */
+    private static Header constantHeader(String name, String value) {
+        if (API_VERSION_HEADER.getName().equalsIgnoreCase(name) && API_VERSION_HEADER.getValue().equals(value)) {
+            return API_VERSION_HEADER;
+        }
+        if (CONTENT_TYPE_HEADER.getName().equalsIgnoreCase(name) && CONTENT_TYPE_HEADER.getValue().equals(value)) {
+            return CONTENT_TYPE_HEADER;
+        }
+        return null;
+    }
+
     public static class IdleConnectionMonitor extends Thread {
         private static final IdleConnectionMonitor instance = new IdleConnectionMonitor();
         private final List<NHttpClientConnectionManager> connMgrs = new ArrayList<NHttpClientConnectionManager>();
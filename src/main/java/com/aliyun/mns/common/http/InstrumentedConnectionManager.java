@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.http;
+
+import com.aliyun.mns.common.metrics.LatencyHistogram;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.channels.ByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.conn.ManagedNHttpClientConnection;
+import org.apache.http.nio.conn.NHttpConnectionFactory;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.SessionBufferStatus;
+import org.apache.http.nio.reactor.SocketAccessor;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * 带统计的连接池：在 {@link PoolingNHttpClientConnectionManager} 之上记录连接租用等待时间、租用失败次数、
+ * 排队等待连接的请求数、新建连接数和被空闲清理关闭的连接数，并跟踪 I/O reactor 线程的 CPU 时间。
+ */
+public class InstrumentedConnectionManager extends PoolingNHttpClientConnectionManager {
+
+    private final ConnectingIOReactor ioReactor;
+    private final IoThreadFactory ioThreadFactory;
+    private final LatencyHistogram leaseWaitMicros = new LatencyHistogram();
+    private final LongAdder leaseFailureCount = new LongAdder();
+    private final AtomicInteger leaseRequestsWaiting = new AtomicInteger();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    private final SweepTracker sweepTracker;
+
+    public InstrumentedConnectionManager(ConnectingIOReactor ioReactor, IoThreadFactory ioThreadFactory) {
+        this(ioReactor, ioThreadFactory, new SweepTracker());
+    }
+
+    private InstrumentedConnectionManager(ConnectingIOReactor ioReactor, IoThreadFactory ioThreadFactory,
+        SweepTracker sweepTracker) {
+        super(ioReactor, new TrackingConnectionFactory(sweepTracker));
+        this.ioReactor = ioReactor;
+        this.ioThreadFactory = ioThreadFactory;
+        this.sweepTracker = sweepTracker;
+    }
+
+    @Override
+    public Future<NHttpClientConnection> requestConnection(HttpRoute route, Object state, long connectTimeout,
+        long leaseTimeout, TimeUnit tunit, final FutureCallback<NHttpClientConnection> callback) {
+        final long startNanos = System.nanoTime();
+        leaseRequestsWaiting.incrementAndGet();
+        return super.requestConnection(route, state, connectTimeout, leaseTimeout, tunit,
+            new FutureCallback<NHttpClientConnection>() {
+                @Override
+                public void completed(NHttpClientConnection result) {
+                    leaseRequestsWaiting.decrementAndGet();
+                    leaseWaitMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+                    if (callback != null) {
+                        callback.completed(result);
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    leaseRequestsWaiting.decrementAndGet();
+                    leaseFailureCount.increment();
+                    if (callback != null) {
+                        callback.failed(ex);
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    leaseRequestsWaiting.decrementAndGet();
+                    leaseFailureCount.increment();
+                    if (callback != null) {
+                        callback.cancelled();
+                    }
+                }
+            });
+    }
+
+    @Override
+    public void startRoute(NHttpClientConnection managedConn, HttpRoute route, HttpContext context)
+        throws IOException {
+        // 只有新建的连接才需要建立路由
+        connectionsCreated.increment();
+        super.startRoute(managedConn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idleTimeout, TimeUnit tunit) {
+        sweepTracker.sweeping.set(Boolean.TRUE);
+        try {
+            super.closeIdleConnections(idleTimeout, tunit);
+        } finally {
+            sweepTracker.sweeping.remove();
+        }
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        sweepTracker.sweeping.set(Boolean.TRUE);
+        try {
+            super.closeExpiredConnections();
+        } finally {
+            sweepTracker.sweeping.remove();
+        }
+    }
+
+    /**
+     * @return 当前连接池统计快照
+     */
+    public ConnectionPoolStats getStats() {
+        PoolStats total = getTotalStats();
+        List<ConnectionPoolStats.RouteStats> routes = new ArrayList<ConnectionPoolStats.RouteStats>();
+        for (HttpRoute route : getRoutes()) {
+            PoolStats stats = getStats(route);
+            routes.add(new ConnectionPoolStats.RouteStats(route.getTargetHost().toURI(), stats.getLeased(),
+                stats.getPending(), stats.getAvailable(), stats.getMax()));
+        }
+        return new ConnectionPoolStats(total.getMax(), total.getLeased(), total.getPending(), total.getAvailable(),
+            leaseRequestsWaiting.get(), routes, leaseWaitMicros.getCount(), leaseFailureCount.sum(),
+            leaseWaitMicros.getMean(), leaseWaitMicros.getValueAtPercentile(99), leaseWaitMicros.getMax(),
+            connectionsCreated.sum(), sweepTracker.closed.sum(), String.valueOf(ioReactor.getStatus()),
+            ioThreadFactory.getThreadCount(), ioThreadFactory.getCpuTimeNanos());
+    }
+
+    /**
+     * 空闲/过期清理的状态：清理在调用线程上同步关闭选中的连接，期间该线程关闭的会话都计入 closed
+     */
+    private static final class SweepTracker {
+        private final ThreadLocal<Boolean> sweeping = new ThreadLocal<Boolean>();
+        private final LongAdder closed = new LongAdder();
+
+        private boolean isSweeping() {
+            return sweeping.get() != null;
+        }
+    }
+
+    /**
+     * 用 {@link SweepTrackingSession} 包装 I/O 会话后再创建连接。
+     * reactor 派发事件时使用的仍是原始会话和默认的连接实现，只有连接自身对会话的调用经过包装。
+     */
+    private static final class TrackingConnectionFactory
+        implements NHttpConnectionFactory<ManagedNHttpClientConnection> {
+        private final SweepTracker tracker;
+
+        private TrackingConnectionFactory(SweepTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        @Override
+        public ManagedNHttpClientConnection create(IOSession iosession, ConnectionConfig config) {
+            return ManagedNHttpClientConnectionFactory.INSTANCE.create(
+                new SweepTrackingSession(iosession, tracker), config);
+        }
+    }
+
+    /**
+     * 统计清理线程关闭的会话。
+     * HTTP 连接在清理线程上直接 close/shutdown；HTTPS 连接的 SSLIOSession 在清理线程上先读写会话超时，
+     * 再由 I/O 线程发送 close_notify 后关闭，因此这两个调用也按关闭计数。每个会话最多计数一次。
+     */
+    private static final class SweepTrackingSession implements IOSession, SocketAccessor {
+        private final IOSession session;
+        private final SweepTracker tracker;
+        private final AtomicBoolean counted = new AtomicBoolean();
+
+        private SweepTrackingSession(IOSession session, SweepTracker tracker) {
+            this.session = session;
+            this.tracker = tracker;
+        }
+
+        private void recordSweep() {
+            if (tracker.isSweeping() && !session.isClosed() && counted.compareAndSet(false, true)) {
+                tracker.closed.increment();
+            }
+        }
+
+        @Override
+        public void close() {
+            recordSweep();
+            session.close();
+        }
+
+        @Override
+        public void shutdown() {
+            recordSweep();
+            session.shutdown();
+        }
+
+        @Override
+        public int getSocketTimeout() {
+            recordSweep();
+            return session.getSocketTimeout();
+        }
+
+        @Override
+        public void setSocketTimeout(int timeout) {
+            recordSweep();
+            session.setSocketTimeout(timeout);
+        }
+
+        @Override
+        public ByteChannel channel() {
+            return session.channel();
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return session.getRemoteAddress();
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return session.getLocalAddress();
+        }
+
+        @Override
+        public int getEventMask() {
+            return session.getEventMask();
+        }
+
+        @Override
+        public void setEventMask(int ops) {
+            session.setEventMask(ops);
+        }
+
+        @Override
+        public void setEvent(int op) {
+            session.setEvent(op);
+        }
+
+        @Override
+        public void clearEvent(int op) {
+            session.clearEvent(op);
+        }
+
+        @Override
+        public int getStatus() {
+            return session.getStatus();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return session.isClosed();
+        }
+
+        @Override
+        public void setBufferStatus(SessionBufferStatus status) {
+            session.setBufferStatus(status);
+        }
+
+        @Override
+        public boolean hasBufferedInput() {
+            return session.hasBufferedInput();
+        }
+
+        @Override
+        public boolean hasBufferedOutput() {
+            return session.hasBufferedOutput();
+        }
+
+        @Override
+        public void setAttribute(String name, Object obj) {
+            session.setAttribute(name, obj);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return session.getAttribute(name);
+        }
+
+        @Override
+        public Object removeAttribute(String name) {
+            return session.removeAttribute(name);
+        }
+
+        @Override
+        public Socket getSocket() {
+            return session instanceof SocketAccessor ? ((SocketAccessor) session).getSocket() : null;
+        }
+
+        @Override
+        public String toString() {
+            return session.toString();
+        }
+    }
+
+    /**
+     * 记录创建的 I/O dispatcher 线程，用于统计 reactor 线程 CPU 时间
+     */
+    public static final class IoThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+        private final String prefix = "mns-io-dispatcher-" + POOL_SEQUENCE.incrementAndGet() + "-";
+        private final AtomicInteger threadSequence = new AtomicInteger();
+        private final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + threadSequence.incrementAndGet());
+            threads.add(thread);
+            return thread;
+        }
+
+        int getThreadCount() {
+            int alive = 0;
+            for (Thread thread : threads) {
+                if (thread.isAlive()) {
+                    alive++;
+                }
+            }
+            return alive;
+        }
+
+        /**
+         * @return 存活 I/O 线程累计的 CPU 时间，JVM 不支持时返回 -1
+         */
+        long getCpuTimeNanos() {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (!threadMXBean.isThreadCpuTimeSupported() || !threadMXBean.isThreadCpuTimeEnabled()) {
+                return -1;
+            }
+            long total = 0;
+            for (Thread thread : threads) {
+                long cpuTime = threadMXBean.getThreadCpuTime(thread.getId());
+                if (cpuTime > 0) {
+                    total += cpuTime;
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -38,6 +38,8 @@ public class RequestMessage extends HttpMesssage {
     private String resourcePath;
     private final Date requestDateTime;
     private Map<String, String> parameters = new HashMap<String, String>();
+    private Integer waitSeconds;
+    private boolean idempotent = true;
 
     /**
      * 构造函数。
@@ -124,6 +126,39 @@ public class RequestMessage extends HttpMesssage {
         this.parameters.remove(key);
     }
 
+    /**
+     * @return 长轮询等待秒数，非长轮询请求为 null
+     */
+    public Integer getWaitSeconds() {
+        return waitSeconds;
+    }
+
+    /**
+     * 标记为长轮询请求，开启长轮询连接池时会走独立的连接池和超时。
+     *
+     * @param waitSeconds 长轮询等待秒数
+     */
+    public void setWaitSeconds(Integer waitSeconds) {
+        this.waitSeconds = waitSeconds;
+    }
+
+    /**
+     * @return 服务端重复处理该请求是否没有副作用，默认 true
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * 标记请求是否幂等。不幂等的请求（发送消息、删除消息等）在读超时或 500 后服务端可能已经处理，
+     * 默认重试策略只在连接超时和 503 时重试这类请求
+     *
+     * @param idempotent 是否幂等
+     */
+    public void setIdempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
     /**
      * Whether or not the request can be repeatedly sent.
      *
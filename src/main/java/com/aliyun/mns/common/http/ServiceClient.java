@@ -23,10 +23,14 @@ import com.aliyun.mns.client.AsyncResult;
 import com.aliyun.mns.common.ClientException;
 import com.aliyun.mns.common.HttpMethod;
 import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.comm.ByteBufferContent;
+import com.aliyun.mns.common.comm.ByteBufferPool;
 import com.aliyun.mns.common.comm.ExecutionContext;
 import com.aliyun.mns.common.comm.RequestHandler;
 import com.aliyun.mns.common.comm.ResponseHandler;
+import com.aliyun.mns.common.comm.RetryBudget;
 import com.aliyun.mns.common.comm.RetryStrategy;
+import com.aliyun.mns.common.metrics.RequestMetrics;
 import com.aliyun.mns.common.utils.HttpUtil;
 import com.aliyun.mns.common.utils.ResourceManager;
 import com.aliyun.mns.common.utils.ServiceConstants;
@@ -39,7 +43,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The client that accesses Aliyun services.
@@ -54,9 +70,38 @@ public abstract class ServiceClient {
         .getInstance(ServiceConstants.RESOURCE_NAME_COMMON);
     protected ClientConfiguration config;
     protected String region;
+    private final RetryBudget retryBudget;
+    private final CallbackDispatcher callbackDispatcher;
+    private final ExecutorService responseParser;
 
     protected ServiceClient(ClientConfiguration config) {
         this.config = config;
+        this.retryBudget = new RetryBudget(config.getRetryBudgetMaxTokens(), config.getRetryBudgetTokenRatio());
+        this.callbackDispatcher = CallbackDispatcher.create(config);
+        this.responseParser = createResponseParser(config);
+    }
+
+    private static ExecutorService createResponseParser(ClientConfiguration config) {
+        if (config.getResponseParserThreads() == 0) {
+            return null;
+        }
+        final AtomicInteger threadIndex = new AtomicInteger();
+        // 队列已满或已关闭时在 I/O 线程中解析，既限制了读取速度，也保证每个响应都会被处理；
+        // 边接收边解析的任务会阻塞等待数据，不能在 I/O 线程中执行，拒绝后由调用方改为完整读入内存
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getResponseParserThreads(),
+            config.getResponseParserThreads(), 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(config.getResponseParserQueueSize()), r -> {
+                Thread thread = new Thread(r, "mns-response-parser-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, (r, e) -> {
+                if (r instanceof StreamingResponseConsumer.StreamingParseTask) {
+                    throw new RejectedExecutionException("response parser is busy");
+                }
+                r.run();
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public ClientConfiguration getClientConfiguration() {
@@ -76,13 +121,51 @@ public abstract class ServiceClient {
     public <T> AsyncResult<T> asyncSendRequest(RequestMessage request,
                                                ExecutionContext context,
                                                HttpCallback<T> callback, long timewaitMillis) throws ServiceException {
-        Future<HttpResponse> future = sendRequest(request, context, callback);
+        return asyncSendRequest(request, context, callback, timewaitMillis, null, null);
+    }
+
+    /**
+     * 发送请求，hedgingPolicy 不为 null 时按策略发送对冲请求，只能用于幂等且没有请求体的请求
+     *
+     * @param hedgingPolicy 对冲策略，可为 null
+     * @param actionName    接口名，用于按接口统计延迟
+     */
+    public <T> AsyncResult<T> asyncSendRequest(RequestMessage request, ExecutionContext context,
+        HttpCallback<T> callback, long timewaitMillis, HedgingPolicy hedgingPolicy, String actionName)
+        throws ServiceException {
+        if (callbackDispatcher != null) {
+            callback.setCallbackDispatcher(callbackDispatcher, RequestMetrics.resourceNameOf(request.getResourcePath()));
+        }
+        callback.setResponseParser(responseParser);
+        // 在排队和发送之前接管请求体，之后无论在哪一步失败都随回调的 future 结束而释放
+        prepareRequestBody(request, callback);
+        ConcurrencyLimiter limiter = config.getConcurrencyLimiter();
+        Future<HttpResponse> future;
+        try {
+            if (limiter == null || request.getWaitSeconds() != null) {
+                future = doSendRequest(request, context, callback, hedgingPolicy, actionName);
+            } else {
+                future = limiter.execute(RequestMetrics.resourceNameOf(request.getResourcePath()), callback,
+                    () -> doSendRequest(request, context, callback, hedgingPolicy, actionName));
+            }
+        } catch (RuntimeException ex) {
+            callback.getCompletableFuture().completeExceptionally(ex);
+            throw ex;
+        }
         AsyncResult<T> asyncResult = callback.getAsyncResult();
         asyncResult.setTimewait(timewaitMillis);
         asyncResult.setFuture(future);
+        callback.getCompletableFuture().setUpstream(future);
         return asyncResult;
     }
 
+    private <T> Future<HttpResponse> doSendRequest(RequestMessage request, ExecutionContext context,
+        HttpCallback<T> callback, HedgingPolicy hedgingPolicy, String actionName) throws ServiceException {
+        return hedgingPolicy == null
+            ? sendRequestImpl(request, context, callback)
+            : new HedgedRequest<T>(this, request, context, callback, hedgingPolicy, actionName).start();
+    }
+
     public <T> Future<HttpResponse> sendRequest(RequestMessage request,
         ExecutionContext context,
 
@@ -93,6 +176,7 @@ public abstract class ServiceClient {
         //if (!isOpen()) {
         //    throw new ClientException("Client is already closed!", callback.getUserRequestId());
         //}
+        prepareRequestBody(request, callback);
         return sendRequestImpl(request, context, callback);
     }
 
@@ -104,55 +188,33 @@ public abstract class ServiceClient {
         RetryStrategy retryStrategy = context.getRetryStrategy() != null ? context
             .getRetryStrategy() : this.getDefaultRetryStrategy();
 
-        int retries = 0;
-        ResponseMessage response = null;
-
-        InputStream content = request.getContent();
+        retryBudget.deposit();
+        RetryingRequest<T> retryingRequest = new RetryingRequest<T>(request, context, callback, retryStrategy);
+        callback.setRetryHandler(retryingRequest);
+        return retryingRequest.start();
+    }
 
-        if (content != null && content.markSupported()) {
-            content.mark(DEFAULT_MARK_LIMIT);
+    /**
+     * 请求体为 {@link ByteBufferContent} 时按配置换成直接内存，并在请求结束（包括所有重试）后释放缓冲区
+     */
+    private <T> void prepareRequestBody(RequestMessage request, HttpCallback<T> callback) {
+        if (!(request.getContent() instanceof ByteBufferContent)) {
+            return;
         }
-
-        while (true) {
+        ByteBufferContent content = (ByteBufferContent) request.getContent();
+        if (config.isDirectRequestBuffers() && !content.isDirect()) {
             try {
-                if (retries > 0) {
-                    pause(retries, retryStrategy, callback.getUserRequestId());
-                    if (content != null && content.markSupported()) {
-                        content.reset();
-                    }
-                }
-                Request httpRequest = buildRequest(request, context);
-                // post process request
-                handleRequest(httpRequest, context.getResquestHandlers());
-                return sendRequestCore(httpRequest, context, callback);
-
-            } catch (ServiceException ex) {
-                // Notice that the response should not be closed in the
-                // finally block because if the request is successful,
-                // the response should be returned to the callers.
-                closeResponseSilently(response);
-                if (!shouldRetry(ex, request, response, retries, retryStrategy)) {
-                    throw ex;
-                }
-            } catch (ClientException ex) {
-                // Notice that the response should not be closed in the
-                // finally block because if the request is successful,
-                // the response should be returned to the callers.
-                closeResponseSilently(response);
-                if (!shouldRetry(ex, request, response, retries, retryStrategy)) {
-                    throw ex;
-                }
-            } catch (Exception ex) {
-                // Notice that the response should not be closed in the
-                // finally block because if the request is successful,
-                // the response should be returned to the callers.
-                closeResponseSilently(response);
-                throw new ClientException(rm.getFormattedString(
-                    "ConnectionError", ex.getMessage()), callback.getUserRequestId(), ex);
-            } finally {
-                retries++;
+                ByteBufferContent direct = ByteBufferContent.copyOf(content, content.length(), ByteBufferPool.direct());
+                content.release();
+                content = direct;
+                request.setContent(direct);
+            } catch (IOException e) {
+                // 内存中的复制不会失败，失败时按原内容发送
+                log.debug("copy request body to direct buffer failed", e);
             }
         }
+        final ByteBufferContent body = content;
+        callback.getCompletableFuture().whenComplete((value, ex) -> body.release());
     }
 
     /**
@@ -173,12 +235,13 @@ public abstract class ServiceClient {
         ExecutionContext context) throws ClientException {
         Request request = new Request();
         request.setMethod(requestMessage.getMethod());
-        request.setHeaders(requestMessage.getHeaders());
+        request.setWaitSeconds(requestMessage.getWaitSeconds());
 
         // The header must be converted after the request is signed,
         // otherwise the signature will be incorrect.
-        if (request.getHeaders() != null) {
-            HttpUtil.convertHeaderCharsetToIso88591(request.getHeaders());
+        // 重试和对冲请求会复用同一个 RequestMessage，因此转换副本而不修改原 headers
+        if (requestMessage.getHeaders() != null) {
+            request.setHeaders(HttpUtil.toIso88591Headers(requestMessage.getHeaders()));
         }
 
         final String delimiter = "/";
@@ -254,21 +317,6 @@ public abstract class ServiceClient {
 
     }
 
-    private void pause(int retries, RetryStrategy retryStrategy, String userRequestId)
-        throws ClientException {
-
-        long delay = retryStrategy.getPauseDelay(retries);
-
-        log.debug("Retriable error detected, will retry in " + delay
-            + "ms, attempt number: " + retries);
-
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException e) {
-            throw new ClientException(e.getMessage(), userRequestId, e);
-        }
-    }
-
     private boolean shouldRetry(Exception exception, RequestMessage request,
         ResponseMessage response, int retries, RetryStrategy retryStrategy) {
 
@@ -288,24 +336,244 @@ public abstract class ServiceClient {
         return false;
     }
 
-    private void closeResponseSilently(ResponseMessage response) {
+    /**
+     * 一个请求的所有重试。
+     * <p>
+     * 同步发送失败和 HTTP 回调中的失败（超时、5xx 等）都会按 {@link RetryStrategy} 判断是否重试，
+     * 重试由调度线程在全抖动退避后重新发送，不阻塞调用线程和 IO 线程；重试需先从 {@link RetryBudget} 取得令牌。
+     * 作为返回给调用方的 Future，取消时会同时取消进行中的请求和尚未执行的重试。
+     */
+    private class RetryingRequest<T> implements HttpCallback.RetryHandler, Future<HttpResponse> {
+        private final RequestMessage request;
+        private final ExecutionContext context;
+        private final HttpCallback<T> callback;
+        private final RetryStrategy retryStrategy;
+        private final InputStream content;
+        private volatile int retries = 0;
+        private volatile boolean cancelled = false;
+        private volatile Future<HttpResponse> current;
+        private volatile ScheduledFuture<?> scheduled;
+        private final AtomicBoolean waitingRetry = new AtomicBoolean();
+
+        RetryingRequest(RequestMessage request, ExecutionContext context, HttpCallback<T> callback,
+            RetryStrategy retryStrategy) {
+            this.request = request;
+            this.context = context;
+            this.callback = callback;
+            this.retryStrategy = retryStrategy;
+            this.content = request.getContent();
+        }
+
+        Future<HttpResponse> start() throws ClientException, ServiceException {
+            if (content != null && content.markSupported()) {
+                content.mark(DEFAULT_MARK_LIMIT);
+            }
+            try {
+                current = sendAttempt();
+            } catch (ServiceException ex) {
+                if (!retry(ex, null)) {
+                    throw ex;
+                }
+            } catch (ClientException ex) {
+                if (!retry(ex, null)) {
+                    throw ex;
+                }
+            } catch (Exception ex) {
+                ClientException ce = toClientException(ex);
+                if (!retry(ce, null)) {
+                    throw ce;
+                }
+            }
+            return this;
+        }
+
+        private Future<HttpResponse> sendAttempt() throws Exception {
+            if (retries > 0 && content != null && content.markSupported()) {
+                content.reset();
+            }
+            Request httpRequest = buildRequest(request, context);
+            // post process request
+            handleRequest(httpRequest, context.getResquestHandlers());
+            if (callback.getRequestMetrics() != null) {
+                callback.getRequestMetrics().markSent(retries);
+            }
+            return sendRequestCore(httpRequest, context, callback);
+        }
+
+        private void resend() {
+            if (!waitingRetry.compareAndSet(true, false)) {
+                // 已被 cancel 取走并通知了回调
+                return;
+            }
+            if (cancelled) {
+                callback.cancelled();
+                return;
+            }
+            int attempt = retries;
+            try {
+                Future<HttpResponse> future = sendAttempt();
+                // 请求可能已经失败并安排了下一次重试，此时不能覆盖
+                if (retries == attempt) {
+                    current = future;
+                }
+                // cancel 可能发生在开头的检查之后，那时它看不到这次新发出的请求
+                if (cancelled) {
+                    future.cancel(true);
+                }
+            } catch (ServiceException ex) {
+                callback.failed(ex);
+            } catch (ClientException ex) {
+                callback.failed(ex);
+            } catch (Exception ex) {
+                callback.failed(toClientException(ex));
+            }
+        }
+
+        private ClientException toClientException(Exception ex) {
+            return new ClientException(rm.getFormattedString(
+                "ConnectionError", ex.getMessage()), callback.getUserRequestId(), ex);
+        }
+
+        @Override
+        public boolean retry(Exception ex, ResponseMessage response) {
+            if (cancelled || !shouldRetry(ex, request, response, retries, retryStrategy)) {
+                return false;
+            }
+            if (!retryBudget.tryWithdraw()) {
+                log.debug("Retry budget exhausted, give up retrying on " + ex.getClass().getName());
+                return false;
+            }
+            retries++;
+            long delay = retryStrategy.getJitteredPauseDelay(retries);
+            log.debug("Retriable error detected, will retry in " + delay
+                + "ms, attempt number: " + retries);
+            waitingRetry.set(true);
+            scheduled = RequestScheduler.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    resend();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            return true;
+        }
 
-        if (response != null) {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            CancellableFuture<T> future = callback.getCompletableFuture();
+            // 经 CancellableFuture 取消时，它在调用这里之前已被标记为取消
+            if (cancelled || future.isDone() && !future.isCancelled()) {
+                return false;
+            }
+            cancelled = true;
+            // 与 resend 竞争：抢到时重试尚未开始，没有进行中的请求会通知回调；
+            // 否则由 resend 在发出请求前后检查 cancelled
+            if (waitingRetry.compareAndSet(true, false)) {
+                ScheduledFuture<?> pending = scheduled;
+                if (pending != null) {
+                    pending.cancel(false);
+                }
+                callback.cancelled();
+            }
+            Future<HttpResponse> inFlight = current;
+            if (inFlight != null) {
+                inFlight.cancel(mayInterruptIfRunning);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return callback.getCompletableFuture().isDone();
+        }
+
+        @Override
+        public HttpResponse get() throws InterruptedException, ExecutionException {
             try {
-                response.close();
-            } catch (IOException ioe) { /* silently close the response. */
+                callback.getCompletableFuture().get();
+            } catch (ExecutionException ex) {
+                // 有请求发出时以该请求的结果为准
+                if (current == null) {
+                    throw ex;
+                }
+            }
+            return current == null ? null : current.get();
+        }
+
+        @Override
+        public HttpResponse get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                callback.getCompletableFuture().get(timeout, unit);
+            } catch (ExecutionException ex) {
+                if (current == null) {
+                    throw ex;
+                }
             }
+            return current == null ? null : current.get(timeout, unit);
         }
     }
 
+    /**
+     * 所有客户端共用的调度线程，只负责按时提交重试和对冲请求
+     */
+    static class RequestScheduler {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mns-request-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return 客户端共享的重试预算
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
     abstract int ref();
 
     abstract int unRef();
 
     protected abstract void close();
 
+    /**
+     * 关闭本客户端的回调线程，已提交的任务会继续执行。只能在最后一个引用释放时调用，
+     * I/O reactor 重建时客户端仍在使用，关闭后回调会被拒绝
+     */
+    protected void closeCallbackDispatcher() {
+        if (callbackDispatcher != null) {
+            callbackDispatcher.shutdown();
+        }
+    }
+
+    /**
+     * 关闭本客户端的响应解析线程，已提交的任务会继续执行。只能在最后一个引用释放时调用，
+     * I/O reactor 重建时客户端仍在使用，关闭后响应解析会被拒绝
+     */
+    protected void closeResponseParser() {
+        if (responseParser != null) {
+            responseParser.shutdown();
+        }
+    }
+
     public abstract boolean isOpen();
 
+    /**
+     * @return 连接池和 I/O reactor 的统计快照
+     */
+    public abstract ConnectionPoolStats getConnectionPoolStats();
+
+    /**
+     * @return 长轮询连接池的统计快照，未开启长轮询连接池时返回 null
+     */
+    public abstract ConnectionPoolStats getLongPollConnectionPoolStats();
+
     protected abstract RetryStrategy getDefaultRetryStrategy();
 
     public ServiceClient setRegion(String region) {
@@ -327,6 +595,7 @@ public abstract class ServiceClient {
     public static class Request extends HttpMesssage {
         private String uri;
         private HttpMethod method;
+        private Integer waitSeconds;
 
         public Request() {
 
@@ -353,5 +622,16 @@ public abstract class ServiceClient {
         public void setMethod(HttpMethod method) {
             this.method = method;
         }
+
+        /**
+         * @return 长轮询等待秒数，非长轮询请求为 null
+         */
+        public Integer getWaitSeconds() {
+            return waitSeconds;
+        }
+
+        public void setWaitSeconds(Integer waitSeconds) {
+            this.waitSeconds = waitSeconds;
+        }
     }
 }
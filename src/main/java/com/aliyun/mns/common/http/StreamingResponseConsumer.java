@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.common.http;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.nio.util.SimpleInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * 边接收边解析的响应消费者。
+ * <p>
+ * 成功响应的响应体不小于阈值（或长度未知）时，收到响应头后立即把响应交给解析线程，解析线程通过固定大小的
+ * {@link SharedInputBuffer} 读取 I/O 线程收到的数据：解析与网络传输重叠，也不需要把整个响应体缓存成一块内存。
+ * 缓冲区写满时暂停读取 socket，直到解析线程读走数据。其他响应与默认消费者一样完整读入内存后再交给回调。
+ */
+final class StreamingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+    private static final int STREAMING_BUFFER_SIZE = 32 * 1024;
+    private static final int BUFFERED_INITIAL_SIZE = 4096;
+
+    private final HttpCallback<?> callback;
+    private final Executor responseParser;
+    private final long streamingThreshold;
+    private volatile HttpResponse response;
+    private volatile boolean streaming = false;
+    private volatile boolean completed = false;
+    private volatile boolean aborted = false;
+    private volatile SharedInputBuffer sharedBuffer;
+    private volatile SimpleInputBuffer simpleBuffer;
+
+    /**
+     * @param responseParser     解析线程池，为 null 时不边接收边解析
+     * @param streamingThreshold 响应体不小于该字节数时边接收边解析
+     */
+    StreamingResponseConsumer(HttpCallback<?> callback, Executor responseParser, long streamingThreshold) {
+        this.callback = callback;
+        this.responseParser = responseParser;
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    /**
+     * @return 交给 HttpClient 的回调：已经边接收边解析的响应由解析线程结束请求，这里不再重复通知。
+     * 传输失败或取消时解析线程的读取会中断，由它按 {@link #getAbortCause()} 结束请求
+     */
+    FutureCallback<HttpResponse> bridge() {
+        return new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse result) {
+                if (!streaming) {
+                    callback.completed(result);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                if (!streaming) {
+                    callback.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                if (!streaming) {
+                    callback.cancelled();
+                }
+            }
+        };
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+        if (shouldStream(entity)) {
+            sharedBuffer = new SharedInputBuffer(STREAMING_BUFFER_SIZE, HeapByteBufferAllocator.INSTANCE);
+            response.setEntity(new ContentBufferEntity(entity, sharedBuffer));
+            streaming = true;
+            try {
+                responseParser.execute(new StreamingParseTask(callback, response, this));
+                return;
+            } catch (RejectedExecutionException e) {
+                // 解析线程忙时不能在 I/O 线程中阻塞读取，改为完整读入内存
+                streaming = false;
+                sharedBuffer = null;
+            }
+        }
+        long length = entity.getContentLength();
+        simpleBuffer = new SimpleInputBuffer(length > 0 && length <= Integer.MAX_VALUE
+            ? (int) length : BUFFERED_INITIAL_SIZE, HeapByteBufferAllocator.INSTANCE);
+        response.setEntity(new ContentBufferEntity(entity, simpleBuffer));
+    }
+
+    private boolean shouldStream(HttpEntity entity) {
+        if (responseParser == null || streamingThreshold < 0) {
+            return false;
+        }
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode < 200 || statusCode >= 300) {
+            return false;
+        }
+        long length = entity.getContentLength();
+        return length < 0 || length > 0 && length >= streamingThreshold;
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        if (sharedBuffer != null) {
+            sharedBuffer.consumeContent(decoder, ioControl);
+        } else {
+            simpleBuffer.consumeContent(decoder);
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        completed = true;
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        // 正常结束时解析线程可能还在读取缓冲区中剩余的数据；失败或取消时关闭缓冲区，让解析线程的读取以异常结束
+        if (sharedBuffer != null && !completed) {
+            aborted = true;
+            sharedBuffer.shutdown();
+        }
+        simpleBuffer = null;
+    }
+
+    /**
+     * @return 边接收边解析时，响应体是否因传输失败或取消而没有读完
+     */
+    boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * @return 传输失败的原因，为 null 表示请求被取消
+     */
+    Exception getAbortCause() {
+        return getException();
+    }
+
+    /**
+     * 边接收边解析的任务，解析线程池不能在调用线程（I/O 线程）中执行它
+     */
+    static final class StreamingParseTask implements Runnable {
+        private final HttpCallback<?> callback;
+        private final HttpResponse response;
+        private final StreamingResponseConsumer consumer;
+
+        StreamingParseTask(HttpCallback<?> callback, HttpResponse response, StreamingResponseConsumer consumer) {
+            this.callback = callback;
+            this.response = response;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            callback.parseStreamingResponse(response, consumer);
+        }
+    }
+}
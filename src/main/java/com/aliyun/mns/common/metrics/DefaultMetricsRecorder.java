@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 默认的度量记录器，按接口名（action）汇总请求数、失败数、重试次数、收发字节数、错误码分布和延迟直方图。
+ * 延迟以微秒记录。
+ * <p>
+ * 用法：
+ * <pre>
+ * DefaultMetricsRecorder recorder = new DefaultMetricsRecorder();
+ * clientConfiguration.setMetricsListener(recorder);
+ * ...
+ * recorder.getActionMetrics("BatchReceiveMessage").getTotalLatency().getValueAtPercentile(99);
+ * </pre>
+ */
+public class DefaultMetricsRecorder implements RequestMetricsListener {
+
+    private final ConcurrentMap<String, ActionMetrics> actions = new ConcurrentHashMap<String, ActionMetrics>();
+
+    @Override
+    public void onRequestCompleted(RequestMetrics metrics) {
+        ActionMetrics action = actions.get(metrics.getActionName());
+        if (action == null) {
+            action = actions.computeIfAbsent(metrics.getActionName(), k -> new ActionMetrics());
+        }
+        action.record(metrics);
+    }
+
+    /**
+     * @return 指定接口的统计，没有请求时返回 null
+     */
+    public ActionMetrics getActionMetrics(String actionName) {
+        return actions.get(actionName);
+    }
+
+    public Map<String, ActionMetrics> getAllActionMetrics() {
+        return Collections.unmodifiableMap(actions);
+    }
+
+    public void reset() {
+        actions.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, ActionMetrics> entry : actions.entrySet()) {
+            builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    public static final class ActionMetrics {
+        private final LongAdder requestCount = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder retryCount = new LongAdder();
+        private final LongAdder hedgeCount = new LongAdder();
+        private final LongAdder hedgeWinCount = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> errorCodes = new ConcurrentHashMap<String, LongAdder>();
+        private final ConcurrentMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<Integer, LongAdder>();
+        private final LatencyHistogram totalLatency = new LatencyHistogram();
+        private final LatencyHistogram timeToResponse = new LatencyHistogram();
+        private final LatencyHistogram buildLatency = new LatencyHistogram();
+        private final LatencyHistogram parseLatency = new LatencyHistogram();
+
+        void record(RequestMetrics metrics) {
+            requestCount.increment();
+            if (!metrics.isSuccess()) {
+                failureCount.increment();
+            }
+            retryCount.add(metrics.getRetryCount());
+            if (metrics.isHedged()) {
+                hedgeCount.increment();
+                if (metrics.isHedgeWon()) {
+                    hedgeWinCount.increment();
+                }
+            }
+            if (metrics.getRequestBytes() > 0) {
+                requestBytes.add(metrics.getRequestBytes());
+            }
+            if (metrics.getResponseBytes() > 0) {
+                responseBytes.add(metrics.getResponseBytes());
+            }
+            if (metrics.getErrorCode() != null) {
+                increment(errorCodes, metrics.getErrorCode());
+            }
+            if (metrics.getStatusCode() > 0) {
+                increment(statusCodes, metrics.getStatusCode());
+            }
+            recordMicros(totalLatency, metrics.getTotalNanos());
+            recordMicros(timeToResponse, metrics.getTimeToResponseNanos());
+            recordMicros(buildLatency, metrics.getBuildNanos());
+            recordMicros(parseLatency, metrics.getParseNanos());
+        }
+
+        private static <K> void increment(ConcurrentMap<K, LongAdder> counters, K key) {
+            LongAdder counter = counters.get(key);
+            if (counter == null) {
+                counter = counters.computeIfAbsent(key, k -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        private static void recordMicros(LatencyHistogram histogram, long nanos) {
+            if (nanos >= 0) {
+                histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+
+        public long getRequestCount() {
+            return requestCount.sum();
+        }
+
+        public long getFailureCount() {
+            return failureCount.sum();
+        }
+
+        public long getRetryCount() {
+            return retryCount.sum();
+        }
+
+        /**
+         * 发出了对冲请求的请求数，见 {@link com.aliyun.mns.common.http.HedgingPolicy}
+         */
+        public long getHedgeCount() {
+            return hedgeCount.sum();
+        }
+
+        /**
+         * 结果来自对冲请求的请求数
+         */
+        public long getHedgeWinCount() {
+            return hedgeWinCount.sum();
+        }
+
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        /**
+         * 服务端错误码到次数
+         */
+        public Map<String, LongAdder> getErrorCodes() {
+            return Collections.unmodifiableMap(errorCodes);
+        }
+
+        /**
+         * HTTP 状态码到次数
+         */
+        public Map<Integer, LongAdder> getStatusCodes() {
+            return Collections.unmodifiableMap(statusCodes);
+        }
+
+        /**
+         * 从发起到请求结束的总延迟（微秒）
+         */
+        public LatencyHistogram getTotalLatency() {
+            return totalLatency;
+        }
+
+        /**
+         * 从发起到收到响应的延迟（微秒）
+         */
+        public LatencyHistogram getTimeToResponse() {
+            return timeToResponse;
+        }
+
+        /**
+         * 构建、序列化和签名延迟（微秒）
+         */
+        public LatencyHistogram getBuildLatency() {
+            return buildLatency;
+        }
+
+        /**
+         * 响应解析延迟（微秒）
+         */
+        public LatencyHistogram getParseLatency() {
+            return parseLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + getRequestCount() + ", failures=" + getFailureCount() + ", retries="
+                + getRetryCount() + ", hedges=" + getHedgeCount() + ", hedgeWins=" + getHedgeWinCount()
+                + ", errorCodes=" + errorCodes + ", totalLatencyMicros={" + totalLatency + "}";
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.metrics;
+
+import com.aliyun.mns.common.ServiceException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 单个请求的度量数据，随请求在 action、ServiceClient 和 HttpCallback 之间传递。
+ * <p>
+ * 各阶段时间点取自 {@link System#nanoTime()}，未到达的阶段为 0；耗时类 getter 在阶段缺失时返回 -1。
+ */
+public final class RequestMetrics {
+    private static final Logger log = LoggerFactory.getLogger(RequestMetrics.class);
+
+    private final RequestMetricsListener listener;
+    private final String actionName;
+    private final String resourceName;
+    private final String userRequestId;
+    private final long startNanos;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private volatile long builtNanos;
+    private volatile long sentNanos;
+    private volatile long responseNanos;
+    private volatile long parsedNanos;
+    private volatile long completedNanos;
+
+    private volatile int retryCount;
+    private volatile boolean hedged;
+    private volatile boolean hedgeWon;
+    private volatile long requestBytes = -1;
+    private volatile long responseBytes = -1;
+    private volatile int statusCode;
+    private volatile String errorCode;
+    private volatile Exception exception;
+
+    /**
+     * @param startNanos 开始构建请求时的 {@link System#nanoTime()}
+     */
+    public RequestMetrics(RequestMetricsListener listener, String actionName, String resourceName,
+        String userRequestId, long startNanos) {
+        this.listener = listener;
+        this.actionName = actionName;
+        this.resourceName = resourceName;
+        this.userRequestId = userRequestId;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 从请求路径中解析队列或主题名，如 "queues/q1/messages" 返回 "q1"
+     */
+    public static String resourceNameOf(String resourcePath) {
+        if (resourcePath == null) {
+            return null;
+        }
+        int start = resourcePath.startsWith("/") ? 1 : 0;
+        int slash = resourcePath.indexOf('/', start);
+        if (slash < 0) {
+            return null;
+        }
+        String prefix = resourcePath.substring(start, slash);
+        if (!"queues".equals(prefix) && !"topics".equals(prefix)) {
+            return null;
+        }
+        int end = resourcePath.indexOf('/', slash + 1);
+        int query = resourcePath.indexOf('?', slash + 1);
+        if (end < 0 || (query >= 0 && query < end)) {
+            end = query;
+        }
+        return end < 0 ? resourcePath.substring(slash + 1) : resourcePath.substring(slash + 1, end);
+    }
+
+    public void markBuilt(long requestBytes) {
+        this.requestBytes = requestBytes;
+        this.builtNanos = System.nanoTime();
+        try {
+            listener.onRequestBuilt(this);
+        } catch (Exception e) {
+            log.warn("metrics listener failed on request built: " + e.getMessage(), e);
+        }
+    }
+
+    public void markSent(int retryCount) {
+        this.retryCount = retryCount;
+        this.sentNanos = System.nanoTime();
+        try {
+            listener.onRequestSent(this);
+        } catch (Exception e) {
+            log.warn("metrics listener failed on request sent: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 已为本请求发出对冲请求
+     */
+    public void markHedged() {
+        this.hedged = true;
+    }
+
+    /**
+     * 结果来自对冲请求，需在 {@link #markCompleted(Exception)} 之前调用
+     */
+    public void markHedgeWon() {
+        this.hedgeWon = true;
+    }
+
+    public void markResponseReceived(int statusCode, long responseBytes) {
+        this.statusCode = statusCode;
+        this.responseBytes = responseBytes;
+        this.responseNanos = System.nanoTime();
+        try {
+            listener.onResponseReceived(this);
+        } catch (Exception e) {
+            log.warn("metrics listener failed on response received: " + e.getMessage(), e);
+        }
+    }
+
+    public void markParsed() {
+        this.parsedNanos = System.nanoTime();
+        try {
+            listener.onResponseParsed(this);
+        } catch (Exception e) {
+            log.warn("metrics listener failed on response parsed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以对冲请求中胜出的一次尝试的响应和解析阶段作为本请求的阶段，需在 {@link #markCompleted(Exception)} 之前调用
+     *
+     * @param attempt 胜出尝试的度量数据，未收到响应时不做任何处理
+     */
+    public void markResponseFrom(RequestMetrics attempt) {
+        if (attempt.responseNanos == 0) {
+            return;
+        }
+        this.statusCode = attempt.statusCode;
+        this.responseBytes = attempt.responseBytes;
+        this.responseNanos = attempt.responseNanos;
+        try {
+            listener.onResponseReceived(this);
+        } catch (Exception e) {
+            log.warn("metrics listener failed on response received: " + e.getMessage(), e);
+        }
+        if (attempt.parsedNanos == 0) {
+            return;
+        }
+        this.parsedNanos = attempt.parsedNanos;
+        try {
+            listener.onResponseParsed(this);
+        } catch (Exception e) {
+            log.warn("metrics listener failed on response parsed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 标记请求结束，重复调用只有第一次生效
+     *
+     * @param exception 失败原因，成功时为 null
+     */
+    public void markCompleted(Exception exception) {
+        if (!completed.compareAndSet(false, true)) {
+            return;
+        }
+        this.exception = exception;
+        if (exception instanceof ServiceException) {
+            this.errorCode = ((ServiceException) exception).getErrorCode();
+        }
+        this.completedNanos = System.nanoTime();
+        try {
+            listener.onRequestCompleted(this);
+        } catch (Exception e) {
+            log.warn("metrics listener failed on request completed: " + e.getMessage(), e);
+        }
+    }
+
+    public String getActionName() {
+        return actionName;
+    }
+
+    /**
+     * 队列或主题名，账号级接口为 null
+     */
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    public String getUserRequestId() {
+        return userRequestId;
+    }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    public boolean isHedgeWon() {
+        return hedgeWon;
+    }
+
+    /**
+     * 请求 body 字节数，未知时为 -1
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * 响应 body 字节数，未知时为 -1
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * HTTP 状态码，未收到响应时为 0
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public Exception getException() {
+        return exception;
+    }
+
+    public boolean isSuccess() {
+        return completed.get() && exception == null;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 构建请求、序列化和签名耗时
+     */
+    public long getBuildNanos() {
+        return elapsed(startNanos, builtNanos);
+    }
+
+    /**
+     * 从发起到收到响应的耗时，包括排队等连接和网络往返
+     */
+    public long getTimeToResponseNanos() {
+        return elapsed(startNanos, responseNanos);
+    }
+
+    /**
+     * 响应解析耗时
+     */
+    public long getParseNanos() {
+        return elapsed(responseNanos, parsedNanos);
+    }
+
+    /**
+     * 从发起到请求结束的总耗时，传入了 AsyncCallback 时包含回调的执行时间
+     */
+    public long getTotalNanos() {
+        return elapsed(startNanos, completedNanos);
+    }
+
+    private static long elapsed(long from, long to) {
+        return from == 0 || to == 0 ? -1 : to - from;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestMetrics{action=" + actionName + ", resource=" + resourceName + ", status=" + statusCode
+            + ", errorCode=" + errorCode + ", retries=" + retryCount + ", totalNanos=" + getTotalNanos() + "}";
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.common.metrics;
+
+/**
+ * 请求生命周期监听器，通过 {@link com.aliyun.mns.common.http.ClientConfiguration#setMetricsListener} 配置。
+ * <p>
+ * 每个请求依次回调：构建签名完成、交给 HTTP 客户端、收到响应、响应解析完成、请求结束。
+ * 网络失败或取消的请求不会回调响应相关的阶段；构建或签名阶段就失败的请求不会产生任何回调。
+ * 回调在 IO 线程、调用线程或 AsyncCallback 的执行线程上同步执行，实现需要轻量且线程安全，
+ * 抛出的异常会被忽略。
+ */
+public interface RequestMetricsListener {
+
+    /**
+     * 请求已构建并签名，尚未发送
+     */
+    default void onRequestBuilt(RequestMetrics metrics) {
+    }
+
+    /**
+     * 请求即将交给 HTTP 客户端，发送失败重试时每次尝试都会回调
+     */
+    default void onRequestSent(RequestMetrics metrics) {
+    }
+
+    /**
+     * 收到响应状态行和 header，body 尚未解析
+     */
+    default void onResponseReceived(RequestMetrics metrics) {
+    }
+
+    /**
+     * 响应 body 已解析为结果或服务端异常
+     */
+    default void onResponseParsed(RequestMetrics metrics) {
+    }
+
+    /**
+     * 请求结束，每个请求只回调一次。
+     * 传入了 AsyncCallback 时在其 onSuccess/onFail 返回之后回调，否则在结果交付给调用方之前回调
+     */
+    void onRequestCompleted(RequestMetrics metrics);
+}
@@ -22,6 +22,9 @@ package com.aliyun.mns.common.utils;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.Locale;
 import java.util.SimpleTimeZone;
@@ -44,6 +47,13 @@ public class DateUtil {
     private static final String ALTERNATIVE_ISO8601_DATE_FORMAT =
         "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
+    // 与 RFC822_DATE_FORMAT 在 GMT 时区下的输出一致，DateTimeFormatter 线程安全，可以共享
+    private static final DateTimeFormatter RFC822_DATE_FORMATTER = DateTimeFormatter
+        .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    // 每个请求都要格式化 Date 头，同一秒内的请求直接复用上一次的结果
+    private static volatile FormattedDate lastRfc822Date = new FormattedDate(Long.MIN_VALUE, null);
+
     /**
      * Formats Date to GMT string.
      *
@@ -51,7 +61,14 @@ public class DateUtil {
      * @return string
      */
     public static String formatRfc822Date(Date date) {
-        return getRfc822DateFormat().format(date);
+        long epochSecond = Math.floorDiv(date.getTime(), 1000L);
+        FormattedDate cached = lastRfc822Date;
+        if (cached.epochSecond == epochSecond) {
+            return cached.value;
+        }
+        cached = new FormattedDate(epochSecond, RFC822_DATE_FORMATTER.format(Instant.ofEpochSecond(epochSecond)));
+        lastRfc822Date = cached;
+        return cached.value;
     }
 
     /**
@@ -111,4 +128,14 @@ public class DateUtil {
 
         return df;
     }
+
+    private static final class FormattedDate {
+        private final long epochSecond;
+        private final String value;
+
+        private FormattedDate(long epochSecond, String value) {
+            this.epochSecond = epochSecond;
+            this.value = value;
+        }
+    }
 }
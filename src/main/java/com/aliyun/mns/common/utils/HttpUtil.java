@@ -122,12 +122,32 @@ public class HttpUtil {
         convertHeaderCharset(headers, JAVA_CHARSET, ISO_8859_1_CHARSET);
     }
 
+    /**
+     * 与 {@link #convertHeaderCharsetToIso88591(Map)} 相同，但不修改传入的 map：全部为 ASCII 时直接返回原 map，
+     * 否则返回转换后的副本，同一请求重发时不会被重复转换
+     *
+     * @param headers headers
+     * @return 转换后的 headers
+     */
+    public static Map<String, String> toIso88591Headers(Map<String, String> headers) {
+        for (String value : headers.values()) {
+            if (value != null && !isAscii(value)) {
+                Map<String, String> copy = new CaseInsensitiveMap<String>();
+                copy.putAll(headers);
+                convertHeaderCharsetToIso88591(copy);
+                return copy;
+            }
+        }
+        return headers;
+    }
+
     private static void convertHeaderCharset(Map<String, String> headers,
         String fromCharset, String toCharset) {
         assert (headers != null);
 
         for (Map.Entry<String, String> header : headers.entrySet()) {
-            if (header.getValue() == null) {
+            // 纯 ASCII 的值在两种编码下完全相同，不需要转换
+            if (header.getValue() == null || isAscii(header.getValue())) {
                 continue;
             }
 
@@ -140,4 +160,13 @@ public class HttpUtil {
         }
     }
 
+    private static boolean isAscii(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
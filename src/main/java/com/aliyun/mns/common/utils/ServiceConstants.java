@@ -28,4 +28,5 @@ public interface ServiceConstants {
     String ERROR_CODE_MSG_NOT_EXIST = "MessageNotExist";
     String ERROR_CODE_QUEUE_NOT_EXIST = "QueueNotExist";
     String ERROR_CODE_TIME_EXPIRED = "TimeExpired";
+    String ERROR_CODE_RECEIPT_HANDLE_ERROR = "ReceiptHandleError";
 }
@@ -12,6 +12,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,19 @@ public class ThreadUtil {
         return new ScheduledThreadPoolExecutor(poolSize, threadFactory);
     }
 
+    /**
+     * 线程名为 prefix 加递增序号的线程工厂
+     */
+    public static ThreadFactory newNamedThreadFactory(final String prefix, final boolean isDaemon) {
+        final AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r);
+            t.setName(prefix + index.incrementAndGet());
+            t.setDaemon(isDaemon);
+            return t;
+        };
+    }
+
     public static ThreadPoolExecutor initThreadPoolExecutorAbort() {
         int threadCt = Runtime.getRuntime().availableProcessors() * 2;
 
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * 消息体压缩：发送时不小于 compressionThreshold 字节的消息体先用 deflate 压缩再做 Base64 编码，并在用户属性
+ * {@link #BODY_ENCODING_PROPERTY} 中标记编码方式；压缩后没有变小的消息体按原样发送。调用方传入的消息不会被修改。
+ * <p>
+ * 收消息（Receive/BatchReceive/Peek/BatchPeek）时只要带有该属性就会自动解压，还原出发送方设置的消息体并移除该属性，
+ * 消费端不需要配置。主题消息需要订阅把用户属性推送到队列，消费端才能自动解压。
+ * <pre>
+ * clientConfiguration.setMessageBodyCodec(MessageBodyCodec.newBuilder().compressionThreshold(1024).build());
+ * </pre>
+ */
+public final class MessageBodyCodec {
+    /**
+     * 标记消息体编码方式的用户属性名
+     */
+    public static final String BODY_ENCODING_PROPERTY = "MnsBodyEncoding";
+    public static final String DEFLATE = "deflate";
+
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    private static final int MAX_DECODED_BYTES = 64 * 1024 * 1024;
+
+    private final int compressionThreshold;
+    private final int level;
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder originalBytes = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+
+    private MessageBodyCodec(Builder builder) {
+        this.compressionThreshold = builder.compressionThreshold;
+        this.level = builder.level;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 按需压缩消息体
+     *
+     * @return 压缩后的消息体和用户属性；消息体小于阈值或压缩后没有变小时返回 null，按原样发送
+     */
+    public EncodedBody encode(BaseMessage message) {
+        byte[] body = message.getMessageBodyBytes();
+        if (body == null || body.length == 0 || body.length < compressionThreshold) {
+            return null;
+        }
+        Map<String, MessagePropertyValue> userProperties = message.getUserProperties();
+        if (userProperties != null && userProperties.containsKey(BODY_ENCODING_PROPERTY)) {
+            return null;
+        }
+
+        byte[] encoded = Base64.encodeBase64(deflate(body));
+        if (encoded.length >= body.length) {
+            return null;
+        }
+        compressedCount.increment();
+        originalBytes.add(body.length);
+        encodedBytes.add(encoded.length);
+
+        Map<String, MessagePropertyValue> properties = new LinkedHashMap<String, MessagePropertyValue>();
+        if (userProperties != null) {
+            properties.putAll(userProperties);
+        }
+        properties.put(BODY_ENCODING_PROPERTY, new MessagePropertyValue(DEFLATE));
+        return new EncodedBody(encoded, properties);
+    }
+
+    /**
+     * 按需压缩，返回实际要发送的队列消息。需要压缩时返回带编码标记的副本，序列化时不会再次压缩，
+     * 可以提前按实际发送的大小计算批次；否则返回原消息
+     */
+    public Message encodeMessage(Message message) {
+        EncodedBody encoded = encode(message);
+        if (encoded == null) {
+            return message;
+        }
+        Message copy = new Message();
+        copy.setMessageBodyBytes(encoded.body);
+        copy.setUserProperties(encoded.getUserProperties());
+        copy.getSystemProperties().putAll(message.getSystemProperties());
+        copy.setMessageGroupId(message.getMessageGroupId());
+        if (message.getDelaySeconds() != null) {
+            copy.setDelaySeconds(message.getDelaySeconds());
+        }
+        if (message.getPriority() != null) {
+            copy.setPriority(message.getPriority());
+        }
+        return copy;
+    }
+
+    /**
+     * 还原收到的压缩消息体并移除编码标记；没有标记、编码方式未知或数据损坏时保持消息不变
+     *
+     * @return 是否解压了消息体
+     */
+    public static boolean decode(BaseMessage message) {
+        Map<String, MessagePropertyValue> userProperties = message.getUserProperties();
+        if (userProperties == null) {
+            return false;
+        }
+        MessagePropertyValue encoding = userProperties.get(BODY_ENCODING_PROPERTY);
+        if (encoding == null || !DEFLATE.equals(encoding.getStringValueByType())) {
+            return false;
+        }
+        byte[] body = message.getMessageBodyBytes();
+        byte[] decoded = body == null ? null : inflate(Base64.decodeBase64(body));
+        if (decoded == null) {
+            return false;
+        }
+        message.setMessageBodyBytes(decoded);
+        userProperties.remove(BODY_ENCODING_PROPERTY);
+        return true;
+    }
+
+    private byte[] deflate(byte[] body) {
+        // Deflater 持有堆外内存，用完立即 end 释放，不依赖 GC 回收
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length >> 2));
+            byte[] chunk = new byte[Math.max(64, Math.min(body.length, 8192))];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        byte[] chunk = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return null;
+                }
+                out.write(chunk, 0, n);
+                if (out.size() > MAX_DECODED_BYTES) {
+                    return null;
+                }
+            }
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * 被压缩发送的消息数
+     */
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+    /**
+     * 被压缩的消息体压缩前的总字节数
+     */
+    public long getOriginalBytes() {
+        return originalBytes.sum();
+    }
+
+    /**
+     * 被压缩的消息体实际发送的总字节数
+     */
+    public long getEncodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBodyCodec{compressed=" + getCompressedCount() + ", originalBytes=" + getOriginalBytes()
+            + ", encodedBytes=" + getEncodedBytes() + "}";
+    }
+
+    /**
+     * 压缩后要发送的消息体和用户属性
+     */
+    public static final class EncodedBody {
+        private final byte[] body;
+        private final Map<String, MessagePropertyValue> userProperties;
+
+        private EncodedBody(byte[] body, Map<String, MessagePropertyValue> userProperties) {
+            this.body = body;
+            this.userProperties = userProperties;
+        }
+
+        /**
+         * @return Base64 编码的压缩数据
+         */
+        public String getBody() {
+            return new String(body, StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * @return 原用户属性加上编码标记
+         */
+        public Map<String, MessagePropertyValue> getUserProperties() {
+            return userProperties;
+        }
+    }
+
+    public static final class Builder {
+        private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+        private int level = Deflater.DEFAULT_COMPRESSION;
+
+        private Builder() {
+        }
+
+        /**
+         * 消息体不小于该字节数时才压缩，默认 1024
+         */
+        public Builder compressionThreshold(int compressionThreshold) {
+            if (compressionThreshold < 0) {
+                throw new IllegalArgumentException("compressionThreshold should not be negative");
+            }
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        /**
+         * deflate 压缩级别，1 最快，9 压缩率最高，默认 {@link Deflater#DEFAULT_COMPRESSION}
+         */
+        public Builder level(int level) {
+            if (level != Deflater.DEFAULT_COMPRESSION
+                && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+                throw new IllegalArgumentException("level should be in [1, 9] or -1");
+            }
+            this.level = level;
+            return this;
+        }
+
+        public MessageBodyCodec build() {
+            return new MessageBodyCodec(this);
+        }
+    }
+}
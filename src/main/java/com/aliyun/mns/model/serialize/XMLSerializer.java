@@ -19,15 +19,17 @@
 
 package com.aliyun.mns.model.serialize;
 
+import com.aliyun.mns.common.comm.ByteBufferContent;
 import com.aliyun.mns.model.AbstractMessagePropertyValue;
+import com.aliyun.mns.model.BaseMessage;
 import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyun.mns.model.MessagePropertyValue;
 import com.aliyun.mns.model.PropertyType;
 import org.apache.commons.codec.binary.Base64;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Map;
 
@@ -49,12 +51,33 @@ public abstract class XMLSerializer<T> extends BaseXMLSerializer<T> implements S
 
     private final String rootTag;
     private final Map<String, Getter<T, Object>> getterMap;
+    private MessageBodyCodec bodyCodec;
 
     public XMLSerializer() {
         this.rootTag = getRootTag();
         this.getterMap = buildGetterMap();
     }
 
+    public MessageBodyCodec getBodyCodec() {
+        return bodyCodec;
+    }
+
+    /**
+     * 序列化消息前按需压缩消息体，默认 null 即不压缩
+     *
+     * @param bodyCodec 消息体压缩
+     */
+    public void setBodyCodec(MessageBodyCodec bodyCodec) {
+        this.bodyCodec = bodyCodec;
+    }
+
+    /**
+     * @return 压缩后的消息体和用户属性，不需要压缩时为 null
+     */
+    protected MessageBodyCodec.EncodedBody encodeBody(BaseMessage msg) {
+        return bodyCodec == null ? null : bodyCodec.encode(msg);
+    }
+
     @Override
     public InputStream serialize(T obj, String encoding) throws Exception {
         Document doc = getDocumentBuilder().newDocument();
@@ -71,7 +94,7 @@ public abstract class XMLSerializer<T> extends BaseXMLSerializer<T> implements S
 
         extraSerializationLogic(obj, doc, root);
         String xml = XmlUtil.xmlNodeToString(doc, encoding);
-        return new ByteArrayInputStream(xml.getBytes(encoding));
+        return ByteBufferContent.wrap(xml.getBytes(encoding));
     }
 
     public void appendContentElement(Document doc, Element parent, String tagName, Object value) {
@@ -98,9 +121,10 @@ public abstract class XMLSerializer<T> extends BaseXMLSerializer<T> implements S
 
     public Element serializeMessage(Document doc, Message msg) {
         Element root = doc.createElementNS(DEFAULT_XML_NAMESPACE, MESSAGE_TAG);
+        MessageBodyCodec.EncodedBody encoded = encodeBody(msg);
 
         Element node = safeCreateContentElement(doc, MESSAGE_BODY_TAG,
-            msg.getOriginalMessageBody(), "");
+            encoded != null ? encoded.getBody() : msg.getOriginalMessageBody(), "");
 
         if (node != null) {
             root.appendChild(node);
@@ -118,7 +142,8 @@ public abstract class XMLSerializer<T> extends BaseXMLSerializer<T> implements S
             root.appendChild(node);
         }
 
-        node = safeCreatePropertiesNode(doc, msg.getUserProperties(), USER_PROPERTIES_TAG, MESSAGE_PROPERTY_TAG);
+        node = safeCreatePropertiesNode(doc, encoded != null ? encoded.getUserProperties() : msg.getUserProperties(),
+            USER_PROPERTIES_TAG, MESSAGE_PROPERTY_TAG);
         if (node != null) {
             root.appendChild(node);
         }
@@ -138,6 +163,66 @@ public abstract class XMLSerializer<T> extends BaseXMLSerializer<T> implements S
         return root;
     }
 
+    /**
+     * 与 {@link #serializeMessage(Document, Message)} 输出相同内容，直接写入 {@link XmlWriter}
+     *
+     * @param declareNamespace 是否在 Message 元素上声明默认命名空间；作为 Messages 的子元素时不需要重复声明
+     */
+    public void writeMessage(XmlWriter writer, Message msg, boolean declareNamespace) {
+        if (declareNamespace) {
+            writer.startRootElement(MESSAGE_TAG);
+        } else {
+            writer.startElement(MESSAGE_TAG);
+        }
+        MessageBodyCodec.EncodedBody encoded = encodeBody(msg);
+        String body = encoded != null ? encoded.getBody() : msg.getOriginalMessageBody();
+        writeContentElement(writer, MESSAGE_BODY_TAG, body, "");
+        writeContentElement(writer, DELAY_SECONDS_TAG, msg.getDelaySeconds(), null);
+        writeContentElement(writer, PRIORITY_TAG, msg.getPriority(), null);
+        writePropertiesNode(writer, encoded != null ? encoded.getUserProperties() : msg.getUserProperties(),
+            USER_PROPERTIES_TAG, MESSAGE_PROPERTY_TAG);
+        writePropertiesNode(writer, msg.getSystemProperties(), SYSTEM_PROPERTIES_TAG,
+            MESSAGE_SYSTEM_PROPERTY_TAG);
+        writeContentElement(writer, MESSAGE_GROUP_ID_TAG, msg.getMessageGroupId(), null);
+        writer.endElement(MESSAGE_TAG);
+    }
+
+    public void writeContentElement(XmlWriter writer, String tagName, Object value, String defaultValue) {
+        if (value == null && defaultValue == null) {
+            return;
+        }
+        writer.textElement(tagName, value != null ? value.toString() : defaultValue);
+    }
+
+    public void writePropertiesNode(XmlWriter writer, Map<String, ? extends AbstractMessagePropertyValue> map,
+        String nodeName, String propertyNodeName) {
+        if (map == null || map.isEmpty()) {
+            return;
+        }
+        writer.startElement(nodeName);
+        for (Map.Entry<String, ? extends AbstractMessagePropertyValue> entry : map.entrySet()) {
+            writer.startElement(propertyNodeName);
+            writeContentElement(writer, PROPERTY_NAME_TAG, entry.getKey(), null);
+            writeContentElement(writer, PROPERTY_VALUE_TAG, propertyValueString(entry.getValue()), null);
+            writeContentElement(writer, PROPERTY_TYPE_TAG, entry.getValue().getDataTypeString(), null);
+            writer.endElement(propertyNodeName);
+        }
+        writer.endElement(nodeName);
+    }
+
+    /**
+     * 估算消息序列化后的字节数，用于预分配 {@link XmlWriter} 的缓冲区
+     */
+    protected int estimateSize(Message msg) {
+        byte[] body = msg.getMessageBodyAsRawBytes();
+        int size = 256 + (body == null ? 0 : body.length);
+        Map<String, MessagePropertyValue> userProperties = msg.getUserProperties();
+        if (userProperties != null) {
+            size += userProperties.size() * 96;
+        }
+        return size;
+    }
+
     public Element safeCreatePropertiesNode(Document doc, Map<String, ? extends AbstractMessagePropertyValue> map,
         String nodeName, String propertyNodeName) {
         if (map == null || map.isEmpty()) {
@@ -152,16 +237,8 @@ public abstract class XMLSerializer<T> extends BaseXMLSerializer<T> implements S
                 propNode.appendChild(nameNode);
             }
 
-            String valueString = entry.getValue().getStringValueByType();
-            if (entry.getValue() instanceof MessagePropertyValue) {
-                PropertyType propertyType = ((MessagePropertyValue) entry.getValue()).getDataType();
-                if (propertyType == PropertyType.BINARY) {
-                    // 防止特殊字符，使用base64编码
-                    valueString = new String(Base64.encodeBase64(valueString.getBytes()));
-                }
-            }
             Element valueNode = safeCreateContentElement(doc, PROPERTY_VALUE_TAG,
-                valueString, null);
+                propertyValueString(entry.getValue()), null);
             if (valueNode != null) {
                 propNode.appendChild(valueNode);
             }
@@ -176,4 +253,16 @@ public abstract class XMLSerializer<T> extends BaseXMLSerializer<T> implements S
         }
         return propertiesNode;
     }
+
+    private String propertyValueString(AbstractMessagePropertyValue value) {
+        String valueString = value.getStringValueByType();
+        if (value instanceof MessagePropertyValue) {
+            PropertyType propertyType = ((MessagePropertyValue) value).getDataType();
+            if (propertyType == PropertyType.BINARY) {
+                // 防止特殊字符，使用base64编码
+                valueString = new String(Base64.encodeBase64(valueString.getBytes()));
+            }
+        }
+        return valueString;
+    }
 }
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.model.serialize;
+
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessagePropertyValue;
+import com.aliyun.mns.model.MessageSystemPropertyName;
+import com.aliyun.mns.model.MessageSystemPropertyValue;
+import com.aliyun.mns.model.PropertyType;
+import com.aliyun.mns.model.SystemPropertyType;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.codec.binary.Base64;
+
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_CHARSET;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_PROPERTY_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_SYSTEM_PROPERTY_TAG;
+import static com.aliyun.mns.common.MNSConstants.PROPERTY_NAME_TAG;
+import static com.aliyun.mns.common.MNSConstants.PROPERTY_TYPE_TAG;
+import static com.aliyun.mns.common.MNSConstants.PROPERTY_VALUE_TAG;
+
+/**
+ * 基于 StAX 的流式反序列化基类，单次顺序扫描输入，不构建 DOM 树。
+ * 元素按 local name 匹配，语义与 {@link XMLDeserializer} 中对应的方法保持一致。
+ */
+public abstract class XMLStreamDeserializer<T> extends BaseXMLSerializer<T> implements Deserializer<T> {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return inputFactory;
+    }
+
+    protected XMLStreamReader createReader(InputStream stream) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(stream);
+    }
+
+    /**
+     * 跳过当前元素（reader 位于 START_ELEMENT）及其所有子节点，返回时 reader 位于对应的 END_ELEMENT。
+     */
+    protected void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 读取当前元素（reader 位于 START_ELEMENT）下所有文本内容，等价于 DOM 的 getTextContent()。
+     */
+    protected String readElementText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder builder = null;
+        String single = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    String text = reader.getText();
+                    if (single == null) {
+                        single = text;
+                    } else {
+                        if (builder == null) {
+                            builder = new StringBuilder(single);
+                        }
+                        builder.append(text);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (builder != null) {
+            return builder.toString();
+        }
+        return single == null ? "" : single;
+    }
+
+    /**
+     * 解析 UserProperties 元素（reader 位于其 START_ELEMENT），结果写入 message 的 userProperties。
+     */
+    protected void readUserProperties(XMLStreamReader reader, Message message) throws XMLStreamException {
+        Map<String, MessagePropertyValue> userProperties = message.getUserProperties();
+        if (userProperties == null) {
+            userProperties = new HashMap<>();
+            message.setUserProperties(userProperties);
+        }
+
+        String[] triple = new String[3];
+        while (nextChildElement(reader)) {
+            if (MESSAGE_PROPERTY_TAG.equals(reader.getLocalName())) {
+                readPropertyTriple(reader, triple);
+                String name = triple[0];
+                String value = triple[1];
+                String type = triple[2];
+                if (name != null && value != null && type != null) {
+                    PropertyType typeEnum = PropertyType.valueOf(type);
+                    // 如果是二进制类型，需要base64解码
+                    if (typeEnum == PropertyType.BINARY) {
+                        try {
+                            value = new String(Base64.decodeBase64(value), DEFAULT_CHARSET);
+                        } catch (UnsupportedEncodingException e) {
+                            throw new ClientException("Not support enconding:"
+                                + DEFAULT_CHARSET, null, e);
+                        }
+                    }
+                    userProperties.put(name, new MessagePropertyValue(typeEnum, value));
+                }
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    /**
+     * 解析 SystemProperties 元素（reader 位于其 START_ELEMENT），结果写入 message 的 systemProperties。
+     */
+    protected void readSystemProperties(XMLStreamReader reader, Message message) throws XMLStreamException {
+        String[] triple = new String[3];
+        while (nextChildElement(reader)) {
+            if (MESSAGE_SYSTEM_PROPERTY_TAG.equals(reader.getLocalName())) {
+                readPropertyTriple(reader, triple);
+                String name = triple[0];
+                String value = triple[1];
+                String type = triple[2];
+                if (name != null && value != null && type != null) {
+                    MessageSystemPropertyValue propertyValue = new MessageSystemPropertyValue(
+                        SystemPropertyType.valueOf(type), value);
+                    message.putSystemProperty(MessageSystemPropertyName.getByValue(name), propertyValue);
+                }
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    /**
+     * 前进到当前元素的下一个子元素。找到子元素时返回 true（reader 位于其 START_ELEMENT）；
+     * 遇到当前元素的结束标签时返回 false（reader 位于其 END_ELEMENT）。
+     */
+    protected boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void readPropertyTriple(XMLStreamReader reader, String[] triple) throws XMLStreamException {
+        triple[0] = null;
+        triple[1] = null;
+        triple[2] = null;
+        while (nextChildElement(reader)) {
+            String localName = reader.getLocalName();
+            int index = PROPERTY_NAME_TAG.equals(localName) ? 0
+                : PROPERTY_VALUE_TAG.equals(localName) ? 1
+                : PROPERTY_TYPE_TAG.equals(localName) ? 2 : -1;
+            if (index < 0) {
+                skipElement(reader);
+            } else {
+                String text = readElementText(reader);
+                // 与 DOM 实现一致，同名元素以第一次出现的为准
+                if (triple[index] == null) {
+                    triple[index] = text;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.model.serialize;
+
+import com.aliyun.mns.common.comm.ByteBufferContent;
+import com.aliyun.mns.common.comm.ByteBufferPool;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_CHARSET;
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_XML_NAMESPACE;
+
+/**
+ * 直接输出 UTF-8 字节的 XML 写入器，不经过 DOM 和 Transformer。
+ * <p>
+ * 输出与 {@link XmlUtil#xmlNodeToString(org.w3c.dom.Node, String)} 后再按 UTF-8 编码得到的字节完全一致：
+ * 包括 XML 声明、空元素写成 {@code <Tag/>}、以及 JDK Transformer 的字符转义规则。
+ * 元素名只能是 ASCII 常量。
+ */
+public final class XmlWriter {
+
+    private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator", "\n").getBytes();
+
+    private byte[] buf;
+    private int count;
+    /**
+     * 缓冲区来自的池，为 null 时自行分配
+     */
+    private final ByteBufferPool pool;
+    private ByteBuffer pooledBuffer;
+    /**
+     * 当前元素的开始标签尚未闭合（还没写 '>'）
+     */
+    private boolean startTagOpen;
+
+    public XmlWriter(int initialCapacity) {
+        this.pool = null;
+        this.buf = new byte[Math.max(initialCapacity, 64)];
+    }
+
+    /**
+     * 缓冲区从堆内存的 pool 中取得，{@link #toInputStream()} 返回的内容释放后归还；适合用于请求体
+     */
+    public XmlWriter(int initialCapacity, ByteBufferPool pool) {
+        if (pool == null || pool.isDirect()) {
+            throw new IllegalArgumentException("pool should be a heap buffer pool");
+        }
+        this.pool = pool;
+        this.pooledBuffer = pool.acquire(Math.max(initialCapacity, 64));
+        this.buf = pooledBuffer.array();
+    }
+
+    public static boolean isSupportedEncoding(String encoding) {
+        return DEFAULT_CHARSET.equalsIgnoreCase(encoding);
+    }
+
+    public XmlWriter writeDeclaration(String encoding) {
+        writeAscii("<?xml version=\"1.0\" encoding=\"");
+        writeAscii(encoding);
+        writeAscii("\" standalone=\"no\"?>");
+        return this;
+    }
+
+    /**
+     * 写入带默认命名空间声明的根元素开始标签
+     */
+    public XmlWriter startRootElement(String tagName) {
+        startElement(tagName);
+        writeAscii(" xmlns=\"");
+        writeAscii(DEFAULT_XML_NAMESPACE);
+        writeByte('"');
+        return this;
+    }
+
+    public XmlWriter startElement(String tagName) {
+        closeStartTag();
+        writeByte('<');
+        writeAscii(tagName);
+        startTagOpen = true;
+        return this;
+    }
+
+    public XmlWriter endElement(String tagName) {
+        if (startTagOpen) {
+            writeByte('/');
+            writeByte('>');
+            startTagOpen = false;
+        } else {
+            writeByte('<');
+            writeByte('/');
+            writeAscii(tagName);
+            writeByte('>');
+        }
+        return this;
+    }
+
+    /**
+     * 写入只包含文本的元素，文本为空时写成 {@code <Tag/>}
+     */
+    public XmlWriter textElement(String tagName, String text) {
+        startElement(tagName);
+        text(text);
+        return endElement(tagName);
+    }
+
+    public XmlWriter text(String text) {
+        if (text == null || text.isEmpty()) {
+            return this;
+        }
+        closeStartTag();
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                writeAsciiChar(c);
+            } else if (c < 0xA0) {
+                writeCharRef(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCharRef(Character.toCodePoint(c, text.charAt(++i)));
+            } else if (Character.isSurrogate(c)) {
+                // 孤立的代理字符，与 String.getBytes("UTF-8") 一样替换为 '?'
+                writeByte('?');
+            } else {
+                ensureCapacity(3);
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * 以内部缓冲区构造输入流，不再复制数据；调用后不应再写入。
+     * 返回的 {@link ByteBufferContent} 可以直接作为请求体发送，使用 pool 时由发送方在请求结束后释放
+     */
+    public InputStream toInputStream() {
+        closeStartTag();
+        if (pooledBuffer == null) {
+            return ByteBufferContent.wrap(buf, 0, count);
+        }
+        pooledBuffer.clear();
+        pooledBuffer.limit(count);
+        return ByteBufferContent.pooled(pooledBuffer, pool);
+    }
+
+    private void writeAsciiChar(char c) {
+        switch (c) {
+            case '<':
+                writeAscii("&lt;");
+                break;
+            case '>':
+                writeAscii("&gt;");
+                break;
+            case '&':
+                writeAscii("&amp;");
+                break;
+            case '\n':
+                ensureCapacity(LINE_SEPARATOR.length);
+                System.arraycopy(LINE_SEPARATOR, 0, buf, count, LINE_SEPARATOR.length);
+                count += LINE_SEPARATOR.length;
+                break;
+            case '\t':
+                writeByte(c);
+                break;
+            default:
+                if (c < 0x20 || c == 0x7F) {
+                    writeCharRef(c);
+                } else {
+                    writeByte(c);
+                }
+                break;
+        }
+    }
+
+    private void writeCharRef(int codePoint) {
+        writeAscii("&#");
+        writeAscii(Integer.toString(codePoint));
+        writeByte(';');
+    }
+
+    private void closeStartTag() {
+        if (startTagOpen) {
+            writeByte('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void writeAscii(String s) {
+        int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buf[count++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buf.length) {
+            int capacity = Math.max(buf.length << 1, count + extra);
+            if (pooledBuffer == null) {
+                buf = Arrays.copyOf(buf, capacity);
+            } else {
+                ByteBuffer larger = pool.acquire(capacity);
+                System.arraycopy(buf, 0, larger.array(), 0, count);
+                pool.release(pooledBuffer);
+                pooledBuffer = larger;
+                buf = larger.array();
+            }
+        }
+    }
+}
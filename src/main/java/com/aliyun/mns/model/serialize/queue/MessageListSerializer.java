@@ -19,13 +19,15 @@
 
 package com.aliyun.mns.model.serialize.queue;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.List;
 
+import com.aliyun.mns.common.comm.ByteBufferContent;
+import com.aliyun.mns.common.comm.ByteBufferPool;
 import com.aliyun.mns.model.Message;
 import com.aliyun.mns.model.serialize.XMLSerializer;
 import com.aliyun.mns.model.serialize.XmlUtil;
+import com.aliyun.mns.model.serialize.XmlWriter;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -36,6 +38,25 @@ public class MessageListSerializer extends XMLSerializer<List<Message>> {
 
     @Override
     public InputStream serialize(List<Message> msgs, String encoding) throws Exception {
+        if (XmlWriter.isSupportedEncoding(encoding)) {
+            int capacity = 128;
+            if (msgs != null) {
+                for (Message msg : msgs) {
+                    capacity += estimateSize(msg);
+                }
+            }
+            XmlWriter writer = new XmlWriter(capacity, ByteBufferPool.heap());
+            writer.writeDeclaration(encoding);
+            writer.startRootElement(MESSAGE_LIST_TAG);
+            if (msgs != null) {
+                for (Message msg : msgs) {
+                    writeMessage(writer, msg, false);
+                }
+            }
+            writer.endElement(MESSAGE_LIST_TAG);
+            return writer.toInputStream();
+        }
+
         Document doc = getDocumentBuilder().newDocument();
         Element messages = doc.createElementNS(DEFAULT_XML_NAMESPACE, MESSAGE_LIST_TAG);
         doc.appendChild(messages);
@@ -47,7 +68,7 @@ public class MessageListSerializer extends XMLSerializer<List<Message>> {
         }
 
         String xml = XmlUtil.xmlNodeToString(doc, encoding);
-        return new ByteArrayInputStream(xml.getBytes(encoding));
+        return ByteBufferContent.wrap(xml.getBytes(encoding));
     }
 
 }
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.mns.model.serialize.queue;
+
+import com.aliyun.mns.model.ErrorMessageResult;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.serialize.XMLStreamDeserializer;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import static com.aliyun.mns.common.MNSConstants.DEQUEUE_COUNT_TAG;
+import static com.aliyun.mns.common.MNSConstants.ENQUEUE_TIME_TAG;
+import static com.aliyun.mns.common.MNSConstants.FIRST_DEQUEUE_TIME_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_BODY_MD5_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_BODY_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_ERROR_CODE_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_ERROR_MESSAGE_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_GROUP_ID_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_ID_TAG;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_TAG;
+import static com.aliyun.mns.common.MNSConstants.NEXT_VISIBLE_TIME_TAG;
+import static com.aliyun.mns.common.MNSConstants.PRIORITY_TAG;
+import static com.aliyun.mns.common.MNSConstants.RECEIPT_HANDLE_TAG;
+import static com.aliyun.mns.common.MNSConstants.SYSTEM_PROPERTIES_TAG;
+import static com.aliyun.mns.common.MNSConstants.USER_PROPERTIES_TAG;
+
+/**
+ * {@link MessageListDeserializer} 的流式实现，用于 BatchReceiveMessage / BatchPeekMessage 的响应解析。
+ * 单次顺序扫描输入流，消息逐条构建，不需要先把整个响应构建成 DOM 树。
+ */
+public class MessageListStreamDeserializer extends XMLStreamDeserializer<List<Message>> {
+
+    @Override
+    public List<Message> deserialize(InputStream stream) throws Exception {
+        XMLStreamReader reader = createReader(stream);
+        try {
+            List<Message> results = null;
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                    && MESSAGE_TAG.equals(reader.getLocalName())) {
+                    if (results == null) {
+                        results = new ArrayList<Message>();
+                    }
+                    results.add(parseMessage(reader));
+                }
+            }
+            return results;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Message parseMessage(XMLStreamReader reader) throws XMLStreamException {
+        Message message = new Message();
+
+        String messageId = null;
+        String messageBody = null;
+        String messageBodyMD5 = null;
+        String receiptHandle = null;
+        String enqueueTime = null;
+        String nextVisibleTime = null;
+        String firstDequeueTime = null;
+        String dequeueCount = null;
+        String priority = null;
+        String messageGroupId = null;
+        String errorCode = null;
+        String errorMessage = null;
+        boolean userPropertiesParsed = false;
+        boolean systemPropertiesParsed = false;
+
+        while (nextChildElement(reader)) {
+            String tag = reader.getLocalName();
+            if (USER_PROPERTIES_TAG.equals(tag) && !userPropertiesParsed) {
+                readUserProperties(reader, message);
+                userPropertiesParsed = true;
+                continue;
+            }
+            if (SYSTEM_PROPERTIES_TAG.equals(tag) && !systemPropertiesParsed) {
+                readSystemProperties(reader, message);
+                systemPropertiesParsed = true;
+                continue;
+            }
+
+            // 同名元素以第一次出现的为准，与 DOM 实现的 getElementsByTagName(...).item(0) 一致
+            if (MESSAGE_ID_TAG.equals(tag)) {
+                messageId = first(messageId, reader);
+            } else if (MESSAGE_BODY_TAG.equals(tag)) {
+                messageBody = first(messageBody, reader);
+            } else if (MESSAGE_BODY_MD5_TAG.equals(tag)) {
+                messageBodyMD5 = first(messageBodyMD5, reader);
+            } else if (RECEIPT_HANDLE_TAG.equals(tag)) {
+                receiptHandle = first(receiptHandle, reader);
+            } else if (ENQUEUE_TIME_TAG.equals(tag)) {
+                enqueueTime = first(enqueueTime, reader);
+            } else if (NEXT_VISIBLE_TIME_TAG.equals(tag)) {
+                nextVisibleTime = first(nextVisibleTime, reader);
+            } else if (FIRST_DEQUEUE_TIME_TAG.equals(tag)) {
+                firstDequeueTime = first(firstDequeueTime, reader);
+            } else if (DEQUEUE_COUNT_TAG.equals(tag)) {
+                dequeueCount = first(dequeueCount, reader);
+            } else if (PRIORITY_TAG.equals(tag)) {
+                priority = first(priority, reader);
+            } else if (MESSAGE_GROUP_ID_TAG.equals(tag)) {
+                messageGroupId = first(messageGroupId, reader);
+            } else if (MESSAGE_ERROR_CODE_TAG.equals(tag)) {
+                errorCode = first(errorCode, reader);
+            } else if (MESSAGE_ERROR_MESSAGE_TAG.equals(tag)) {
+                errorMessage = first(errorMessage, reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        if (messageId == null) {
+            Message errorMsg = new Message();
+            ErrorMessageResult result = new ErrorMessageResult();
+            result.setErrorCode(errorCode);
+            result.setErrorMessage(errorMessage);
+            errorMsg.setErrorMessage(result);
+            return errorMsg;
+        }
+
+        message.setMessageId(messageId);
+        if (messageBody != null) {
+            message.setMessageBody(messageBody, Message.MessageBodyType.RAW_STRING);
+        }
+        message.setMessageBodyMD5(messageBodyMD5);
+        message.setReceiptHandle(receiptHandle);
+        if (enqueueTime != null) {
+            message.setEnqueueTime(new Date(Long.parseLong(enqueueTime)));
+        }
+        if (nextVisibleTime != null) {
+            message.setNextVisibleTime(new Date(Long.parseLong(nextVisibleTime)));
+        }
+        if (firstDequeueTime != null) {
+            message.setFirstDequeueTime(new Date(Long.parseLong(firstDequeueTime)));
+        }
+        if (dequeueCount != null) {
+            message.setDequeueCount(Integer.parseInt(dequeueCount));
+        }
+        if (priority != null) {
+            message.setPriority(Integer.parseInt(priority));
+        }
+        if (messageGroupId != null) {
+            message.setMessageGroupId(messageGroupId);
+        }
+        return message;
+    }
+
+    private String first(String current, XMLStreamReader reader) throws XMLStreamException {
+        String text = readElementText(reader);
+        return current != null ? current : text;
+    }
+}
@@ -19,12 +19,14 @@
 
 package com.aliyun.mns.model.serialize.queue;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
+import com.aliyun.mns.common.comm.ByteBufferContent;
+import com.aliyun.mns.common.comm.ByteBufferPool;
 import com.aliyun.mns.model.Message;
 import com.aliyun.mns.model.serialize.XMLSerializer;
 import com.aliyun.mns.model.serialize.XmlUtil;
+import com.aliyun.mns.model.serialize.XmlWriter;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -36,6 +38,13 @@ public class MessageSerializer extends XMLSerializer<Message> {
 
     @Override
     public InputStream serialize(Message msg, String encoding) throws Exception {
+        if (XmlWriter.isSupportedEncoding(encoding)) {
+            XmlWriter writer = new XmlWriter(estimateSize(msg), ByteBufferPool.heap());
+            writer.writeDeclaration(encoding);
+            writeMessage(writer, msg, true);
+            return writer.toInputStream();
+        }
+
         Document doc = getDocumentBuilder().newDocument();
 
         Element root = serializeMessage(doc, msg);
@@ -43,6 +52,6 @@ public class MessageSerializer extends XMLSerializer<Message> {
 
         String xml = XmlUtil.xmlNodeToString(doc, encoding);
 
-        return new ByteArrayInputStream(xml.getBytes(encoding));
+        return ByteBufferContent.wrap(xml.getBytes(encoding));
     }
 }
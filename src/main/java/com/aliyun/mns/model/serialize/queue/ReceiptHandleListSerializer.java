@@ -19,9 +19,9 @@
 
 package com.aliyun.mns.model.serialize.queue;
 
+import com.aliyun.mns.common.comm.ByteBufferContent;
 import com.aliyun.mns.model.serialize.XMLSerializer;
 import com.aliyun.mns.model.serialize.XmlUtil;
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.List;
 import org.w3c.dom.Document;
@@ -51,6 +51,6 @@ public class ReceiptHandleListSerializer extends XMLSerializer<List<String>> {
         }
         String xml = XmlUtil.xmlNodeToString(doc, encoding);
 
-        return new ByteArrayInputStream(xml.getBytes(encoding));
+        return ByteBufferContent.wrap(xml.getBytes(encoding));
     }
 }
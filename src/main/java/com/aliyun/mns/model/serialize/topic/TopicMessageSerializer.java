@@ -19,20 +19,23 @@
 
 package com.aliyun.mns.model.serialize.topic;
 
+import com.aliyun.mns.common.comm.ByteBufferContent;
+import com.aliyun.mns.common.comm.ByteBufferPool;
 import com.aliyun.mns.common.utils.BooleanSerializer;
 import com.aliyun.mns.model.BaseAttributes;
 import com.aliyun.mns.model.MessageAttributes;
+import com.aliyun.mns.model.MessageBodyCodec;
 import com.aliyun.mns.model.TopicMessage;
 import com.aliyun.mns.model.request.topic.PublishMessageRequest;
 import com.aliyun.mns.model.serialize.XMLSerializer;
 import com.aliyun.mns.model.serialize.XmlUtil;
+import com.aliyun.mns.model.serialize.XmlWriter;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
 import static com.aliyun.mns.common.MNSConstants.DEFAULT_XML_NAMESPACE;
@@ -66,13 +69,19 @@ public class TopicMessageSerializer extends XMLSerializer<PublishMessageRequest>
 
     @Override
     public InputStream serialize(PublishMessageRequest request, String encoding) throws Exception {
+        if (XmlWriter.isSupportedEncoding(encoding)) {
+            return write(request, encoding);
+        }
+
         Document doc = getDocumentBuilder().newDocument();
 
         TopicMessage msg = request.getMessage();
+        MessageBodyCodec.EncodedBody encoded = encodeBody(msg);
         Element root = doc.createElementNS(DEFAULT_XML_NAMESPACE, MESSAGE_TAG);
         doc.appendChild(root);
 
-        Element node = safeCreateContentElement(doc, MESSAGE_BODY_TAG, msg.getOriginalMessageBody(), "");
+        Element node = safeCreateContentElement(doc, MESSAGE_BODY_TAG,
+            encoded != null ? encoded.getBody() : msg.getOriginalMessageBody(), "");
         if (node != null) {
             root.appendChild(node);
         }
@@ -82,7 +91,8 @@ public class TopicMessageSerializer extends XMLSerializer<PublishMessageRequest>
             root.appendChild(node);
         }
 
-        node = safeCreatePropertiesNode(doc, msg.getUserProperties(), USER_PROPERTIES_TAG, MESSAGE_PROPERTY_TAG);
+        node = safeCreatePropertiesNode(doc, encoded != null ? encoded.getUserProperties() : msg.getUserProperties(),
+            USER_PROPERTIES_TAG, MESSAGE_PROPERTY_TAG);
         if (node != null) {
             root.appendChild(node);
         }
@@ -107,7 +117,41 @@ public class TopicMessageSerializer extends XMLSerializer<PublishMessageRequest>
         }
 
         String xml = XmlUtil.xmlNodeToString(doc, encoding);
-        return new ByteArrayInputStream(xml.getBytes(encoding));
+        return ByteBufferContent.wrap(xml.getBytes(encoding));
+    }
+
+    private InputStream write(PublishMessageRequest request, String encoding) {
+        TopicMessage msg = request.getMessage();
+        MessageBodyCodec.EncodedBody encoded = encodeBody(msg);
+        String body = encoded != null ? encoded.getBody() : msg.getOriginalMessageBody();
+        XmlWriter writer = new XmlWriter(512 + (body == null ? 0 : body.length() + (body.length() >> 2)),
+            ByteBufferPool.heap());
+        writer.writeDeclaration(encoding);
+        writer.startRootElement(MESSAGE_TAG);
+
+        writeContentElement(writer, MESSAGE_BODY_TAG, body, "");
+        writeContentElement(writer, MESSAGE_TAG_TAG, msg.getMessageTag(), null);
+        writePropertiesNode(writer, encoded != null ? encoded.getUserProperties() : msg.getUserProperties(),
+            USER_PROPERTIES_TAG, MESSAGE_PROPERTY_TAG);
+        writePropertiesNode(writer, msg.getSystemProperties(), SYSTEM_PROPERTIES_TAG, MESSAGE_SYSTEM_PROPERTY_TAG);
+        writeContentElement(writer, MESSAGE_GROUP_ID_TAG, msg.getMessageGroupId(), null);
+
+        MessageAttributes messageAttributes = request.getMessageAttributes();
+        if (messageAttributes != null) {
+            writer.startElement(MESSAGE_ATTRIBUTES_TAG);
+            writeAttributeElement(writer, DYSMS_TAG, messageAttributes.getDysmsAttributes());
+            writeAttributeElement(writer, DM_TAG, messageAttributes.getDmAttributes());
+            writer.endElement(MESSAGE_ATTRIBUTES_TAG);
+        }
+
+        writer.endElement(MESSAGE_TAG);
+        return writer.toInputStream();
+    }
+
+    private void writeAttributeElement(XmlWriter writer, String tag, BaseAttributes attributes) {
+        if (attributes != null) {
+            writeContentElement(writer, tag, attributes.toJson(getGson()), null);
+        }
     }
 
     private void appendAttributeElement(Document doc, Element parent, String tag, BaseAttributes attributes) {
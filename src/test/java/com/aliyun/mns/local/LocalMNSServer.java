@@ -0,0 +1,1183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.local;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.client.MNSClientBuilder;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.utils.DateUtil;
+import com.aliyun.mns.common.utils.HttpUtil;
+import com.aliyun.mns.common.utils.ThreadUtil;
+import com.aliyun.mns.model.QueueMeta;
+import com.aliyun.mns.model.serialize.XmlWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.rules.ExternalResource;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_CHARSET;
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_CONTENT_TYPE;
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_XML_NAMESPACE;
+
+/**
+ * 进程内的 MNS 替身服务，基于 JDK 自带的 HttpServer，状态全部保存在内存中。
+ * <p>
+ * 实现了 SDK 使用的队列和主题 XML 接口：创建/删除/查询队列，Send/BatchSend，带长轮询的 Receive/BatchReceive，
+ * Delete/BatchDelete，ChangeVisibility，Peek/BatchPeek，创建/删除主题，订阅到队列，以及 Publish 向队列订阅的扇出。
+ * 请求会按 V2 或 V4 签名规则校验。可以注入固定/随机延迟和错误，用于在本地稳定复现吞吐、延迟和重试行为，
+ * 不依赖公网环境。
+ * <p>
+ * 可以作为 JUnit 的 {@code @Rule} 使用：用例开始前启动，结束后关闭通过 {@link #newClient} 创建的客户端并停止服务。
+ * <p>
+ * 不支持的部分：消息属性不回传、ListQueue/ListTopic、HTTP 推送类订阅。
+ */
+public final class LocalMNSServer extends ExternalResource {
+    public static final String DEFAULT_ACCESS_KEY_ID = "LocalAccessKeyId";
+    public static final String DEFAULT_ACCESS_KEY_SECRET = "LocalAccessKeySecret";
+    public static final String DEFAULT_REGION = "cn-local";
+    public static final String ACCOUNT_ID = "1234567890";
+
+    private static final long MAX_CLOCK_SKEW_MILLIS = 15 * 60 * 1000L;
+    private static final int MAX_BATCH_SIZE = 16;
+    private static final int MAX_WAIT_SECONDS = 30;
+    private static final int DEFAULT_PRIORITY = 8;
+    private static final DateTimeFormatter V4_DATE = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.US)
+        .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter V4_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'", Locale.US)
+        .withZone(ZoneOffset.UTC);
+
+    private final String accessKeyId;
+    private final String accessKeySecret;
+    private final String region;
+
+    private final Map<String, LocalQueue> queues = new ConcurrentHashMap<String, LocalQueue>();
+    private final Map<String, LocalTopic> topics = new ConcurrentHashMap<String, LocalTopic>();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private final List<FaultRule> faultRules = new CopyOnWriteArrayList<FaultRule>();
+    private final List<StallRule> stallRules = new CopyOnWriteArrayList<StallRule>();
+    private final AtomicLong messageSequence = new AtomicLong();
+    private final List<MNSClient> clients = new CopyOnWriteArrayList<MNSClient>();
+
+    private volatile boolean verifySignature = true;
+    private volatile long latencyMillis = 0;
+    private volatile long latencyJitterMillis = 0;
+    private volatile double errorRate = 0;
+    private volatile int errorStatusCode = 500;
+    private volatile String errorCode = "InternalError";
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String endpoint;
+
+    public LocalMNSServer() {
+        this(DEFAULT_ACCESS_KEY_ID, DEFAULT_ACCESS_KEY_SECRET, DEFAULT_REGION);
+    }
+
+    public LocalMNSServer(String accessKeyId, String accessKeySecret, String region) {
+        this.accessKeyId = accessKeyId;
+        this.accessKeySecret = accessKeySecret;
+        this.region = region;
+    }
+
+    /**
+     * 在 127.0.0.1 的随机端口上启动
+     *
+     * @return endpoint，例如 http://127.0.0.1:12345
+     * @throws IOException 端口绑定失败
+     */
+    public synchronized String start() throws IOException {
+        if (server != null) {
+            return endpoint;
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // 长轮询会占住处理线程，使用不限数量的线程池
+        executor = Executors.newCachedThreadPool(ThreadUtil.newNamedThreadFactory("local-mns-", true));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort();
+        return endpoint;
+    }
+
+    public synchronized void stop() {
+        for (MNSClient client : clients) {
+            client.close();
+        }
+        clients.clear();
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        start();
+    }
+
+    @Override
+    protected void after() {
+        stop();
+    }
+
+    /**
+     * 用例常用的客户端配置：V4 签名，不重试
+     */
+    public static ClientConfiguration newConfiguration() {
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(SignVersion.V4);
+        configuration.setMaxErrorRetry(0);
+        return configuration;
+    }
+
+    /**
+     * 创建指向本服务的客户端，{@link #stop()} 时一并关闭
+     */
+    public MNSClient newClient(ClientConfiguration configuration) {
+        MNSClient client = MNSClientBuilder.create()
+            .accessKeyId(accessKeyId)
+            .accessKeySecret(accessKeySecret)
+            .accountEndpoint(endpoint)
+            .region(region)
+            .clientConfiguration(configuration)
+            .build();
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * 用给定配置创建客户端，并创建一个不长轮询的队列
+     */
+    public CloudQueue newQueue(ClientConfiguration configuration, String name) {
+        return newQueue(newClient(configuration), name);
+    }
+
+    /**
+     * 用已有客户端创建一个不长轮询的队列
+     */
+    public CloudQueue newQueue(MNSClient client, String name) {
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(name);
+        meta.setPollingWaitSeconds(0);
+        return client.createQueue(meta);
+    }
+
+    public void setVerifySignature(boolean verifySignature) {
+        this.verifySignature = verifySignature;
+    }
+
+    /**
+     * 每个请求在处理前等待 fixedMillis 加上 [0, jitterMillis) 的随机时间
+     */
+    public void setLatency(long fixedMillis, long jitterMillis) {
+        this.latencyMillis = fixedMillis;
+        this.latencyJitterMillis = jitterMillis;
+    }
+
+    /**
+     * 以 rate 的概率让请求失败
+     */
+    public void setErrorRate(double rate, int statusCode, String errorCode) {
+        this.errorStatusCode = statusCode;
+        this.errorCode = errorCode;
+        this.errorRate = rate;
+    }
+
+    /**
+     * 让接下来 count 个指定接口的请求失败
+     *
+     * @param action     接口名，如 "BatchReceiveMessage"，null 表示任意接口
+     * @param count      失败次数
+     * @param statusCode HTTP 状态码
+     * @param errorCode  错误码
+     */
+    public void failNext(String action, int count, int statusCode, String errorCode) {
+        faultRules.add(new FaultRule(action, count, statusCode, errorCode));
+    }
+
+    /**
+     * 让接下来 count 个指定接口的成功响应在发出一半响应体后停顿 millis 毫秒，用于模拟读取响应体时超时
+     *
+     * @param action 接口名，null 表示任意接口
+     */
+    public void stallBodyNext(String action, int count, long millis) {
+        stallRules.add(new StallRule(action, count, millis));
+    }
+
+    /**
+     * 清除所有延迟和错误注入
+     */
+    public void clearFaults() {
+        faultRules.clear();
+        stallRules.clear();
+        errorRate = 0;
+        latencyMillis = 0;
+        latencyJitterMillis = 0;
+    }
+
+    /**
+     * 指定接口收到的请求数，包括被注入错误或签名校验失败的请求
+     */
+    public long getRequestCount(String action) {
+        AtomicLong count = requestCounts.get(action);
+        return count == null ? 0 : count.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String requestId = UUID.randomUUID().toString().replace("-", "").toUpperCase();
+        Response response;
+        long stallMillis = 0;
+        try {
+            Request request = new Request(exchange);
+            String action = resolveAction(request);
+            requestCounts.computeIfAbsent(action, k -> new AtomicLong()).incrementAndGet();
+            sleepLatency();
+            if (verifySignature) {
+                verifySignature(request);
+            }
+            injectFault(action);
+            response = dispatch(action, request);
+            stallMillis = takeStall(action);
+        } catch (LocalServiceException e) {
+            response = errorResponse(e.statusCode, e.errorCode, e.getMessage(), requestId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = errorResponse(503, "ServiceUnavailable", "server is stopping", requestId);
+        } catch (Exception e) {
+            response = errorResponse(500, "InternalError", e.toString(), requestId);
+        }
+        write(exchange, response, requestId, stallMillis);
+    }
+
+    private String resolveAction(Request request) {
+        String[] path = request.segments;
+        String method = request.method;
+        if (path.length == 2 && "queues".equals(path[0])) {
+            switch (method) {
+                case "PUT":
+                    return request.query.containsKey("metaoverride") ? "SetQueueAttributes" : "CreateQueue";
+                case "GET":
+                    return "GetQueueAttributes";
+                case "DELETE":
+                    return "DeleteQueue";
+                default:
+                    break;
+            }
+        } else if (path.length == 3 && "queues".equals(path[0]) && "messages".equals(path[2])) {
+            boolean batch = request.query.containsKey("numOfMessages");
+            switch (method) {
+                case "POST":
+                    return request.bodyStartsWith("Messages") ? "BatchSendMessage" : "SendMessage";
+                case "GET":
+                    if ("true".equals(request.query.get("peekonly"))) {
+                        return batch ? "BatchPeekMessage" : "PeekMessage";
+                    }
+                    return batch ? "BatchReceiveMessage" : "ReceiveMessage";
+                case "DELETE":
+                    return request.query.containsKey("ReceiptHandle") ? "DeleteMessage" : "BatchDeleteMessage";
+                case "PUT":
+                    return "ChangeMessageVisibility";
+                default:
+                    break;
+            }
+        } else if (path.length == 2 && "topics".equals(path[0])) {
+            switch (method) {
+                case "PUT":
+                    return request.query.containsKey("metaoverride") ? "SetTopicAttributes" : "CreateTopic";
+                case "GET":
+                    return "GetTopicAttributes";
+                case "DELETE":
+                    return "DeleteTopic";
+                default:
+                    break;
+            }
+        } else if (path.length == 3 && "topics".equals(path[0]) && "messages".equals(path[2])
+            && "POST".equals(method)) {
+            return "PublishMessage";
+        } else if (path.length == 4 && "topics".equals(path[0]) && "subscriptions".equals(path[2])) {
+            if ("PUT".equals(method)) {
+                return request.query.containsKey("metaoverride") ? "SetSubscriptionAttributes" : "Subscribe";
+            } else if ("DELETE".equals(method)) {
+                return "Unsubscribe";
+            }
+        }
+        return "Unsupported";
+    }
+
+    private Response dispatch(String action, Request request) throws Exception {
+        switch (action) {
+            case "CreateQueue":
+                return createQueue(request);
+            case "SetQueueAttributes":
+                applyQueueAttributes(getQueue(request), request.xml());
+                return new Response(204);
+            case "GetQueueAttributes":
+                return getQueueAttributes(request);
+            case "DeleteQueue":
+                queues.remove(request.segments[1]);
+                return new Response(204);
+            case "SendMessage":
+                return sendMessage(request);
+            case "BatchSendMessage":
+                return batchSendMessage(request);
+            case "ReceiveMessage":
+            case "BatchReceiveMessage":
+                return receiveMessage(request, "BatchReceiveMessage".equals(action));
+            case "PeekMessage":
+            case "BatchPeekMessage":
+                return peekMessage(request, "BatchPeekMessage".equals(action));
+            case "DeleteMessage":
+                return deleteMessage(request);
+            case "BatchDeleteMessage":
+                return batchDeleteMessage(request);
+            case "ChangeMessageVisibility":
+                return changeVisibility(request);
+            case "CreateTopic":
+                return createTopic(request);
+            case "SetTopicAttributes":
+                getTopic(request);
+                return new Response(204);
+            case "GetTopicAttributes":
+                return getTopicAttributes(request);
+            case "DeleteTopic":
+                topics.remove(request.segments[1]);
+                return new Response(204);
+            case "PublishMessage":
+                return publishMessage(request);
+            case "Subscribe":
+                return subscribe(request);
+            case "SetSubscriptionAttributes":
+                return setSubscriptionAttributes(request);
+            case "Unsubscribe":
+                getTopic(request).subscriptions.remove(request.segments[3]);
+                return new Response(204);
+            default:
+                throw new LocalServiceException(400, "UnsupportedOperation",
+                    request.method + " " + request.path + " is not supported by LocalMNSServer.");
+        }
+    }
+
+    // ------------------------------------------------------------------ queue
+
+    private Response createQueue(Request request) throws Exception {
+        String name = request.segments[1];
+        LocalQueue queue = new LocalQueue(name);
+        LocalQueue existing = queues.putIfAbsent(name, queue);
+        if (existing == null) {
+            applyQueueAttributes(queue, request.xml());
+        }
+        Response response = new Response(existing == null ? 201 : 204);
+        response.location = endpoint + "/queues/" + name;
+        return response;
+    }
+
+    private void applyQueueAttributes(LocalQueue queue, Element root) {
+        if (root == null) {
+            return;
+        }
+        String value;
+        if ((value = childText(root, "DelaySeconds")) != null) {
+            queue.delaySeconds = Long.parseLong(value);
+        }
+        if ((value = childText(root, "VisibilityTimeout")) != null) {
+            queue.visibilityTimeout = Long.parseLong(value);
+        }
+        if ((value = childText(root, "MaximumMessageSize")) != null) {
+            queue.maxMessageSize = Long.parseLong(value);
+        }
+        if ((value = childText(root, "MessageRetentionPeriod")) != null) {
+            queue.messageRetentionPeriod = Long.parseLong(value);
+        }
+        if ((value = childText(root, "PollingWaitSeconds")) != null) {
+            queue.pollingWaitSeconds = Integer.parseInt(value);
+        }
+        queue.lastModifyTime = System.currentTimeMillis();
+    }
+
+    private Response getQueueAttributes(Request request) {
+        LocalQueue queue = getQueue(request);
+        long[] counts = queue.counts();
+        XmlWriter writer = newXml("Queue")
+            .textElement("QueueName", queue.name)
+            .textElement("CreateTime", String.valueOf(queue.createTime / 1000))
+            .textElement("LastModifyTime", String.valueOf(queue.lastModifyTime / 1000))
+            .textElement("DelaySeconds", String.valueOf(queue.delaySeconds))
+            .textElement("MaximumMessageSize", String.valueOf(queue.maxMessageSize))
+            .textElement("MessageRetentionPeriod", String.valueOf(queue.messageRetentionPeriod))
+            .textElement("VisibilityTimeout", String.valueOf(queue.visibilityTimeout))
+            .textElement("PollingWaitSeconds", String.valueOf(queue.pollingWaitSeconds))
+            .textElement("ActiveMessages", String.valueOf(counts[0]))
+            .textElement("InactiveMessages", String.valueOf(counts[1]))
+            .textElement("DelayMessages", String.valueOf(counts[2]))
+            .endElement("Queue");
+        return new Response(200, writer.toByteArray());
+    }
+
+    private Response sendMessage(Request request) throws Exception {
+        LocalQueue queue = getQueue(request);
+        LocalQueue.StoredMessage message = enqueue(queue, request.xml());
+        XmlWriter writer = newXml("Message")
+            .textElement("MessageId", message.messageId)
+            .textElement("MessageBodyMD5", message.bodyMd5)
+            .endElement("Message");
+        return new Response(201, writer.toByteArray());
+    }
+
+    private Response batchSendMessage(Request request) throws Exception {
+        LocalQueue queue = getQueue(request);
+        List<Element> elements = children(request.xml(), "Message");
+        if (elements.isEmpty() || elements.size() > MAX_BATCH_SIZE) {
+            throw new LocalServiceException(400, "InvalidArgument", "batch size should be between 1 and 16.");
+        }
+        XmlWriter writer = newXml("Messages");
+        for (Element element : elements) {
+            LocalQueue.StoredMessage message = enqueue(queue, element);
+            writer.startElement("Message")
+                .textElement("MessageId", message.messageId)
+                .textElement("MessageBodyMD5", message.bodyMd5)
+                .endElement("Message");
+        }
+        writer.endElement("Messages");
+        return new Response(201, writer.toByteArray());
+    }
+
+    private LocalQueue.StoredMessage enqueue(LocalQueue queue, Element element) throws Exception {
+        String body = childText(element, "MessageBody");
+        if (body == null) {
+            body = "";
+        }
+        if (body.getBytes(StandardCharsets.UTF_8).length > queue.maxMessageSize) {
+            throw new LocalServiceException(400, "InvalidArgument", "message body is larger than MaximumMessageSize.");
+        }
+        String priority = childText(element, "Priority");
+        String delay = childText(element, "DelaySeconds");
+        LocalQueue.StoredMessage message = new LocalQueue.StoredMessage(newMessageId(), body, md5(body),
+            priority == null ? DEFAULT_PRIORITY : Integer.parseInt(priority), childText(element, "MessageGroupId"),
+            userProperties(element));
+        queue.add(message, delay == null ? queue.delaySeconds : Long.parseLong(delay));
+        return message;
+    }
+
+    private Response receiveMessage(Request request, boolean batch) throws Exception {
+        LocalQueue queue = getQueue(request);
+        int count = batch ? parseBatchSize(request) : 1;
+        String wait = request.query.get("waitseconds");
+        int waitSeconds = wait == null ? queue.pollingWaitSeconds : Integer.parseInt(wait);
+        List<LocalQueue.Snapshot> messages = queue.receive(count, Math.min(Math.max(waitSeconds, 0), MAX_WAIT_SECONDS));
+        return messagesResponse(messages, batch);
+    }
+
+    private Response peekMessage(Request request, boolean batch) {
+        LocalQueue queue = getQueue(request);
+        return messagesResponse(queue.peek(batch ? parseBatchSize(request) : 1), batch);
+    }
+
+    private Response messagesResponse(List<LocalQueue.Snapshot> messages, boolean batch) {
+        if (messages.isEmpty()) {
+            throw new LocalServiceException(404, "MessageNotExist", "Message not exist.");
+        }
+        XmlWriter writer;
+        if (batch) {
+            writer = newXml("Messages");
+            for (LocalQueue.Snapshot message : messages) {
+                writeMessage(writer.startElement("Message"), message).endElement("Message");
+            }
+            writer.endElement("Messages");
+        } else {
+            writer = writeMessage(newXml("Message"), messages.get(0)).endElement("Message");
+        }
+        return new Response(200, writer.toByteArray());
+    }
+
+    private XmlWriter writeMessage(XmlWriter writer, LocalQueue.Snapshot message) {
+        writer.textElement("MessageId", message.messageId);
+        if (message.receiptHandle != null) {
+            writer.textElement("ReceiptHandle", message.receiptHandle);
+        }
+        writer.textElement("MessageBodyMD5", message.bodyMd5)
+            .textElement("MessageBody", message.body)
+            .textElement("EnqueueTime", String.valueOf(message.enqueueTime))
+            .textElement("NextVisibleTime", String.valueOf(message.nextVisibleTime))
+            .textElement("FirstDequeueTime", String.valueOf(message.firstDequeueTime))
+            .textElement("DequeueCount", String.valueOf(message.dequeueCount))
+            .textElement("Priority", String.valueOf(message.priority));
+        if (message.messageGroupId != null) {
+            writer.textElement("MessageGroupId", message.messageGroupId);
+        }
+        if (!message.userProperties.isEmpty()) {
+            writer.startElement("UserProperties");
+            for (String[] property : message.userProperties) {
+                writer.startElement("PropertyValue")
+                    .textElement("Name", property[0])
+                    .textElement("Value", property[1])
+                    .textElement("Type", property[2])
+                    .endElement("PropertyValue");
+            }
+            writer.endElement("UserProperties");
+        }
+        return writer;
+    }
+
+    private Response deleteMessage(Request request) {
+        LocalQueue queue = getQueue(request);
+        if (!queue.delete(request.query.get("ReceiptHandle"))) {
+            throw new LocalServiceException(400, "ReceiptHandleError", "The receipt handle you provide is not valid.");
+        }
+        return new Response(204);
+    }
+
+    private Response batchDeleteMessage(Request request) throws Exception {
+        LocalQueue queue = getQueue(request);
+        List<Element> handles = children(request.xml(), "ReceiptHandle");
+        if (handles.isEmpty() || handles.size() > MAX_BATCH_SIZE) {
+            throw new LocalServiceException(400, "InvalidArgument", "batch size should be between 1 and 16.");
+        }
+        List<String> invalid = new ArrayList<String>();
+        for (Element element : handles) {
+            String handle = element.getTextContent();
+            if (!queue.delete(handle)) {
+                invalid.add(handle);
+            }
+        }
+        if (invalid.isEmpty()) {
+            return new Response(204);
+        }
+        XmlWriter writer = newXml("Errors");
+        for (String handle : invalid) {
+            writer.startElement("Error")
+                .textElement("ErrorCode", "ReceiptHandleError")
+                .textElement("ErrorMessage", "The receipt handle you provide is not valid.")
+                .textElement("ReceiptHandle", handle)
+                .endElement("Error");
+        }
+        writer.endElement("Errors");
+        return new Response(404, writer.toByteArray());
+    }
+
+    private Response changeVisibility(Request request) {
+        LocalQueue queue = getQueue(request);
+        String timeout = request.query.get("VisibilityTimeout");
+        if (timeout == null) {
+            throw new LocalServiceException(400, "InvalidArgument", "VisibilityTimeout is required.");
+        }
+        LocalQueue.Snapshot message = queue.changeVisibility(request.query.get("ReceiptHandle"), Long.parseLong(timeout));
+        if (message == null) {
+            throw new LocalServiceException(400, "ReceiptHandleError", "The receipt handle you provide is not valid.");
+        }
+        XmlWriter writer = newXml("ChangeVisibility")
+            .textElement("ReceiptHandle", message.receiptHandle)
+            .textElement("NextVisibleTime", String.valueOf(message.nextVisibleTime))
+            .endElement("ChangeVisibility");
+        return new Response(200, writer.toByteArray());
+    }
+
+    private LocalQueue getQueue(Request request) {
+        LocalQueue queue = queues.get(request.segments[1]);
+        if (queue == null) {
+            throw new LocalServiceException(404, "QueueNotExist", "The queue name you provided is not exist.");
+        }
+        return queue;
+    }
+
+    // ------------------------------------------------------------------ topic
+
+    private Response createTopic(Request request) {
+        String name = request.segments[1];
+        LocalTopic existing = topics.putIfAbsent(name, new LocalTopic(name));
+        Response response = new Response(existing == null ? 201 : 204);
+        response.location = endpoint + "/topics/" + name;
+        return response;
+    }
+
+    private Response getTopicAttributes(Request request) {
+        LocalTopic topic = getTopic(request);
+        XmlWriter writer = newXml("Topic")
+            .textElement("TopicName", topic.name)
+            .textElement("CreateTime", String.valueOf(topic.createTime / 1000))
+            .textElement("LastModifyTime", String.valueOf(topic.createTime / 1000))
+            .textElement("MaximumMessageSize", "65536")
+            .textElement("MessageRetentionPeriod", "86400")
+            .textElement("MessageCount", String.valueOf(topic.messageCount.get()))
+            .endElement("Topic");
+        return new Response(200, writer.toByteArray());
+    }
+
+    private Response subscribe(Request request) throws Exception {
+        LocalTopic topic = getTopic(request);
+        String name = request.segments[3];
+        Subscription subscription = new Subscription(name);
+        applySubscriptionAttributes(subscription, request.xml());
+        Subscription existing = topic.subscriptions.putIfAbsent(name, subscription);
+        Response response = new Response(existing == null ? 201 : 204);
+        response.location = endpoint + "/topics/" + topic.name + "/subscriptions/" + name;
+        return response;
+    }
+
+    private Response setSubscriptionAttributes(Request request) throws Exception {
+        Subscription subscription = getTopic(request).subscriptions.get(request.segments[3]);
+        if (subscription == null) {
+            throw new LocalServiceException(404, "SubscriptionNotExist", "The subscription you provided is not exist.");
+        }
+        applySubscriptionAttributes(subscription, request.xml());
+        return new Response(204);
+    }
+
+    private void applySubscriptionAttributes(Subscription subscription, Element root) {
+        if (root == null) {
+            return;
+        }
+        String value;
+        if ((value = childText(root, "Endpoint")) != null) {
+            subscription.endpoint = value;
+        }
+        if ((value = childText(root, "FilterTag")) != null) {
+            subscription.filterTag = value;
+        }
+        if ((value = childText(root, "NotifyContentFormat")) != null) {
+            subscription.notifyContentFormat = value;
+        }
+    }
+
+    private Response publishMessage(Request request) throws Exception {
+        LocalTopic topic = getTopic(request);
+        Element root = request.xml();
+        String body = childText(root, "MessageBody");
+        if (body == null) {
+            body = "";
+        }
+        String tag = childText(root, "MessageTag");
+        String messageId = newMessageId();
+        String bodyMd5 = md5(body);
+        topic.messageCount.incrementAndGet();
+
+        for (Subscription subscription : topic.subscriptions.values()) {
+            int index = subscription.endpoint == null ? -1 : subscription.endpoint.indexOf(":queues/");
+            if (index < 0 || (subscription.filterTag != null && !subscription.filterTag.equals(tag))) {
+                continue;
+            }
+            LocalQueue queue = queues.get(subscription.endpoint.substring(index + ":queues/".length()));
+            if (queue == null) {
+                continue;
+            }
+            boolean xml = "XML".equals(subscription.notifyContentFormat);
+            String notification = xml ? notificationXml(topic, subscription, messageId, bodyMd5, body) : body;
+            // XML 格式的通知把消息包在 Notification 里，不带用户属性
+            List<String[]> properties = xml ? Collections.<String[]>emptyList() : userProperties(root);
+            queue.add(new LocalQueue.StoredMessage(newMessageId(), notification, md5(notification),
+                DEFAULT_PRIORITY, childText(root, "MessageGroupId"), properties), queue.delaySeconds);
+        }
+
+        XmlWriter writer = newXml("Message")
+            .textElement("MessageId", messageId)
+            .textElement("MessageBodyMD5", bodyMd5)
+            .endElement("Message");
+        return new Response(201, writer.toByteArray());
+    }
+
+    private String notificationXml(LocalTopic topic, Subscription subscription, String messageId, String bodyMd5,
+        String body) {
+        XmlWriter writer = newXml("Notification")
+            .textElement("TopicOwner", ACCOUNT_ID)
+            .textElement("TopicName", topic.name)
+            .textElement("Subscriber", ACCOUNT_ID)
+            .textElement("SubscriptionName", subscription.name)
+            .textElement("MessageId", messageId)
+            .textElement("MessageMD5", bodyMd5)
+            .textElement("Message", body)
+            .textElement("PublishTime", String.valueOf(System.currentTimeMillis()))
+            .endElement("Notification");
+        return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private LocalTopic getTopic(Request request) {
+        LocalTopic topic = topics.get(request.segments[1]);
+        if (topic == null) {
+            throw new LocalServiceException(404, "TopicNotExist", "The topic name you provided is not exist.");
+        }
+        return topic;
+    }
+
+    // ------------------------------------------------------------------ signature
+
+    private void verifySignature(Request request) throws Exception {
+        String authorization = request.header("Authorization");
+        String dateHeader = request.header("Date");
+        if (authorization == null || dateHeader == null) {
+            throw new LocalServiceException(403, "AccessDenied", "Authorization and Date headers are required.");
+        }
+        Date date = DateUtil.parseRfc822Date(dateHeader);
+        if (Math.abs(System.currentTimeMillis() - date.getTime()) > MAX_CLOCK_SKEW_MILLIS) {
+            throw new LocalServiceException(403, "RequestTimeTooSkewed", "Date header is too skewed: " + dateHeader);
+        }
+
+        String expected;
+        String actual;
+        if (authorization.startsWith("MNS ")) {
+            String credential = authorization.substring(4);
+            int index = credential.lastIndexOf(':');
+            checkAccessKey(index < 0 ? null : credential.substring(0, index));
+            actual = credential.substring(index + 1);
+            expected = Base64.getEncoder().encodeToString(
+                hmac("HmacSHA1", accessKeySecret.getBytes(StandardCharsets.UTF_8), v2StringToSign(request, dateHeader)));
+        } else if (authorization.startsWith("MNS4-HMAC-SHA256 ")) {
+            Map<String, String> fields = new HashMap<String, String>();
+            for (String field : authorization.substring("MNS4-HMAC-SHA256 ".length()).split(",")) {
+                int index = field.indexOf('=');
+                if (index > 0) {
+                    fields.put(field.substring(0, index).trim(), field.substring(index + 1).trim());
+                }
+            }
+            String[] scope = String.valueOf(fields.get("Credential")).split("/");
+            if (scope.length != 5) {
+                throw new LocalServiceException(403, "InvalidAuthorizationHeader", authorization);
+            }
+            checkAccessKey(scope[0]);
+            String utcDate = V4_DATE.format(date.toInstant());
+            if (!utcDate.equals(scope[1]) || !region.equals(scope[2]) || !"mns".equals(scope[3])) {
+                throw new LocalServiceException(403, "SignatureDoesNotMatch", "credential scope mismatch: "
+                    + fields.get("Credential"));
+            }
+            actual = fields.get("Signature");
+            expected = toHex(hmac("HmacSHA256", v4SigningKey(utcDate, scope[4]),
+                v4StringToSign(request, date, String.join("/", scope[1], scope[2], scope[3], scope[4]))));
+        } else {
+            throw new LocalServiceException(403, "InvalidAuthorizationHeader", authorization);
+        }
+        if (!expected.equals(actual)) {
+            throw new LocalServiceException(403, "SignatureDoesNotMatch",
+                "The request signature we calculated does not match the signature you provided.");
+        }
+    }
+
+    private void checkAccessKey(String requestAccessKeyId) {
+        if (!accessKeyId.equals(requestAccessKeyId)) {
+            throw new LocalServiceException(403, "InvalidAccessKeyId", "AccessKeyId is not valid: " + requestAccessKeyId);
+        }
+    }
+
+    private String v2StringToSign(Request request, String dateHeader) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(request.method).append('\n')
+            .append(nullToEmpty(request.header("Content-MD5"))).append('\n')
+            .append(nullToEmpty(request.header("Content-Type"))).append('\n')
+            .append(dateHeader).append('\n');
+        for (Map.Entry<String, String> header : request.mnsHeaders().entrySet()) {
+            builder.append(header.getKey()).append(':').append(header.getValue()).append('\n');
+        }
+        builder.append(request.rawPath);
+        if (request.rawQuery != null) {
+            builder.append('?').append(request.rawQuery);
+        }
+        return builder.toString();
+    }
+
+    private String v4StringToSign(Request request, Date date, String scope) {
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(request.method).append('\n')
+            .append(HttpUtil.urlEncode(request.path, true)).append('\n');
+        TreeMap<String, String> query = new TreeMap<String, String>();
+        if (request.rawQuery != null) {
+            for (String pair : request.rawQuery.split("&")) {
+                int index = pair.indexOf('=');
+                String key = index > 0 ? pair.substring(0, index) : pair;
+                String value = index > 0 ? pair.substring(index + 1) : "";
+                query.put(HttpUtil.urlEncode(key.toLowerCase().trim(), false), HttpUtil.urlEncode(value.trim(), false));
+            }
+        }
+        String separator = "";
+        for (Map.Entry<String, String> param : query.entrySet()) {
+            canonical.append(separator).append(param.getKey());
+            if (!param.getValue().isEmpty()) {
+                canonical.append('=').append(param.getValue());
+            }
+            separator = "&";
+        }
+        canonical.append('\n');
+        TreeMap<String, String> headers = request.mnsHeaders();
+        putIfNotNull(headers, "content-type", request.header("Content-Type"));
+        putIfNotNull(headers, "content-md5", request.header("Content-MD5"));
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            canonical.append(header.getKey()).append(':').append(header.getValue().trim()).append('\n');
+        }
+        canonical.append('\n');
+        return "MNS4-HMAC-SHA256\n" + V4_DATE_TIME.format(date.toInstant()) + "\n" + scope + "\n" + canonical;
+    }
+
+    private byte[] v4SigningKey(String utcDate, String suffix) throws Exception {
+        byte[] key = hmac("HmacSHA256", ("aliyun_v4" + accessKeySecret).getBytes(StandardCharsets.UTF_8), utcDate);
+        key = hmac("HmacSHA256", key, region);
+        key = hmac("HmacSHA256", key, "mns");
+        return hmac("HmacSHA256", key, suffix);
+    }
+
+    private static byte[] hmac(String algorithm, byte[] key, String data) throws Exception {
+        Mac mac = Mac.getInstance(algorithm);
+        mac.init(new SecretKeySpec(key, algorithm));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ------------------------------------------------------------------ fault injection
+
+    private void sleepLatency() throws InterruptedException {
+        long delay = latencyMillis;
+        if (latencyJitterMillis > 0) {
+            delay += ThreadLocalRandom.current().nextLong(latencyJitterMillis);
+        }
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    private void injectFault(String action) {
+        for (FaultRule rule : faultRules) {
+            if ((rule.action == null || rule.action.equals(action)) && rule.remaining.getAndDecrement() > 0) {
+                throw new LocalServiceException(rule.statusCode, rule.errorCode, "injected fault");
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            throw new LocalServiceException(errorStatusCode, errorCode, "injected fault");
+        }
+    }
+
+    private long takeStall(String action) {
+        for (StallRule rule : stallRules) {
+            if ((rule.action == null || rule.action.equals(action)) && rule.remaining.getAndDecrement() > 0) {
+                return rule.millis;
+            }
+        }
+        return 0;
+    }
+
+    // ------------------------------------------------------------------ helpers
+
+    private String newMessageId() {
+        return String.format("%016X", messageSequence.incrementAndGet());
+    }
+
+    private static XmlWriter newXml(String rootTag) {
+        return new XmlWriter(256).writeDeclaration(DEFAULT_CHARSET).startRootElement(rootTag);
+    }
+
+    private static Response errorResponse(int statusCode, String code, String message, String requestId) {
+        XmlWriter writer = newXml("Error")
+            .textElement("Code", code)
+            .textElement("Message", message)
+            .textElement("RequestId", requestId)
+            .textElement("HostId", "http://127.0.0.1")
+            .endElement("Error");
+        return new Response(statusCode, writer.toByteArray());
+    }
+
+    private static void write(HttpExchange exchange, Response response, String requestId, long stallMillis)
+        throws IOException {
+        try {
+            exchange.getResponseHeaders().set("x-mns-request-id", requestId);
+            if (response.location != null) {
+                exchange.getResponseHeaders().set("Location", response.location);
+            }
+            if (response.body == null) {
+                exchange.sendResponseHeaders(response.statusCode, -1);
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", DEFAULT_CONTENT_TYPE);
+                exchange.sendResponseHeaders(response.statusCode, response.body.length);
+                OutputStream out = exchange.getResponseBody();
+                if (stallMillis > 0) {
+                    int half = response.body.length / 2;
+                    out.write(response.body, 0, half);
+                    out.flush();
+                    sleepQuietly(stallMillis);
+                    out.write(response.body, half, response.body.length - half);
+                } else {
+                    out.write(response.body);
+                }
+                out.flush();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String md5(String body) throws Exception {
+        byte[] digest = MessageDigest.getInstance("MD5").digest(body.getBytes(StandardCharsets.UTF_8));
+        return toHex(digest).toUpperCase();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static String childText(Element root, String tag) {
+        NodeList nodes = root.getElementsByTagName(tag);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+
+    private static List<String[]> userProperties(Element message) {
+        List<String[]> properties = new ArrayList<String[]>();
+        for (Element userProperties : children(message, "UserProperties")) {
+            for (Element property : children(userProperties, "PropertyValue")) {
+                properties.add(new String[] {childText(property, "Name"), childText(property, "Value"),
+                    childText(property, "Type")});
+            }
+        }
+        return properties;
+    }
+
+    private static List<Element> children(Element root, String tag) {
+        List<Element> result = new ArrayList<Element>();
+        if (root == null) {
+            return result;
+        }
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && tag.equals(((Element) node).getTagName())) {
+                result.add((Element) node);
+            }
+        }
+        return result;
+    }
+
+    private static int parseBatchSize(Request request) {
+        int count = Integer.parseInt(request.query.get("numOfMessages"));
+        if (count < 1 || count > MAX_BATCH_SIZE) {
+            throw new LocalServiceException(400, "InvalidArgument", "numOfMessages should be between 1 and 16.");
+        }
+        return count;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static void putIfNotNull(Map<String, String> map, String key, String value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static final class Request {
+        final String method;
+        final String path;
+        final String rawPath;
+        final String rawQuery;
+        final String[] segments;
+        final Map<String, String> query = new HashMap<String, String>();
+        final byte[] body;
+        private final HttpExchange exchange;
+
+        Request(HttpExchange exchange) throws IOException {
+            this.exchange = exchange;
+            URI uri = exchange.getRequestURI();
+            this.method = exchange.getRequestMethod();
+            this.path = uri.getPath();
+            this.rawPath = uri.getRawPath();
+            this.rawQuery = uri.getRawQuery();
+            String trimmed = path.startsWith("/") ? path.substring(1) : path;
+            this.segments = trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+            if (rawQuery != null) {
+                for (String pair : rawQuery.split("&")) {
+                    int index = pair.indexOf('=');
+                    query.put(decode(index > 0 ? pair.substring(0, index) : pair),
+                        index > 0 ? decode(pair.substring(index + 1)) : "");
+                }
+            }
+            this.body = readAll(exchange.getRequestBody());
+        }
+
+        String header(String name) {
+            return exchange.getRequestHeaders().getFirst(name);
+        }
+
+        TreeMap<String, String> mnsHeaders() {
+            TreeMap<String, String> headers = new TreeMap<String, String>();
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                String key = header.getKey().toLowerCase();
+                if (key.startsWith("x-mns-") && !header.getValue().isEmpty()) {
+                    headers.put(key, header.getValue().get(0));
+                }
+            }
+            return headers;
+        }
+
+        boolean bodyStartsWith(String rootTag) {
+            String prefix = new String(body, 0, Math.min(body.length, 256), StandardCharsets.UTF_8);
+            int index = prefix.indexOf('<', prefix.startsWith("<?") ? prefix.indexOf("?>") : 0);
+            return index >= 0 && prefix.startsWith("<" + rootTag, index)
+                && !Character.isLetterOrDigit(prefix.charAt(Math.min(index + rootTag.length() + 1, prefix.length() - 1)));
+        }
+
+        Element xml() throws Exception {
+            if (body.length == 0) {
+                return null;
+            }
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(body)).getDocumentElement();
+        }
+
+        private static String decode(String value) throws UnsupportedEncodingException {
+            return URLDecoder.decode(value, DEFAULT_CHARSET);
+        }
+
+        private static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Response {
+        final int statusCode;
+        final byte[] body;
+        String location;
+
+        Response(int statusCode) {
+            this(statusCode, null);
+        }
+
+        Response(int statusCode, byte[] body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+
+    private static final class LocalTopic {
+        final String name;
+        final long createTime = System.currentTimeMillis();
+        final AtomicLong messageCount = new AtomicLong();
+        final Map<String, Subscription> subscriptions = new ConcurrentHashMap<String, Subscription>();
+
+        LocalTopic(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Subscription {
+        final String name;
+        volatile String endpoint;
+        volatile String filterTag;
+        volatile String notifyContentFormat = "XML";
+
+        Subscription(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class FaultRule {
+        final String action;
+        final AtomicInteger remaining;
+        final int statusCode;
+        final String errorCode;
+
+        FaultRule(String action, int count, int statusCode, String errorCode) {
+            this.action = action;
+            this.remaining = new AtomicInteger(count);
+            this.statusCode = statusCode;
+            this.errorCode = errorCode;
+        }
+    }
+
+    private static final class StallRule {
+        final String action;
+        final AtomicInteger remaining;
+        final long millis;
+
+        StallRule(String action, int count, long millis) {
+            this.action = action;
+            this.remaining = new AtomicInteger(count);
+            this.millis = millis;
+        }
+    }
+
+    private static final class LocalServiceException extends RuntimeException {
+        private static final long serialVersionUID = 4305871950342715963L;
+
+        final int statusCode;
+        final String errorCode;
+
+        LocalServiceException(int statusCode, String errorCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+            this.errorCode = errorCode;
+        }
+    }
+}
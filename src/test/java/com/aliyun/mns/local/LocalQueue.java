@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.aliyun.mns.local;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LocalMNSServer 中一个队列的内存状态。
+ * <p>
+ * 可见消息按 (优先级, 入队顺序) 排列；不可见消息（延时消息和已被取走的消息）按可见时间排列，
+ * 每次访问时把到期的消息移回可见队列。每次取走消息都会生成新的 receipt handle，旧 handle 随即失效。
+ */
+final class LocalQueue {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    final String name;
+    final long createTime = System.currentTimeMillis();
+    volatile long lastModifyTime = createTime;
+    volatile long delaySeconds = 0;
+    volatile long visibilityTimeout = 30;
+    volatile long maxMessageSize = 65536;
+    volatile long messageRetentionPeriod = 345600;
+    volatile int pollingWaitSeconds = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition messageAvailable = lock.newCondition();
+    private final PriorityQueue<StoredMessage> visible = new PriorityQueue<StoredMessage>(
+        (a, b) -> a.priority != b.priority ? Integer.compare(a.priority, b.priority) : Long.compare(a.sequence, b.sequence));
+    private final PriorityQueue<StoredMessage> invisible = new PriorityQueue<StoredMessage>(
+        (a, b) -> Long.compare(a.visibleAt, b.visibleAt));
+    private final Map<String, StoredMessage> byHandle = new HashMap<String, StoredMessage>();
+    private int delayedCount = 0;
+
+    LocalQueue(String name) {
+        this.name = name;
+    }
+
+    static final class StoredMessage {
+        final String messageId;
+        final String body;
+        final String bodyMd5;
+        final int priority;
+        final String messageGroupId;
+        final List<String[]> userProperties;
+        final long enqueueTime;
+        final long sequence;
+        long visibleAt;
+        long firstDequeueTime;
+        int dequeueCount;
+        String receiptHandle;
+        boolean delayed;
+
+        StoredMessage(String messageId, String body, String bodyMd5, int priority, String messageGroupId,
+            List<String[]> userProperties) {
+            this.messageId = messageId;
+            this.body = body;
+            this.bodyMd5 = bodyMd5;
+            this.priority = priority;
+            this.messageGroupId = messageGroupId;
+            this.userProperties = userProperties;
+            this.enqueueTime = System.currentTimeMillis();
+            this.sequence = SEQUENCE.incrementAndGet();
+        }
+
+        /**
+         * 返回给客户端的快照，避免在锁外读取可变字段
+         */
+        Snapshot snapshot() {
+            return new Snapshot(this);
+        }
+    }
+
+    static final class Snapshot {
+        final String messageId;
+        final String body;
+        final String bodyMd5;
+        final int priority;
+        final String messageGroupId;
+        final List<String[]> userProperties;
+        final long enqueueTime;
+        final long nextVisibleTime;
+        final long firstDequeueTime;
+        final int dequeueCount;
+        final String receiptHandle;
+
+        private Snapshot(StoredMessage message) {
+            this.messageId = message.messageId;
+            this.body = message.body;
+            this.bodyMd5 = message.bodyMd5;
+            this.priority = message.priority;
+            this.messageGroupId = message.messageGroupId;
+            this.userProperties = message.userProperties;
+            this.enqueueTime = message.enqueueTime;
+            this.nextVisibleTime = message.visibleAt;
+            this.firstDequeueTime = message.firstDequeueTime;
+            this.dequeueCount = message.dequeueCount;
+            this.receiptHandle = message.receiptHandle;
+        }
+    }
+
+    void add(StoredMessage message, long delaySeconds) {
+        lock.lock();
+        try {
+            if (delaySeconds > 0) {
+                message.visibleAt = System.currentTimeMillis() + delaySeconds * 1000;
+                message.delayed = true;
+                delayedCount++;
+                invisible.add(message);
+            } else {
+                message.visibleAt = message.enqueueTime;
+                visible.add(message);
+            }
+            messageAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取走最多 count 条消息，没有可见消息时最多等待 waitSeconds
+     */
+    List<Snapshot> receive(int count, int waitSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitSeconds);
+        List<Snapshot> result = new ArrayList<Snapshot>();
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                promote(now);
+                while (result.size() < count && !visible.isEmpty()) {
+                    StoredMessage message = visible.poll();
+                    if (message.firstDequeueTime == 0) {
+                        message.firstDequeueTime = now;
+                    }
+                    message.dequeueCount++;
+                    message.visibleAt = now + visibilityTimeout * 1000;
+                    message.receiptHandle = newReceiptHandle(message);
+                    byHandle.put(message.receiptHandle, message);
+                    invisible.add(message);
+                    result.add(message.snapshot());
+                }
+                long remaining = deadline - System.nanoTime();
+                if (!result.isEmpty() || remaining <= 0) {
+                    return result;
+                }
+                StoredMessage next = invisible.peek();
+                if (next != null) {
+                    remaining = Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(Math.max(1, next.visibleAt - now)));
+                }
+                messageAvailable.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    List<Snapshot> peek(int count) {
+        lock.lock();
+        try {
+            promote(System.currentTimeMillis());
+            List<StoredMessage> sorted = new ArrayList<StoredMessage>(visible);
+            sorted.sort(visible.comparator());
+            List<Snapshot> result = new ArrayList<Snapshot>();
+            for (int i = 0; i < sorted.size() && i < count; i++) {
+                result.add(sorted.get(i).snapshot());
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return handle 有效时返回 true
+     */
+    boolean delete(String receiptHandle) {
+        lock.lock();
+        try {
+            promote(System.currentTimeMillis());
+            StoredMessage message = byHandle.remove(receiptHandle);
+            if (message == null) {
+                return false;
+            }
+            invisible.remove(message);
+            visible.remove(message);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 新的消息状态；handle 无效时返回 null
+     */
+    Snapshot changeVisibility(String receiptHandle, long visibilityTimeoutSeconds) {
+        lock.lock();
+        try {
+            promote(System.currentTimeMillis());
+            StoredMessage message = byHandle.remove(receiptHandle);
+            if (message == null) {
+                return null;
+            }
+            invisible.remove(message);
+            visible.remove(message);
+            long now = System.currentTimeMillis();
+            message.visibleAt = now + visibilityTimeoutSeconds * 1000;
+            message.receiptHandle = newReceiptHandle(message);
+            byHandle.put(message.receiptHandle, message);
+            if (visibilityTimeoutSeconds > 0) {
+                invisible.add(message);
+            } else {
+                visible.add(message);
+                messageAvailable.signalAll();
+            }
+            return message.snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long[] counts() {
+        lock.lock();
+        try {
+            promote(System.currentTimeMillis());
+            return new long[] {visible.size(), invisible.size() - delayedCount, delayedCount};
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void promote(long now) {
+        StoredMessage message;
+        while ((message = invisible.peek()) != null && message.visibleAt <= now) {
+            invisible.poll();
+            if (message.delayed) {
+                message.delayed = false;
+                delayedCount--;
+            }
+            // 重新可见后旧 handle 失效
+            if (message.receiptHandle != null) {
+                byHandle.remove(message.receiptHandle);
+            }
+            visible.add(message);
+        }
+    }
+
+    private static String newReceiptHandle(StoredMessage message) {
+        return message.messageId + "-" + Long.toHexString(SEQUENCE.incrementAndGet());
+    }
+}
@@ -0,0 +1,160 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.CloudTopic;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.client.impl.AbstractAction;
+import com.aliyun.mns.client.impl.ActionCache;
+import com.aliyun.mns.client.impl.ActionContext;
+import com.aliyun.mns.client.impl.queue.GetQueueAttrAction;
+import com.aliyun.mns.client.impl.queue.SendMessageAction;
+import com.aliyun.mns.common.HttpMethod;
+import com.aliyun.mns.common.MNSConstants;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.RequestMessage;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.common.http.ServiceClientFactory;
+import com.aliyun.mns.common.parser.ResultParser;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Base64TopicMessage;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.RawTopicMessage;
+import com.aliyun.mns.model.TopicMessage;
+import com.aliyun.mns.model.TopicMeta;
+import com.aliyun.mns.model.request.queue.GetQueueAttrRequest;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * 动作对象复用：同类型动作只创建一次，并发调用各自生成 userRequestId，解析结果不串用
+ */
+public class ActionCacheTest {
+
+    @Rule
+    public final LocalMNSServer server = new LocalMNSServer();
+
+    @Test
+    public void get_SameType_ReturnsCachedInstance() {
+        ServiceClient serviceClient = Mockito.mock(ServiceClient.class);
+        Mockito.when(serviceClient.getClientConfiguration()).thenReturn(LocalMNSServer.newConfiguration());
+        ActionCache actions = new ActionCache(serviceClient, new ServiceCredentials(),
+            URI.create("http://localhost"));
+
+        SendMessageAction send = actions.get(SendMessageAction.class, SendMessageAction::new);
+        Assert.assertSame(send, actions.get(SendMessageAction.class, SendMessageAction::new));
+        Assert.assertNotNull(actions.get(GetQueueAttrAction.class, GetQueueAttrAction::new));
+        Assert.assertEquals(2, actions.size());
+        // 动作对象只在创建时读取一次配置
+        Mockito.verify(serviceClient, Mockito.times(2)).getClientConfiguration();
+    }
+
+    @Test
+    public void concurrentSends_EachCallHasOwnUserRequestId() throws Exception {
+        final Set<String> userRequestIds = ConcurrentHashMap.newKeySet();
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setGenerateRequestId(true);
+        configuration.setMetricsListener(metrics -> userRequestIds.add(metrics.getUserRequestId()));
+        MNSClient client = server.newClient(configuration);
+        server.newQueue(client, "action-cache-queue");
+
+        List<CompletableFuture<Message>> futures = new ArrayList<CompletableFuture<Message>>();
+        for (int i = 0; i < 64; i++) {
+            // 每次都重新取队列引用，仍然复用同一个客户端的动作对象
+            CloudQueue queue = client.getQueueRef("action-cache-queue");
+            Message message = new Message();
+            message.setMessageBodyAsRawString("m" + i);
+            futures.add(queue.putMessageAsync(message));
+        }
+        for (CompletableFuture<Message> future : futures) {
+            Assert.assertNotNull(future.get(10, TimeUnit.SECONDS).getMessageId());
+        }
+
+        // CreateQueue 加 64 次 SendMessage
+        Assert.assertEquals(65, userRequestIds.size());
+        for (String userRequestId : userRequestIds) {
+            Assert.assertEquals(4, UUID.fromString(userRequestId).version());
+        }
+    }
+
+    @Test
+    public void resultParser_ReadsUserRequestIdOfItsOwnCall() throws Exception {
+        final Set<String> metricsIds = ConcurrentHashMap.newKeySet();
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setGenerateRequestId(true);
+        configuration.setSocketTimeout(37000);
+        configuration.setMetricsListener(metrics -> metricsIds.add(metrics.getUserRequestId()));
+        server.newQueue(LocalMNSServer.newConfiguration(), "action-context-queue");
+        server.setVerifySignature(false);
+        ServiceClient serviceClient = ServiceClientFactory.createServiceClient(configuration);
+        try {
+            EchoUserRequestIdAction action = new EchoUserRequestIdAction(serviceClient,
+                URI.create(server.getEndpoint()));
+            List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+            for (int i = 0; i < 16; i++) {
+                GetQueueAttrRequest request = new GetQueueAttrRequest();
+                request.setRequestPath(MNSConstants.QUEUE_PREFIX + "action-context-queue");
+                futures.add(action.executeAsync(request, null));
+            }
+            // 解析器在回调线程上执行，仍然读到发起本次调用时生成的 userRequestId
+            Set<String> parsedIds = ConcurrentHashMap.newKeySet();
+            for (CompletableFuture<String> future : futures) {
+                parsedIds.add(future.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(16, parsedIds.size());
+            Assert.assertEquals(metricsIds, parsedIds);
+        } finally {
+            ServiceClientFactory.closeServiceClient(serviceClient);
+        }
+    }
+
+    @Test
+    public void concurrentPublish_ResultTypeFollowsEachRequest() throws Exception {
+        MNSClient client = server.newClient(LocalMNSServer.newConfiguration());
+        TopicMeta topicMeta = new TopicMeta();
+        topicMeta.setTopicName("action-cache-topic");
+        CloudTopic topic = client.createTopic(topicMeta);
+
+        List<CompletableFuture<TopicMessage>> futures = new ArrayList<CompletableFuture<TopicMessage>>();
+        for (int i = 0; i < 32; i++) {
+            TopicMessage message = i % 2 == 0 ? new RawTopicMessage() : new Base64TopicMessage();
+            message.setMessageBody("m" + i);
+            futures.add(topic.publishMessageAsync(message));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            TopicMessage result = futures.get(i).get(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(result.getMessageId());
+            Class<?> expected = i % 2 == 0 ? RawTopicMessage.class : Base64TopicMessage.class;
+            Assert.assertEquals(expected, result.getClass());
+        }
+    }
+
+    private static class EchoUserRequestIdAction extends AbstractAction<GetQueueAttrRequest, String> {
+
+        EchoUserRequestIdAction(ServiceClient client, URI endpoint) {
+            super(HttpMethod.GET, "GetQueueAttributes", client, null, endpoint);
+        }
+
+        @Override
+        protected RequestMessage buildRequest(GetQueueAttrRequest reqObject, ActionContext context) {
+            RequestMessage requestMessage = new RequestMessage();
+            requestMessage.setResourcePath(reqObject.getRequestPath());
+            return requestMessage;
+        }
+
+        @Override
+        protected ResultParser<String> buildResultParser(GetQueueAttrRequest reqObject, ActionContext context) {
+            return response -> context.getUserRequestId();
+        }
+    }
+}
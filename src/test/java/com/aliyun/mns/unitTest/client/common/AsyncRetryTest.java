@@ -0,0 +1,221 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.AsyncCallback;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.comm.ExecutionContext;
+import com.aliyun.mns.common.comm.NoRetryStrategy;
+import com.aliyun.mns.common.comm.RetryBudget;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ExceptionResultParser;
+import com.aliyun.mns.common.http.HttpCallback;
+import com.aliyun.mns.common.http.RequestMessage;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.common.http.ServiceClientFactory;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * 异步重试：5xx 响应在回调中重试、同步接口共用同一重试流程、重试预算和全抖动退避
+ */
+public class AsyncRetryTest {
+
+    @Rule
+    public final LocalMNSServer server = new LocalMNSServer();
+
+    @Test
+    public void asyncSend_ServiceUnavailable_RetriedUntilSuccess() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(3), "retry-async-queue");
+        server.failNext("SendMessage", 2, 503, "ServiceUnavailable");
+
+        CompletableFuture<Message> future = queue.putMessageAsync(rawMessage("hello"));
+        Assert.assertNotNull(future.get(10, TimeUnit.SECONDS).getMessageId());
+        Assert.assertEquals(3, server.getRequestCount("SendMessage"));
+    }
+
+    @Test
+    public void syncGetAttributes_InternalError_RetriedUntilSuccess() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(3), "retry-sync-queue");
+        server.failNext("GetQueueAttributes", 1, 500, "InternalError");
+
+        Assert.assertNotNull(queue.getAttributes());
+        Assert.assertEquals(2, server.getRequestCount("GetQueueAttributes"));
+    }
+
+    @Test
+    public void send_InternalError_NotRetried() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(3), "retry-send-500-queue");
+        server.failNext("SendMessage", 1, 500, "InternalError");
+
+        try {
+            queue.putMessage(rawMessage("hello"));
+            Assert.fail("non-idempotent request should not be retried on 500");
+        } catch (ServiceException ex) {
+            Assert.assertEquals("InternalError", ex.getErrorCode());
+        }
+        Assert.assertEquals(1, server.getRequestCount("SendMessage"));
+    }
+
+    @Test
+    public void send_SocketTimeout_NotResent() throws Exception {
+        ClientConfiguration configuration = configuration(3);
+        configuration.setSocketTimeout(300);
+        CloudQueue queue = server.newQueue(configuration, "retry-send-timeout-queue");
+        server.setLatency(1000, 0);
+
+        try {
+            queue.putMessageAsync(rawMessage("hello")).get(10, TimeUnit.SECONDS);
+            Assert.fail("should fail with socket timeout");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof ClientException);
+            Assert.assertTrue(ex.getCause().getCause() instanceof SocketTimeoutException);
+        }
+        // 超时后服务端仍会处理原请求，等待可能的重试也到达
+        Thread.sleep(1500);
+        server.clearFaults();
+        Assert.assertEquals(1, server.getRequestCount("SendMessage"));
+        Assert.assertNotNull(queue.popMessage(0));
+        Assert.assertNull(queue.popMessage(0));
+    }
+
+    @Test
+    public void retriesExhausted_FailsWithLastError() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(1), "retry-exhausted-queue");
+        server.failNext("SendMessage", 2, 503, "ServiceUnavailable");
+
+        try {
+            queue.putMessage(rawMessage("hello"));
+            Assert.fail("should fail after retries");
+        } catch (ServiceException ex) {
+            Assert.assertEquals("ServiceUnavailable", ex.getErrorCode());
+        }
+        Assert.assertEquals(2, server.getRequestCount("SendMessage"));
+    }
+
+    @Test
+    public void retryBudgetExhausted_StopsRetrying() throws Exception {
+        ClientConfiguration configuration = configuration(3);
+        configuration.setRetryBudgetMaxTokens(1);
+        configuration.setRetryBudgetTokenRatio(0);
+        CloudQueue queue = server.newQueue(configuration, "retry-budget-queue");
+        server.failNext("SendMessage", 3, 503, "ServiceUnavailable");
+
+        try {
+            queue.putMessageAsync(rawMessage("hello")).get(10, TimeUnit.SECONDS);
+            Assert.fail("should fail when budget is exhausted");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof ServiceException);
+        }
+        Assert.assertEquals(2, server.getRequestCount("SendMessage"));
+    }
+
+    @Test
+    public void cancel_WhileResending_CancelsNewAttempt() throws Exception {
+        ClientConfiguration configuration = configuration(2);
+        server.newQueue(configuration, "retry-cancel-queue");
+        server.setVerifySignature(false);
+        server.failNext("GetQueueAttributes", 1, 503, "ServiceUnavailable");
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger outcomes = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final HttpCallback<Void> callback = new HttpCallback<Void>(null, new ExceptionResultParser("cancel-test"),
+            new AsyncCallback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                    outcomes.incrementAndGet();
+                    done.countDown();
+                }
+
+                @Override
+                public void onFail(Exception ex) {
+                    outcomes.incrementAndGet();
+                    failure.compareAndSet(null, ex);
+                    done.countDown();
+                }
+            }, "cancel-test");
+        final AtomicInteger attempts = new AtomicInteger();
+        ExecutionContext context = new ExecutionContext();
+        // 在重试线程发出第二次请求的过程中取消，此时 cancel 只能看到已经结束的第一次请求
+        context.addRequestHandler(request -> {
+            if (attempts.incrementAndGet() == 2) {
+                callback.getCompletableFuture().cancel(false);
+            }
+        });
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(new URI(server.getEndpoint()));
+        request.setResourcePath("queues/retry-cancel-queue");
+        request.setIdempotent(true);
+
+        ServiceClient serviceClient = ServiceClientFactory.createServiceClient(configuration);
+        try {
+            serviceClient.asyncSendRequest(request, context, callback, configuration.getSocketTimeout());
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            // 第二次请求如果没有被取消，它的响应会再通知一次回调
+            Thread.sleep(500);
+        } finally {
+            ServiceClientFactory.closeServiceClient(serviceClient);
+        }
+        Assert.assertEquals(2, attempts.get());
+        Assert.assertEquals(1, outcomes.get());
+        Assert.assertTrue(failure.get() instanceof ClientException);
+        Assert.assertTrue(failure.get().getMessage().contains("cancelled"));
+    }
+
+    @Test
+    public void retryBudget_DepositsAndWithdraws() {
+        RetryBudget budget = new RetryBudget(2, 0.5);
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertFalse(budget.tryWithdraw());
+        Assert.assertEquals(1, budget.getRejectedCount());
+
+        budget.deposit();
+        Assert.assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        Assert.assertTrue(budget.tryWithdraw());
+
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        Assert.assertEquals(2.0, budget.getAvailableTokens(), 0.0001);
+    }
+
+    @Test
+    public void jitteredPauseDelay_WithinExponentialBound() {
+        NoRetryStrategy strategy = new NoRetryStrategy();
+        for (int retries = 1; retries <= 10; retries++) {
+            long bound = Math.min(strategy.getPauseDelay(retries), 20 * 1000);
+            for (int i = 0; i < 100; i++) {
+                long delay = strategy.getJitteredPauseDelay(retries);
+                Assert.assertTrue(delay >= 0 && delay <= bound);
+            }
+        }
+    }
+
+    private ClientConfiguration configuration(int maxErrorRetry) {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setMaxErrorRetry(maxErrorRetry);
+        // 与其他用例的配置区分开，避免 ServiceClientFactory 复用到别的用例创建的客户端和重试预算
+        configuration.setSocketTimeout(33000 + maxErrorRetry);
+        return configuration;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
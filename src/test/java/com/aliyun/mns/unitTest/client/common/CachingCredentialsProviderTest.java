@@ -0,0 +1,206 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.common.auth.CachingCredentialsProvider;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyuncs.auth.AlibabaCloudCredentials;
+import com.aliyuncs.auth.AlibabaCloudCredentialsProvider;
+import com.aliyuncs.auth.BasicCredentials;
+import com.aliyuncs.auth.BasicSessionCredentials;
+import com.aliyuncs.exceptions.ClientException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 凭证缓存：有效期内不重复获取，后台刷新时继续返回旧凭证，刷新失败不影响请求，过期后同步获取
+ */
+public class CachingCredentialsProviderTest {
+
+    @Test
+    public void withinRefreshInterval_LoadsOnce() throws Exception {
+        CountingProvider delegate = new CountingProvider();
+        CachingCredentialsProvider provider = CachingCredentialsProvider.newBuilder(delegate).build();
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+        }
+        Assert.assertEquals(1, delegate.calls.get());
+        Assert.assertEquals(1, provider.getLoadCount());
+    }
+
+    @Test
+    public void refreshInBackground_ServesCurrentCredentialsMeanwhile() throws Exception {
+        CountingProvider delegate = new CountingProvider();
+        CachingCredentialsProvider provider = CachingCredentialsProvider.newBuilder(delegate)
+            .refreshIntervalMillis(50).refreshBackoffMillis(0).build();
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+
+        delegate.block = new CountDownLatch(1);
+        Thread.sleep(80);
+        long start = System.nanoTime();
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 50);
+
+        delegate.block.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"ak-2".equals(provider.getCredentials().getAccessKeyId())) {
+            Assert.assertTrue("background refresh not finished", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void refreshFailure_KeepsCurrentCredentials() throws Exception {
+        CountingProvider delegate = new CountingProvider();
+        CachingCredentialsProvider provider = CachingCredentialsProvider.newBuilder(delegate)
+            .refreshIntervalMillis(20).refreshBackoffMillis(0).build();
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+
+        delegate.fail = true;
+        Thread.sleep(40);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (provider.getRefreshFailureCount() == 0) {
+            Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+            Assert.assertTrue("background refresh not attempted", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+    }
+
+    @Test
+    public void expired_LoadsSynchronously() throws Exception {
+        CountingProvider delegate = new CountingProvider();
+        // 后台刷新被 refreshBackoff 挡住，只能在过期后同步获取
+        CachingCredentialsProvider provider = CachingCredentialsProvider.newBuilder(delegate)
+            .refreshIntervalMillis(30).maxAgeMillis(60).refreshBackoffMillis(10000).build();
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+        Thread.sleep(80);
+        Assert.assertEquals("ak-2", provider.getCredentials().getAccessKeyId());
+        Assert.assertEquals(2, provider.getLoadCount());
+    }
+
+    @Test
+    public void sessionCredentialsPastDuration_LoadsSynchronously() throws Exception {
+        CountingProvider delegate = new CountingProvider();
+        delegate.sessionDurationSeconds = 1;
+        // 后台刷新被 refreshBackoff 挡住，会话凭证到期后不能再继续使用
+        CachingCredentialsProvider provider = CachingCredentialsProvider.newBuilder(delegate)
+            .refreshIntervalMillis(60000).refreshBackoffMillis(60000).build();
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+        Thread.sleep(500);
+        Assert.assertEquals("ak-1", provider.getCredentials().getAccessKeyId());
+        Thread.sleep(600);
+        Assert.assertEquals("ak-2", provider.getCredentials().getAccessKeyId());
+        Assert.assertEquals(2, provider.getLoadCount());
+    }
+
+    @Test
+    public void sameCachedSessionCredentials_NotExtendedByRefresh() throws Exception {
+        CountingProvider delegate = new CountingProvider();
+        // 被包装的 provider 一直返回自己缓存的同一个凭证，后台刷新不能延长它的有效期
+        delegate.cached = new BasicSessionCredentials("ak-cached", "sk-cached", "token-cached", 1);
+        CachingCredentialsProvider provider = CachingCredentialsProvider.newBuilder(delegate)
+            .refreshIntervalMillis(50).refreshBackoffMillis(0).build();
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < 800) {
+            Assert.assertEquals("ak-cached", provider.getCredentials().getAccessKeyId());
+            Thread.sleep(20);
+        }
+        Assert.assertTrue(provider.getLoadCount() > 1);
+
+        Thread.sleep(1100 - (System.currentTimeMillis() - start));
+        delegate.fail = true;
+        try {
+            provider.getCredentials();
+            Assert.fail("session of the cached credentials has ended");
+        } catch (ClientException e) {
+            Assert.assertEquals("SDK.ServerUnreachable", e.getErrCode());
+        }
+    }
+
+    @Test
+    public void defaultRefreshExecutor_SharedByProviders() throws Exception {
+        CountingProvider first = new CountingProvider();
+        CountingProvider second = new CountingProvider();
+        CachingCredentialsProvider firstProvider = CachingCredentialsProvider.newBuilder(first)
+            .refreshIntervalMillis(20).refreshBackoffMillis(0).build();
+        CachingCredentialsProvider secondProvider = CachingCredentialsProvider.newBuilder(second)
+            .refreshIntervalMillis(20).refreshBackoffMillis(0).build();
+        firstProvider.getCredentials();
+        secondProvider.getCredentials();
+        Thread.sleep(40);
+
+        first.refreshThreads = ConcurrentHashMap.newKeySet();
+        second.refreshThreads = first.refreshThreads;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (first.calls.get() < 2 || second.calls.get() < 2) {
+            firstProvider.getCredentials();
+            secondProvider.getCredentials();
+            Assert.assertTrue("background refresh not finished", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(1, first.refreshThreads.size());
+    }
+
+    @Test
+    public void serviceCredentials_WrapsProviderOnce() {
+        CountingProvider delegate = new CountingProvider();
+        ServiceCredentials credentials = new ServiceCredentials(delegate);
+        Assert.assertSame(delegate, credentials.getCredentialsProvider());
+        Assert.assertSame(delegate, credentials.getCachingCredentialsProvider().getDelegate());
+
+        CachingCredentialsProvider caching = CachingCredentialsProvider.newBuilder(delegate).build();
+        Assert.assertSame(caching, new ServiceCredentials(caching).getCachingCredentialsProvider());
+        Assert.assertNull(new ServiceCredentials("ak", "sk").getCachingCredentialsProvider());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_MaxAgeNotAfterRefreshInterval_Rejected() {
+        CachingCredentialsProvider.newBuilder(new CountingProvider()).refreshIntervalMillis(1000).maxAgeMillis(500)
+            .build();
+    }
+
+    private static class CountingProvider implements AlibabaCloudCredentialsProvider {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile CountDownLatch block;
+        private volatile boolean fail;
+        private volatile long sessionDurationSeconds;
+        private volatile AlibabaCloudCredentials cached;
+        private volatile Set<String> refreshThreads;
+
+        @Override
+        public AlibabaCloudCredentials getCredentials() throws ClientException {
+            CountDownLatch latch = block;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (fail) {
+                throw new ClientException("SDK.ServerUnreachable", "sts unavailable");
+            }
+            Set<String> threads = refreshThreads;
+            if (threads != null) {
+                threads.add(Thread.currentThread().getName());
+            }
+            if (cached != null) {
+                calls.incrementAndGet();
+                return cached;
+            }
+            int call = calls.incrementAndGet();
+            if (sessionDurationSeconds > 0) {
+                return new BasicSessionCredentials("ak-" + call, "sk-" + call, "token-" + call,
+                    sessionDurationSeconds);
+            }
+            return new BasicCredentials("ak-" + call, "sk-" + call);
+        }
+    }
+}
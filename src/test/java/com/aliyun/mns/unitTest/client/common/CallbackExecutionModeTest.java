@@ -0,0 +1,157 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.AsyncCallback;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.common.http.CallbackExecutionMode;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * 回调执行方式：直接执行、按队列分片串行执行、客户端独立线程池、虚拟线程
+ */
+public class CallbackExecutionModeTest {
+
+    @Rule
+    public final LocalMNSServer server = new LocalMNSServer();
+
+    @Test
+    public void direct_RunsOnCompletionThread() throws Exception {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setCallbackExecutionMode(CallbackExecutionMode.DIRECT);
+        CloudQueue queue = server.newQueue(configuration, "callback-direct-queue");
+
+        RecordingCallback callback = new RecordingCallback(1);
+        queue.asyncPutMessage(rawMessage("hello"), callback);
+        Assert.assertTrue(callback.await());
+        String threadName = callback.threadNames.iterator().next();
+        Assert.assertTrue(threadName, threadName.startsWith("mns-response-parser-"));
+    }
+
+    @Test
+    public void striped_SameQueueRunsSerially() throws Exception {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setCallbackExecutionMode(CallbackExecutionMode.STRIPED);
+        configuration.setCallbackStripes(4);
+        CloudQueue queue = server.newQueue(configuration, "callback-striped-queue");
+
+        RecordingCallback callback = new RecordingCallback(20);
+        callback.sleepMillis = 10;
+        for (int i = 0; i < 20; i++) {
+            queue.asyncPutMessage(rawMessage("hello" + i), callback);
+        }
+        Assert.assertTrue(callback.await());
+        Assert.assertEquals(1, callback.threadNames.size());
+        Assert.assertTrue(callback.threadNames.iterator().next().startsWith("mns-callback-stripe-"));
+        Assert.assertEquals(1, callback.maxConcurrency.get());
+    }
+
+    @Test
+    public void striped_SurvivesReactorRestart() throws Exception {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setCallbackExecutionMode(CallbackExecutionMode.STRIPED);
+        // 与其他用例的配置区分开，避免 ServiceClientFactory 复用到别的用例创建的客户端
+        configuration.setSocketTimeout(35000);
+        MNSClient client = server.newClient(configuration);
+        CloudQueue queue = server.newQueue(client, "callback-restart-queue");
+
+        ResponseParserTest.stopReactor(client);
+        RecordingCallback callback = new RecordingCallback(1);
+        queue.asyncPutMessage(rawMessage("hello"), callback);
+        Assert.assertTrue(callback.await());
+        Assert.assertTrue(callback.threadNames.iterator().next().startsWith("mns-callback-stripe-"));
+    }
+
+    @Test
+    public void customExecutor_UsedForThisClient() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "my-callback-thread"));
+        try {
+            ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+            configuration.setCallbackExecutor(executor);
+            CloudQueue queue = server.newQueue(configuration, "callback-executor-queue");
+
+            RecordingCallback callback = new RecordingCallback(1);
+            queue.asyncPutMessage(rawMessage("hello"), callback);
+            Assert.assertTrue(callback.await());
+            Assert.assertEquals("my-callback-thread", callback.threadNames.iterator().next());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void virtualThread_RequiresSupportedJdk() throws Exception {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        if (!CallbackExecutionMode.isVirtualThreadSupported()) {
+            try {
+                configuration.setCallbackExecutionMode(CallbackExecutionMode.VIRTUAL_THREAD);
+                Assert.fail("virtual thread should not be supported");
+            } catch (IllegalArgumentException ex) {
+                Assert.assertEquals(CallbackExecutionMode.SHARED, configuration.getCallbackExecutionMode());
+            }
+            return;
+        }
+        configuration.setCallbackExecutionMode(CallbackExecutionMode.VIRTUAL_THREAD);
+        CloudQueue queue = server.newQueue(configuration, "callback-virtual-queue");
+
+        RecordingCallback callback = new RecordingCallback(1);
+        queue.asyncPutMessage(rawMessage("hello"), callback);
+        Assert.assertTrue(callback.await());
+        Assert.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(callback.lastThread));
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+
+    private static class RecordingCallback implements AsyncCallback<Message> {
+        private final CountDownLatch latch;
+        private final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger concurrency = new AtomicInteger();
+        private final AtomicInteger maxConcurrency = new AtomicInteger();
+        private volatile Thread lastThread;
+        private volatile long sleepMillis = 0;
+
+        RecordingCallback(int count) {
+            this.latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onSuccess(Message result) {
+            int current = concurrency.incrementAndGet();
+            maxConcurrency.accumulateAndGet(current, Math::max);
+            lastThread = Thread.currentThread();
+            threadNames.add(lastThread.getName());
+            try {
+                if (sleepMillis > 0) {
+                    Thread.sleep(sleepMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrency.decrementAndGet();
+            latch.countDown();
+        }
+
+        @Override
+        public void onFail(Exception ex) {
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
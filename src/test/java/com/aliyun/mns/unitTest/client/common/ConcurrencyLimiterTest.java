@@ -0,0 +1,180 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.common.ClientErrorCode;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ConcurrencyLimiter;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * 并发限制：达到上限时排队或直接失败、排队超时、限流错误降低上限、按队列独立限制
+ */
+public class ConcurrencyLimiterTest {
+
+    @Rule
+    public final LocalMNSServer server = new LocalMNSServer();
+
+    @Test
+    public void saturated_QueuedUntilPermitReleased() throws Exception {
+        ConcurrencyLimiter limiter = fixedLimit(1).maxQueueSize(10).build();
+        CloudQueue queue = createQueue(limiter, "limit-queued-queue");
+        server.setLatency(200, 0);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Message>> futures = new ArrayList<CompletableFuture<Message>>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(queue.putMessageAsync(rawMessage("hello" + i)));
+        }
+        Assert.assertEquals(1, limiter.getInFlight());
+        Assert.assertEquals(2, limiter.getQueueSize());
+
+        for (CompletableFuture<Message> future : futures) {
+            Assert.assertNotNull(future.get(5, TimeUnit.SECONDS).getMessageId());
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("elapsed " + elapsedMillis + "ms", elapsedMillis >= 550);
+        Assert.assertEquals(0, limiter.getInFlight());
+        Assert.assertEquals(0, limiter.getQueueSize());
+        Assert.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void saturated_FailFastWithoutQueue() throws Exception {
+        ConcurrencyLimiter limiter = fixedLimit(1).maxQueueSize(0).build();
+        CloudQueue queue = createQueue(limiter, "limit-fail-fast-queue");
+        server.setLatency(300, 0);
+
+        CompletableFuture<Message> first = queue.putMessageAsync(rawMessage("first"));
+        try {
+            queue.putMessage(rawMessage("second"));
+            Assert.fail("should fail when limit is reached");
+        } catch (ClientException ex) {
+            Assert.assertEquals(ClientErrorCode.CONCURRENCY_LIMIT_EXCEEDED, ex.getErrorCode());
+        }
+        Assert.assertNotNull(first.get(5, TimeUnit.SECONDS).getMessageId());
+        Assert.assertEquals(1, server.getRequestCount("SendMessage"));
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void queueWaitTimeout_Rejected() throws Exception {
+        ConcurrencyLimiter limiter = fixedLimit(1).maxQueueWaitMillis(100).build();
+        CloudQueue queue = createQueue(limiter, "limit-timeout-queue");
+        server.setLatency(500, 0);
+
+        CompletableFuture<Message> first = queue.putMessageAsync(rawMessage("first"));
+        CompletableFuture<Message> second = queue.putMessageAsync(rawMessage("second"));
+        try {
+            second.get(5, TimeUnit.SECONDS);
+            Assert.fail("should time out in queue");
+        } catch (ExecutionException ex) {
+            Assert.assertEquals(ClientErrorCode.CONCURRENCY_LIMIT_EXCEEDED,
+                ((ClientException) ex.getCause()).getErrorCode());
+        }
+        Assert.assertNotNull(first.get(5, TimeUnit.SECONDS).getMessageId());
+        Assert.assertEquals(1, server.getRequestCount("SendMessage"));
+        Assert.assertEquals(0, limiter.getQueueSize());
+    }
+
+    @Test
+    public void aimd_ThrottlingDecreasesLimit() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newBuilder().initialLimit(10).build();
+        CloudQueue queue = createQueue(limiter, "limit-aimd-queue");
+        server.failNext("SendMessage", 3, 503, "ServiceUnavailable");
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                queue.putMessage(rawMessage("hello"));
+                Assert.fail("should be throttled");
+            } catch (ServiceException ex) {
+                Assert.assertEquals("ServiceUnavailable", ex.getErrorCode());
+            }
+        }
+        Assert.assertEquals(7, limiter.getLimit());
+        Assert.assertNotNull(queue.putMessage(rawMessage("hello")).getMessageId());
+        Assert.assertEquals(7, limiter.getLimit());
+    }
+
+    @Test
+    public void aimd_OnlyThrottlingErrorsDecreaseLimit() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newBuilder().initialLimit(10).build();
+        CloudQueue queue = createQueue(limiter, "limit-aimd-codes-queue");
+        server.failNext("SendMessage", 1, 400, "InvalidArgument");
+        try {
+            queue.putMessage(rawMessage("hello"));
+            Assert.fail("should fail");
+        } catch (ServiceException ex) {
+            Assert.assertEquals("InvalidArgument", ex.getErrorCode());
+        }
+        Assert.assertEquals(10, limiter.getLimit());
+
+        server.failNext("SendMessage", 1, 403, "QpsLimitExceeded");
+        try {
+            queue.putMessage(rawMessage("hello"));
+            Assert.fail("should be throttled");
+        } catch (ServiceException ex) {
+            Assert.assertEquals("QpsLimitExceeded", ex.getErrorCode());
+        }
+        Assert.assertTrue("limit " + limiter.getLimit(), limiter.getLimit() < 10);
+    }
+
+    @Test
+    public void vegas_ThrottlingDecreasesLimit() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newBuilder().algorithm(ConcurrencyLimiter.Algorithm.VEGAS)
+            .initialLimit(20).build();
+        CloudQueue queue = createQueue(limiter, "limit-vegas-queue");
+        server.failNext("SendMessage", 2, 503, "ServiceUnavailable");
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                queue.putMessage(rawMessage("hello"));
+                Assert.fail("should be throttled");
+            } catch (ServiceException ex) {
+                Assert.assertEquals("ServiceUnavailable", ex.getErrorCode());
+            }
+        }
+        Assert.assertTrue("limit " + limiter.getLimit(), limiter.getLimit() < 20);
+    }
+
+    @Test
+    public void perResource_QueuesLimitedIndependently() throws Exception {
+        ConcurrencyLimiter limiter = fixedLimit(1).maxQueueSize(0).perResource(true).build();
+        CloudQueue first = createQueue(limiter, "limit-resource-a");
+        CloudQueue second = createQueue(limiter, "limit-resource-b");
+        server.setLatency(300, 0);
+
+        CompletableFuture<Message> sent = first.putMessageAsync(rawMessage("a"));
+        Assert.assertEquals(1, limiter.getInFlight("limit-resource-a"));
+        Assert.assertEquals(0, limiter.getInFlight("limit-resource-b"));
+        Assert.assertNotNull(second.putMessage(rawMessage("b")).getMessageId());
+        Assert.assertNotNull(sent.get(5, TimeUnit.SECONDS).getMessageId());
+        Assert.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    private ConcurrencyLimiter.Builder fixedLimit(int limit) {
+        return ConcurrencyLimiter.newBuilder().initialLimit(limit).minLimit(limit).maxLimit(limit);
+    }
+
+    private CloudQueue createQueue(ConcurrencyLimiter limiter, String name) {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setConcurrencyLimiter(limiter);
+        return server.newQueue(configuration, name);
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,168 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ConnectionPoolStats;
+import com.aliyun.mns.common.http.HttpFactory;
+import com.aliyun.mns.common.http.InstrumentedConnectionManager;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.QueueMeta;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 连接池统计：租用次数与连接复用、连接耗尽时的等待、空闲连接清理以及 JMX 注册
+ */
+public class ConnectionPoolStatsTest {
+
+    private LocalMNSServer server;
+    private MNSClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalMNSServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void stats_SequentialRequests_ReuseConnection() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setIoReactorThreadCount(2);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("pool-queue"));
+        for (int i = 0; i < 5; i++) {
+            queue.putMessage(rawMessage("m" + i));
+        }
+
+        ConnectionPoolStats stats = client.getConnectionPoolStats();
+        Assert.assertEquals(6, stats.getLeaseCount());
+        Assert.assertTrue("created " + stats.getConnectionsCreated(), stats.getConnectionsCreated() < 6);
+        Assert.assertEquals(0, stats.getPending());
+        Assert.assertEquals(2, stats.getIoThreadCount());
+        Assert.assertEquals(1, stats.getRoutes().size());
+        Assert.assertEquals(server.getEndpoint(), stats.getRoutes().get(0).getRoute());
+    }
+
+    @Test
+    public void stats_PoolExhausted_ReportsPendingAndLeaseWait() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setMaxConnections(1);
+        configuration.setMaxConnectionsPerRoute(1);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("exhausted-queue"));
+        server.setLatency(200, 0);
+
+        List<CompletableFuture<Message>> futures = new ArrayList<CompletableFuture<Message>>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(queue.putMessageAsync(rawMessage("m" + i)));
+        }
+        Thread.sleep(50);
+        ConnectionPoolStats during = client.getConnectionPoolStats();
+        Assert.assertEquals(1, during.getLeased());
+        Assert.assertEquals(2, during.getLeaseRequestsWaiting());
+
+        for (CompletableFuture<Message> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        ConnectionPoolStats after = client.getConnectionPoolStats();
+        Assert.assertEquals(0, after.getLeaseRequestsWaiting());
+        Assert.assertTrue("max wait " + after.getLeaseWaitMaxMicros(), after.getLeaseWaitMaxMicros() >= 300000);
+    }
+
+    @Test
+    public void closeIdleConnections_CountsClosedConnections() throws Exception {
+        ClientConfiguration configuration = configuration();
+        InstrumentedConnectionManager manager = HttpFactory.createConnectionManager(configuration);
+        CloseableHttpAsyncClient httpClient = HttpFactory.createHttpAsyncClient(manager, configuration);
+        httpClient.start();
+        try {
+            HttpResponse response = httpClient.execute(new HttpGet(server.getEndpoint() + "/queues/none"), null)
+                .get(5, TimeUnit.SECONDS);
+            EntityUtils.consume(response.getEntity());
+            Thread.sleep(50);
+            Assert.assertEquals(1, manager.getStats().getAvailable());
+
+            manager.closeIdleConnections(1, TimeUnit.HOURS);
+            Assert.assertEquals(1, manager.getStats().getAvailable());
+            Assert.assertEquals(0, manager.getStats().getIdleConnectionsClosed());
+
+            manager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(0, manager.getStats().getAvailable());
+            Assert.assertEquals(1, manager.getStats().getIdleConnectionsClosed());
+            Assert.assertEquals(1, manager.getStats().getConnectionsCreated());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    @Test
+    public void jmxEnabled_RegistersAndUnregistersMBean() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName("com.aliyun.mns:type=ConnectionPool,*");
+        int before = mBeanServer.queryNames(pattern, null).size();
+
+        ClientConfiguration configuration = configuration();
+        configuration.setJmxEnabled(true);
+        client = server.newClient(configuration);
+        client.createQueue(queueMeta("jmx-queue"));
+
+        Set<ObjectName> names = mBeanServer.queryNames(pattern, null);
+        Assert.assertEquals(before + 1, names.size());
+        long leases = 0;
+        for (ObjectName name : names) {
+            leases += (Long) mBeanServer.getAttribute(name, "LeaseCount");
+        }
+        Assert.assertTrue(leases >= 1);
+
+        client.close();
+        client = null;
+        Assert.assertEquals(before, mBeanServer.queryNames(pattern, null).size());
+    }
+
+    private ClientConfiguration configuration() {
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(SignVersion.V4);
+        configuration.setMaxErrorRetry(0);
+        // 与其他用例的配置区分开，避免 ServiceClientFactory 复用到别的用例创建的连接池
+        configuration.setSocketTimeout(31000);
+        return configuration;
+    }
+
+    private QueueMeta queueMeta(String name) {
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(name);
+        meta.setPollingWaitSeconds(0);
+        return meta;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,129 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.HedgingPolicy;
+import com.aliyun.mns.common.metrics.DefaultMetricsRecorder;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.QueueMeta;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 对冲请求：慢请求由对冲请求胜出、快请求不对冲、对冲比例限制、收消息不对冲
+ */
+public class HedgedRequestTest {
+
+    private LocalMNSServer server;
+    private MNSClient client;
+    private DefaultMetricsRecorder recorder;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalMNSServer();
+        server.start();
+        recorder = new DefaultMetricsRecorder();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void slowPrimary_HedgeWins() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.newBuilder().initialDelayMillis(100).maxHedgeRatio(1).build();
+        CloudQueue queue = createQueue(policy, "hedge-win-queue");
+        queue.putMessage(rawMessage("hello"));
+
+        // 只有原请求会读到 2 秒的延迟，对冲请求到达时延迟已清除
+        server.setLatency(2000, 0);
+        long start = System.nanoTime();
+        CompletableFuture<Message> future = queue.peekMessageAsync();
+        Thread.sleep(50);
+        server.clearFaults();
+
+        Assert.assertEquals("hello", future.get(5, TimeUnit.SECONDS).getMessageBodyAsRawString());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("elapsed " + elapsedMillis + "ms", elapsedMillis < 1000);
+        Assert.assertEquals(2, server.getRequestCount("PeekMessage"));
+        Assert.assertEquals(1, policy.getHedgeCount());
+        Assert.assertEquals(1, policy.getHedgeWinCount());
+        Assert.assertEquals(1.0, policy.getHedgeWinRate(), 0.0001);
+        DefaultMetricsRecorder.ActionMetrics metrics = recorder.getActionMetrics("PeekMessage");
+        Assert.assertEquals(1, metrics.getHedgeWinCount());
+        // 响应和解析阶段取自胜出的对冲请求
+        Assert.assertEquals(1, metrics.getStatusCodes().get(200).sum());
+        Assert.assertTrue(metrics.getResponseBytes() > 0);
+        Assert.assertEquals(1, metrics.getTimeToResponse().getCount());
+        Assert.assertTrue(metrics.getTimeToResponse().getMax() < TimeUnit.MILLISECONDS.toMicros(1000));
+        Assert.assertEquals(1, metrics.getParseLatency().getCount());
+    }
+
+    @Test
+    public void fastPrimary_NoHedge() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.newBuilder().initialDelayMillis(1000).build();
+        CloudQueue queue = createQueue(policy, "hedge-fast-queue");
+        queue.putMessage(rawMessage("hello"));
+
+        Assert.assertNotNull(queue.peekMessage());
+        Assert.assertNotNull(queue.getAttributes());
+        Assert.assertEquals(1, server.getRequestCount("PeekMessage"));
+        Assert.assertEquals(2, policy.getRequestCount());
+        Assert.assertEquals(0, policy.getHedgeCount());
+    }
+
+    @Test
+    public void hedgeBudgetExhausted_NoHedgeSent() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.newBuilder().initialDelayMillis(10).maxHedgeRatio(0).maxBurst(0)
+            .build();
+        CloudQueue queue = createQueue(policy, "hedge-budget-queue");
+        server.setLatency(200, 0);
+
+        Assert.assertNotNull(queue.getAttributes());
+        Assert.assertEquals(1, server.getRequestCount("GetQueueAttributes"));
+        Assert.assertEquals(0, policy.getHedgeCount());
+        Assert.assertEquals(1, policy.getHedgeRejectedCount());
+    }
+
+    @Test
+    public void receive_NeverHedged() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.newBuilder().initialDelayMillis(10).maxHedgeRatio(1).build();
+        CloudQueue queue = createQueue(policy, "hedge-receive-queue");
+        queue.putMessage(rawMessage("hello"));
+        server.setLatency(200, 0);
+
+        Assert.assertNotNull(queue.popMessage(0));
+        Assert.assertEquals(1, server.getRequestCount("ReceiveMessage"));
+        Assert.assertEquals(0, policy.getRequestCount());
+    }
+
+    private CloudQueue createQueue(HedgingPolicy policy, String name) {
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(SignVersion.V4);
+        configuration.setMaxErrorRetry(0);
+        configuration.setHedgingPolicy(policy);
+        configuration.setMetricsListener(recorder);
+        client = server.newClient(configuration);
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(name);
+        meta.setPollingWaitSeconds(0);
+        return client.createQueue(meta);
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,136 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.http.CancellableFuture;
+import com.aliyun.mns.common.http.ExceptionResultParser;
+import com.aliyun.mns.common.http.HttpCallback;
+import com.aliyun.mns.common.parser.ResultParseException;
+import com.aliyun.mns.common.utils.IOUtils;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * HttpCallback 直接完成 CompletableFuture，取消 future 时取消底层 HTTP 请求
+ */
+public class HttpCallbackTest {
+
+    private static final String ERROR_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<Error xmlns=\"http://mns.aliyuncs.com/doc/v1\">"
+        + "<Code>QueueNotExist</Code><Message>The queue name you provided is not exist.</Message>"
+        + "<RequestId>5A5C40C1E1F4A6F39B000D47</RequestId><HostId>http://test.mns.aliyuncs.com</HostId>"
+        + "</Error>";
+
+    @Test
+    public void completed_SuccessResponse_CompletesFuture() throws Exception {
+        HttpCallback<String> callback = newCallback();
+        callback.completed(response(200, "hello"));
+
+        CompletableFuture<String> future = callback.getCompletableFuture();
+        Assert.assertEquals("hello", future.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals("hello", callback.getAsyncResult().getResult());
+    }
+
+    @Test
+    public void completed_ErrorResponse_FailsWithServiceException() throws Exception {
+        HttpCallback<String> callback = newCallback();
+        callback.completed(response(404, ERROR_XML));
+
+        Throwable cause = failureOf(callback.getCompletableFuture());
+        Assert.assertTrue(cause instanceof ServiceException);
+        Assert.assertEquals("QueueNotExist", ((ServiceException) cause).getErrorCode());
+    }
+
+    @Test
+    public void failed_IOException_WrappedAsClientException() throws Exception {
+        HttpCallback<String> callback = newCallback();
+        IOException ioException = new IOException("connection reset");
+        callback.failed(ioException);
+
+        Throwable cause = failureOf(callback.getCompletableFuture());
+        Assert.assertTrue(cause instanceof ClientException);
+        Assert.assertSame(ioException, cause.getCause());
+        Assert.assertSame(ioException, callback.getAsyncResult().getException());
+    }
+
+    @Test
+    public void cancel_Future_CancelsHttpExchange() {
+        HttpCallback<String> callback = newCallback();
+        BasicFuture<HttpResponse> exchange = new BasicFuture<HttpResponse>(callback);
+        callback.getCompletableFuture().setUpstream(exchange);
+
+        Assert.assertTrue(callback.getCompletableFuture().cancel(true));
+        Assert.assertTrue(exchange.isCancelled());
+        Assert.assertTrue(callback.isCancelled());
+        Assert.assertFalse(callback.getAsyncResult().isSuccess());
+    }
+
+    @Test
+    public void cancel_DerivedFuture_CancelsHttpExchange() {
+        HttpCallback<String> callback = newCallback();
+        CancellableFuture<Integer> length = callback.getCompletableFuture().map(String::length);
+        BasicFuture<HttpResponse> exchange = new BasicFuture<HttpResponse>(callback);
+        callback.getCompletableFuture().setUpstream(exchange);
+
+        Assert.assertTrue(length.cancel(true));
+        Assert.assertTrue(callback.getCompletableFuture().isCancelled());
+        Assert.assertTrue(exchange.isCancelled());
+    }
+
+    @Test
+    public void setUpstream_AfterCancel_CancelsImmediately() {
+        HttpCallback<String> callback = newCallback();
+        callback.getCompletableFuture().cancel(true);
+
+        BasicFuture<HttpResponse> exchange = new BasicFuture<HttpResponse>(callback);
+        callback.getCompletableFuture().setUpstream(exchange);
+        Assert.assertTrue(exchange.isCancelled());
+    }
+
+    @Test
+    public void transform_CanRecoverFromError() throws Exception {
+        HttpCallback<String> callback = newCallback();
+        CancellableFuture<String> recovered = callback.getCompletableFuture().transform(
+            (String value, Throwable error) -> error instanceof ServiceException ? null : value);
+        callback.completed(response(404, ERROR_XML));
+
+        Assert.assertNull(recovered.get(1, TimeUnit.SECONDS));
+    }
+
+    private HttpCallback<String> newCallback() {
+        return new HttpCallback<String>(
+            response -> {
+                try {
+                    return IOUtils.readStreamAsString(response.getContent(), "UTF-8");
+                } catch (IOException e) {
+                    throw new ResultParseException(e.getMessage(), e);
+                }
+            },
+            new ExceptionResultParser(null), null, null);
+    }
+
+    private HttpResponse response(int statusCode, String body) throws Exception {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, null);
+        response.setEntity(new StringEntity(body, "UTF-8"));
+        return response;
+    }
+
+    private Throwable failureOf(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        Assert.fail("future should fail");
+        return null;
+    }
+}
@@ -0,0 +1,193 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.CloudTopic;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.client.MNSClientBuilder;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.QueueMeta;
+import com.aliyun.mns.model.RawTopicMessage;
+import com.aliyun.mns.model.SubscriptionMeta;
+import com.aliyun.mns.model.TopicMeta;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 真实的 MNSClient 通过 HTTP 访问 LocalMNSServer，覆盖签名校验、队列/主题接口和错误注入
+ */
+public class LocalMNSServerTest {
+
+    private LocalMNSServer server;
+    private MNSClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalMNSServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void queue_SendReceiveDelete_WithV2AndV4Signature() throws Exception {
+        for (SignVersion version : Arrays.asList(SignVersion.V2, SignVersion.V4)) {
+            client = server.newClient(configuration(version));
+            CloudQueue queue = client.createQueue(queueMeta("queue-" + version));
+
+            Message sent = queue.putMessage(rawMessage("hello <" + version + "> & 中文"));
+            Message received = queue.popMessage(1);
+            Assert.assertEquals(sent.getMessageId(), received.getMessageId());
+            Assert.assertEquals("hello <" + version + "> & 中文", received.getMessageBodyAsRawString());
+            Assert.assertEquals(Integer.valueOf(1), received.getDequeueCount());
+
+            queue.deleteMessage(received.getReceiptHandle());
+            Assert.assertEquals(Long.valueOf(0), queue.getAttributes().getActiveMessages());
+            Assert.assertEquals(Long.valueOf(0), queue.getAttributes().getInactiveMessages());
+            client.close();
+            client = null;
+        }
+    }
+
+    @Test
+    public void queue_BatchOperationsAndVisibility() throws Exception {
+        client = server.newClient(configuration(SignVersion.V4));
+        CloudQueue queue = client.createQueue(queueMeta("batch-queue"));
+
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(rawMessage("m" + i));
+        }
+        Assert.assertEquals(5, queue.batchPutMessage(messages).size());
+        Assert.assertEquals(5, queue.batchPeekMessage(16).size());
+
+        List<Message> received = queue.batchPopMessage(16, 1);
+        Assert.assertEquals(5, received.size());
+        Assert.assertNull(queue.batchPopMessage(16, 0));
+
+        Message first = received.get(0);
+        Message changed = queue.changeMessageVisibility(first.getReceiptHandle(), 0);
+        Assert.assertNotEquals(first.getReceiptHandle(), changed.getReceiptHandle());
+        Message again = queue.popMessage(1);
+        Assert.assertEquals(first.getMessageId(), again.getMessageId());
+        Assert.assertEquals(Integer.valueOf(2), again.getDequeueCount());
+
+        List<String> handles = new ArrayList<String>();
+        for (Message message : received.subList(1, received.size())) {
+            handles.add(message.getReceiptHandle());
+        }
+        handles.add(again.getReceiptHandle());
+        queue.batchDeleteMessage(handles);
+        Assert.assertEquals(Long.valueOf(0), queue.getAttributes().getInactiveMessages());
+    }
+
+    @Test
+    public void receive_LongPoll_ReturnsWhenMessageArrives() throws Exception {
+        client = server.newClient(configuration(SignVersion.V4));
+        final CloudQueue queue = client.createQueue(queueMeta("poll-queue"));
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                queue.putMessage(rawMessage("late"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+
+        long start = System.currentTimeMillis();
+        Message message = queue.popMessage(5);
+        long elapsed = System.currentTimeMillis() - start;
+        producer.join();
+
+        Assert.assertEquals("late", message.getMessageBodyAsRawString());
+        Assert.assertTrue("elapsed " + elapsed, elapsed >= 150 && elapsed < 4000);
+    }
+
+    @Test
+    public void topic_PublishFansOutToQueueSubscriptions() throws Exception {
+        client = server.newClient(configuration(SignVersion.V4));
+        CloudQueue queue = client.createQueue(queueMeta("fanout-queue"));
+        TopicMeta topicMeta = new TopicMeta();
+        topicMeta.setTopicName("fanout-topic");
+        CloudTopic topic = client.createTopic(topicMeta);
+
+        SubscriptionMeta subscription = new SubscriptionMeta();
+        subscription.setSubscriptionName("to-queue");
+        subscription.setEndpoint(topic.generateQueueEndpoint("fanout-queue"));
+        subscription.setNotifyContentFormat(SubscriptionMeta.NotifyContentFormat.SIMPLIFIED);
+        topic.subscribe(subscription);
+
+        RawTopicMessage message = new RawTopicMessage();
+        message.setMessageBody("broadcast");
+        Assert.assertNotNull(topic.publishMessage(message).getMessageId());
+        Assert.assertEquals("broadcast", queue.popMessage(1).getMessageBodyAsRawString());
+    }
+
+    @Test
+    public void request_WrongSecret_RejectedWithSignatureError() {
+        client = MNSClientBuilder.create()
+            .accessKeyId(LocalMNSServer.DEFAULT_ACCESS_KEY_ID)
+            .accessKeySecret("wrong-secret")
+            .accountEndpoint(server.getEndpoint())
+            .region(server.getRegion())
+            .clientConfiguration(configuration(SignVersion.V4))
+            .build();
+        try {
+            client.createQueue(queueMeta("forbidden"));
+            Assert.fail("request with wrong secret should be rejected");
+        } catch (ServiceException e) {
+            Assert.assertEquals("SignatureDoesNotMatch", e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void failNext_InjectsErrorForMatchingAction() throws Exception {
+        client = server.newClient(configuration(SignVersion.V4));
+        CloudQueue queue = client.createQueue(queueMeta("fault-queue"));
+        server.failNext("SendMessage", 1, 503, "ServiceUnavailable");
+
+        try {
+            queue.putMessage(rawMessage("first"));
+            Assert.fail("first send should fail");
+        } catch (ServiceException e) {
+            Assert.assertEquals("ServiceUnavailable", e.getErrorCode());
+        }
+        Assert.assertNotNull(queue.putMessage(rawMessage("second")).getMessageId());
+        Assert.assertEquals(2, server.getRequestCount("SendMessage"));
+    }
+
+    private ClientConfiguration configuration(SignVersion version) {
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(version);
+        configuration.setMaxErrorRetry(0);
+        return configuration;
+    }
+
+    private QueueMeta queueMeta(String name) {
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(name);
+        meta.setPollingWaitSeconds(0);
+        return meta;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,118 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ConnectionPoolStats;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.QueueMeta;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 长轮询连接池：长轮询不占用普通连接池，超时按 waitSeconds 计算
+ */
+public class LongPollConnectionPoolTest {
+
+    private LocalMNSServer server;
+    private MNSClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalMNSServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void sendWhileLongPolling_DoesNotQueueBehindReceive() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setMaxConnections(1);
+        configuration.setMaxConnectionsPerRoute(1);
+        configuration.setLongPollPoolEnabled(true);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("long-poll-queue"));
+
+        CompletableFuture<Message> received = queue.popMessageAsync(3);
+        Thread.sleep(100);
+        Assert.assertEquals(1, client.getLongPollConnectionPoolStats().getLeased());
+
+        long start = System.nanoTime();
+        queue.putMessage(rawMessage("hello"));
+        long sendMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("send took " + sendMillis + "ms", sendMillis < 1000);
+
+        Message message = received.get(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(message);
+        Assert.assertEquals("hello", message.getMessageBodyAsRawString());
+
+        ConnectionPoolStats shortStats = client.getConnectionPoolStats();
+        ConnectionPoolStats longPollStats = client.getLongPollConnectionPoolStats();
+        Assert.assertEquals(2, shortStats.getLeaseCount());
+        Assert.assertEquals(1, longPollStats.getLeaseCount());
+    }
+
+    @Test
+    public void longPoll_SocketTimeoutDerivedFromWaitSeconds() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setSocketTimeout(1000);
+        configuration.setLongPollPoolEnabled(true);
+        configuration.setLongPollTimeoutMarginMillis(1000);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("timeout-queue"));
+
+        long start = System.nanoTime();
+        List<Message> messages = queue.batchPopMessage(16, 2);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertNull(messages);
+        Assert.assertTrue("elapsed " + elapsedMillis + "ms", elapsedMillis >= 1900);
+        Assert.assertEquals(3000, configuration.getLongPollSocketTimeout(2));
+    }
+
+    @Test
+    public void longPollPoolDisabled_ReceivesUseSharedPool() throws Exception {
+        client = server.newClient(configuration());
+        CloudQueue queue = client.createQueue(queueMeta("shared-queue"));
+        queue.putMessage(rawMessage("hello"));
+
+        Assert.assertNotNull(queue.popMessage(1));
+        Assert.assertNull(client.getLongPollConnectionPoolStats());
+        Assert.assertEquals(3, client.getConnectionPoolStats().getLeaseCount());
+    }
+
+    private ClientConfiguration configuration() {
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(SignVersion.V4);
+        configuration.setMaxErrorRetry(0);
+        // 与其他用例的配置区分开，避免 ServiceClientFactory 复用到别的用例创建的连接池
+        configuration.setSocketTimeout(32000);
+        return configuration;
+    }
+
+    private QueueMeta queueMeta(String name) {
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(name);
+        meta.setPollingWaitSeconds(0);
+        return meta;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
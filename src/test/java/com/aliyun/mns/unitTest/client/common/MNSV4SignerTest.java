@@ -298,4 +298,43 @@ public class MNSV4SignerTest {
         String authorization = signer.getAuthorization(ak, sk, request, region);
         Assert.assertEquals("MNS4-HMAC-SHA256 Credential=ak1/20250603/region1/mns/aliyun_v4_request,Signature=8d555514e749185d3e6d68df416692e6cc960ba85a089c9d69a2f4d7bb607560", authorization);
     }
-}
\ No newline at end of file
+
+    /**
+     * 派生密钥缓存：同一 ak/region 下 sk 或日期变化时不能复用旧的派生密钥
+     */
+    @Test
+    public void testSignV4SigningKeyCacheInvalidation() throws Exception {
+        RequestSigner signer = new MNSV4Signer();
+        String expected = "MNS4-HMAC-SHA256 Credential=ak1/20250603/region1/mns/aliyun_v4_request,Signature=8d555514e749185d3e6d68df416692e6cc960ba85a089c9d69a2f4d7bb607560";
+
+        RequestMessage request = buildRequestWithParam("2025-06-03T10:52:35.638Z");
+        Assert.assertEquals(expected, signer.getAuthorization("ak1", "sk1", request, "region1"));
+        // 命中缓存
+        Assert.assertEquals(expected, signer.getAuthorization("ak1", "sk1", request, "region1"));
+
+        // sk 轮换
+        String rotated = signer.getAuthorization("ak1", "sk2", request, "region1");
+        Assert.assertNotEquals(expected, rotated);
+        Assert.assertEquals(rotated, new MNSV4Signer().getAuthorization("ak1", "sk2", request, "region1"));
+        Assert.assertEquals(expected, signer.getAuthorization("ak1", "sk1", request, "region1"));
+
+        // 跨天
+        String nextDay = signer.getAuthorization("ak1", "sk1", buildRequestWithParam("2025-06-04T10:52:35.638Z"),
+            "region1");
+        Assert.assertTrue(nextDay.startsWith("MNS4-HMAC-SHA256 Credential=ak1/20250604/region1/"));
+        Assert.assertEquals(expected, signer.getAuthorization("ak1", "sk1", request, "region1"));
+    }
+
+    private RequestMessage buildRequestWithParam(String dateTime) throws Exception {
+        RequestMessage request = spy(new RequestMessage());
+        when(request.getRequestDateTime()).thenReturn(DateUtil.parseIso8601Date(dateTime));
+        request.setMethod(HttpMethod.POST);
+        request.setEndpoint(new URI("https://123.mns.cn-hangzhou.aliyuncs.com"));
+        request.setResourcePath("/queues/TestQueue?num=10&paramx=100");
+        request.addParameter("param1", "abc");
+        request.addParameter("PARAM2", "d  ef");
+        request.addParameter("PARAM3", "[def]#bbb");
+        request.addParameter("PARAM4", "中文参数");
+        return request;
+    }
+}
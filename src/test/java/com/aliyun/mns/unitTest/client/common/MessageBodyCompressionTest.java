@@ -0,0 +1,225 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.BatchMessageProducer;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.CloudTopic;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessageBodyCodec;
+import com.aliyun.mns.model.MessagePropertyValue;
+import com.aliyun.mns.model.QueueMeta;
+import com.aliyun.mns.model.RawTopicMessage;
+import com.aliyun.mns.model.SubscriptionMeta;
+import com.aliyun.mns.model.TopicMeta;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 消息体压缩：大消息体压缩发送、收消息自动解压、小消息和不可压缩的消息原样发送
+ */
+public class MessageBodyCompressionTest {
+
+    private LocalMNSServer server;
+    private MNSClient client;
+    private MNSClient consumerClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalMNSServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (consumerClient != null) {
+            consumerClient.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void encode_SmallOrIncompressibleBody_SentAsIs() {
+        MessageBodyCodec codec = MessageBodyCodec.newBuilder().compressionThreshold(1024).build();
+        Assert.assertNull(codec.encode(rawMessage("small")));
+
+        byte[] random = new byte[4096];
+        ThreadLocalRandom.current().nextBytes(random);
+        Message binary = new Message();
+        binary.setMessageBody(random);
+        Assert.assertNull(codec.encode(binary));
+        Assert.assertEquals(0, codec.getCompressedCount());
+    }
+
+    @Test
+    public void encodeDecode_RestoresBodyWithoutTouchingOriginal() {
+        MessageBodyCodec codec = MessageBodyCodec.newBuilder().build();
+        String json = json(200);
+        Message message = rawMessage(json);
+        message.getUserProperties().put("source", new MessagePropertyValue("orders"));
+
+        MessageBodyCodec.EncodedBody encoded = codec.encode(message);
+        Assert.assertNotNull(encoded);
+        Assert.assertTrue(encoded.getBody().length() * 5 < json.length());
+        Assert.assertEquals(2, encoded.getUserProperties().size());
+        Assert.assertEquals(json, message.getMessageBodyAsRawString());
+        Assert.assertEquals(1, message.getUserProperties().size());
+        Assert.assertEquals(1, codec.getCompressedCount());
+        Assert.assertEquals(encoded.getBody().length(), codec.getEncodedBytes());
+
+        Message received = rawMessage(encoded.getBody());
+        received.getUserProperties().putAll(encoded.getUserProperties());
+        Assert.assertTrue(MessageBodyCodec.decode(received));
+        Assert.assertEquals(json, received.getMessageBodyAsRawString());
+        Assert.assertFalse(received.getUserProperties().containsKey(MessageBodyCodec.BODY_ENCODING_PROPERTY));
+        Assert.assertEquals("orders", received.getUserProperties().get("source").getStringValue());
+    }
+
+    @Test
+    public void decode_CorruptBody_LeftUntouched() {
+        Message message = rawMessage("not compressed");
+        message.getUserProperties().put(MessageBodyCodec.BODY_ENCODING_PROPERTY,
+            new MessagePropertyValue(MessageBodyCodec.DEFLATE));
+
+        Assert.assertFalse(MessageBodyCodec.decode(message));
+        Assert.assertEquals("not compressed", message.getMessageBodyAsRawString());
+        Assert.assertTrue(message.getUserProperties().containsKey(MessageBodyCodec.BODY_ENCODING_PROPERTY));
+    }
+
+    @Test
+    public void batchSend_LargeJsonFitsAndIsDecodedByPlainConsumer() throws Exception {
+        MessageBodyCodec codec = MessageBodyCodec.newBuilder().build();
+        ClientConfiguration configuration = configuration();
+        configuration.setMessageBodyCodec(codec);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("codec-batch-queue"));
+
+        // 单条超过 64KB 的 MaximumMessageSize，压缩后才能发送
+        String json = json(2000);
+        Assert.assertTrue(json.length() > 64 * 1024);
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 3; i++) {
+            messages.add(rawMessage(i + json));
+        }
+        Message base64 = new Message();
+        base64.setMessageBody(json);
+        messages.add(base64);
+        Assert.assertEquals(4, queue.batchPutMessage(messages).size());
+        Assert.assertEquals(4, codec.getCompressedCount());
+        Assert.assertTrue(codec.getEncodedBytes() * 5 < codec.getOriginalBytes());
+
+        consumerClient = server.newClient(configuration());
+        CloudQueue consumerQueue = consumerClient.getQueueRef("codec-batch-queue");
+        Assert.assertEquals(json, consumerQueue.peekMessage().getMessageBodyAsRawString().substring(1));
+        List<Message> received = consumerQueue.batchPopMessage(16);
+        Assert.assertEquals(4, received.size());
+        for (Message message : received) {
+            Assert.assertTrue(message.getUserProperties().isEmpty());
+            if (message.getMessageBodyAsRawString().length() == json.length() + 1) {
+                Assert.assertEquals(json, message.getMessageBodyAsRawString().substring(1));
+            } else {
+                Assert.assertEquals(json, message.getMessageBodyAsString());
+            }
+        }
+    }
+
+    @Test
+    public void batchProducer_SizesBatchByEncodedBody() throws Exception {
+        MessageBodyCodec codec = MessageBodyCodec.newBuilder().build();
+        ClientConfiguration configuration = configuration();
+        configuration.setMessageBodyCodec(codec);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("codec-producer-queue"));
+
+        // 压缩前两条就超过 maxBatchBytes，压缩后四条可以放进同一批
+        String json = json(1000);
+        BatchMessageProducer producer = BatchMessageProducer.newBuilder(queue)
+            .maxBatchBytes(json.length() * 3 / 2)
+            .lingerMillis(60000)
+            .build();
+        List<CompletableFuture<Message>> futures = new ArrayList<CompletableFuture<Message>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(producer.send(rawMessage(i + json)));
+        }
+        Assert.assertEquals(4, producer.getPendingCount());
+        producer.close().get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<Message> future : futures) {
+            Assert.assertNotNull(future.get(10, TimeUnit.SECONDS).getMessageId());
+        }
+        Assert.assertEquals(1, server.getRequestCount("BatchSendMessage"));
+        Assert.assertEquals(4, codec.getCompressedCount());
+
+        List<Message> received = queue.batchPopMessage(16);
+        Assert.assertEquals(4, received.size());
+        for (Message message : received) {
+            Assert.assertEquals(json, message.getMessageBodyAsRawString().substring(1));
+        }
+    }
+
+    @Test
+    public void publish_RawSubscriptionDecodedOnReceive() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setMessageBodyCodec(MessageBodyCodec.newBuilder().build());
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("codec-topic-queue"));
+        TopicMeta topicMeta = new TopicMeta();
+        topicMeta.setTopicName("codec-topic");
+        CloudTopic topic = client.createTopic(topicMeta);
+
+        SubscriptionMeta subscription = new SubscriptionMeta();
+        subscription.setSubscriptionName("codec-to-queue");
+        subscription.setEndpoint(topic.generateQueueEndpoint("codec-topic-queue"));
+        subscription.setNotifyContentFormat(SubscriptionMeta.NotifyContentFormat.SIMPLIFIED);
+        topic.subscribe(subscription);
+
+        String json = json(200);
+        RawTopicMessage message = new RawTopicMessage();
+        message.setMessageBody(json);
+        Assert.assertNotNull(topic.publishMessage(message).getMessageId());
+        Assert.assertEquals(json, queue.popMessage(1).getMessageBodyAsRawString());
+    }
+
+    private String json(int items) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"orderId\":").append(100000 + i)
+                .append(",\"status\":\"CREATED\",\"currency\":\"CNY\",\"channel\":\"mobile\"}");
+        }
+        return sb.append(']').toString();
+    }
+
+    private ClientConfiguration configuration() {
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(SignVersion.V4);
+        configuration.setMaxErrorRetry(0);
+        return configuration;
+    }
+
+    private QueueMeta queueMeta(String name) {
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(name);
+        meta.setPollingWaitSeconds(0);
+        return meta;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,205 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.common.ClientErrorCode;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.auth.SignVersion;
+import com.aliyun.mns.common.comm.ByteBufferContent;
+import com.aliyun.mns.common.comm.ByteBufferEntity;
+import com.aliyun.mns.common.comm.ByteBufferPool;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ConcurrencyLimiter;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.QueueMeta;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 池化请求体：缓冲区复用、重试时重放请求体、直接内存请求体
+ */
+public class PooledRequestBodyTest {
+
+    private LocalMNSServer server;
+    private MNSClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalMNSServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void releasedBuffer_ReusedByNextAcquire() {
+        ByteBufferPool pool = new ByteBufferPool(false, 1024 * 1024);
+        ByteBuffer first = pool.acquire(5000);
+        Assert.assertEquals(8192, first.capacity());
+        Assert.assertEquals(1, pool.getMissCount());
+
+        pool.release(first);
+        Assert.assertEquals(8192, pool.getPooledBytes());
+        ByteBuffer second = pool.acquire(6000);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, pool.getHitCount());
+        Assert.assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void pooledContent_ReturnedOnLastRelease() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(false, 1024 * 1024);
+        ByteBuffer buffer = pool.acquire(100);
+        buffer.put("hello".getBytes("UTF-8"));
+        buffer.flip();
+        ByteBufferContent content = ByteBufferContent.pooled(buffer, pool);
+
+        ByteBufferEntity entity = new ByteBufferEntity(content, "text/xml");
+        content.release();
+        Assert.assertEquals(0, pool.getPooledBytes());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        Assert.assertEquals("hello", out.toString("UTF-8"));
+        entity.close();
+        Assert.assertEquals(4096, pool.getPooledBytes());
+    }
+
+    @Test
+    public void content_MarkResetBeyondReadLimit() throws Exception {
+        byte[] bytes = new byte[64 * 1024];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        InputStream in = ByteBufferContent.wrap(bytes);
+        in.mark(16);
+        byte[] first = readAll(in);
+        in.reset();
+        byte[] second = readAll(in);
+
+        Assert.assertArrayEquals(bytes, first);
+        Assert.assertArrayEquals(bytes, second);
+    }
+
+    @Test
+    public void largeBatchSend_RetriedWithSameBody() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setMaxErrorRetry(1);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("pooled-batch-queue"));
+        server.failNext("BatchSendMessage", 1, 503, "ServiceUnavailable");
+
+        char[] chars = new char[20 * 1024];
+        Arrays.fill(chars, 'x');
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 4; i++) {
+            messages.add(rawMessage(i + new String(chars)));
+        }
+        List<Message> sent = queue.batchPutMessage(messages);
+        Assert.assertEquals(4, sent.size());
+        Assert.assertEquals(2, server.getRequestCount("BatchSendMessage"));
+
+        List<Message> received = queue.batchPopMessage(16);
+        Assert.assertEquals(4, received.size());
+        for (Message message : received) {
+            Assert.assertEquals(20 * 1024 + 1, message.getMessageBodyAsRawString().length());
+        }
+    }
+
+    @Test
+    public void directRequestBuffers_BodyCopiedAndReleased() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setDirectRequestBuffers(true);
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("pooled-direct-queue"));
+
+        Assert.assertNotNull(queue.putMessage(rawMessage("hello")).getMessageId());
+        Assert.assertEquals("hello", queue.popMessage().getMessageBodyAsRawString());
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (ByteBufferPool.direct().getPooledBytes() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(ByteBufferPool.direct().getPooledBytes() > 0);
+    }
+
+    @Test
+    public void rejectedByLimiter_BodyReleased() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setSocketTimeout(34001);
+        configuration.setConcurrencyLimiter(ConcurrencyLimiter.newBuilder()
+            .initialLimit(1).minLimit(1).maxLimit(1).maxQueueSize(0).build());
+        client = server.newClient(configuration);
+        CloudQueue queue = client.createQueue(queueMeta("pooled-rejected-queue"));
+        server.setLatency(300, 0);
+        CompletableFuture<Message> inFlight = queue.putMessageAsync(rawMessage("first"));
+
+        char[] chars = new char[20 * 1024];
+        Arrays.fill(chars, 'x');
+        ByteBufferPool pool = ByteBufferPool.heap();
+        long pooledBefore = pool.getPooledBytes();
+        long missesBefore = pool.getMissCount();
+        for (int i = 0; i < 3; i++) {
+            try {
+                queue.putMessage(rawMessage(new String(chars)));
+                Assert.fail("should be rejected by the limiter");
+            } catch (ClientException ex) {
+                Assert.assertEquals(ClientErrorCode.CONCURRENCY_LIMIT_EXCEEDED, ex.getErrorCode());
+            }
+        }
+
+        // 每次被拒绝的请求体都归还了缓冲池：后两次复用第一次的缓冲区，缓存的字节数没有减少
+        Assert.assertTrue(pool.getMissCount() - missesBefore <= 1);
+        Assert.assertTrue(pool.getPooledBytes() >= pooledBefore);
+        Assert.assertNotNull(inFlight.get(5, TimeUnit.SECONDS).getMessageId());
+    }
+
+    private byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[3000];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private ClientConfiguration configuration() {
+        ClientConfiguration configuration = new ClientConfiguration();
+        configuration.setSignatureVersion(SignVersion.V4);
+        configuration.setMaxErrorRetry(0);
+        // 与其他用例的配置区分开，避免 ServiceClientFactory 复用到别的用例创建的客户端
+        configuration.setSocketTimeout(34000);
+        return configuration;
+    }
+
+    private QueueMeta queueMeta(String name) {
+        QueueMeta meta = new QueueMeta();
+        meta.setQueueName(name);
+        meta.setPollingWaitSeconds(0);
+        return meta;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,197 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.AsyncCallback;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.metrics.DefaultMetricsRecorder;
+import com.aliyun.mns.common.metrics.LatencyHistogram;
+import com.aliyun.mns.common.metrics.RequestMetrics;
+import com.aliyun.mns.common.metrics.RequestMetricsListener;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * 度量 SPI 的各阶段回调，以及默认记录器和直方图的统计结果
+ */
+public class RequestMetricsTest {
+
+    @Rule
+    public final LocalMNSServer server = new LocalMNSServer();
+
+    @Test
+    public void histogram_PercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Assert.assertEquals(100000, histogram.getCount());
+        Assert.assertEquals(100000000L, histogram.getMax());
+        Assert.assertEquals(50000500.0, histogram.getMean(), 1.0);
+        assertWithin(50000000L, histogram.getValueAtPercentile(50));
+        assertWithin(99000000L, histogram.getValueAtPercentile(99));
+        assertWithin(99900000L, histogram.getValueAtPercentile(99.9));
+        Assert.assertEquals(100000000L, histogram.getValueAtPercentile(100));
+
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void resourceNameOf_ParsesQueueAndTopicPaths() {
+        Assert.assertEquals("q1", RequestMetrics.resourceNameOf("queues/q1/messages"));
+        Assert.assertEquals("q1", RequestMetrics.resourceNameOf("/queues/q1"));
+        Assert.assertEquals("t1", RequestMetrics.resourceNameOf("topics/t1/subscriptions/s1"));
+        Assert.assertEquals("q1", RequestMetrics.resourceNameOf("queues/q1?metaoverride=true"));
+        Assert.assertNull(RequestMetrics.resourceNameOf("queues"));
+        Assert.assertNull(RequestMetrics.resourceNameOf("account/attributes"));
+        Assert.assertNull(RequestMetrics.resourceNameOf(null));
+    }
+
+    @Test
+    public void listener_ReceivesStagesInOrder() throws Exception {
+        final List<String> stages = new CopyOnWriteArrayList<String>();
+        final List<RequestMetrics> completed = new CopyOnWriteArrayList<RequestMetrics>();
+        RequestMetricsListener listener = new RequestMetricsListener() {
+            @Override
+            public void onRequestBuilt(RequestMetrics metrics) {
+                stages.add("built");
+            }
+
+            @Override
+            public void onRequestSent(RequestMetrics metrics) {
+                stages.add("sent");
+            }
+
+            @Override
+            public void onResponseReceived(RequestMetrics metrics) {
+                stages.add("received");
+            }
+
+            @Override
+            public void onResponseParsed(RequestMetrics metrics) {
+                stages.add("parsed");
+            }
+
+            @Override
+            public void onRequestCompleted(RequestMetrics metrics) {
+                stages.add("completed");
+                completed.add(metrics);
+            }
+        };
+        CloudQueue queue = server.newQueue(configuration(listener), "metrics-queue");
+        stages.clear();
+        completed.clear();
+
+        queue.putMessage(rawMessage("hello"));
+
+        Assert.assertEquals("[built, sent, received, parsed, completed]", stages.toString());
+        RequestMetrics metrics = completed.get(0);
+        Assert.assertEquals("SendMessage", metrics.getActionName());
+        Assert.assertEquals("metrics-queue", metrics.getResourceName());
+        Assert.assertEquals(201, metrics.getStatusCode());
+        Assert.assertTrue(metrics.isSuccess());
+        Assert.assertTrue(metrics.getRequestBytes() > 0);
+        Assert.assertTrue(metrics.getResponseBytes() > 0);
+        Assert.assertTrue(metrics.getBuildNanos() >= 0);
+        Assert.assertTrue(metrics.getTimeToResponseNanos() >= metrics.getBuildNanos());
+        Assert.assertTrue(metrics.getTotalNanos() >= metrics.getTimeToResponseNanos());
+    }
+
+    @Test
+    public void listener_CompletedAfterAsyncCallbackReturns() throws Exception {
+        final List<String> stages = new CopyOnWriteArrayList<String>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        RequestMetricsListener listener = new RequestMetricsListener() {
+            @Override
+            public void onResponseParsed(RequestMetrics metrics) {
+                stages.add("parsed");
+            }
+
+            @Override
+            public void onRequestCompleted(RequestMetrics metrics) {
+                stages.add("completed");
+                if ("SendMessage".equals(metrics.getActionName())) {
+                    completed.countDown();
+                }
+            }
+        };
+        CloudQueue queue = server.newQueue(configuration(listener), "metrics-callback-queue");
+        stages.clear();
+
+        queue.asyncPutMessage(rawMessage("hello"), new AsyncCallback<Message>() {
+            @Override
+            public void onSuccess(Message result) {
+                sleep(50);
+                stages.add("callback");
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                stages.add("callback-failed");
+            }
+        });
+
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("[parsed, callback, completed]", stages.toString());
+    }
+
+    @Test
+    public void defaultRecorder_AggregatesPerAction() throws Exception {
+        DefaultMetricsRecorder recorder = new DefaultMetricsRecorder();
+        CloudQueue queue = server.newQueue(configuration(recorder), "recorder-queue");
+        queue.putMessage(rawMessage("ok"));
+        server.failNext("SendMessage", 1, 503, "ServiceUnavailable");
+        try {
+            queue.putMessage(rawMessage("fail"));
+            Assert.fail("send should fail");
+        } catch (ServiceException e) {
+            Assert.assertEquals("ServiceUnavailable", e.getErrorCode());
+        }
+
+        DefaultMetricsRecorder.ActionMetrics send = recorder.getActionMetrics("SendMessage");
+        Assert.assertEquals(2, send.getRequestCount());
+        Assert.assertEquals(1, send.getFailureCount());
+        Assert.assertEquals(1, send.getErrorCodes().get("ServiceUnavailable").sum());
+        Assert.assertEquals(1, send.getStatusCodes().get(201).sum());
+        Assert.assertEquals(1, send.getStatusCodes().get(503).sum());
+        Assert.assertEquals(2, send.getTotalLatency().getCount());
+        Assert.assertTrue(send.getRequestBytes() > 0);
+        Assert.assertEquals(1, recorder.getActionMetrics("CreateQueue").getRequestCount());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void assertWithin(long expected, long actual) {
+        Assert.assertTrue("expected ~" + expected + " but was " + actual,
+            Math.abs(actual - expected) <= expected / 32);
+    }
+
+    private ClientConfiguration configuration(RequestMetricsListener listener) {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setMetricsListener(listener);
+        return configuration;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
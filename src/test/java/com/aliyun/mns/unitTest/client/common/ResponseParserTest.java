@@ -0,0 +1,145 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.AsyncCallback;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.DefaultMNSClient;
+import com.aliyun.mns.client.MNSClient;
+import com.aliyun.mns.common.http.CallbackExecutionMode;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * 响应解析线程：解析不在 I/O 线程中进行、关闭后回到 I/O 线程、队列已满时仍能完成所有请求
+ */
+public class ResponseParserTest {
+
+    @Rule
+    public final LocalMNSServer server = new LocalMNSServer();
+
+    @Test
+    public void defaultConfiguration_ParsesOffIoThread() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(), "parser-default-queue");
+        Assert.assertTrue(completionThread(queue).startsWith("mns-response-parser-"));
+    }
+
+    @Test
+    public void reactorRestart_ParserPoolStillUsed() throws Exception {
+        ClientConfiguration configuration = configuration();
+        // 与其他用例的配置区分开，避免 ServiceClientFactory 复用到别的用例创建的客户端
+        configuration.setSocketTimeout(36000);
+        MNSClient client = server.newClient(configuration);
+        CloudQueue queue = server.newQueue(client, "parser-restart-queue");
+
+        stopReactor(client);
+        Assert.assertTrue(completionThread(queue).startsWith("mns-response-parser-"));
+    }
+
+    @Test
+    public void parserDisabled_ParsesOnIoThread() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setResponseParserThreads(0);
+        CloudQueue queue = server.newQueue(configuration, "parser-disabled-queue");
+        Assert.assertTrue(completionThread(queue).startsWith("mns-io-dispatcher"));
+    }
+
+    @Test
+    public void parserQueueFull_AllResponsesStillParsed() throws Exception {
+        ClientConfiguration configuration = configuration();
+        configuration.setResponseParserThreads(1);
+        configuration.setResponseParserQueueSize(1);
+        CloudQueue queue = server.newQueue(configuration, "parser-saturated-queue");
+
+        List<CompletableFuture<Message>> futures = new ArrayList<CompletableFuture<Message>>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(queue.putMessageAsync(rawMessage("hello" + i)));
+        }
+        for (CompletableFuture<Message> future : futures) {
+            Assert.assertNotNull(future.get(10, TimeUnit.SECONDS).getMessageId());
+        }
+        List<Message> messages = queue.batchPopMessage(16);
+        Assert.assertEquals(16, messages.size());
+    }
+
+    private String completionThread(CloudQueue queue) throws Exception {
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        queue.asyncPutMessage(rawMessage("hello"), new AsyncCallback<Message>() {
+            @Override
+            public void onSuccess(Message result) {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                latch.countDown();
+            }
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return threadName.get();
+    }
+
+    /**
+     * 把客户端的 http 客户端换成已停止的实例，下一次请求会走重建 http 客户端的分支
+     */
+    static void stopReactor(MNSClient client) throws Exception {
+        Field serviceClientField = DefaultMNSClient.class.getDeclaredField("serviceClient");
+        serviceClientField.setAccessible(true);
+        Object serviceClient = serviceClientField.get(client);
+        Field httpClientField = serviceClient.getClass().getDeclaredField("httpClient");
+        httpClientField.setAccessible(true);
+        ((CloseableHttpAsyncClient) httpClientField.get(serviceClient)).close();
+        httpClientField.set(serviceClient, new StoppedHttpAsyncClient());
+    }
+
+    private static class StoppedHttpAsyncClient extends CloseableHttpAsyncClient {
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public boolean isRunning() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer,
+            HttpAsyncResponseConsumer<T> responseConsumer, HttpContext context, FutureCallback<T> callback) {
+            throw new IllegalStateException("I/O reactor status: STOPPED");
+        }
+    }
+
+    private ClientConfiguration configuration() {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        // 直接在完成解析的线程中执行回调，以便观察解析所在的线程
+        configuration.setCallbackExecutionMode(CallbackExecutionMode.DIRECT);
+        return configuration;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,131 @@
+package com.aliyun.mns.unitTest.client.common;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.local.LocalMNSServer;
+import com.aliyun.mns.model.Message;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * 边接收边解析：大的批量收消息响应、错误响应仍可重试、读取响应体超时按超时处理、解析线程繁忙时改为完整读入、关闭后的行为
+ */
+public class StreamingResponseTest {
+
+    private static final int BODY_SIZE = 32 * 1024;
+
+    @Rule
+    public final LocalMNSServer server = new LocalMNSServer();
+
+    @Test
+    public void largeBatchReceive_StreamedAndParsed() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(0, 0), "stream-large-queue");
+        List<String> bodies = putLargeMessages(queue, 16);
+
+        List<Message> messages = queue.batchPopMessage(16, 0);
+        Assert.assertEquals(16, messages.size());
+        for (Message message : messages) {
+            Assert.assertTrue(bodies.contains(message.getMessageBodyAsRawString()));
+            Assert.assertNotNull(message.getReceiptHandle());
+        }
+    }
+
+    @Test
+    public void errorResponse_StillRetried() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(0, 1), "stream-retry-queue");
+        server.failNext("SendMessage", 1, 503, "ServiceUnavailable");
+
+        Assert.assertNotNull(queue.putMessage(rawMessage("hello")).getMessageId());
+        Assert.assertEquals(2, server.getRequestCount("SendMessage"));
+    }
+
+    @Test
+    public void bodyTimeout_RetriedAsSocketTimeout() throws Exception {
+        ClientConfiguration configuration = configuration(0, 1);
+        configuration.setSocketTimeout(600);
+        CloudQueue queue = server.newQueue(configuration, "stream-timeout-retry-queue");
+        putLargeMessages(queue, 16);
+
+        server.stallBodyNext("BatchPeekMessage", 1, 1500);
+        Assert.assertEquals(16, queue.batchPeekMessage(16).size());
+        Assert.assertEquals(2, server.getRequestCount("BatchPeekMessage"));
+    }
+
+    @Test
+    public void bodyTimeout_ReportedAsSocketTimeout() throws Exception {
+        ClientConfiguration configuration = configuration(0, 0);
+        configuration.setSocketTimeout(700);
+        CloudQueue queue = server.newQueue(configuration, "stream-timeout-queue");
+        putLargeMessages(queue, 16);
+
+        server.stallBodyNext("BatchPeekMessage", 1, 1500);
+        try {
+            queue.batchPeekMessage(16);
+            Assert.fail("body timeout should fail the request");
+        } catch (ClientException ex) {
+            Throwable cause = ex;
+            while (cause != null && !(cause instanceof SocketTimeoutException)) {
+                cause = cause.getCause();
+            }
+            Assert.assertNotNull("unexpected failure: " + ex, cause);
+        }
+    }
+
+    @Test
+    public void parserBusy_FallsBackToBufferedResponse() throws Exception {
+        ClientConfiguration configuration = configuration(0, 0);
+        configuration.setResponseParserThreads(1);
+        configuration.setResponseParserQueueSize(1);
+        CloudQueue queue = server.newQueue(configuration, "stream-busy-queue");
+        putLargeMessages(queue, 16);
+
+        List<CompletableFuture<List<Message>>> futures = new ArrayList<CompletableFuture<List<Message>>>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(queue.batchPeekMessageAsync(16));
+        }
+        for (CompletableFuture<List<Message>> future : futures) {
+            Assert.assertEquals(16, future.get(10, TimeUnit.SECONDS).size());
+        }
+    }
+
+    @Test
+    public void streamingDisabled_BatchReceiveUnchanged() throws Exception {
+        CloudQueue queue = server.newQueue(configuration(-1, 0), "stream-disabled-queue");
+        putLargeMessages(queue, 4);
+
+        Assert.assertEquals(4, queue.batchPopMessage(16, 0).size());
+    }
+
+    private List<String> putLargeMessages(CloudQueue queue, int count) {
+        List<String> bodies = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            char[] chars = new char[BODY_SIZE];
+            Arrays.fill(chars, (char) ('a' + i));
+            String body = new String(chars);
+            bodies.add(body);
+            queue.putMessage(rawMessage(body));
+        }
+        return bodies;
+    }
+
+    private ClientConfiguration configuration(long streamingThreshold, int maxErrorRetry) {
+        ClientConfiguration configuration = LocalMNSServer.newConfiguration();
+        configuration.setMaxErrorRetry(maxErrorRetry);
+        configuration.setStreamingResponseThreshold(streamingThreshold);
+        return configuration;
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -0,0 +1,146 @@
+package com.aliyun.mns.unitTest.client.queue;
+
+import com.aliyun.mns.client.BatchMessageAcknowledger;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MockUtil;
+import com.aliyun.mns.common.BatchDeleteException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.model.ErrorMessageResult;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+public class BatchMessageAcknowledgerTest {
+
+    private CloudQueue queue;
+    private final List<List<String>> batches = new CopyOnWriteArrayList<List<String>>();
+    private BatchMessageAcknowledger acknowledger;
+
+    @Before
+    public void setUp() {
+        queue = MockUtil.spyNewCloudQueue("testQueue", Mockito.mock(ServiceClient.class),
+            Mockito.mock(ServiceCredentials.class), "http://xxx.mns.test.com");
+        doAnswer(invocation -> {
+            batches.add(new ArrayList<String>(invocation.<List<String>>getArgument(0)));
+            return CompletableFuture.completedFuture(null);
+        }).when(queue).batchDeleteMessageAsync(anyList());
+    }
+
+    @After
+    public void tearDown() {
+        if (acknowledger != null) {
+            acknowledger.close();
+        }
+    }
+
+    @Test
+    public void ack_FullBatch_FlushesImmediately() throws Exception {
+        acknowledger = BatchMessageAcknowledger.newBuilder(queue).flushIntervalMillis(60000).build();
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(acknowledger.ack("handle-" + i));
+        }
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(16, batches.get(0).size());
+        for (CompletableFuture<Void> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void ack_FlushIntervalElapsed_FlushesPartialBatch() throws Exception {
+        acknowledger = BatchMessageAcknowledger.newBuilder(queue).flushIntervalMillis(20).build();
+        CompletableFuture<Void> first = acknowledger.ack("h1");
+        CompletableFuture<Void> second = acknowledger.ack("h2");
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+    }
+
+    @Test
+    public void ack_MessageNearVisibility_FlushesBeforeInterval() throws Exception {
+        acknowledger = BatchMessageAcknowledger.newBuilder(queue)
+            .flushIntervalMillis(60000).expiryMarginMillis(1000).build();
+        Message message = new Message();
+        message.setReceiptHandle("expiring");
+        message.setNextVisibleTime(new Date(System.currentTimeMillis() + 1050));
+
+        acknowledger.ack(message).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("expiring", batches.get(0).get(0));
+    }
+
+    @Test
+    public void ack_BatchDeleteException_RetriesTransientAndFailsPermanent() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<String> handles = new ArrayList<String>(invocation.<List<String>>getArgument(0));
+            batches.add(handles);
+            CompletableFuture<Void> future = new CompletableFuture<Void>();
+            if (calls.getAndIncrement() == 0) {
+                Map<String, ErrorMessageResult> errors = new HashMap<String, ErrorMessageResult>();
+                errors.put("transient", error("InternalError"));
+                errors.put("expired", error("ReceiptHandleError"));
+                future.completeExceptionally(new BatchDeleteException(errors));
+            } else {
+                future.complete(null);
+            }
+            return future;
+        }).when(queue).batchDeleteMessageAsync(anyList());
+
+        acknowledger = BatchMessageAcknowledger.newBuilder(queue)
+            .flushIntervalMillis(60000).retryBackoffMillis(10).build();
+        CompletableFuture<Void> ok = acknowledger.ack("ok");
+        CompletableFuture<Void> transientFailure = acknowledger.ack("transient");
+        CompletableFuture<Void> expired = acknowledger.ack("expired");
+        acknowledger.flush();
+
+        ok.get(1, TimeUnit.SECONDS);
+        transientFailure.get(5, TimeUnit.SECONDS);
+        try {
+            expired.get(1, TimeUnit.SECONDS);
+            Assert.fail("expired handle should not be retried");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("ReceiptHandleError", ((ServiceException) e.getCause()).getErrorCode());
+        }
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals("transient", batches.get(1).get(0));
+    }
+
+    @Test
+    public void close_FlushesPendingAndRejectsNewAcks() throws Exception {
+        acknowledger = BatchMessageAcknowledger.newBuilder(queue).flushIntervalMillis(60000).build();
+        CompletableFuture<Void> pending = acknowledger.ack("last");
+        acknowledger.close().get(1, TimeUnit.SECONDS);
+
+        Assert.assertTrue(pending.isDone() && !pending.isCompletedExceptionally());
+        Assert.assertTrue(acknowledger.ack("late").isCompletedExceptionally());
+    }
+
+    private ErrorMessageResult error(String code) {
+        ErrorMessageResult result = new ErrorMessageResult();
+        result.setErrorCode(code);
+        result.setErrorMessage(code);
+        return result;
+    }
+}
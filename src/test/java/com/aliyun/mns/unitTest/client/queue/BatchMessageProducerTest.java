@@ -0,0 +1,204 @@
+package com.aliyun.mns.unitTest.client.queue;
+
+import com.aliyun.mns.client.BatchMessageProducer;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MockUtil;
+import com.aliyun.mns.common.BatchSendException;
+import com.aliyun.mns.common.ClientException;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.ClientConfiguration;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.model.ErrorMessageResult;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+public class BatchMessageProducerTest {
+
+    private CloudQueue queue;
+    private final List<List<Message>> batches = new CopyOnWriteArrayList<List<Message>>();
+    private BatchMessageProducer producer;
+
+    @Before
+    public void setUp() {
+        ServiceClient serviceClient = Mockito.mock(ServiceClient.class);
+        Mockito.when(serviceClient.getClientConfiguration()).thenReturn(new ClientConfiguration());
+        queue = MockUtil.spyNewCloudQueue("testQueue", serviceClient,
+            Mockito.mock(ServiceCredentials.class), "http://xxx.mns.test.com");
+        doAnswer(invocation -> {
+            List<Message> batch = new ArrayList<Message>(invocation.<List<Message>>getArgument(0));
+            batches.add(batch);
+            List<Message> results = new ArrayList<Message>();
+            for (Message message : batch) {
+                Message result = new Message();
+                result.setMessageId("id-" + message.getMessageBodyAsRawString());
+                results.add(result);
+            }
+            return CompletableFuture.completedFuture(results);
+        }).when(queue).batchPutMessageAsync(anyList());
+    }
+
+    @After
+    public void tearDown() {
+        if (producer != null) {
+            producer.close();
+        }
+    }
+
+    @Test
+    public void send_FullBatch_FlushesImmediately() throws Exception {
+        producer = BatchMessageProducer.newBuilder(queue).lingerMillis(60000).build();
+        List<CompletableFuture<Message>> futures = new ArrayList<CompletableFuture<Message>>();
+        for (int i = 0; i < 17; i++) {
+            futures.add(producer.send(rawMessage("m" + i)));
+        }
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(16, batches.get(0).size());
+        Assert.assertEquals(1, producer.getPendingCount());
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals("id-m" + i, futures.get(i).get(1, TimeUnit.SECONDS).getMessageId());
+        }
+        Assert.assertFalse(futures.get(16).isDone());
+    }
+
+    @Test
+    public void send_LingerElapsed_FlushesPartialBatch() throws Exception {
+        producer = BatchMessageProducer.newBuilder(queue).lingerMillis(20).build();
+        CompletableFuture<Message> first = producer.send(rawMessage("a"));
+        CompletableFuture<Message> second = producer.send(rawMessage("b"));
+
+        Assert.assertEquals("id-a", first.get(5, TimeUnit.SECONDS).getMessageId());
+        Assert.assertEquals("id-b", second.get(5, TimeUnit.SECONDS).getMessageId());
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+    }
+
+    @Test
+    public void send_ExceedsMaxBytes_StartsNewBatch() {
+        producer = BatchMessageProducer.newBuilder(queue).lingerMillis(60000).maxBatchBytes(10).build();
+        producer.send(rawMessage("123456"));
+        producer.send(rawMessage("abcdef"));
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals("123456", batches.get(0).get(0).getMessageBodyAsRawString());
+
+        producer.flush();
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals("abcdef", batches.get(1).get(0).getMessageBodyAsRawString());
+    }
+
+    @Test
+    public void send_PartialFailure_MapsErrorsToCallers() throws Exception {
+        doAnswer(invocation -> {
+            Message ok = new Message();
+            ok.setMessageId("id-ok");
+            Message failed = new Message();
+            ErrorMessageResult error = new ErrorMessageResult();
+            error.setErrorCode("MessageNotExist");
+            error.setErrorMessage("bad message");
+            failed.setErrorMessage(error);
+
+            List<Message> results = new ArrayList<Message>();
+            results.add(ok);
+            results.add(failed);
+            CompletableFuture<List<Message>> future = new CompletableFuture<List<Message>>();
+            future.completeExceptionally(new BatchSendException(results));
+            return future;
+        }).when(queue).batchPutMessageAsync(anyList());
+
+        producer = BatchMessageProducer.newBuilder(queue).lingerMillis(60000).build();
+        CompletableFuture<Message> first = producer.send(rawMessage("ok"));
+        CompletableFuture<Message> second = producer.send(rawMessage("bad"));
+        producer.flush();
+
+        Assert.assertEquals("id-ok", first.get(1, TimeUnit.SECONDS).getMessageId());
+        try {
+            second.get(1, TimeUnit.SECONDS);
+            Assert.fail("second message should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ServiceException);
+            Assert.assertEquals("MessageNotExist", ((ServiceException) e.getCause()).getErrorCode());
+        }
+    }
+
+    @Test
+    public void close_FlushesPendingAndRejectsNewMessages() throws Exception {
+        producer = BatchMessageProducer.newBuilder(queue).lingerMillis(60000).build();
+        CompletableFuture<Message> pending = producer.send(rawMessage("last"));
+        producer.close().get(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals("id-last", pending.get(1, TimeUnit.SECONDS).getMessageId());
+        Assert.assertTrue(producer.send(rawMessage("late")).isCompletedExceptionally());
+    }
+
+    @Test
+    public void send_SchedulerShutdown_FailsPendingMessages() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.shutdown();
+        producer = BatchMessageProducer.newBuilder(queue).lingerMillis(60000).scheduler(scheduler).build();
+
+        CompletableFuture<Message> future = producer.send(rawMessage("orphan"));
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            Assert.fail("message should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ClientException);
+            Assert.assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+        }
+        Assert.assertEquals(0, producer.getPendingCount());
+    }
+
+    @Test
+    public void send_RacingClose_EveryFutureCompletes() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            final BatchMessageProducer racing = BatchMessageProducer.newBuilder(queue).lingerMillis(60000).build();
+            final List<CompletableFuture<Message>> futures = new CopyOnWriteArrayList<CompletableFuture<Message>>();
+            final CountDownLatch ready = new CountDownLatch(4);
+            ExecutorService senders = Executors.newFixedThreadPool(4);
+            for (int t = 0; t < 4; t++) {
+                senders.execute(() -> {
+                    ready.countDown();
+                    for (int i = 0; i < 20; i++) {
+                        futures.add(racing.send(rawMessage("r" + i)));
+                    }
+                });
+            }
+            ready.await();
+            racing.close();
+            senders.shutdown();
+            Assert.assertTrue(senders.awaitTermination(5, TimeUnit.SECONDS));
+
+            for (CompletableFuture<Message> future : futures) {
+                Assert.assertTrue(future.isDone());
+            }
+            Assert.assertEquals(0, racing.getPendingCount());
+        }
+    }
+
+    private Message rawMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        return message;
+    }
+}
@@ -1,5 +1,6 @@
 package com.aliyun.mns.unitTest.client.queue;
 
+import com.aliyun.mns.client.impl.ActionContext;
 import com.aliyun.mns.client.impl.queue.BatchReceiveMessageAction;
 import com.aliyun.mns.common.MNSConstants;
 import com.aliyun.mns.common.http.ClientConfiguration;
@@ -20,6 +21,7 @@ public class BatchReceiveMessageActionTest {
 
     private BatchReceiveMessageAction batchReceiveMessageAction;
     private BatchReceiveMessageRequest batchReceiveMessageRequest;
+    private final ActionContext context = new ActionContext(null);
 
     @Before
     public void setUp() {
@@ -35,7 +37,8 @@ public class BatchReceiveMessageActionTest {
 
         batchReceiveMessageRequest.setWaitSeconds(0);
 
-        RequestMessage result = (RequestMessage) buildRequestMethod.invoke(batchReceiveMessageAction, batchReceiveMessageRequest);
+        RequestMessage result = (RequestMessage) buildRequestMethod.invoke(batchReceiveMessageAction,
+            batchReceiveMessageRequest, context);
 
         // expect the resource path contains the waitSeconds parameter
         Assert.assertTrue(result.getResourcePath().contains(MNSConstants.PARAM_WAIT_SECONDS));
@@ -45,7 +48,8 @@ public class BatchReceiveMessageActionTest {
     public void testBuildRequest_WithoutWaitSeconds() throws Exception {
         Method buildRequestMethod = getBuildRequestMethod();
 
-        RequestMessage result = (RequestMessage) buildRequestMethod.invoke(batchReceiveMessageAction, batchReceiveMessageRequest);
+        RequestMessage result = (RequestMessage) buildRequestMethod.invoke(batchReceiveMessageAction,
+            batchReceiveMessageRequest, context);
 
         // expect the resource path does not contain the waitSeconds parameter
         Assert.assertFalse(result.getResourcePath().contains(MNSConstants.PARAM_WAIT_SECONDS));
@@ -57,7 +61,8 @@ public class BatchReceiveMessageActionTest {
 
         batchReceiveMessageRequest.setWaitSeconds(-1);
 
-        RequestMessage result = (RequestMessage) buildRequestMethod.invoke(batchReceiveMessageAction, batchReceiveMessageRequest);
+        RequestMessage result = (RequestMessage) buildRequestMethod.invoke(batchReceiveMessageAction,
+            batchReceiveMessageRequest, context);
 
         // expect the resource path does not contain the waitSeconds parameter
         Assert.assertFalse(result.getResourcePath().contains(MNSConstants.PARAM_WAIT_SECONDS));
@@ -70,7 +75,8 @@ public class BatchReceiveMessageActionTest {
     }
 
     private Method getBuildRequestMethod() throws NoSuchMethodException {
-        Method buildRequestMethod = BatchReceiveMessageAction.class.getDeclaredMethod("buildRequest", BatchReceiveMessageRequest.class);
+        Method buildRequestMethod = BatchReceiveMessageAction.class.getDeclaredMethod("buildRequest",
+            BatchReceiveMessageRequest.class, ActionContext.class);
         buildRequestMethod.setAccessible(true);
         return buildRequestMethod;
     }
@@ -0,0 +1,176 @@
+package com.aliyun.mns.unitTest.client.queue;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MessageConsumerContainer;
+import com.aliyun.mns.client.MockUtil;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+public class MessageConsumerContainerTest {
+
+    private CloudQueue queue;
+    private final ConcurrentLinkedQueue<Message> remote = new ConcurrentLinkedQueue<Message>();
+    private final Set<String> acked = new CopyOnWriteArraySet<String>();
+    private final AtomicInteger maxRequested = new AtomicInteger();
+    private MessageConsumerContainer container;
+
+    @Before
+    public void setUp() throws Exception {
+        queue = MockUtil.spyNewCloudQueue("testQueue", Mockito.mock(ServiceClient.class),
+            Mockito.mock(ServiceCredentials.class), "http://xxx.mns.test.com");
+        doAnswer(invocation -> {
+            int batchSize = invocation.<Integer>getArgument(0);
+            maxRequested.accumulateAndGet(batchSize, Math::max);
+            List<Message> messages = new ArrayList<Message>();
+            Message message;
+            while (messages.size() < batchSize && (message = remote.poll()) != null) {
+                messages.add(message);
+            }
+            if (messages.isEmpty()) {
+                Thread.sleep(10);
+                return null;
+            }
+            return messages;
+        }).when(queue).batchPopMessage(anyInt(), anyInt());
+        doAnswer(invocation -> {
+            acked.addAll(invocation.<List<String>>getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        }).when(queue).batchDeleteMessageAsync(anyList());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (container != null) {
+            container.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void start_ConsumesAndAcksAllMessages() throws Exception {
+        addRemoteMessages(50, "body");
+        final CountDownLatch latch = new CountDownLatch(50);
+        container = MessageConsumerContainer.newBuilder(queue, message -> {
+            latch.countDown();
+            return !message.getReceiptHandle().equals("handle-0");
+        }).fetcherCount(2).workerCount(4).waitSeconds(1).build();
+        container.start();
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(container.shutdown(5, TimeUnit.SECONDS));
+        Assert.assertEquals(49, acked.size());
+        Assert.assertFalse(acked.contains("handle-0"));
+        Assert.assertEquals(50, container.getReceivedCount());
+        Assert.assertEquals(49, container.getProcessedCount());
+        Assert.assertEquals(1, container.getFailedCount());
+    }
+
+    @Test
+    public void prefetch_BoundedByMessageCount() throws Exception {
+        addRemoteMessages(40, "body");
+        final CountDownLatch release = new CountDownLatch(1);
+        container = MessageConsumerContainer.newBuilder(queue, message -> {
+            release.await();
+            return true;
+        }).workerCount(1).prefetchMessages(5).build();
+        container.start();
+
+        waitFor(() -> container.getBufferedCount() == 5 && container.getInFlightCount() == 1);
+        Thread.sleep(50);
+        Assert.assertEquals(5, container.getBufferedCount());
+        Assert.assertEquals(34, remote.size());
+        Assert.assertTrue(maxRequested.get() <= 5);
+        release.countDown();
+    }
+
+    @Test
+    public void prefetch_BoundedByBytes() throws Exception {
+        addRemoteMessages(40, "0123456789");
+        final CountDownLatch release = new CountDownLatch(1);
+        container = MessageConsumerContainer.newBuilder(queue, message -> {
+            release.await();
+            return true;
+        }).workerCount(1).batchSize(2).prefetchBytes(30).build();
+        container.start();
+
+        waitFor(() -> container.getBufferedBytes() >= 30);
+        Thread.sleep(50);
+        // 字节上限是软限制，最多超出一个批次
+        Assert.assertTrue(container.getBufferedBytes() < 30 + 2 * 10);
+        Assert.assertEquals(container.getBufferedCount() * 10L, container.getBufferedBytes());
+        Assert.assertTrue(remote.size() >= 40 - 5);
+        release.countDown();
+    }
+
+    @Test
+    public void shutdown_DrainsBufferedMessages() throws Exception {
+        addRemoteMessages(20, "body");
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        container = MessageConsumerContainer.newBuilder(queue, message -> {
+            entered.countDown();
+            release.await();
+            return true;
+        }).workerCount(1).prefetchMessages(8).build();
+        container.start();
+
+        Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+        waitFor(() -> container.getBufferedCount() == 8);
+        // 在 shutdown 开始后再放行，否则拉取线程可能在停止前又补满缓冲区
+        new Thread(() -> {
+            while (container.isRunning()) {
+                Thread.yield();
+            }
+            release.countDown();
+        }).start();
+        Assert.assertTrue(container.shutdown(5, TimeUnit.SECONDS));
+
+        Assert.assertFalse(container.isRunning());
+        Assert.assertEquals(0, container.getBufferedCount());
+        Assert.assertEquals(9, container.getProcessedCount());
+        Assert.assertEquals(9, acked.size());
+        Assert.assertEquals(11, remote.size());
+    }
+
+    private void addRemoteMessages(int count, String body) {
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setMessageId("id-" + i);
+            message.setReceiptHandle("handle-" + i);
+            message.setMessageBodyAsRawString(body);
+            remote.add(message);
+        }
+    }
+
+    private void waitFor(Condition condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.isMet()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("condition not met in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+}
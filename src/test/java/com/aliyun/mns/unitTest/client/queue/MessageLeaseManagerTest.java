@@ -0,0 +1,157 @@
+package com.aliyun.mns.unitTest.client.queue;
+
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MessageLeaseManager;
+import com.aliyun.mns.client.MockUtil;
+import com.aliyun.mns.common.ServiceException;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.model.Message;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+public class MessageLeaseManagerTest {
+
+    private CloudQueue queue;
+    private final List<String> renewedHandles = new CopyOnWriteArrayList<String>();
+    private final AtomicInteger renewals = new AtomicInteger();
+    private MessageLeaseManager leaseManager;
+
+    @Before
+    public void setUp() {
+        queue = MockUtil.spyNewCloudQueue("testQueue", Mockito.mock(ServiceClient.class),
+            Mockito.mock(ServiceCredentials.class), "http://xxx.mns.test.com");
+        // 服务端每次只延长 100ms，便于观察多次续约
+        doAnswer(invocation -> {
+            renewedHandles.add(invocation.getArgument(0));
+            Message result = new Message();
+            result.setReceiptHandle("handle-" + renewals.incrementAndGet());
+            result.setNextVisibleTime(new Date(System.currentTimeMillis() + 100));
+            return CompletableFuture.completedFuture(result);
+        }).when(queue).changeMessageVisibilityAsync(anyString(), anyInt());
+    }
+
+    @After
+    public void tearDown() {
+        if (leaseManager != null) {
+            leaseManager.close();
+        }
+    }
+
+    @Test
+    public void track_RenewsBeforeExpiryUntilReleased() throws Exception {
+        leaseManager = newLeaseManager(60000);
+        Message message = receivedMessage(100);
+        leaseManager.track(message);
+
+        waitFor(() -> renewals.get() >= 3);
+        Message released = leaseManager.release(message).get(1, TimeUnit.SECONDS);
+        int renewalsAtRelease = renewals.get();
+
+        Assert.assertSame(message, released);
+        Assert.assertEquals("handle-" + renewalsAtRelease, released.getReceiptHandle());
+        Assert.assertEquals("handle-0", renewedHandles.get(0));
+        Assert.assertEquals("handle-1", renewedHandles.get(1));
+        Assert.assertEquals(0, leaseManager.getActiveLeaseCount());
+
+        Thread.sleep(300);
+        Assert.assertEquals(renewalsAtRelease, renewals.get());
+    }
+
+    @Test
+    public void track_StopsAfterMaxLease() throws Exception {
+        leaseManager = newLeaseManager(250);
+        leaseManager.track(receivedMessage(100));
+
+        waitFor(() -> leaseManager.getActiveLeaseCount() == 0);
+        int count = renewals.get();
+        Assert.assertTrue(count >= 1);
+        Thread.sleep(300);
+        Assert.assertEquals(count, renewals.get());
+    }
+
+    @Test
+    public void track_ReceiptHandleError_StopsRenewing() throws Exception {
+        doAnswer(invocation -> {
+            renewals.incrementAndGet();
+            CompletableFuture<Message> future = new CompletableFuture<Message>();
+            future.completeExceptionally(new ServiceException("handle expired", null, "ReceiptHandleError", "req", "host"));
+            return future;
+        }).when(queue).changeMessageVisibilityAsync(anyString(), anyInt());
+
+        leaseManager = newLeaseManager(60000);
+        leaseManager.track(receivedMessage(50));
+
+        waitFor(() -> leaseManager.getLostCount() == 1);
+        Assert.assertEquals(0, leaseManager.getActiveLeaseCount());
+        Assert.assertEquals(1, renewals.get());
+    }
+
+    @Test
+    public void release_WaitsForInFlightRenewal() throws Exception {
+        final CompletableFuture<Message> pending = new CompletableFuture<Message>();
+        doAnswer(invocation -> {
+            renewals.incrementAndGet();
+            return pending;
+        }).when(queue).changeMessageVisibilityAsync(anyString(), anyInt());
+
+        leaseManager = newLeaseManager(60000);
+        Message message = receivedMessage(50);
+        leaseManager.track(message);
+        waitFor(() -> renewals.get() == 1);
+
+        CompletableFuture<Message> released = leaseManager.release(message);
+        Assert.assertFalse(released.isDone());
+
+        Message result = new Message();
+        result.setReceiptHandle("renewed");
+        result.setNextVisibleTime(new Date(System.currentTimeMillis() + 30000));
+        pending.complete(result);
+
+        Assert.assertEquals("renewed", released.get(1, TimeUnit.SECONDS).getReceiptHandle());
+    }
+
+    private MessageLeaseManager newLeaseManager(long maxLeaseMillis) {
+        return MessageLeaseManager.newBuilder(queue)
+            .visibilityTimeoutSeconds(1)
+            .renewMarginMillis(40)
+            .maxLeaseMillis(maxLeaseMillis)
+            .tickMillis(5)
+            .build();
+    }
+
+    private Message receivedMessage(long visibleAfterMillis) {
+        Message message = new Message();
+        message.setMessageId("id");
+        message.setReceiptHandle("handle-0");
+        message.setNextVisibleTime(new Date(System.currentTimeMillis() + visibleAfterMillis));
+        return message;
+    }
+
+    private void waitFor(Condition condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.isMet()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("condition not met in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+}
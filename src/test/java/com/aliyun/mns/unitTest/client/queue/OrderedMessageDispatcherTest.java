@@ -0,0 +1,188 @@
+package com.aliyun.mns.unitTest.client.queue;
+
+import com.aliyun.mns.client.BatchMessageAcknowledger;
+import com.aliyun.mns.client.CloudQueue;
+import com.aliyun.mns.client.MockUtil;
+import com.aliyun.mns.client.OrderedMessageDispatcher;
+import com.aliyun.mns.common.auth.ServiceCredentials;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.model.Message;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+public class OrderedMessageDispatcherTest {
+
+    private final List<String> acked = new CopyOnWriteArrayList<String>();
+    private BatchMessageAcknowledger acknowledger;
+    private OrderedMessageDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        CloudQueue queue = MockUtil.spyNewCloudQueue("testQueue", Mockito.mock(ServiceClient.class),
+            Mockito.mock(ServiceCredentials.class), "http://xxx.mns.test.com");
+        doAnswer(invocation -> {
+            acked.addAll(invocation.<List<String>>getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        }).when(queue).batchDeleteMessageAsync(anyList());
+        acknowledger = BatchMessageAcknowledger.newBuilder(queue).flushIntervalMillis(5).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (dispatcher != null) {
+            dispatcher.shutdown(5, TimeUnit.SECONDS);
+        }
+        acknowledger.close();
+    }
+
+    @Test
+    public void dispatch_KeepsOrderWithinGroup() throws Exception {
+        final Map<String, List<Integer>> seen = new ConcurrentHashMap<String, List<Integer>>();
+        dispatcher = OrderedMessageDispatcher.newBuilder(message -> {
+            seen.computeIfAbsent(message.getMessageGroupId(), k -> new CopyOnWriteArrayList<Integer>())
+                .add(sequenceOf(message));
+            return true;
+        }, acknowledger).laneCount(3).build();
+
+        List<Message> batch = new ArrayList<Message>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(message("g" + (i % 5), i));
+        }
+        dispatcher.dispatch(batch).get(5, TimeUnit.SECONDS);
+        acknowledger.flush();
+        waitForAcks(100);
+
+        Assert.assertEquals(5, seen.size());
+        for (List<Integer> sequences : seen.values()) {
+            assertIncreasing(sequences);
+        }
+        Assert.assertEquals(100, acked.size());
+        for (int g = 0; g < 5; g++) {
+            List<Integer> ackOrder = new ArrayList<Integer>();
+            for (String handle : acked) {
+                if (handle.startsWith("g" + g + "-")) {
+                    ackOrder.add(Integer.parseInt(handle.substring(handle.indexOf('-') + 1)));
+                }
+            }
+            Assert.assertEquals(20, ackOrder.size());
+            assertIncreasing(ackOrder);
+        }
+    }
+
+    @Test
+    public void dispatch_SlowGroupDoesNotBlockOtherLanes() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch groupBDone = new CountDownLatch(3);
+        dispatcher = OrderedMessageDispatcher.newBuilder(message -> {
+            if ("A".equals(message.getMessageGroupId())) {
+                release.await();
+            } else {
+                groupBDone.countDown();
+            }
+            return true;
+        }, acknowledger).laneCount(2).build();
+
+        CompletableFuture<Void> done = dispatcher.dispatch(Arrays.asList(
+            message("A", 0), message("B", 1), message("B", 2), message("B", 3)));
+
+        Assert.assertTrue(groupBDone.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(done.isDone());
+        release.countDown();
+        done.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void dispatch_FailureSkipsRestOfGroup() throws Exception {
+        final List<String> consumed = new CopyOnWriteArrayList<String>();
+        dispatcher = OrderedMessageDispatcher.newBuilder(message -> {
+            consumed.add(message.getReceiptHandle());
+            if (message.getReceiptHandle().equals("A-1")) {
+                throw new IllegalStateException("fail");
+            }
+            return true;
+        }, acknowledger).laneCount(2).build();
+
+        dispatcher.dispatch(Arrays.asList(
+            message("A", 0), message("B", 1), message("A", 1), message("B", 2), message("A", 2)))
+            .get(5, TimeUnit.SECONDS);
+        acknowledger.flush();
+        waitForAcks(3);
+
+        Assert.assertFalse(consumed.contains("A-2"));
+        Assert.assertEquals(1, dispatcher.getFailedCount());
+        Assert.assertEquals(1, dispatcher.getSkippedCount());
+        Assert.assertEquals(3, dispatcher.getProcessedCount());
+        Assert.assertTrue(acked.containsAll(Arrays.asList("A-0", "B-1", "B-2")));
+        Assert.assertFalse(acked.contains("A-1"));
+        Assert.assertFalse(acked.contains("A-2"));
+    }
+
+    @Test
+    public void dispatch_BlocksWhenPendingLimitReached() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        dispatcher = OrderedMessageDispatcher.newBuilder(message -> {
+            release.await();
+            return true;
+        }, acknowledger).laneCount(2).maxPendingMessages(2).build();
+
+        final CountDownLatch dispatched = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                dispatcher.dispatch(Arrays.asList(message("A", 0), message("A", 1), message("A", 2)));
+                dispatched.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        Assert.assertFalse(dispatched.await(100, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, dispatcher.getPendingCount());
+        release.countDown();
+        Assert.assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+    }
+
+    private void waitForAcks(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (acked.size() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("expected " + count + " acks but got " + acked.size());
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private Message message(String groupId, int sequence) {
+        Message message = new Message();
+        message.setMessageId(groupId + "-id-" + sequence);
+        message.setReceiptHandle(groupId + "-" + sequence);
+        message.setMessageGroupId(groupId);
+        return message;
+    }
+
+    private int sequenceOf(Message message) {
+        String handle = message.getReceiptHandle();
+        return Integer.parseInt(handle.substring(handle.indexOf('-') + 1));
+    }
+
+    private void assertIncreasing(List<Integer> values) {
+        for (int i = 1; i < values.size(); i++) {
+            Assert.assertTrue(values.toString(), values.get(i - 1) < values.get(i));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.aliyun.mns.unitTest.model.serialize.queue;
+
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessagePropertyValue;
+import com.aliyun.mns.model.MessageSystemPropertyName;
+import com.aliyun.mns.model.PropertyType;
+import com.aliyun.mns.model.serialize.queue.MessageListDeserializer;
+import com.aliyun.mns.model.serialize.queue.MessageListStreamDeserializer;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MessageListStreamDeserializerTest {
+
+    private static final String FULL_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<Messages xmlns=\"http://mns.aliyuncs.com/doc/v1/\">"
+        + "<Message>"
+        + "<MessageId>5F290C926D472878-2-14D9529A8FA-200000001</MessageId>"
+        + "<ReceiptHandle>1-ODU4OTkzNDU5My0xNDM1MTk3NjAwLTItMTA=</ReceiptHandle>"
+        + "<MessageBodyMD5>C5DD56A39F5F7BB8B3337C6D11B6D8C7</MessageBodyMD5>"
+        + "<MessageBody>a &amp; b &lt;c&gt; <![CDATA[<raw>]]></MessageBody>"
+        + "<EnqueueTime>1250700979248</EnqueueTime>"
+        + "<NextVisibleTime>1250700799348</NextVisibleTime>"
+        + "<FirstDequeueTime>1250700779318</FirstDequeueTime>"
+        + "<DequeueCount>1</DequeueCount>"
+        + "<Priority>8</Priority>"
+        + "<UserProperties>"
+        + "<PropertyValue><Name>key1</Name><Value>value1</Value><Type>STRING</Type></PropertyValue>"
+        + "<PropertyValue><Name>key2</Name><Value>dmFsdWUy</Value><Type>BINARY</Type></PropertyValue>"
+        + "</UserProperties>"
+        + "<SystemProperties>"
+        + "<SystemPropertyValue><Name>traceparent</Name><Value>00-trace</Value><Type>STRING</Type></SystemPropertyValue>"
+        + "</SystemProperties>"
+        + "<MessageGroupId>group-1</MessageGroupId>"
+        + "</Message>"
+        + "<Message>"
+        + "<ErrorCode>MessageNotExist</ErrorCode>"
+        + "<ErrorMessage>Message not exist.</ErrorMessage>"
+        + "</Message>"
+        + "</Messages>";
+
+    private MessageListStreamDeserializer deserializer;
+
+    @Before
+    public void setUp() {
+        deserializer = new MessageListStreamDeserializer();
+    }
+
+    @Test
+    public void deserialize_EmptyInputStream_ReturnsEmptyList() throws Exception {
+        InputStream inputStream = new ByteArrayInputStream("<Messages/>".getBytes());
+        List<Message> messages = deserializer.deserialize(inputStream);
+        Assert.assertTrue(messages == null || messages.isEmpty());
+    }
+
+    @Test(expected = Exception.class)
+    public void deserialize_MalformedXML_ThrowsException() throws Exception {
+        String malformedXml = "<Messages><Message><MessageId>123</MessageId></Message>";
+        deserializer.deserialize(new ByteArrayInputStream(malformedXml.getBytes()));
+    }
+
+    @Test(expected = Exception.class)
+    public void deserialize_DoctypeDeclaration_IsRejected() throws Exception {
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE Messages [<!ENTITY x SYSTEM \"file:///etc/passwd\">]>"
+            + "<Messages><Message><MessageId>&x;</MessageId></Message></Messages>";
+        deserializer.deserialize(new ByteArrayInputStream(xml.getBytes()));
+    }
+
+    @Test
+    public void deserialize_XMLWithEmptyMessages_ReturnsEmptyMessages() throws Exception {
+        String xml = "<Messages><Message><MessageId></MessageId><MessageBody></MessageBody></Message></Messages>";
+        List<Message> messages = deserializer.deserialize(new ByteArrayInputStream(xml.getBytes()));
+        Assert.assertEquals(1, messages.size());
+        Assert.assertEquals("", messages.get(0).getMessageId());
+        Assert.assertEquals("", messages.get(0).getMessageBody());
+    }
+
+    @Test
+    public void deserialize_FullXML_ParsesAllFields() throws Exception {
+        List<Message> messages = deserializer.deserialize(
+            new ByteArrayInputStream(FULL_XML.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(2, messages.size());
+
+        Message message = messages.get(0);
+        Assert.assertEquals("5F290C926D472878-2-14D9529A8FA-200000001", message.getMessageId());
+        Assert.assertEquals("1-ODU4OTkzNDU5My0xNDM1MTk3NjAwLTItMTA=", message.getReceiptHandle());
+        Assert.assertEquals("a & b <c> <raw>", message.getMessageBodyAsRawString());
+        Assert.assertEquals(1250700979248L, message.getEnqueueTime().getTime());
+        Assert.assertEquals(1250700799348L, message.getNextVisibleTime().getTime());
+        Assert.assertEquals(1250700779318L, message.getFirstDequeueTime().getTime());
+        Assert.assertEquals(Integer.valueOf(1), message.getDequeueCount());
+        Assert.assertEquals(Integer.valueOf(8), message.getPriority());
+        Assert.assertEquals("group-1", message.getMessageGroupId());
+
+        MessagePropertyValue binary = message.getUserProperties().get("key2");
+        Assert.assertEquals(PropertyType.BINARY, binary.getDataType());
+        Assert.assertEquals("value2", binary.getStringValueByType());
+        Assert.assertEquals("value1", message.getUserProperties().get("key1").getStringValueByType());
+        Assert.assertEquals("00-trace",
+            message.getSystemProperty(MessageSystemPropertyName.TRACE_PARENT).getStringValueByType());
+
+        Message error = messages.get(1);
+        Assert.assertTrue(error.isErrorMessage());
+        Assert.assertEquals("MessageNotExist", error.getErrorMessageDetail().getErrorCode());
+        Assert.assertEquals("Message not exist.", error.getErrorMessageDetail().getErrorMessage());
+    }
+
+    @Test
+    public void deserialize_SameResultAsDomDeserializer() throws Exception {
+        byte[] bytes = FULL_XML.getBytes(StandardCharsets.UTF_8);
+        List<Message> expected = new MessageListDeserializer().deserialize(new ByteArrayInputStream(bytes));
+        List<Message> actual = deserializer.deserialize(new ByteArrayInputStream(bytes));
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            Assert.assertEquals(expected.get(i).getUserProperties().toString(),
+                actual.get(i).getUserProperties().toString());
+        }
+    }
+}
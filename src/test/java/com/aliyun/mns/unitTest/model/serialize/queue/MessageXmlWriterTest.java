@@ -0,0 +1,109 @@
+package com.aliyun.mns.unitTest.model.serialize.queue;
+
+import com.aliyun.mns.model.Message;
+import com.aliyun.mns.model.MessagePropertyValue;
+import com.aliyun.mns.model.MessageSystemPropertyName;
+import com.aliyun.mns.model.MessageSystemPropertyValue;
+import com.aliyun.mns.model.PropertyType;
+import com.aliyun.mns.model.SystemPropertyType;
+import com.aliyun.mns.model.serialize.XmlUtil;
+import com.aliyun.mns.model.serialize.queue.MessageListSerializer;
+import com.aliyun.mns.model.serialize.queue.MessageSerializer;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static com.aliyun.mns.common.MNSConstants.DEFAULT_XML_NAMESPACE;
+import static com.aliyun.mns.common.MNSConstants.MESSAGE_LIST_TAG;
+
+/**
+ * UTF-8 下消息序列化直接写字节，输出需要与原 DOM + Transformer 的结果逐字节一致
+ */
+public class MessageXmlWriterTest {
+
+    private static final String[] BODIES = {
+        "",
+        "Test Message",
+        "a<b>&\"'c ]]>",
+        "x\r\ny\tz",
+        "\u4e2d\u6587\u00e9\u2028\ufffd",
+        "\u0000\u0001\u001f\u007f\u0080\u009f",
+        "\ud83d\ude00 emoji"
+    };
+
+    @Test
+    public void serialize_MessageMatchesDomOutput() throws Exception {
+        MessageSerializer serializer = new MessageSerializer();
+        for (String body : BODIES) {
+            Message message = buildMessage(body);
+
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            doc.appendChild(serializer.serializeMessage(doc, message));
+            byte[] expected = XmlUtil.xmlNodeToString(doc, "UTF-8").getBytes("UTF-8");
+
+            Assert.assertArrayEquals(body, expected, readAll(serializer.serialize(message, "UTF-8")));
+        }
+    }
+
+    @Test
+    public void serialize_MessageListMatchesDomOutput() throws Exception {
+        MessageListSerializer serializer = new MessageListSerializer();
+        List<Message> messages = new ArrayList<Message>();
+        for (String body : BODIES) {
+            messages.add(buildMessage(body));
+        }
+        messages.add(new Message());
+
+        for (List<Message> list : Arrays.asList(messages, new ArrayList<Message>(), null)) {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            Element root = doc.createElementNS(DEFAULT_XML_NAMESPACE, MESSAGE_LIST_TAG);
+            doc.appendChild(root);
+            if (list != null) {
+                for (Message message : list) {
+                    root.appendChild(serializer.serializeMessage(doc, message));
+                }
+            }
+            byte[] expected = XmlUtil.xmlNodeToString(doc, "UTF-8").getBytes("UTF-8");
+
+            Assert.assertArrayEquals(expected, readAll(serializer.serialize(list, "UTF-8")));
+        }
+    }
+
+    @Test
+    public void serialize_EmptyBodyWrittenAsEmptyElement() throws Exception {
+        String xml = new String(readAll(new MessageSerializer().serialize(new Message(), "UTF-8")), "UTF-8");
+        Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+            + "<Message xmlns=\"http://mns.aliyuncs.com/doc/v1\"><MessageBody/></Message>", xml);
+    }
+
+    private Message buildMessage(String body) {
+        Message message = new Message();
+        message.setMessageBodyAsRawString(body);
+        message.setDelaySeconds(10);
+        message.setPriority(1);
+        message.setMessageGroupId("group<" + body + ">");
+        message.getUserProperties().put("key&" + body, new MessagePropertyValue(body));
+        message.getUserProperties().put("bin", new MessagePropertyValue(PropertyType.BINARY, body));
+        message.putSystemProperty(MessageSystemPropertyName.TRACE_PARENT,
+            new MessageSystemPropertyValue(SystemPropertyType.STRING, body));
+        return message;
+    }
+
+    private byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
+
@@ -0,0 +1,103 @@
+package com.aliyun.mns.unitTest.utils;
+
+import com.aliyun.mns.common.utils.HashedWheelTimer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 5, TimeUnit.MILLISECONDS, 8);
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void newTimeout_RunsAfterDelay() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(latch::countDown, 30, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 30);
+        Assert.assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    public void newTimeout_DelayLongerThanOneRound() throws Exception {
+        final List<String> fired = new CopyOnWriteArrayList<String>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        // 一圈是 8 * 5ms = 40ms
+        timer.newTimeout(() -> {
+            fired.add("late");
+            latch.countDown();
+        }, 100, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> {
+            fired.add("early");
+            latch.countDown();
+        }, 10, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals("early", fired.get(0));
+        Assert.assertEquals("late", fired.get(1));
+    }
+
+    @Test
+    public void cancel_PreventsExecution() throws Exception {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final CountDownLatch marker = new CountDownLatch(1);
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(cancelled::countDown, 20, TimeUnit.MILLISECONDS);
+        timer.newTimeout(marker::countDown, 50, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(timeout.cancel());
+        Assert.assertTrue(marker.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(1, cancelled.getCount());
+        Assert.assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void newTimeout_ConcurrentFirstUse_AllFire() throws Exception {
+        final int threads = 16;
+        for (int round = 0; round < 100; round++) {
+            final HashedWheelTimer fresh = new HashedWheelTimer("test-timer-" + round, 5, TimeUnit.MILLISECONDS, 8);
+            final CyclicBarrier barrier = new CyclicBarrier(threads);
+            final CountDownLatch fired = new CountDownLatch(threads);
+            List<Thread> callers = new CopyOnWriteArrayList<Thread>();
+            for (int i = 0; i < threads; i++) {
+                Thread caller = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        fresh.newTimeout(fired::countDown, 10, TimeUnit.MILLISECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                callers.add(caller);
+                caller.start();
+            }
+            for (Thread caller : callers) {
+                caller.join();
+            }
+            try {
+                // 启动时并发添加的任务也必须按正常延迟执行
+                Assert.assertTrue("round " + round, fired.await(2, TimeUnit.SECONDS));
+            } finally {
+                fresh.stop();
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void newTimeout_AfterStop_Throws() {
+        timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS);
+        timer.stop();
+        timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,103 @@
+package com.aliyun.mns.unitTest.utils;
+
+import com.aliyun.mns.common.HttpMethod;
+import com.aliyun.mns.common.MNSConstants;
+import com.aliyun.mns.common.comm.ExecutionContext;
+import com.aliyun.mns.common.http.HttpFactory;
+import com.aliyun.mns.common.http.ServiceClient;
+import com.aliyun.mns.common.utils.DateUtil;
+import com.aliyun.mns.common.utils.HttpUtil;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.SimpleTimeZone;
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 请求头处理：Date 按秒缓存且格式不变，ASCII 值不做编码转换，重发不会重复转换，固定请求头复用同一实例
+ */
+public class HeaderPipelineTest {
+
+    @Test
+    public void formatRfc822Date_SameAsSimpleDateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+        format.setTimeZone(new SimpleTimeZone(0, "GMT"));
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            Date date = new Date(Math.abs(random.nextLong()) % 4102444800000L);
+            Assert.assertEquals(format.format(date), DateUtil.formatRfc822Date(date));
+        }
+    }
+
+    @Test
+    public void formatRfc822Date_SameSecond_ReusesValue() {
+        long second = System.currentTimeMillis() / 1000 * 1000;
+        String first = DateUtil.formatRfc822Date(new Date(second + 10));
+        Assert.assertSame(first, DateUtil.formatRfc822Date(new Date(second + 990)));
+        Assert.assertNotEquals(first, DateUtil.formatRfc822Date(new Date(second + 1000)));
+    }
+
+    @Test
+    public void convertHeaderCharset_AsciiUntouched_NonAsciiConverted() {
+        String ascii = "text/xml;charset=UTF-8";
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("content-type", ascii);
+        headers.put("x-mns-tag", "中文");
+        HttpUtil.convertHeaderCharsetToIso88591(headers);
+        Assert.assertSame(ascii, headers.get("content-type"));
+        Assert.assertNotEquals("中文", headers.get("x-mns-tag"));
+
+        HttpUtil.convertHeaderCharsetFromIso88591(headers);
+        Assert.assertSame(ascii, headers.get("content-type"));
+        Assert.assertEquals("中文", headers.get("x-mns-tag"));
+    }
+
+    @Test
+    public void toIso88591Headers_LeavesSourceUntouched() {
+        Map<String, String> ascii = new HashMap<String, String>();
+        ascii.put("content-type", "text/xml");
+        Assert.assertSame(ascii, HttpUtil.toIso88591Headers(ascii));
+
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("content-type", "text/xml");
+        headers.put("x-mns-tag", "中文");
+        // 重发时每次都从原 headers 转换，结果不变
+        Map<String, String> first = HttpUtil.toIso88591Headers(headers);
+        Map<String, String> second = HttpUtil.toIso88591Headers(headers);
+        Assert.assertEquals("中文", headers.get("x-mns-tag"));
+        Assert.assertEquals(first.get("x-mns-tag"), second.get("x-mns-tag"));
+        Assert.assertEquals("text/xml", first.get("Content-Type"));
+
+        HttpUtil.convertHeaderCharsetFromIso88591(second);
+        Assert.assertEquals("中文", second.get("x-mns-tag"));
+    }
+
+    @Test
+    public void createHttpRequest_ReusesConstantHeaders() {
+        HttpRequestBase first = HttpFactory.createHttpRequest(request(), new ExecutionContext());
+        HttpRequestBase second = HttpFactory.createHttpRequest(request(), new ExecutionContext());
+
+        Header version = first.getFirstHeader(MNSConstants.X_HEADER_MNS_API_VERSION);
+        Assert.assertEquals(MNSConstants.X_HEADER_MNS_API_VERSION_VALUE, version.getValue());
+        Assert.assertSame(version, second.getFirstHeader(MNSConstants.X_HEADER_MNS_API_VERSION));
+        Assert.assertSame(first.getFirstHeader(MNSConstants.CONTENT_TYPE),
+            second.getFirstHeader(MNSConstants.CONTENT_TYPE));
+        Assert.assertEquals("abc", first.getFirstHeader(MNSConstants.AUTHORIZATION).getValue());
+    }
+
+    private ServiceClient.Request request() {
+        ServiceClient.Request request = new ServiceClient.Request();
+        request.setMethod(HttpMethod.GET);
+        request.setUrl("http://localhost/queues/q");
+        request.addHeader(MNSConstants.X_HEADER_MNS_API_VERSION, MNSConstants.X_HEADER_MNS_API_VERSION_VALUE);
+        request.addHeader(MNSConstants.CONTENT_TYPE, MNSConstants.DEFAULT_CONTENT_TYPE);
+        request.addHeader(MNSConstants.AUTHORIZATION, "abc");
+        return request;
+    }
+}